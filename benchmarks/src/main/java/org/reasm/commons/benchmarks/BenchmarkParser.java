@@ -0,0 +1,208 @@
+package org.reasm.commons.benchmarks;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+
+import javax.annotation.CheckForNull;
+import javax.annotation.Nonnull;
+import javax.annotation.concurrent.Immutable;
+
+import org.reasm.AssemblyBuilder;
+import org.reasm.commons.source.BasicBlockParser;
+import org.reasm.commons.source.BlockDirective;
+import org.reasm.commons.source.BlockDirectiveLine;
+import org.reasm.commons.source.BlockDirectiveLineFactory;
+import org.reasm.commons.source.BlockParser;
+import org.reasm.commons.source.IfBlockParser;
+import org.reasm.commons.source.LogicalLine;
+import org.reasm.commons.source.LogicalLineAttributes;
+import org.reasm.commons.source.LogicalLineFactory;
+import org.reasm.commons.source.Parser;
+import org.reasm.commons.source.Syntax;
+import org.reasm.source.CompositeSourceNode;
+import org.reasm.source.ParseError;
+import org.reasm.source.SourceNode;
+
+/**
+ * A {@link Parser} configured like a typical reasm-based assembler, for use by the benchmarks.
+ *
+ * @author Francis Gagné
+ */
+final class BenchmarkParser {
+
+    @Immutable
+    static final class BenchmarkBlock extends CompositeSourceNode {
+
+        BenchmarkBlock(@Nonnull Iterable<? extends SourceNode> childNodes, @CheckForNull ParseError parseError) {
+            super(childNodes, parseError);
+        }
+
+        @Override
+        protected void assembleCore(AssemblyBuilder builder) {
+        }
+
+    }
+
+    @Immutable
+    static final class BenchmarkBlockDirectiveLine extends BlockDirectiveLine {
+
+        BenchmarkBlockDirectiveLine(@Nonnull LogicalLine logicalLine, @Nonnull BlockDirective blockDirective) {
+            super(logicalLine, blockDirective);
+        }
+
+        @Override
+        protected void assembleCore(AssemblyBuilder builder) {
+        }
+
+    }
+
+    @Immutable
+    static final class BenchmarkIfBlock extends CompositeSourceNode {
+
+        BenchmarkIfBlock(@Nonnull Iterable<? extends SourceNode> childNodes, @CheckForNull ParseError parseError) {
+            super(childNodes, parseError);
+        }
+
+        @Override
+        protected void assembleCore(AssemblyBuilder builder) {
+        }
+
+    }
+
+    @Immutable
+    static final class BenchmarkLogicalLine extends LogicalLine {
+
+        BenchmarkLogicalLine(@Nonnull LogicalLineAttributes attributes) {
+            super(attributes);
+        }
+
+        @Override
+        protected void assembleCore(AssemblyBuilder builder) {
+        }
+
+    }
+
+    @Nonnull
+    private static final BlockDirective MACRO = new BlockDirective("MACRO");
+    @Nonnull
+    private static final BlockDirective ENDM = new BlockDirective("ENDM");
+    @Nonnull
+    private static final BlockDirective REPT = new BlockDirective("REPT");
+    @Nonnull
+    private static final BlockDirective ENDR = new BlockDirective("ENDR");
+    @Nonnull
+    private static final BlockDirective IF = new BlockDirective("IF");
+    @Nonnull
+    private static final BlockDirective ELSEIF = new BlockDirective("ELSEIF");
+    @Nonnull
+    private static final BlockDirective ELSE = new BlockDirective("ELSE");
+    @Nonnull
+    private static final BlockDirective ENDIF = new BlockDirective("ENDIF");
+
+    @Nonnull
+    private static final Iterable<Class<? extends SourceNode>> BLOCK_TYPES = Collections
+            .<Class<? extends SourceNode>> singleton(BenchmarkBlock.class);
+    @Nonnull
+    private static final Iterable<Class<? extends SourceNode>> IF_BLOCK_TYPES = Collections
+            .<Class<? extends SourceNode>> singleton(BenchmarkIfBlock.class);
+
+    @Nonnull
+    private static final LogicalLineFactory LOGICAL_LINE_FACTORY = new LogicalLineFactory() {
+
+        @Override
+        public LogicalLine createLogicalLine(LogicalLineAttributes attributes) {
+            return new BenchmarkLogicalLine(attributes);
+        }
+
+        @Override
+        public Class<? extends LogicalLine> getOutputType() {
+            return BenchmarkLogicalLine.class;
+        }
+
+    };
+
+    @Nonnull
+    private static final BlockDirectiveLineFactory BLOCK_DIRECTIVE_LINE_FACTORY = new BlockDirectiveLineFactory() {
+
+        @Override
+        public BlockDirectiveLine createBlockDirectiveLine(LogicalLine logicalLine, BlockDirective blockDirective) {
+            return new BenchmarkBlockDirectiveLine(logicalLine, blockDirective);
+        }
+
+        @Override
+        public Class<? extends BlockDirectiveLine> getOutputType() {
+            return BenchmarkBlockDirectiveLine.class;
+        }
+
+    };
+
+    /** The parser used by the benchmarks. */
+    @Nonnull
+    static final Parser PARSER = createParser();
+
+    @Nonnull
+    private static BlockParser basicBlockParser(@Nonnull BlockDirective endingDirective) {
+        return new BasicBlockParser(endingDirective) {
+
+            @Override
+            public Iterable<Class<? extends SourceNode>> getOutputNodeTypes() {
+                return BLOCK_TYPES;
+            }
+
+            @Override
+            protected SourceNode createBlock(Iterable<? extends SourceNode> childNodes, ParseError parseError) {
+                return new BenchmarkBlock(childNodes, parseError);
+            }
+
+        };
+    }
+
+    @Nonnull
+    private static Parser createParser() {
+        final Map<String, BlockDirective> blockDirectives = new HashMap<>();
+        for (BlockDirective blockDirective : new BlockDirective[] { MACRO, ENDM, REPT, ENDR, IF, ELSEIF, ELSE, ENDIF }) {
+            blockDirectives.put(blockDirective.getMnemonic(), blockDirective);
+        }
+
+        final Map<BlockDirective, BlockParser> blocks = new HashMap<>();
+        blocks.put(MACRO, basicBlockParser(ENDM));
+        blocks.put(REPT, basicBlockParser(ENDR));
+        blocks.put(IF, new IfBlockParser() {
+
+            @Override
+            public Iterable<Class<? extends SourceNode>> getOutputNodeTypes() {
+                return IF_BLOCK_TYPES;
+            }
+
+            @Override
+            protected SourceNode createBlock(Iterable<? extends SourceNode> childNodes, ParseError parseError) {
+                return new BenchmarkIfBlock(childNodes, parseError);
+            }
+
+            @Override
+            protected boolean isElseDirective(BlockDirective blockDirective) {
+                return blockDirective == ELSE;
+            }
+
+            @Override
+            protected boolean isElseIfDirective(BlockDirective blockDirective) {
+                return blockDirective == ELSEIF;
+            }
+
+            @Override
+            protected boolean isEndIfDirective(BlockDirective blockDirective) {
+                return blockDirective == ENDIF;
+            }
+
+        });
+
+        return new Parser(new Syntax(new int[] { '+', '-', '*', '/', '<', '>', '=', '&', '|', '^', '!', '~', '#' }, new int[] {}),
+                blockDirectives, blocks, LOGICAL_LINE_FACTORY, BLOCK_DIRECTIVE_LINE_FACTORY);
+    }
+
+    // This class is not meant to be instantiated.
+    private BenchmarkParser() {
+    }
+
+}
@@ -0,0 +1,109 @@
+package org.reasm.commons.benchmarks;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.reasm.commons.source.Parser;
+import org.reasm.source.SourceNode;
+
+import ca.fragag.text.Document;
+
+/**
+ * Measures the throughput of {@link Parser#parse(Document)}.
+ * <p>
+ * Besides the number of parses per second, this benchmark reports the number of logical lines and of bytes (in UTF-8) parsed per
+ * second through the <code>lines</code> and <code>bytes</code> secondary results. Run it with <code>-prof gc</code> and divide
+ * <code>gc.alloc.rate.norm</code> by the <code>lines</code> parameter to get the number of bytes allocated per logical line.
+ *
+ * @author Francis Gagné
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5)
+@Measurement(iterations = 5)
+@Fork(value = 1, jvmArgsAppend = { "-Xms4g", "-Xmx4g" })
+@State(Scope.Benchmark)
+public class ParserBenchmark {
+
+    /**
+     * Counts the logical lines and the bytes parsed by the benchmark.
+     */
+    @AuxCounters(AuxCounters.Type.OPERATIONS)
+    @State(Scope.Thread)
+    public static class Throughput {
+
+        /** The number of logical lines parsed. */
+        public long lines;
+        /** The number of bytes (in UTF-8) parsed. */
+        public long bytes;
+
+        /**
+         * Resets the counters before each iteration.
+         */
+        @Setup(Level.Iteration)
+        public void reset() {
+            this.lines = 0;
+            this.bytes = 0;
+        }
+
+    }
+
+    /** The number of logical lines in the synthetic source. Ignored when {@link #file} is set. */
+    @Param({ "10000", "100000", "1000000" })
+    public int lines;
+
+    /** The shape of the synthetic source. Ignored when {@link #file} is set. */
+    @Param({ "MIXED", "NESTED_IF", "CONTINUATIONS", "LONG_DATA" })
+    public SourceShape shape;
+
+    /** The path to a real-world UTF-8 source file to parse instead of a synthetic source. */
+    @Param({ "" })
+    public String file;
+
+    private Document document;
+    private int logicalLines;
+    private long bytes;
+
+    /**
+     * Prepares the source to parse.
+     *
+     * @throws IOException
+     *             an I/O error occurred while reading the source file
+     */
+    @Setup
+    public void setUp() throws IOException {
+        final String text = SourceFiles.load(this.file, this.shape, this.lines);
+        this.document = new Document(text);
+        this.logicalLines = SourceFiles.countLogicalLines(BenchmarkParser.PARSER.parse(this.document));
+        this.bytes = text.getBytes(StandardCharsets.UTF_8).length;
+    }
+
+    /**
+     * Parses the whole source.
+     *
+     * @param throughput
+     *            the counters for the secondary results
+     * @return the root of the parsed source
+     */
+    @Benchmark
+    public SourceNode parse(Throughput throughput) {
+        throughput.lines += this.logicalLines;
+        throughput.bytes += this.bytes;
+        return BenchmarkParser.PARSER.parse(this.document);
+    }
+
+}
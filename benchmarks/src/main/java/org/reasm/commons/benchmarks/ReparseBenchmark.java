@@ -0,0 +1,103 @@
+package org.reasm.commons.benchmarks;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.reasm.commons.source.Parser;
+import org.reasm.source.SourceNode;
+
+import ca.fragag.text.Document;
+
+/**
+ * Measures the latency of {@link Parser#reparse(Document, SourceNode, int, int, int)} for keystroke-sized edits.
+ * <p>
+ * Each invocation either types a character in the middle of the source or deletes the character typed by the previous
+ * invocation, so the source keeps the same size throughout the benchmark.
+ *
+ * @author Francis Gagné
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5)
+@Measurement(iterations = 5)
+@Fork(value = 1, jvmArgsAppend = { "-Xms2g", "-Xmx2g" })
+@State(Scope.Thread)
+public class ReparseBenchmark {
+
+    /** The number of logical lines in the synthetic source. Ignored when {@link #file} is set. */
+    @Param({ "10000", "100000" })
+    public int lines;
+
+    /** The shape of the synthetic source. Ignored when {@link #file} is set. */
+    @Param({ "MIXED", "NESTED_IF", "CONTINUATIONS" })
+    public SourceShape shape;
+
+    /** The path to a real-world UTF-8 source file to edit instead of a synthetic source. */
+    @Param({ "" })
+    public String file;
+
+    /** The key typed at each keystroke: a character within a line, or a line break that splits a line. */
+    @Param({ "CHARACTER", "LINE_BREAK" })
+    public String keystroke;
+
+    private String typedText;
+    private Document document;
+    private SourceNode root;
+    private int editOffset;
+    private boolean typed;
+
+    /**
+     * Prepares the source to edit.
+     *
+     * @throws IOException
+     *             an I/O error occurred while reading the source file
+     */
+    @Setup
+    public void setUp() throws IOException {
+        final String text = SourceFiles.load(this.file, this.shape, this.lines);
+        this.document = new Document(text);
+        this.root = BenchmarkParser.PARSER.parse(this.document);
+
+        // Edit right after the first space following the middle of the source, which is usually within an operand.
+        final int space = text.indexOf(' ', text.length() / 2);
+        this.editOffset = space == -1 ? text.length() / 2 : space + 1;
+        this.typed = false;
+        this.typedText = "LINE_BREAK".equals(this.keystroke) ? "\n" : "x";
+    }
+
+    /**
+     * Types or deletes a keystroke and reparses the source.
+     *
+     * @return the root of the reparsed source
+     */
+    @Benchmark
+    public SourceNode keystroke() {
+        final int lengthToRemove;
+        final int lengthToInsert;
+        if (this.typed) {
+            lengthToRemove = this.typedText.length();
+            lengthToInsert = 0;
+            this.document = this.document.replace(this.editOffset, lengthToRemove, "");
+        } else {
+            lengthToRemove = 0;
+            lengthToInsert = this.typedText.length();
+            this.document = this.document.replace(this.editOffset, 0, this.typedText);
+        }
+
+        this.typed = !this.typed;
+        this.root = BenchmarkParser.PARSER.reparse(this.document, this.root, this.editOffset, lengthToRemove, lengthToInsert);
+        return this.root;
+    }
+
+}
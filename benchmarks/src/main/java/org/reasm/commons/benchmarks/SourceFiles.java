@@ -0,0 +1,70 @@
+package org.reasm.commons.benchmarks;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+
+import javax.annotation.Nonnull;
+
+import org.reasm.commons.source.BlockDirectiveLine;
+import org.reasm.commons.source.LogicalLine;
+import org.reasm.source.CompositeSourceNode;
+import org.reasm.source.SourceNode;
+
+/**
+ * Helpers to load the sources parsed by the benchmarks.
+ *
+ * @author Francis Gagné
+ */
+final class SourceFiles {
+
+    /**
+     * Counts the logical lines in a source tree.
+     *
+     * @param node
+     *            the root of the source tree
+     * @return the number of {@link LogicalLine} and {@link BlockDirectiveLine} nodes in the tree
+     */
+    static int countLogicalLines(@Nonnull SourceNode node) {
+        if (node instanceof LogicalLine || node instanceof BlockDirectiveLine) {
+            return 1;
+        }
+
+        int count = 0;
+        if (node instanceof CompositeSourceNode) {
+            for (SourceNode childNode : ((CompositeSourceNode) node).getChildNodes()) {
+                count += countLogicalLines(childNode);
+            }
+        }
+
+        return count;
+    }
+
+    /**
+     * Gets the text of the source to parse: either the contents of a real source file, or a synthetic source.
+     *
+     * @param file
+     *            the path to a UTF-8 source file, or an empty string to generate a synthetic source
+     * @param shape
+     *            the shape of the synthetic source
+     * @param lines
+     *            the number of logical lines in the synthetic source
+     * @return the source text
+     * @throws IOException
+     *             an I/O error occurred while reading the source file
+     */
+    @Nonnull
+    static String load(@Nonnull String file, @Nonnull SourceShape shape, int lines) throws IOException {
+        if (file.isEmpty()) {
+            return shape.generate(lines);
+        }
+
+        return new String(Files.readAllBytes(Paths.get(file)), StandardCharsets.UTF_8);
+    }
+
+    // This class is not meant to be instantiated.
+    private SourceFiles() {
+    }
+
+}
@@ -0,0 +1,136 @@
+package org.reasm.commons.benchmarks;
+
+import java.util.Random;
+
+import javax.annotation.Nonnull;
+import javax.annotation.concurrent.Immutable;
+
+/**
+ * The shapes of synthetic source files generated for the benchmarks.
+ *
+ * @author Francis Gagné
+ */
+@Immutable
+public enum SourceShape {
+
+    /**
+     * A mix of labels, instructions, comments and small blocks, resembling typical hand-written assembly code.
+     */
+    MIXED {
+        @Override
+        void appendLine(@Nonnull StringBuilder sb, int lineNumber, @Nonnull Random random) {
+            // Open and close a conditional block at regular intervals so that blocks are balanced.
+            switch (lineNumber % 32) {
+            case 8:
+                sb.append(" IF DEBUG\n");
+                return;
+
+            case 24:
+                sb.append(" ENDIF\n");
+                return;
+            }
+
+            switch (random.nextInt(16)) {
+            case 0:
+                sb.append("; Routine ").append(lineNumber).append('\n');
+                break;
+
+            case 1:
+                sb.append("label").append(lineNumber).append(":\n");
+                break;
+
+            case 2:
+                sb.append(" MOVE.L #\"str;ing\",D").append(random.nextInt(8)).append(" ; load a string\n");
+                break;
+
+            default:
+                sb.append(" ADD.W (A").append(random.nextInt(8)).append(")+,D").append(random.nextInt(8)).append('\n');
+                break;
+            }
+        }
+    },
+
+    /**
+     * Deeply nested <code>IF</code>/<code>ELSE</code>/<code>ENDIF</code> blocks.
+     */
+    NESTED_IF {
+        private static final int DEPTH = 64;
+
+        @Override
+        void appendLine(@Nonnull StringBuilder sb, int lineNumber, @Nonnull Random random) {
+            // Each cycle opens DEPTH blocks, emits a body line in each of them, then closes them with an ELSE and an ENDIF.
+            final int position = lineNumber % (DEPTH * 4);
+            if (position < DEPTH) {
+                sb.append(" IF LEVEL>").append(position).append('\n');
+            } else if (position < DEPTH * 2) {
+                sb.append(" NOP\n");
+            } else if ((position & 1) == 0) {
+                sb.append(" ELSE\n");
+            } else {
+                sb.append(" ENDIF\n");
+            }
+        }
+    },
+
+    /**
+     * Logical lines that span several physical lines through <code>&amp;</code> continuation characters.
+     */
+    CONTINUATIONS {
+        @Override
+        void appendLine(@Nonnull StringBuilder sb, int lineNumber, @Nonnull Random random) {
+            sb.append(" DC.W ");
+            final int physicalLines = 2 + random.nextInt(4);
+            for (int i = 0; i < physicalLines; i++) {
+                if (i > 0) {
+                    sb.append(",&\n      ");
+                }
+
+                sb.append(random.nextInt(65536)).append(',').append("value").append(i);
+            }
+
+            sb.append('\n');
+        }
+    },
+
+    /**
+     * Long data lines with many operands, such as generated lookup tables.
+     */
+    LONG_DATA {
+        private static final int OPERANDS = 64;
+
+        @Override
+        void appendLine(@Nonnull StringBuilder sb, int lineNumber, @Nonnull Random random) {
+            sb.append(" DC.B ");
+            for (int i = 0; i < OPERANDS; i++) {
+                if (i > 0) {
+                    sb.append(',');
+                }
+
+                sb.append('$').append(Integer.toHexString(random.nextInt(256)));
+            }
+
+            sb.append('\n');
+        }
+    };
+
+    /**
+     * Generates a synthetic source file.
+     *
+     * @param logicalLines
+     *            the number of logical lines to generate
+     * @return the source text
+     */
+    @Nonnull
+    public final String generate(int logicalLines) {
+        final StringBuilder sb = new StringBuilder();
+        final Random random = new Random(logicalLines);
+        for (int i = 0; i < logicalLines; i++) {
+            this.appendLine(sb, i, random);
+        }
+
+        return sb.toString();
+    }
+
+    abstract void appendLine(@Nonnull StringBuilder sb, int lineNumber, @Nonnull Random random);
+
+}
@@ -0,0 +1,352 @@
+package org.reasm.commons.expressions;
+
+import java.io.IOException;
+import java.util.Arrays;
+
+import javax.annotation.CheckForNull;
+import javax.annotation.Nonnull;
+
+import org.reasm.AssemblyMessage;
+
+import ca.fragag.Consumer;
+
+/**
+ * Stores the nodes of the expressions built by an {@link ExpressionParser}.
+ * <p>
+ * Nodes are not objects: a node is identified by an <code>int</code>, its index in the arena, and its attributes are stored in
+ * parallel arrays of primitive values. The operands of all the nodes are stored in a single array, and the contents of string
+ * literals and the names of symbols are stored in a single buffer of characters. Parsing many expressions in the same arena,
+ * e.g. all the operands of a data table, therefore allocates a handful of arrays rather than several objects per node. The
+ * arrays are grown as needed and are reused after {@link #clear()} is called.
+ * <p>
+ * The nodes of an expression are added to the arena after their operands, so the operands of a node always have a smaller
+ * index than the node itself, and the root of an expression is the last node that was added when the expression was parsed.
+ * <p>
+ * An ExpressionArena must not be used by more than one thread at a time.
+ *
+ * @author Francis Gagné
+ */
+public final class ExpressionArena {
+
+    /** The kind of a node that represents a number literal. Its value is returned by {@link #getNumber(int)}. */
+    public static final int NUMBER = 0;
+
+    /** The kind of a node that represents a string literal. Its contents are returned by {@link #getString(int)}. */
+    public static final int STRING = 1;
+
+    /** The kind of a node that represents a reference to a symbol. Its name is returned by {@link #getSymbolName(int)}. */
+    public static final int SYMBOL = 2;
+
+    /**
+     * The kind of a node that represents the application of a prefix operator. The node has 1 operand, and
+     * {@link #getOperator(int)} returns the {@link OperatorTable.Operator#getCode() code} of the operator.
+     */
+    public static final int UNARY_OPERATION = 3;
+
+    /**
+     * The kind of a node that represents the application of an infix operator. The node has 2 operands, and
+     * {@link #getOperator(int)} returns the {@link OperatorTable.Operator#getCode() code} of the operator.
+     */
+    public static final int BINARY_OPERATION = 4;
+
+    /**
+     * The kind of a node that represents a function call. The first operand of the node is the {@link #SYMBOL} node of the
+     * function, and the following operands are the arguments.
+     */
+    public static final int FUNCTION_CALL = 5;
+
+    /**
+     * The kind of a node that represents a part of an expression that could not be parsed. The node has no operands.
+     */
+    public static final int ERROR = 6;
+
+    private static final int INITIAL_CAPACITY = 16;
+
+    @Nonnull
+    private int[] kinds = new int[INITIAL_CAPACITY];
+    @Nonnull
+    private int[] starts = new int[INITIAL_CAPACITY];
+    @Nonnull
+    private int[] ends = new int[INITIAL_CAPACITY];
+
+    // The value of a NUMBER node, the operator code of an operation node, or the offset and the length of the characters of a
+    // STRING or SYMBOL node in the text buffer (see pack()).
+    @Nonnull
+    private long[] values = new long[INITIAL_CAPACITY];
+
+    // The index in the operands array of the first operand of each node, and the number of operands of each node.
+    @Nonnull
+    private int[] firstOperands = new int[INITIAL_CAPACITY];
+    @Nonnull
+    private int[] operandCounts = new int[INITIAL_CAPACITY];
+    private int numberOfNodes;
+
+    @Nonnull
+    private int[] operands = new int[INITIAL_CAPACITY];
+    private int numberOfOperands;
+
+    @Nonnull
+    private final StringBuilder textBuffer = new StringBuilder();
+
+    /**
+     * Initializes a new ExpressionArena.
+     */
+    public ExpressionArena() {
+    }
+
+    /**
+     * Removes all the nodes from this arena. The arrays of the arena are kept, so they can be reused by the next expressions.
+     */
+    public final void clear() {
+        this.numberOfNodes = 0;
+        this.numberOfOperands = 0;
+        this.textBuffer.setLength(0);
+    }
+
+    /**
+     * Gets the end offset of the text of a node, in the text that was passed to the {@link ExpressionParser}.
+     *
+     * @param node
+     *            the node
+     * @return the end (exclusive) offset of the node's text
+     */
+    public final int getEnd(int node) {
+        return this.ends[this.checkNode(node)];
+    }
+
+    /**
+     * Gets the kind of a node.
+     *
+     * @param node
+     *            the node
+     * @return the kind of the node: one of {@link #NUMBER}, {@link #STRING}, {@link #SYMBOL}, {@link #UNARY_OPERATION},
+     *         {@link #BINARY_OPERATION}, {@link #FUNCTION_CALL} or {@link #ERROR}
+     */
+    public final int getKind(int node) {
+        return this.kinds[this.checkNode(node)];
+    }
+
+    /**
+     * Gets the value of a {@link #NUMBER} node.
+     *
+     * @param node
+     *            the node
+     * @return the value of the number
+     */
+    public final long getNumber(int node) {
+        return this.values[this.checkNode(node, NUMBER)];
+    }
+
+    /**
+     * Gets the number of nodes in this arena.
+     *
+     * @return the number of nodes
+     */
+    public final int getNumberOfNodes() {
+        return this.numberOfNodes;
+    }
+
+    /**
+     * Gets the number of operands of a node.
+     *
+     * @param node
+     *            the node
+     * @return the number of operands
+     */
+    public final int getNumberOfOperands(int node) {
+        return this.operandCounts[this.checkNode(node)];
+    }
+
+    /**
+     * Gets an operand of a node.
+     *
+     * @param node
+     *            the node
+     * @param index
+     *            the index of the operand
+     * @return the operand node
+     */
+    public final int getOperand(int node, int index) {
+        this.checkNode(node);
+        if (index < 0 || index >= this.operandCounts[node]) {
+            throw new IndexOutOfBoundsException(String.valueOf(index));
+        }
+
+        return this.operands[this.firstOperands[node] + index];
+    }
+
+    /**
+     * Gets the {@link OperatorTable.Operator#getCode() code} of the operator of a {@link #UNARY_OPERATION} or
+     * {@link #BINARY_OPERATION} node.
+     *
+     * @param node
+     *            the node
+     * @return the operator's code
+     */
+    public final int getOperator(int node) {
+        final int kind = this.getKind(node);
+        if (kind != UNARY_OPERATION && kind != BINARY_OPERATION) {
+            throw new IllegalArgumentException("node is not an operation");
+        }
+
+        return (int) this.values[node];
+    }
+
+    /**
+     * Gets the start offset of the text of a node, in the text that was passed to the {@link ExpressionParser}.
+     *
+     * @param node
+     *            the node
+     * @return the start (inclusive) offset of the node's text
+     */
+    public final int getStart(int node) {
+        return this.starts[this.checkNode(node)];
+    }
+
+    /**
+     * Gets the contents of a {@link #STRING} node, with the delimiters removed and the escape sequences decoded.
+     *
+     * @param node
+     *            the node
+     * @return the contents of the string
+     */
+    @Nonnull
+    public final String getString(int node) {
+        return this.getText(this.checkNode(node, STRING));
+    }
+
+    /**
+     * Gets the name of a {@link #SYMBOL} node.
+     *
+     * @param node
+     *            the node
+     * @return the name of the symbol
+     */
+    @Nonnull
+    public final String getSymbolName(int node) {
+        return this.getText(this.checkNode(node, SYMBOL));
+    }
+
+    /**
+     * Determines whether the name of a {@link #SYMBOL} node is equal to the specified {@link CharSequence}, without creating a
+     * {@link String}.
+     *
+     * @param node
+     *            the node
+     * @param name
+     *            the name to compare the symbol's name with
+     * @return <code>true</code> if the symbol's name is equal to <code>name</code>; otherwise, <code>false</code>
+     */
+    public final boolean symbolNameEquals(int node, @Nonnull CharSequence name) {
+        if (name == null) {
+            throw new NullPointerException("name");
+        }
+
+        final long value = this.values[this.checkNode(node, SYMBOL)];
+        final int offset = (int) (value >>> 32);
+        final int length = (int) value;
+        if (name.length() != length) {
+            return false;
+        }
+
+        for (int i = 0; i < length; i++) {
+            if (this.textBuffer.charAt(offset + i) != name.charAt(i)) {
+                return false;
+            }
+        }
+
+        return true;
+    }
+
+    final int addError(int start, int end) {
+        return this.addNode(ERROR, start, end, 0, null, 0, 0);
+    }
+
+    final int addNumber(int start, int end, long value) {
+        return this.addNode(NUMBER, start, end, value, null, 0, 0);
+    }
+
+    final int addOperation(int kind, int start, int end, int operator, @Nonnull int[] operands, int from, int count) {
+        return this.addNode(kind, start, end, operator, operands, from, count);
+    }
+
+    final int addString(int start, int end, @Nonnull CharSequence string,
+            @CheckForNull Consumer<AssemblyMessage> assemblyMessageConsumer) {
+        final int offset = this.textBuffer.length();
+        try {
+            Expressions.parseString(string, assemblyMessageConsumer, this.textBuffer);
+        } catch (IOException e) {
+            // StringBuilder.append() doesn't throw IOException.
+            throw new AssertionError(e);
+        }
+
+        return this.addNode(STRING, start, end, pack(offset, this.textBuffer.length() - offset), null, 0, 0);
+    }
+
+    final int addSymbol(int start, int end, @Nonnull CharSequence text) {
+        final int offset = this.textBuffer.length();
+        this.textBuffer.append(text, start, end);
+        return this.addNode(SYMBOL, start, end, pack(offset, end - start), null, 0, 0);
+    }
+
+    private static long pack(int offset, int length) {
+        return (long) offset << 32 | length & 0xffffffffL;
+    }
+
+    private final int addNode(int kind, int start, int end, long value, @CheckForNull int[] operands, int from, int count) {
+        final int node = this.numberOfNodes;
+        if (node == this.kinds.length) {
+            final int newLength = node * 2;
+            this.kinds = Arrays.copyOf(this.kinds, newLength);
+            this.starts = Arrays.copyOf(this.starts, newLength);
+            this.ends = Arrays.copyOf(this.ends, newLength);
+            this.values = Arrays.copyOf(this.values, newLength);
+            this.firstOperands = Arrays.copyOf(this.firstOperands, newLength);
+            this.operandCounts = Arrays.copyOf(this.operandCounts, newLength);
+        }
+
+        if (count != 0) {
+            assert operands != null;
+            final int requiredLength = this.numberOfOperands + count;
+            if (requiredLength > this.operands.length) {
+                this.operands = Arrays.copyOf(this.operands, Math.max(requiredLength, this.operands.length * 2));
+            }
+
+            System.arraycopy(operands, from, this.operands, this.numberOfOperands, count);
+        }
+
+        this.kinds[node] = kind;
+        this.starts[node] = start;
+        this.ends[node] = end;
+        this.values[node] = value;
+        this.firstOperands[node] = this.numberOfOperands;
+        this.operandCounts[node] = count;
+        this.numberOfOperands += count;
+        this.numberOfNodes = node + 1;
+        return node;
+    }
+
+    private final int checkNode(int node) {
+        if (node < 0 || node >= this.numberOfNodes) {
+            throw new IndexOutOfBoundsException(String.valueOf(node));
+        }
+
+        return node;
+    }
+
+    private final int checkNode(int node, int kind) {
+        if (this.getKind(node) != kind) {
+            throw new IllegalArgumentException("node is not of the requested kind");
+        }
+
+        return node;
+    }
+
+    @Nonnull
+    private final String getText(int node) {
+        final long value = this.values[node];
+        final int offset = (int) (value >>> 32);
+        return this.textBuffer.substring(offset, offset + (int) value);
+    }
+
+}
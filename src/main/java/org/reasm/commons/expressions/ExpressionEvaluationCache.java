@@ -0,0 +1,365 @@
+package org.reasm.commons.expressions;
+
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.HashMap;
+
+import javax.annotation.CheckForNull;
+import javax.annotation.Nonnull;
+
+/**
+ * Caches the values of expressions across the passes of an assembly, and tracks the symbols that each expression read so that
+ * only the expressions whose dependencies changed are evaluated again.
+ * <p>
+ * Expressions are identified by non-negative <code>int</code>s chosen by the caller, e.g. the index of an operand in a source
+ * file; the identifiers should be dense, because the cache stores its data in arrays indexed by them. An expression is evaluated
+ * as follows:
+ * <ol>
+ * <li>call {@link #beginEvaluation(int)};</li>
+ * <li>call {@link #symbolRead(Object)} for each symbol that the evaluator looks up, whether the symbol is defined or not;</li>
+ * <li>call {@link #endEvaluation(Object)} with the value of the expression, or {@link #cancelEvaluation()} if the evaluation
+ * failed.</li>
+ * </ol>
+ * <p>
+ * When the value of a symbol changes, e.g. because a label moved, call {@link #symbolChanged(Object)}. The cache looks up the
+ * expressions that read the symbol in a reverse dependency index and invalidates them, so the cost of a change is proportional
+ * to the number of expressions that depend on the symbol. On the next pass, {@link #isValid(int)} tells whether the value
+ * returned by {@link #getValue(int)} can be reused, and {@link #nextInvalidExpression(int)} enumerates the expressions that must
+ * be evaluated again.
+ * <p>
+ * An ExpressionEvaluationCache must not be used by more than one thread at a time.
+ *
+ * @param <S>
+ *            the type of the keys that identify symbols, e.g. the symbol's name or the symbol itself
+ * @param <V>
+ *            the type of the values of the expressions
+ * @author Francis Gagné
+ */
+public final class ExpressionEvaluationCache<S, V> {
+
+    /**
+     * The expressions that read a symbol, stored as pairs of ints: the expression and its evaluation count at the time the
+     * dependency was recorded.
+     */
+    private static final class Dependents {
+
+        @Nonnull
+        int[] entries = new int[4];
+        int size;
+
+        Dependents() {
+        }
+
+    }
+
+    private static final int INITIAL_CAPACITY = 16;
+    private static final int NO_EXPRESSION = -1;
+
+    @Nonnull
+    private Object[] values = new Object[INITIAL_CAPACITY];
+
+    // The number of evaluations that were started for each expression. A dependency that was recorded during an earlier
+    // evaluation of an expression is stale.
+    @Nonnull
+    private int[] evaluationCounts = new int[INITIAL_CAPACITY];
+
+    @Nonnull
+    private final BitSet validExpressions = new BitSet();
+    @Nonnull
+    private final BitSet invalidExpressions = new BitSet();
+
+    // The reverse dependency index: the expressions that read each symbol.
+    @Nonnull
+    private final HashMap<S, Dependents> dependents = new HashMap<>();
+
+    private int currentExpression = NO_EXPRESSION;
+
+    /**
+     * Initializes a new ExpressionEvaluationCache.
+     */
+    public ExpressionEvaluationCache() {
+    }
+
+    /**
+     * Starts recording the dependencies of an expression. The cached value of the expression, if any, is discarded.
+     *
+     * @param expression
+     *            the identifier of the expression
+     * @throws IllegalStateException
+     *             the evaluation of another expression is in progress
+     */
+    public final void beginEvaluation(int expression) {
+        if (expression < 0) {
+            throw new IllegalArgumentException("expression < 0");
+        }
+
+        if (this.currentExpression != NO_EXPRESSION) {
+            throw new IllegalStateException("An evaluation is already in progress");
+        }
+
+        if (expression >= this.values.length) {
+            final int newLength = Math.max(expression + 1, this.values.length * 2);
+            this.values = Arrays.copyOf(this.values, newLength);
+            this.evaluationCounts = Arrays.copyOf(this.evaluationCounts, newLength);
+        }
+
+        this.values[expression] = null;
+        this.evaluationCounts[expression]++;
+        this.validExpressions.clear(expression);
+        this.invalidExpressions.set(expression);
+        this.currentExpression = expression;
+    }
+
+    /**
+     * Stops the evaluation that is in progress without storing a value. The expression remains invalid, and it is returned by
+     * {@link #nextInvalidExpression(int)}.
+     *
+     * @throws IllegalStateException
+     *             no evaluation is in progress
+     */
+    public final void cancelEvaluation() {
+        this.checkEvaluationInProgress();
+        this.currentExpression = NO_EXPRESSION;
+    }
+
+    /**
+     * Removes all the expressions and dependencies from this cache.
+     *
+     * @throws IllegalStateException
+     *             an evaluation is in progress
+     */
+    public final void clear() {
+        this.checkNoEvaluationInProgress();
+        Arrays.fill(this.values, null);
+        this.validExpressions.clear();
+        this.invalidExpressions.clear();
+        this.dependents.clear();
+    }
+
+    /**
+     * Stops the evaluation that is in progress and stores the value of the expression. The expression becomes valid.
+     *
+     * @param value
+     *            the value of the expression
+     * @throws IllegalStateException
+     *             no evaluation is in progress
+     */
+    public final void endEvaluation(@CheckForNull V value) {
+        this.checkEvaluationInProgress();
+        final int expression = this.currentExpression;
+        this.values[expression] = value;
+        this.validExpressions.set(expression);
+        this.invalidExpressions.clear(expression);
+        this.currentExpression = NO_EXPRESSION;
+    }
+
+    /**
+     * Gets the number of expressions that were invalidated, or whose last evaluation was cancelled, and that have not been
+     * evaluated successfully since then.
+     *
+     * @return the number of invalid expressions
+     */
+    public final int getNumberOfInvalidExpressions() {
+        return this.invalidExpressions.cardinality();
+    }
+
+    /**
+     * Gets the cached value of an expression.
+     *
+     * @param expression
+     *            the identifier of the expression
+     * @return the value of the expression, or <code>null</code> if the expression is not {@link #isValid(int) valid}
+     */
+    @CheckForNull
+    public final V getValue(int expression) {
+        if (!this.isValid(expression)) {
+            return null;
+        }
+
+        @SuppressWarnings("unchecked")
+        final V value = (V) this.values[expression];
+        return value;
+    }
+
+    /**
+     * Invalidates an expression, e.g. because its text changed.
+     *
+     * @param expression
+     *            the identifier of the expression
+     */
+    public final void invalidate(int expression) {
+        if (expression < 0) {
+            throw new IllegalArgumentException("expression < 0");
+        }
+
+        if (this.validExpressions.get(expression)) {
+            this.invalidateValidExpression(expression);
+        }
+    }
+
+    /**
+     * Invalidates all the expressions in this cache.
+     *
+     * @throws IllegalStateException
+     *             an evaluation is in progress
+     */
+    public final void invalidateAll() {
+        this.checkNoEvaluationInProgress();
+        this.invalidExpressions.or(this.validExpressions);
+        for (int i = this.validExpressions.nextSetBit(0); i >= 0; i = this.validExpressions.nextSetBit(i + 1)) {
+            this.values[i] = null;
+        }
+
+        this.validExpressions.clear();
+
+        // All the dependencies are now stale.
+        this.dependents.clear();
+    }
+
+    /**
+     * Determines whether this cache holds an up-to-date value for an expression, i.e. whether the expression was evaluated and
+     * none of the symbols it read changed since then.
+     *
+     * @param expression
+     *            the identifier of the expression
+     * @return <code>true</code> if the expression is valid; otherwise, <code>false</code>
+     */
+    public final boolean isValid(int expression) {
+        if (expression < 0) {
+            throw new IllegalArgumentException("expression < 0");
+        }
+
+        return this.validExpressions.get(expression);
+    }
+
+    /**
+     * Finds the next expression that was invalidated, or whose last evaluation was cancelled, and that has not been evaluated
+     * successfully since then.
+     *
+     * @param fromExpression
+     *            the identifier of the expression to start searching from (inclusive)
+     * @return the identifier of the next invalid expression, or -1 if there is no such expression
+     */
+    public final int nextInvalidExpression(int fromExpression) {
+        if (fromExpression < 0) {
+            throw new IllegalArgumentException("fromExpression < 0");
+        }
+
+        return this.invalidExpressions.nextSetBit(fromExpression);
+    }
+
+    /**
+     * Invalidates the expressions that read the specified symbol.
+     *
+     * @param symbol
+     *            the symbol whose value changed
+     * @return the number of expressions that were invalidated
+     * @throws IllegalStateException
+     *             an evaluation is in progress
+     */
+    public final int symbolChanged(@Nonnull S symbol) {
+        if (symbol == null) {
+            throw new NullPointerException("symbol");
+        }
+
+        this.checkNoEvaluationInProgress();
+        final Dependents dependents = this.dependents.remove(symbol);
+        if (dependents == null) {
+            return 0;
+        }
+
+        final int[] entries = dependents.entries;
+        int invalidated = 0;
+        for (int i = 0; i < dependents.size; i += 2) {
+            final int expression = entries[i];
+            if (this.isCurrent(expression, entries[i + 1]) && this.validExpressions.get(expression)) {
+                this.invalidateValidExpression(expression);
+                invalidated++;
+            }
+        }
+
+        return invalidated;
+    }
+
+    /**
+     * Records that the expression being evaluated read the specified symbol.
+     *
+     * @param symbol
+     *            the symbol
+     * @throws IllegalStateException
+     *             no evaluation is in progress
+     */
+    public final void symbolRead(@Nonnull S symbol) {
+        if (symbol == null) {
+            throw new NullPointerException("symbol");
+        }
+
+        this.checkEvaluationInProgress();
+        final int expression = this.currentExpression;
+        final int evaluationCount = this.evaluationCounts[expression];
+
+        Dependents dependents = this.dependents.get(symbol);
+        if (dependents == null) {
+            dependents = new Dependents();
+            this.dependents.put(symbol, dependents);
+        } else {
+            // No other expression is evaluated while an evaluation is in progress, so if the expression already read this symbol,
+            // its entry is the last one.
+            final int size = dependents.size;
+            if (size != 0 && dependents.entries[size - 2] == expression && dependents.entries[size - 1] == evaluationCount) {
+                return;
+            }
+
+            if (size == dependents.entries.length) {
+                // Remove the entries of the expressions that were evaluated again since they read this symbol before growing the
+                // array, so that symbols that never change don't accumulate entries across passes.
+                this.removeStaleEntries(dependents);
+                if (dependents.size > dependents.entries.length / 2) {
+                    dependents.entries = Arrays.copyOf(dependents.entries, dependents.entries.length * 2);
+                }
+            }
+        }
+
+        final int size = dependents.size;
+        dependents.entries[size] = expression;
+        dependents.entries[size + 1] = evaluationCount;
+        dependents.size = size + 2;
+    }
+
+    private final void checkEvaluationInProgress() {
+        if (this.currentExpression == NO_EXPRESSION) {
+            throw new IllegalStateException("No evaluation is in progress");
+        }
+    }
+
+    private final void checkNoEvaluationInProgress() {
+        if (this.currentExpression != NO_EXPRESSION) {
+            throw new IllegalStateException("An evaluation is in progress");
+        }
+    }
+
+    private final void invalidateValidExpression(int expression) {
+        this.values[expression] = null;
+        this.validExpressions.clear(expression);
+        this.invalidExpressions.set(expression);
+    }
+
+    private final boolean isCurrent(int expression, int evaluationCount) {
+        return this.evaluationCounts[expression] == evaluationCount;
+    }
+
+    private final void removeStaleEntries(@Nonnull Dependents dependents) {
+        final int[] entries = dependents.entries;
+        int newSize = 0;
+        for (int i = 0; i < dependents.size; i += 2) {
+            if (this.isCurrent(entries[i], entries[i + 1])) {
+                entries[newSize] = entries[i];
+                entries[newSize + 1] = entries[i + 1];
+                newSize += 2;
+            }
+        }
+
+        dependents.size = newSize;
+    }
+
+}
@@ -0,0 +1,506 @@
+package org.reasm.commons.expressions;
+
+import java.util.Arrays;
+
+import javax.annotation.CheckForNull;
+import javax.annotation.Nonnull;
+
+import org.reasm.AssemblyMessage;
+import org.reasm.commons.messages.InvalidTokenErrorMessage;
+import org.reasm.commons.source.Syntax;
+
+import ca.fragag.Consumer;
+
+/**
+ * Parses expressions into an {@link ExpressionArena}.
+ * <p>
+ * The parser splits the text of an operand into tokens with an {@link OperandTokenizer}, then builds the expression with a
+ * precedence climbing (Pratt) parser driven by an {@link OperatorTable}. The following terms are recognized:
+ * <ul>
+ * <li>number literals, which are converted by {@link #parseNumber(CharSequence, int, int)};</li>
+ * <li>string literals, which are decoded like {@link Expressions#parseString(CharSequence, Consumer)} does;</li>
+ * <li>identifiers, which are references to symbols;</li>
+ * <li>function calls, i.e. an identifier immediately followed by a left parenthesis, a comma-separated list of arguments and a
+ * right parenthesis;</li>
+ * <li>expressions in parentheses;</li>
+ * <li>the application of the prefix and infix operators of the {@link OperatorTable}.</li>
+ * </ul>
+ * <p>
+ * Errors don't stop the parser: the parts of the expression that cannot be parsed are represented by
+ * {@link ExpressionArena#ERROR} nodes, and an {@link InvalidTokenErrorMessage} is sent to the assembly message consumer for each
+ * unexpected token. When the expression ends unexpectedly, e.g. when an operand is missing or when a parenthesis or an argument
+ * list is not closed, a single {@link InvalidTokenErrorMessage} with an empty token is sent.
+ * <p>
+ * An ExpressionParser must not be used by more than one thread at a time.
+ *
+ * @author Francis Gagné
+ */
+public class ExpressionParser {
+
+    /**
+     * A view of the text of a string token, which is reused for all the string tokens to decode them without allocating a
+     * substring.
+     */
+    private static final class TokenText implements CharSequence {
+
+        @CheckForNull
+        CharSequence text;
+        int start;
+        int end;
+
+        TokenText() {
+        }
+
+        @Override
+        public char charAt(int index) {
+            assert this.text != null;
+            return this.text.charAt(this.start + index);
+        }
+
+        @Override
+        public int length() {
+            return this.end - this.start;
+        }
+
+        @Override
+        public CharSequence subSequence(int start, int end) {
+            assert this.text != null;
+            return this.text.subSequence(this.start + start, this.start + end);
+        }
+
+        @Override
+        public String toString() {
+            assert this.text != null;
+            return this.text.subSequence(this.start, this.end).toString();
+        }
+
+    }
+
+    private static final int INITIAL_CAPACITY = 16;
+
+    @Nonnull
+    private final OperatorTable operatorTable;
+    @Nonnull
+    private final OperandTokenizer tokenizer;
+    @Nonnull
+    private final TokenText tokenText = new TokenText();
+
+    // A stack that holds the operands of the nodes being built. The arguments of nested function calls are pushed on the same
+    // stack.
+    @Nonnull
+    private int[] operandStack = new int[INITIAL_CAPACITY];
+    private int operandStackSize;
+
+    // The state of the current call to parse().
+    @CheckForNull
+    private CharSequence text;
+    @CheckForNull
+    private ExpressionArena arena;
+    @CheckForNull
+    private Consumer<AssemblyMessage> assemblyMessageConsumer;
+    private int numberOfTokens;
+    private int token;
+    private int end;
+
+    // The last token for which an assembly message was reported, so that a token that ends several constructs is reported once.
+    private int reportedToken;
+
+    // The number of tokens that make up the operator returned by the last call to matchOperator().
+    private int matchedTokens;
+
+    /**
+     * Initializes a new ExpressionParser.
+     *
+     * @param syntax
+     *            the {@link Syntax} that classifies the code points
+     * @param operatorTable
+     *            the operators to recognize
+     */
+    public ExpressionParser(@Nonnull Syntax syntax, @Nonnull OperatorTable operatorTable) {
+        if (syntax == null) {
+            throw new NullPointerException("syntax");
+        }
+
+        if (operatorTable == null) {
+            throw new NullPointerException("operatorTable");
+        }
+
+        this.operatorTable = operatorTable;
+        this.tokenizer = new OperandTokenizer(syntax);
+    }
+
+    /**
+     * Gets the operators that this parser recognizes.
+     *
+     * @return the {@link OperatorTable}
+     */
+    @Nonnull
+    public final OperatorTable getOperatorTable() {
+        return this.operatorTable;
+    }
+
+    /**
+     * Gets the {@link Syntax} that this parser uses to classify code points.
+     *
+     * @return the {@link Syntax}
+     */
+    @Nonnull
+    public final Syntax getSyntax() {
+        return this.tokenizer.getSyntax();
+    }
+
+    /**
+     * Parses an expression and adds its nodes to an {@link ExpressionArena}.
+     *
+     * @param text
+     *            the text of the expression
+     * @param arena
+     *            the {@link ExpressionArena} to add the nodes to
+     * @param assemblyMessageConsumer
+     *            a {@link Consumer} that will receive assembly messages for problems that occurred while parsing the expression
+     * @return the root node of the expression
+     */
+    public final int parse(@Nonnull CharSequence text, @Nonnull ExpressionArena arena,
+            @CheckForNull Consumer<AssemblyMessage> assemblyMessageConsumer) {
+        if (text == null) {
+            throw new NullPointerException("text");
+        }
+
+        return this.parse(text, 0, text.length(), arena, assemblyMessageConsumer);
+    }
+
+    /**
+     * Parses an expression in a range of a text and adds its nodes to an {@link ExpressionArena}. The offsets of the nodes are
+     * relative to the start of <code>text</code>, not to the start of the range.
+     *
+     * @param text
+     *            the text that contains the expression
+     * @param start
+     *            the start (inclusive) of the expression in the text
+     * @param end
+     *            the end (exclusive) of the expression in the text
+     * @param arena
+     *            the {@link ExpressionArena} to add the nodes to
+     * @param assemblyMessageConsumer
+     *            a {@link Consumer} that will receive assembly messages for problems that occurred while parsing the expression
+     * @return the root node of the expression. If the expression is empty, the root node is an {@link ExpressionArena#ERROR}
+     *         node.
+     */
+    public final int parse(@Nonnull CharSequence text, int start, int end, @Nonnull ExpressionArena arena,
+            @CheckForNull Consumer<AssemblyMessage> assemblyMessageConsumer) {
+        if (arena == null) {
+            throw new NullPointerException("arena");
+        }
+
+        this.tokenizer.tokenize(text, start, end);
+        this.text = text;
+        this.arena = arena;
+        this.assemblyMessageConsumer = assemblyMessageConsumer;
+        this.numberOfTokens = this.tokenizer.getNumberOfTokens();
+        this.token = 0;
+        this.end = end;
+        this.operandStackSize = 0;
+        this.reportedToken = -1;
+
+        try {
+            final int root = this.parseExpression(Integer.MIN_VALUE);
+            if (this.token == this.numberOfTokens) {
+                return root;
+            }
+
+            // There are tokens after the end of the expression.
+            this.invalidToken();
+            return arena.addError(start, end);
+        } finally {
+            this.text = null;
+            this.arena = null;
+            this.assemblyMessageConsumer = null;
+            this.tokenText.text = null;
+        }
+    }
+
+    /**
+     * Converts the text of a number token to a number.
+     * <p>
+     * The default implementation accepts decimal numbers, hexadecimal numbers prefixed with <code>0x</code> and binary numbers
+     * prefixed with <code>0b</code>, where the prefixes are not case sensitive. Architectures that use other notations should
+     * override this method.
+     *
+     * @param text
+     *            the text that contains the number token
+     * @param start
+     *            the start (inclusive) of the number token in the text
+     * @param end
+     *            the end (exclusive) of the number token in the text
+     * @return the value of the number
+     * @throws NumberFormatException
+     *             the token is not a valid number, or its value doesn't fit in a <code>long</code>
+     */
+    protected long parseNumber(@Nonnull CharSequence text, int start, int end) throws NumberFormatException {
+        int radix = 10;
+        int bitsPerDigit = 0;
+        int position = start;
+        if (end - start > 2 && text.charAt(start) == '0') {
+            switch (text.charAt(start + 1)) {
+            case 'X':
+            case 'x':
+                radix = 16;
+                bitsPerDigit = 4;
+                position += 2;
+                break;
+
+            case 'B':
+            case 'b':
+                radix = 2;
+                bitsPerDigit = 1;
+                position += 2;
+                break;
+            }
+        }
+
+        if (position == end) {
+            throw new NumberFormatException();
+        }
+
+        long value = 0;
+        for (; position < end; position++) {
+            final int digit = Character.digit(text.charAt(position), radix);
+            if (digit == -1) {
+                throw new NumberFormatException();
+            }
+
+            if (bitsPerDigit != 0) {
+                // Hexadecimal and binary numbers may use all 64 bits.
+                if (value >>> 64 - bitsPerDigit != 0) {
+                    throw new NumberFormatException();
+                }
+
+                value = value << bitsPerDigit | digit;
+            } else {
+                // Decimal numbers must fit in a signed long.
+                if (value > (Long.MAX_VALUE - digit) / 10) {
+                    throw new NumberFormatException();
+                }
+
+                value = value * 10 + digit;
+            }
+        }
+
+        return value;
+    }
+
+    private final int addOperation(int kind, int start, int end, int operator, int operandStackStart) {
+        assert this.arena != null;
+        final int node = this.arena.addOperation(kind, start, end, operator, this.operandStack, operandStackStart,
+                this.operandStackSize - operandStackStart);
+        this.operandStackSize = operandStackStart;
+        return node;
+    }
+
+    private final int getTokenStartOrEnd(int token) {
+        return token < this.numberOfTokens ? this.tokenizer.getTokenStart(token) : this.end;
+    }
+
+    private final void invalidToken() {
+        if (this.token != this.reportedToken) {
+            this.reportedToken = this.token;
+            if (this.assemblyMessageConsumer != null) {
+                // The end of the expression is reported as an empty token.
+                final String token = this.token < this.numberOfTokens ? this.tokenizer.getTokenText(this.token).toString() : "";
+                this.assemblyMessageConsumer.accept(new InvalidTokenErrorMessage(token));
+            }
+        }
+    }
+
+    @CheckForNull
+    private final OperatorTable.Operator matchOperator(@Nonnull OperatorTable.Operator[] operators) {
+        final OperandTokenizer tokenizer = this.tokenizer;
+        final CharSequence text = this.text;
+        assert text != null;
+
+        // The operators are sorted from the longest symbol to the shortest, so the first match is the longest match.
+        operatorLoop: for (OperatorTable.Operator operator : operators) {
+            final String symbol = operator.getSymbol();
+            int token = this.token;
+            int codePoint;
+            for (int i = 0; i < symbol.length(); i += Character.charCount(codePoint), token++) {
+                if (token == this.numberOfTokens || tokenizer.getTokenKind(token) != OperandTokenizer.OPERATOR
+                        || token != this.token && tokenizer.getTokenStart(token) != tokenizer.getTokenEnd(token - 1)) {
+                    continue operatorLoop;
+                }
+
+                codePoint = symbol.codePointAt(i);
+                if (Character.codePointAt(text, tokenizer.getTokenStart(token)) != codePoint) {
+                    continue operatorLoop;
+                }
+            }
+
+            this.matchedTokens = token - this.token;
+            return operator;
+        }
+
+        return null;
+    }
+
+    private final int parseExpression(int minimumPrecedence) {
+        final int start = this.getTokenStartOrEnd(this.token);
+        int left = this.parsePrimary();
+
+        while (this.token < this.numberOfTokens && this.tokenizer.getTokenKind(this.token) == OperandTokenizer.OPERATOR) {
+            final OperatorTable.Operator operator = this.matchOperator(this.operatorTable.getInfixOperators());
+            if (operator == null || operator.getPrecedence() < minimumPrecedence) {
+                break;
+            }
+
+            this.token += this.matchedTokens;
+
+            // The right operand of a left-associative operator must not contain operators of the same precedence.
+            final int precedence = operator.getPrecedence();
+            final boolean rightAssociative = operator.getFixity() == OperatorTable.Fixity.INFIX_RIGHT_ASSOCIATIVE;
+            final int right = this.parseExpression(rightAssociative || precedence == Integer.MAX_VALUE ? precedence
+                    : precedence + 1);
+
+            final int operandStackStart = this.push(left);
+            this.push(right);
+            assert this.arena != null;
+            left = this.addOperation(ExpressionArena.BINARY_OPERATION, start, this.arena.getEnd(right), operator.getCode(),
+                    operandStackStart);
+        }
+
+        return left;
+    }
+
+    private final int parseFunctionCall(int function) {
+        final ExpressionArena arena = this.arena;
+        assert arena != null;
+
+        final int start = arena.getStart(function);
+        final int operandStackStart = this.push(function);
+
+        // Skip the left parenthesis.
+        this.token++;
+        if (this.token < this.numberOfTokens && this.tokenizer.getTokenKind(this.token) == OperandTokenizer.CLOSE_PARENTHESIS) {
+            this.token++;
+            return this.addOperation(ExpressionArena.FUNCTION_CALL, start, this.tokenizer.getTokenEnd(this.token - 1), 0,
+                    operandStackStart);
+        }
+
+        for (;;) {
+            this.push(this.parseExpression(Integer.MIN_VALUE));
+
+            if (this.token < this.numberOfTokens) {
+                final int kind = this.tokenizer.getTokenKind(this.token);
+                if (kind == OperandTokenizer.COMMA) {
+                    this.token++;
+                    continue;
+                }
+
+                if (kind == OperandTokenizer.CLOSE_PARENTHESIS) {
+                    this.token++;
+                    return this.addOperation(ExpressionArena.FUNCTION_CALL, start, this.tokenizer.getTokenEnd(this.token - 1), 0,
+                            operandStackStart);
+                }
+            }
+
+            // The argument list is not terminated.
+            this.invalidToken();
+            this.operandStackSize = operandStackStart;
+            return arena.addError(start, this.getTokenStartOrEnd(this.token));
+        }
+    }
+
+    private final int parsePrimary() {
+        final ExpressionArena arena = this.arena;
+        final CharSequence text = this.text;
+        assert arena != null && text != null;
+
+        if (this.token == this.numberOfTokens) {
+            // The expression is missing an operand.
+            this.invalidToken();
+            return arena.addError(this.end, this.end);
+        }
+
+        final OperandTokenizer tokenizer = this.tokenizer;
+        final int start = tokenizer.getTokenStart(this.token);
+        final int end = tokenizer.getTokenEnd(this.token);
+        switch (tokenizer.getTokenKind(this.token)) {
+        case OperandTokenizer.NUMBER:
+            final long value;
+            try {
+                value = this.parseNumber(text, start, end);
+            } catch (NumberFormatException e) {
+                this.invalidToken();
+                this.token++;
+                return arena.addError(start, end);
+            }
+
+            this.token++;
+            return arena.addNumber(start, end, value);
+
+        case OperandTokenizer.STRING:
+            final TokenText tokenText = this.tokenText;
+            tokenText.text = text;
+            tokenText.start = start;
+            tokenText.end = end;
+            this.token++;
+            return arena.addString(start, end, tokenText, this.assemblyMessageConsumer);
+
+        case OperandTokenizer.IDENTIFIER:
+            final int symbol = arena.addSymbol(start, end, text);
+            this.token++;
+            if (this.token < this.numberOfTokens && tokenizer.getTokenKind(this.token) == OperandTokenizer.OPEN_PARENTHESIS
+                    && tokenizer.getTokenStart(this.token) == end) {
+                return this.parseFunctionCall(symbol);
+            }
+
+            return symbol;
+
+        case OperandTokenizer.OPEN_PARENTHESIS:
+            this.token++;
+            final int inner = this.parseExpression(Integer.MIN_VALUE);
+            if (this.token < this.numberOfTokens && tokenizer.getTokenKind(this.token) == OperandTokenizer.CLOSE_PARENTHESIS) {
+                this.token++;
+                return inner;
+            }
+
+            this.invalidToken();
+            return arena.addError(start, this.getTokenStartOrEnd(this.token));
+
+        case OperandTokenizer.OPERATOR:
+            final OperatorTable.Operator operator = this.matchOperator(this.operatorTable.getPrefixOperators());
+            if (operator != null) {
+                this.token += this.matchedTokens;
+                final int operand = this.parseExpression(operator.getPrecedence());
+                final int operandStackStart = this.push(operand);
+                return this.addOperation(ExpressionArena.UNARY_OPERATION, start, arena.getEnd(operand), operator.getCode(),
+                        operandStackStart);
+            }
+
+            this.invalidToken();
+            this.token++;
+            return arena.addError(start, end);
+
+        default:
+            // An unterminated string, or a comma or a right parenthesis where an operand was expected. Commas and right
+            // parentheses are not consumed, so that the enclosing function call or parenthesized expression can end there.
+            this.invalidToken();
+            if (tokenizer.getTokenKind(this.token) == OperandTokenizer.UNTERMINATED_STRING) {
+                this.token++;
+            }
+
+            return arena.addError(start, end);
+        }
+    }
+
+    private final int push(int node) {
+        final int index = this.operandStackSize;
+        if (index == this.operandStack.length) {
+            this.operandStack = Arrays.copyOf(this.operandStack, index * 2);
+        }
+
+        this.operandStack[index] = node;
+        this.operandStackSize = index + 1;
+        return index;
+    }
+
+}
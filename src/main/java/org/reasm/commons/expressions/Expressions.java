@@ -1,11 +1,15 @@
 package org.reasm.commons.expressions;
 
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.charset.CharacterCodingException;
+import java.nio.charset.CharsetEncoder;
+import java.nio.charset.CoderResult;
+
 import javax.annotation.CheckForNull;
 import javax.annotation.Nonnull;
 
-import org.apache.commons.pool.BasePoolableObjectFactory;
-import org.apache.commons.pool.ObjectPool;
-import org.apache.commons.pool.impl.GenericObjectPool;
 import org.reasm.AssemblyMessage;
 import org.reasm.commons.messages.UnrecognizedEscapeSequenceWarningMessage;
 
@@ -18,27 +22,98 @@ import ca.fragag.Consumer;
  */
 public final class Expressions {
 
-    @Nonnull
-    private static final ThreadLocal<ObjectPool<StringBuilder>> STRING_BUILDER_POOL = new ThreadLocal<ObjectPool<StringBuilder>>() {
+    // The number of chars that encodeString() decodes at a time before encoding them.
+    private static final int ENCODE_BUFFER_SIZE = 1024;
 
-        @Override
-        protected ObjectPool<StringBuilder> initialValue() {
-            return new GenericObjectPool<>(new BasePoolableObjectFactory<StringBuilder>() {
+    /**
+     * Parses a quoted string and encodes its contents directly in a {@link ByteBuffer}, without creating an intermediate
+     * {@link String}.
+     * <p>
+     * The maximum length of the encoded string is the number of bytes remaining in <code>out</code>; set the buffer's limit to
+     * enforce a smaller maximum. The string is decoded and encoded in batches, and decoding stops after the first batch that
+     * doesn't fit in the buffer, so no assembly messages are reported for the escape sequences that follow.
+     *
+     * @param string
+     *            the quoted string, including the initial and final delimiters
+     * @param assemblyMessageConsumer
+     *            a {@link Consumer} that will receive assembly messages for problems that occurred while parsing the string
+     * @param encoder
+     *            the {@link CharsetEncoder} for the target charset. The encoder is reset before it is used.
+     * @param out
+     *            the {@link ByteBuffer} to write the encoded string to
+     * @return the number of bytes written to <code>out</code>, or -1 if the encoded string is longer than the number of bytes that
+     *         were remaining in <code>out</code>. In the latter case, the position of <code>out</code> is restored to its value
+     *         before the call, and the contents of <code>out</code> between its position and its limit are undefined.
+     * @throws CharacterCodingException
+     *             the string cannot be encoded in the target charset, and the encoder reports this kind of error
+     */
+    public static int encodeString(@Nonnull CharSequence string, @CheckForNull Consumer<AssemblyMessage> assemblyMessageConsumer,
+            @Nonnull CharsetEncoder encoder, @Nonnull ByteBuffer out) throws CharacterCodingException {
+        if (string == null) {
+            throw new NullPointerException("string");
+        }
 
-                @Override
-                public StringBuilder makeObject() {
-                    return new StringBuilder();
-                };
+        if (encoder == null) {
+            throw new NullPointerException("encoder");
+        }
 
-                @Override
-                public void passivateObject(StringBuilder sb) {
-                    sb.setLength(0);
-                };
+        if (out == null) {
+            throw new NullPointerException("out");
+        }
 
-            });
-        };
+        final int startPosition = out.position();
+        encoder.reset();
 
-    };
+        // The token contains the initial and final quote or apostrophe delimiters.
+        final int end = string.length() - 1;
+        if (indexOfBackslash(string, 1, end) == -1) {
+            // There are no escape sequences: encode the characters between the delimiters directly.
+            final CharBuffer contents = end > 1 ? CharBuffer.wrap(string, 1, end) : CharBuffer.allocate(0);
+            if (!checkCoderResult(encoder.encode(contents, out, true))) {
+                return overflow(out, startPosition);
+            }
+        } else {
+            // Decode a batch of chars, then encode them. The chars that the encoder doesn't consume (e.g. a high surrogate at the
+            // end of a batch) are kept for the next batch.
+            final CharBuffer chars = CharBuffer.allocate(Math.max(4, Math.min(end - 1, ENCODE_BUFFER_SIZE)));
+            int i = 1;
+            boolean endOfInput;
+            do {
+                while (i < end && chars.remaining() >= 2) {
+                    final char ch = string.charAt(i);
+                    if (ch == '\\') {
+                        i++;
+                        final int escapedCodePoint = Character.codePointAt(string, i);
+                        final int codePoint = unescape(escapedCodePoint, assemblyMessageConsumer);
+                        if (Character.isBmpCodePoint(codePoint)) {
+                            chars.put((char) codePoint);
+                        } else {
+                            chars.put(Character.highSurrogate(codePoint)).put(Character.lowSurrogate(codePoint));
+                        }
+
+                        i += Character.charCount(escapedCodePoint);
+                    } else {
+                        chars.put(ch);
+                        i++;
+                    }
+                }
+
+                endOfInput = i >= end;
+                chars.flip();
+                if (!checkCoderResult(encoder.encode(chars, out, endOfInput))) {
+                    return overflow(out, startPosition);
+                }
+
+                chars.compact();
+            } while (!endOfInput);
+        }
+
+        if (!checkCoderResult(encoder.flush(out))) {
+            return overflow(out, startPosition);
+        }
+
+        return out.position() - startPosition;
+    }
 
     /**
      * Parses a quoted string.
@@ -54,63 +129,88 @@ public final class Expressions {
             throw new NullPointerException("string");
         }
 
-        final StringBuilder stringValue = acquireStringBuilder();
-        try {
-            // The token contains the initial and final quote or apostrophe delimiters.
-            int codePoint;
-            for (int i = 1; i < string.length() - 1; i += Character.charCount(codePoint)) {
-                codePoint = Character.codePointAt(string, i);
-
-                if (codePoint == '\\') {
-                    i++;
-                    codePoint = Character.codePointAt(string, i);
-
-                    switch (codePoint) {
-                    // Output these characters as-is, but don't raise a warning.
-                    case '"':
-                    case '\'':
-                    case '\\':
-                        break;
-
-                    // Replace these characters with another character.
-                    case '0':
-                        codePoint = 0; // null
-                        break;
-                    case 'a':
-                        codePoint = 7; // bell
-                        break;
-                    case 'b':
-                        codePoint = '\b'; // backspace
-                        break;
-                    case 't':
-                        codePoint = '\t'; // horizontal tab
-                        break;
-                    case 'n':
-                        codePoint = '\n'; // line feed
-                        break;
-                    case 'f':
-                        codePoint = '\f'; // form feed
-                        break;
-                    case 'r':
-                        codePoint = '\r'; // carriage return
-                        break;
-
-                    // Output all other characters as-is, and raise a warning.
-                    default:
-                        if (assemblyMessageConsumer != null) {
-                            assemblyMessageConsumer.accept(new UnrecognizedEscapeSequenceWarningMessage(codePoint));
-                        }
+        // The token contains the initial and final quote or apostrophe delimiters.
+        final int end = string.length() - 1;
+        final int firstBackslash = indexOfBackslash(string, 1, end);
+        if (firstBackslash == -1) {
+            // There are no escape sequences: the contents are the characters between the delimiters.
+            return end <= 1 ? "" : string.subSequence(1, end).toString();
+        }
 
-                        break;
-                    }
-                }
+        // Compute the length of the contents, so that they can be decoded in an array of the exact size. The code point that
+        // replaces an escape sequence takes as many chars as the code point after the backslash.
+        int length = firstBackslash - 1;
+        for (int i = firstBackslash; i < end; i++) {
+            if (string.charAt(i) == '\\') {
+                i++;
+                final int escapedCharCount = Character.charCount(Character.codePointAt(string, i));
+                i += escapedCharCount - 1;
+                length += escapedCharCount;
+            } else {
+                length++;
+            }
+        }
 
-                stringValue.appendCodePoint(codePoint);
+        final char[] chars = new char[length];
+        int charIndex = 0;
+        for (int i = 1; i < end; i++) {
+            final char ch = string.charAt(i);
+            if (ch == '\\') {
+                i++;
+                final int escapedCodePoint = Character.codePointAt(string, i);
+                charIndex += Character.toChars(unescape(escapedCodePoint, assemblyMessageConsumer), chars, charIndex);
+                i += Character.charCount(escapedCodePoint) - 1;
+            } else {
+                chars[charIndex++] = ch;
             }
+        }
+
+        return new String(chars);
+    }
 
-            return stringValue.toString();
-        } finally {
-            releaseStringBuilder(stringValue);
+    /**
+     * Parses a quoted string and appends its contents to an {@link Appendable}, without creating an intermediate {@link String}.
+     *
+     * @param string
+     *            the quoted string, including the initial and final delimiters
+     * @param assemblyMessageConsumer
+     *            a {@link Consumer} that will receive assembly messages for problems that occurred while parsing the string
+     * @param out
+     *            the {@link Appendable} to append the string's contents to
+     * @throws IOException
+     *             an I/O exception occurred while appending to <code>out</code>
+     */
+    public static void parseString(@Nonnull CharSequence string, @CheckForNull Consumer<AssemblyMessage> assemblyMessageConsumer,
+            @Nonnull Appendable out) throws IOException {
+        if (string == null) {
+            throw new NullPointerException("string");
+        }
+
+        if (out == null) {
+            throw new NullPointerException("out");
+        }
+
+        // The token contains the initial and final quote or apostrophe delimiters.
+        final int end = string.length() - 1;
+        int runStart = 1;
+        for (int i = indexOfBackslash(string, 1, end); i != -1; i = indexOfBackslash(string, runStart, end)) {
+            // Append the characters before the escape sequence in bulk.
+            out.append(string, runStart, i);
+
+            i++;
+            final int escapedCodePoint = Character.codePointAt(string, i);
+            final int codePoint = unescape(escapedCodePoint, assemblyMessageConsumer);
+            if (Character.isBmpCodePoint(codePoint)) {
+                out.append((char) codePoint);
+            } else {
+                out.append(Character.highSurrogate(codePoint)).append(Character.lowSurrogate(codePoint));
+            }
+
+            runStart = i + Character.charCount(escapedCodePoint);
+        }
+
+        if (runStart < end) {
+            out.append(string, runStart, end);
         }
     }
 
@@ -177,20 +277,65 @@ public final class Expressions {
         return sb.append('"').toString();
     }
 
-    @Nonnull
-    private static StringBuilder acquireStringBuilder() {
-        try {
-            return STRING_BUILDER_POOL.get().borrowObject();
-        } catch (Exception e) {
-            throw new RuntimeException(e);
+    private static boolean checkCoderResult(@Nonnull CoderResult result) throws CharacterCodingException {
+        if (result.isOverflow()) {
+            return false;
+        }
+
+        if (result.isError()) {
+            result.throwException();
+        }
+
+        return true;
+    }
+
+    private static int indexOfBackslash(@Nonnull CharSequence string, int start, int end) {
+        for (int i = start; i < end; i++) {
+            if (string.charAt(i) == '\\') {
+                return i;
+            }
         }
+
+        return -1;
     }
 
-    private static void releaseStringBuilder(@Nonnull StringBuilder sb) {
-        try {
-            STRING_BUILDER_POOL.get().returnObject(sb);
-        } catch (Exception e) {
-            throw new RuntimeException(e);
+    private static int overflow(@Nonnull ByteBuffer out, int startPosition) {
+        // Discard the bytes that were written before the buffer overflowed.
+        out.position(startPosition);
+        return -1;
+    }
+
+    private static int unescape(int codePoint, @CheckForNull Consumer<AssemblyMessage> assemblyMessageConsumer) {
+        switch (codePoint) {
+        // Output these characters as-is, but don't raise a warning.
+        case '"':
+        case '\'':
+        case '\\':
+            return codePoint;
+
+        // Replace these characters with another character.
+        case '0':
+            return 0; // null
+        case 'a':
+            return 7; // bell
+        case 'b':
+            return '\b'; // backspace
+        case 't':
+            return '\t'; // horizontal tab
+        case 'n':
+            return '\n'; // line feed
+        case 'f':
+            return '\f'; // form feed
+        case 'r':
+            return '\r'; // carriage return
+
+        // Output all other characters as-is, and raise a warning.
+        default:
+            if (assemblyMessageConsumer != null) {
+                assemblyMessageConsumer.accept(new UnrecognizedEscapeSequenceWarningMessage(codePoint));
+            }
+
+            return codePoint;
         }
     }
 
@@ -0,0 +1,310 @@
+package org.reasm.commons.expressions;
+
+import java.util.Arrays;
+
+import javax.annotation.CheckForNull;
+import javax.annotation.Nonnull;
+
+import org.reasm.commons.source.Syntax;
+
+/**
+ * Splits the text of an operand into tokens.
+ * <p>
+ * The tokens are stored in parallel arrays of primitive values: for each token, the tokenizer records its kind (one of the
+ * constants declared in this class) and the start and end offsets of its text. Calling {@link #tokenize(CharSequence, int, int)}
+ * again replaces the tokens of the previous operand and reuses the arrays, so a single OperandTokenizer can tokenize all the
+ * operands of a source file without allocating any object per token.
+ * <p>
+ * The tokenizer classifies code points with a {@link Syntax}, following the same rules as the parser that splits logical lines
+ * into operands:
+ * <ul>
+ * <li>an identifier starts with a code point of class {@link Syntax#IDENTIFIER_INITIAL} and continues with code points of class
+ * {@link Syntax#IDENTIFIER};</li>
+ * <li>a number starts with a decimal digit, or with a period followed by a decimal digit, and continues with code points of class
+ * {@link Syntax#IDENTIFIER}, so that radix prefixes and suffixes are part of the number;</li>
+ * <li>a string is delimited by quotes or apostrophes, and a backslash in a string escapes the code point that follows it;</li>
+ * <li>parentheses and commas are tokens of their own;</li>
+ * <li>whitespace separates tokens and is not part of any token;</li>
+ * <li>every other code point is an {@link #OPERATOR} token of its own. Operators made of several code points are recognized by
+ * combining adjacent operator tokens, i.e. tokens where the end of one is the start of the next.</li>
+ * </ul>
+ * <p>
+ * The code points that an architecture uses as operators must therefore be declared as invalid in identifiers in its
+ * {@link Syntax}; otherwise, they are read as part of the identifier or number that precedes them.
+ * <p>
+ * An OperandTokenizer must not be used by more than one thread at a time.
+ *
+ * @author Francis Gagné
+ */
+public final class OperandTokenizer {
+
+    /** The kind of an identifier token. */
+    public static final int IDENTIFIER = 0;
+
+    /** The kind of a number token. */
+    public static final int NUMBER = 1;
+
+    /**
+     * The kind of a string token. The token's text includes the delimiters, so it can be passed to
+     * {@link Expressions#parseString(CharSequence, ca.fragag.Consumer)}.
+     */
+    public static final int STRING = 2;
+
+    /** The kind of a string token that is missing its final delimiter. The token extends to the end of the operand. */
+    public static final int UNTERMINATED_STRING = 3;
+
+    /** The kind of a left parenthesis token. */
+    public static final int OPEN_PARENTHESIS = 4;
+
+    /** The kind of a right parenthesis token. */
+    public static final int CLOSE_PARENTHESIS = 5;
+
+    /** The kind of a comma token. */
+    public static final int COMMA = 6;
+
+    /** The kind of a token that consists of a single code point that doesn't start any other kind of token. */
+    public static final int OPERATOR = 7;
+
+    private static final int INITIAL_CAPACITY = 16;
+
+    @Nonnull
+    private final Syntax syntax;
+    @CheckForNull
+    private CharSequence text;
+    @Nonnull
+    private int[] kinds = new int[INITIAL_CAPACITY];
+    @Nonnull
+    private int[] starts = new int[INITIAL_CAPACITY];
+    @Nonnull
+    private int[] ends = new int[INITIAL_CAPACITY];
+    private int numberOfTokens;
+
+    /**
+     * Initializes a new OperandTokenizer.
+     *
+     * @param syntax
+     *            the {@link Syntax} that classifies the code points
+     */
+    public OperandTokenizer(@Nonnull Syntax syntax) {
+        if (syntax == null) {
+            throw new NullPointerException("syntax");
+        }
+
+        this.syntax = syntax;
+    }
+
+    /**
+     * Gets the number of tokens that were found by the last call to {@link #tokenize(CharSequence, int, int)}.
+     *
+     * @return the number of tokens
+     */
+    public final int getNumberOfTokens() {
+        return this.numberOfTokens;
+    }
+
+    /**
+     * Gets the {@link Syntax} that this tokenizer uses to classify code points.
+     *
+     * @return the {@link Syntax}
+     */
+    @Nonnull
+    public final Syntax getSyntax() {
+        return this.syntax;
+    }
+
+    /**
+     * Gets the text that was tokenized by the last call to {@link #tokenize(CharSequence, int, int)}.
+     *
+     * @return the text, or <code>null</code> if no text was tokenized yet
+     */
+    @CheckForNull
+    public final CharSequence getText() {
+        return this.text;
+    }
+
+    /**
+     * Gets the end offset of a token in the text.
+     *
+     * @param index
+     *            the index of the token
+     * @return the end (exclusive) offset of the token
+     */
+    public final int getTokenEnd(int index) {
+        return this.ends[this.checkIndex(index)];
+    }
+
+    /**
+     * Gets the kind of a token.
+     *
+     * @param index
+     *            the index of the token
+     * @return the kind of the token: one of {@link #IDENTIFIER}, {@link #NUMBER}, {@link #STRING}, {@link #UNTERMINATED_STRING},
+     *         {@link #OPEN_PARENTHESIS}, {@link #CLOSE_PARENTHESIS}, {@link #COMMA} or {@link #OPERATOR}
+     */
+    public final int getTokenKind(int index) {
+        return this.kinds[this.checkIndex(index)];
+    }
+
+    /**
+     * Gets the start offset of a token in the text.
+     *
+     * @param index
+     *            the index of the token
+     * @return the start (inclusive) offset of the token
+     */
+    public final int getTokenStart(int index) {
+        return this.starts[this.checkIndex(index)];
+    }
+
+    /**
+     * Gets the text of a token.
+     *
+     * @param index
+     *            the index of the token
+     * @return the text of the token
+     */
+    @Nonnull
+    public final CharSequence getTokenText(int index) {
+        this.checkIndex(index);
+        assert this.text != null;
+        return this.text.subSequence(this.starts[index], this.ends[index]);
+    }
+
+    /**
+     * Splits a text into tokens, replacing the tokens that were found by the previous call to this method.
+     *
+     * @param text
+     *            the text to tokenize
+     */
+    public final void tokenize(@Nonnull CharSequence text) {
+        if (text == null) {
+            throw new NullPointerException("text");
+        }
+
+        this.tokenize(text, 0, text.length());
+    }
+
+    /**
+     * Splits a range of a text into tokens, replacing the tokens that were found by the previous call to this method. The offsets
+     * of the tokens are relative to the start of <code>text</code>, not to the start of the range.
+     *
+     * @param text
+     *            the text to tokenize
+     * @param start
+     *            the start (inclusive) of the range to tokenize
+     * @param end
+     *            the end (exclusive) of the range to tokenize
+     */
+    public final void tokenize(@Nonnull CharSequence text, int start, int end) {
+        if (text == null) {
+            throw new NullPointerException("text");
+        }
+
+        if (start < 0) {
+            throw new IllegalArgumentException("start < 0");
+        }
+
+        if (end < start) {
+            throw new IllegalArgumentException("end < start");
+        }
+
+        if (end > text.length()) {
+            throw new IllegalArgumentException("end > text.length()");
+        }
+
+        this.text = text;
+        this.numberOfTokens = 0;
+
+        final Syntax syntax = this.syntax;
+        int position = start;
+        while (position < end) {
+            int codePoint = Character.codePointAt(text, position);
+            final int codePointClasses = syntax.getCodePointClasses(codePoint);
+            if ((codePointClasses & Syntax.WHITESPACE) != 0) {
+                position += Character.charCount(codePoint);
+                continue;
+            }
+
+            final int tokenStart = position;
+            final int kind;
+            position += Character.charCount(codePoint);
+
+            switch (codePoint) {
+            case '"':
+            case '\'':
+                final int delimiter = codePoint;
+                int stringKind = UNTERMINATED_STRING;
+                while (position < end) {
+                    codePoint = Character.codePointAt(text, position);
+                    position += Character.charCount(codePoint);
+                    if (codePoint == delimiter) {
+                        stringKind = STRING;
+                        break;
+                    }
+
+                    if (codePoint == '\\' && position < end) {
+                        // Skip the code point after the backslash.
+                        position += Character.charCount(Character.codePointAt(text, position));
+                    }
+                }
+
+                kind = stringKind;
+                break;
+
+            case '(':
+                kind = OPEN_PARENTHESIS;
+                break;
+
+            case ')':
+                kind = CLOSE_PARENTHESIS;
+                break;
+
+            case ',':
+                kind = COMMA;
+                break;
+
+            default:
+                if ((codePointClasses & (Syntax.IDENTIFIER_INITIAL | Syntax.NUMBER_INITIAL)) != 0) {
+                    if ((codePointClasses & Syntax.DIGIT) != 0 || codePoint == '.' && position < end
+                            && Syntax.isDigit(text.charAt(position))) {
+                        kind = NUMBER;
+                    } else {
+                        kind = IDENTIFIER;
+                    }
+
+                    position = Math.min(syntax.scanIdentifier(text, position), end);
+                } else {
+                    kind = OPERATOR;
+                }
+
+                break;
+            }
+
+            this.addToken(kind, tokenStart, Math.min(position, end));
+        }
+    }
+
+    private final void addToken(int kind, int start, int end) {
+        final int index = this.numberOfTokens;
+        if (index == this.kinds.length) {
+            final int newLength = index * 2;
+            this.kinds = Arrays.copyOf(this.kinds, newLength);
+            this.starts = Arrays.copyOf(this.starts, newLength);
+            this.ends = Arrays.copyOf(this.ends, newLength);
+        }
+
+        this.kinds[index] = kind;
+        this.starts[index] = start;
+        this.ends[index] = end;
+        this.numberOfTokens = index + 1;
+    }
+
+    private final int checkIndex(int index) {
+        if (index < 0 || index >= this.numberOfTokens) {
+            throw new IndexOutOfBoundsException(String.valueOf(index));
+        }
+
+        return index;
+    }
+
+}
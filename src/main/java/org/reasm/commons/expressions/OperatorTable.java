@@ -0,0 +1,187 @@
+package org.reasm.commons.expressions;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+
+import javax.annotation.Nonnull;
+import javax.annotation.concurrent.Immutable;
+
+/**
+ * The operators recognized by an {@link ExpressionParser}, with their precedence and associativity.
+ * <p>
+ * The symbol of an operator is made of one or more code points that the architecture's {@link org.reasm.commons.source.Syntax}
+ * doesn't accept in identifiers, so that {@link OperandTokenizer} produces one {@link OperandTokenizer#OPERATOR} token for each
+ * of them. When several operators match the text at the parser's position, the operator with the longest symbol wins.
+ *
+ * @author Francis Gagné
+ */
+@Immutable
+public final class OperatorTable {
+
+    /**
+     * The position of an operator relative to its operands, and the way operators of the same precedence are grouped.
+     */
+    @Immutable
+    public enum Fixity {
+
+        /** A unary operator that precedes its operand. */
+        PREFIX,
+
+        /** A binary operator that groups from left to right, i.e. <code>a - b - c</code> means <code>(a - b) - c</code>. */
+        INFIX_LEFT_ASSOCIATIVE,
+
+        /** A binary operator that groups from right to left, i.e. <code>a ** b ** c</code> means <code>a ** (b ** c)</code>. */
+        INFIX_RIGHT_ASSOCIATIVE
+
+    }
+
+    /**
+     * An operator in an {@link OperatorTable}.
+     *
+     * @author Francis Gagné
+     */
+    @Immutable
+    public static final class Operator {
+
+        @Nonnull
+        private final String symbol;
+        @Nonnull
+        private final Fixity fixity;
+        private final int precedence;
+        private final int code;
+
+        /**
+         * Initializes a new Operator.
+         *
+         * @param symbol
+         *            the operator's symbol
+         * @param fixity
+         *            the operator's fixity
+         * @param precedence
+         *            the operator's precedence; operators with a higher precedence bind more tightly. The precedence of a prefix
+         *            operator applies to its operand: <code>-a * b</code> means <code>(-a) * b</code> if the precedence of
+         *            <code>-</code> is higher than the precedence of <code>*</code>.
+         * @param code
+         *            a value chosen by the architecture to identify the operator in the nodes of an {@link ExpressionArena}
+         */
+        public Operator(@Nonnull String symbol, @Nonnull Fixity fixity, int precedence, int code) {
+            if (symbol == null) {
+                throw new NullPointerException("symbol");
+            }
+
+            if (fixity == null) {
+                throw new NullPointerException("fixity");
+            }
+
+            if (symbol.isEmpty()) {
+                throw new IllegalArgumentException("symbol is empty");
+            }
+
+            this.symbol = symbol;
+            this.fixity = fixity;
+            this.precedence = precedence;
+            this.code = code;
+        }
+
+        /**
+         * Gets the value that identifies this operator in the nodes of an {@link ExpressionArena}.
+         *
+         * @return the operator's code
+         */
+        public final int getCode() {
+            return this.code;
+        }
+
+        /**
+         * Gets the fixity of this operator.
+         *
+         * @return the operator's fixity
+         */
+        @Nonnull
+        public final Fixity getFixity() {
+            return this.fixity;
+        }
+
+        /**
+         * Gets the precedence of this operator.
+         *
+         * @return the operator's precedence
+         */
+        public final int getPrecedence() {
+            return this.precedence;
+        }
+
+        /**
+         * Gets the symbol of this operator.
+         *
+         * @return the operator's symbol
+         */
+        @Nonnull
+        public final String getSymbol() {
+            return this.symbol;
+        }
+
+    }
+
+    @Nonnull
+    private static final Comparator<Operator> LONGEST_SYMBOL_FIRST = new Comparator<Operator>() {
+        @Override
+        public int compare(Operator o1, Operator o2) {
+            return Integer.compare(o2.symbol.length(), o1.symbol.length());
+        }
+    };
+
+    // The operators sorted from the longest symbol to the shortest.
+    @Nonnull
+    private final Operator[] prefixOperators;
+    @Nonnull
+    private final Operator[] infixOperators;
+
+    /**
+     * Initializes a new OperatorTable.
+     *
+     * @param operators
+     *            the operators. A symbol may be used by one prefix operator and one infix operator, e.g. for negation and
+     *            subtraction.
+     */
+    public OperatorTable(@Nonnull Operator... operators) {
+        if (operators == null) {
+            throw new NullPointerException("operators");
+        }
+
+        final List<Operator> prefixOperators = new ArrayList<>();
+        final List<Operator> infixOperators = new ArrayList<>();
+        for (Operator operator : operators) {
+            if (operator == null) {
+                throw new NullPointerException("operators contains null");
+            }
+
+            final List<Operator> list = operator.fixity == Fixity.PREFIX ? prefixOperators : infixOperators;
+            for (Operator other : list) {
+                if (other.symbol.equals(operator.symbol)) {
+                    throw new IllegalArgumentException("Duplicate operator: " + operator.symbol);
+                }
+            }
+
+            list.add(operator);
+        }
+
+        this.prefixOperators = prefixOperators.toArray(new Operator[prefixOperators.size()]);
+        this.infixOperators = infixOperators.toArray(new Operator[infixOperators.size()]);
+        Arrays.sort(this.prefixOperators, LONGEST_SYMBOL_FIRST);
+        Arrays.sort(this.infixOperators, LONGEST_SYMBOL_FIRST);
+    }
+
+    @Nonnull
+    final Operator[] getInfixOperators() {
+        return this.infixOperators;
+    }
+
+    @Nonnull
+    final Operator[] getPrefixOperators() {
+        return this.prefixOperators;
+    }
+
+}
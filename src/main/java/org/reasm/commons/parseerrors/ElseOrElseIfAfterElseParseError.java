@@ -15,6 +15,9 @@ import org.reasm.source.ParseError;
  */
 public class ElseOrElseIfAfterElseParseError extends ParseError {
 
+    @Nonnull
+    private final BlockDirective directive;
+
     /**
      * Initializes a new ElseOrElseIfAfterElseParseError.
      *
@@ -23,6 +26,17 @@ public class ElseOrElseIfAfterElseParseError extends ParseError {
      */
     public ElseOrElseIfAfterElseParseError(@Nonnull BlockDirective directive) {
         super(Objects.requireNonNull(directive, "directive").getMnemonic() + " clause after an ELSE clause");
+        this.directive = directive;
+    }
+
+    /**
+     * Gets the directive of the offending clause.
+     *
+     * @return the directive
+     */
+    @Nonnull
+    public final BlockDirective getDirective() {
+        return this.directive;
     }
 
 }
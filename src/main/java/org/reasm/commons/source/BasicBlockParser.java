@@ -1,6 +1,7 @@
 package org.reasm.commons.source;
 
 import java.util.ArrayList;
+import java.util.List;
 
 import javax.annotation.CheckForNull;
 import javax.annotation.Nonnull;
@@ -86,4 +87,20 @@ public abstract class BasicBlockParser extends BlockParser {
         return this.createBlock(nodes, new UnclosedBlockParseError(firstLine.getBlockDirective()));
     }
 
+    @Override
+    final boolean isBodyBlock(List<SourceNode> childNodes, int index) {
+        // The child nodes of a block are the first line, the body and the ending line (which may be missing).
+        return index == 1;
+    }
+
+    @Override
+    final SourceNode rebuildBlock(List<SourceNode> childNodes, ParseError parseError) {
+        return this.createBlock(childNodes, parseError);
+    }
+
+    @Override
+    final SourceNode rebuildBodyBlock(List<SourceNode> childNodes) {
+        return this.createBodyBlock(childNodes);
+    }
+
 }
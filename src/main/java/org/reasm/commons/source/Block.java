@@ -1,5 +1,7 @@
 package org.reasm.commons.source;
 
+import java.util.List;
+
 import javax.annotation.CheckForNull;
 import javax.annotation.Nonnull;
 import javax.annotation.concurrent.Immutable;
@@ -17,6 +19,13 @@ import org.reasm.source.SourceNode;
 @Immutable
 public final class Block extends CompositeSourceNode {
 
+    // The end position of each child node, relative to the start of this block. Computed on demand if the block was not built by
+    // a parser.
+    private volatile int[] childNodeEnds;
+    // The root block token of the parser that built this block, if any.
+    @CheckForNull
+    private final Object parserToken;
+
     /**
      * Initializes a new Block.
      *
@@ -27,6 +36,95 @@ public final class Block extends CompositeSourceNode {
      */
     public Block(@Nonnull Iterable<? extends SourceNode> childNodes, @CheckForNull ParseError parseError) {
         super(childNodes, parseError);
+        this.parserToken = null;
+    }
+
+    /**
+     * Initializes a new Block for the root node of a source file.
+     *
+     * @param childNodes
+     *            the block's child nodes
+     * @param childNodeEnds
+     *            the end position of each child node, relative to the start of the block
+     * @param parserToken
+     *            the root block token of the parser that built the child nodes, or <code>null</code> if some child nodes were not
+     *            built by a parser
+     */
+    Block(@Nonnull List<SourceNode> childNodes, @Nonnull int[] childNodeEnds, @CheckForNull Object parserToken) {
+        super(childNodes, null);
+        this.childNodeEnds = childNodeEnds;
+        this.parserToken = parserToken;
+    }
+
+    /**
+     * Gets the end position of a child node, relative to the start of this block.
+     *
+     * @param index
+     *            the index of the child node
+     * @return the end position of the child node
+     */
+    final int getChildNodeEnd(int index) {
+        return this.getChildNodeEnds()[index];
+    }
+
+    /**
+     * Gets the end position of each child node, relative to the start of this block.
+     *
+     * @return the end positions of the child nodes. The array must not be modified.
+     */
+    @Nonnull
+    final int[] getChildNodeEnds() {
+        int[] childNodeEnds = this.childNodeEnds;
+        if (childNodeEnds == null) {
+            // Racing threads compute the same values, so there is no need to synchronize.
+            final List<SourceNode> childNodes = this.getChildNodes();
+            childNodeEnds = new int[childNodes.size()];
+            int end = 0;
+            for (int i = 0; i < childNodeEnds.length; i++) {
+                end += childNodes.get(i).getLength();
+                childNodeEnds[i] = end;
+            }
+
+            this.childNodeEnds = childNodeEnds;
+        }
+
+        return childNodeEnds;
+    }
+
+    /**
+     * Finds the index of the first child node that ends after the specified position, using a binary search.
+     *
+     * @param position
+     *            a position relative to the start of this block
+     * @return the index of the first child node whose end position is greater than <code>position</code>, or the number of child
+     *         nodes if there is no such child node
+     */
+    final int findFirstChildNodeEndingAfter(int position) {
+        final int[] childNodeEnds = this.getChildNodeEnds();
+        int low = 0;
+        int high = childNodeEnds.length;
+        while (low < high) {
+            final int mid = low + high >>> 1;
+            if (childNodeEnds[mid] <= position) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+
+        return low;
+    }
+
+    /**
+     * Determines whether this block is the root block of a source file built by the specified parser. The child nodes of such a
+     * block are all nodes that the parser produces at the top level.
+     *
+     * @param parser
+     *            the parser
+     * @return <code>true</code> if the parser built this block, otherwise <code>false</code>
+     */
+    final boolean isBuiltBy(@Nonnull Parser parser) {
+        return this.parserToken == parser.rootBlockToken;
     }
 
     @Override
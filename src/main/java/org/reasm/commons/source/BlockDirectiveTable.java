@@ -0,0 +1,221 @@
+package org.reasm.commons.source;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.SortedMap;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+
+import javax.annotation.CheckForNull;
+import javax.annotation.Nonnull;
+import javax.annotation.concurrent.Immutable;
+
+/**
+ * A lookup table that finds the {@link BlockDirective} and the {@link BlockParser} that correspond to a mnemonic directly from a
+ * range of characters in the source text, without allocating a {@link String}.
+ * <p>
+ * The table reproduces the default behavior of {@link Parser#undecorateMnemonic(String)} by skipping a leading '!' in the
+ * mnemonic. If the map of block directives is a {@link SortedMap} that uses {@link String#CASE_INSENSITIVE_ORDER}, mnemonics are
+ * matched case-insensitively, with the same rules as that comparator.
+ * <p>
+ * The table is built from a snapshot of the map's entries, so it can only be used for maps whose lookups are known to follow the
+ * keys' {@link String#equals(Object)} method or the map's comparator: {@link HashMap}, {@link LinkedHashMap}, {@link TreeMap},
+ * {@link ConcurrentHashMap}, {@link ConcurrentSkipListMap}, the maps returned by {@link Collections#emptyMap()},
+ * {@link Collections#singletonMap(Object, Object)}, {@link Collections#unmodifiableMap(Map)} and
+ * {@link Collections#unmodifiableSortedMap(SortedMap)} (which are assumed to wrap such a map), and Guava's immutable maps.
+ * Subclasses of these classes are not supported, because they may override {@link Map#get(Object)}.
+ *
+ * @author Francis Gagné
+ */
+@Immutable
+final class BlockDirectiveTable {
+
+    /**
+     * An entry in a {@link BlockDirectiveTable}.
+     *
+     * @author Francis Gagné
+     */
+    @Immutable
+    static final class Entry {
+
+        @Nonnull
+        private final String mnemonic;
+        private final int hash;
+        @Nonnull
+        final BlockDirective blockDirective;
+        @CheckForNull
+        final BlockParser blockParser;
+
+        Entry(@Nonnull String mnemonic, int hash, @Nonnull BlockDirective blockDirective, @CheckForNull BlockParser blockParser) {
+            this.mnemonic = mnemonic;
+            this.hash = hash;
+            this.blockDirective = blockDirective;
+            this.blockParser = blockParser;
+        }
+
+    }
+
+    // The classes of the maps whose lookups are known to follow String.equals() or the map's comparator.
+    @Nonnull
+    private static final Set<Class<?>> SUPPORTED_MAP_CLASSES = new HashSet<>(Arrays.<Class<?>> asList(HashMap.class,
+            LinkedHashMap.class, TreeMap.class, ConcurrentHashMap.class, ConcurrentSkipListMap.class,
+            Collections.emptyMap().getClass(), Collections.singletonMap(null, null).getClass(),
+            Collections.unmodifiableMap(new HashMap<String, BlockDirective>()).getClass(),
+            Collections.unmodifiableSortedMap(new TreeMap<String, BlockDirective>()).getClass()));
+
+    private static final String GUAVA_COLLECT_PACKAGE = "com.google.common.collect.";
+
+    /**
+     * Creates a {@link BlockDirectiveTable} for a parser.
+     *
+     * @param parserClass
+     *            the class of the parser
+     * @param blockDirectives
+     *            the parser's {@link Map} of directive mnemonics to {@link BlockDirective}
+     * @param blocks
+     *            the parser's {@link Map} of {@link BlockDirective} to the corresponding {@link BlockParser}
+     * @return the new {@link BlockDirectiveTable}, or <code>null</code> if the table cannot reproduce the behavior of the parser,
+     *         i.e. if the parser overrides {@link Parser#undecorateMnemonic(String)}, if <code>blockDirectives</code> is not one
+     *         of the supported types of maps or if its keys are compared in some other way than with
+     *         {@link String#equals(Object)} or {@link String#CASE_INSENSITIVE_ORDER}
+     */
+    @CheckForNull
+    static BlockDirectiveTable create(@Nonnull Class<? extends Parser> parserClass,
+            @Nonnull Map<String, BlockDirective> blockDirectives, @Nonnull Map<BlockDirective, BlockParser> blocks) {
+        if (Parser.overridesUndecorateMnemonic(parserClass)) {
+            return null;
+        }
+
+        if (!SUPPORTED_MAP_CLASSES.contains(blockDirectives.getClass()) && !isGuavaImmutableMap(blockDirectives.getClass())) {
+            return null;
+        }
+
+        boolean caseInsensitive = false;
+        if (blockDirectives instanceof SortedMap) {
+            final Comparator<?> comparator = ((SortedMap<String, BlockDirective>) blockDirectives).comparator();
+            if (comparator == String.CASE_INSENSITIVE_ORDER) {
+                caseInsensitive = true;
+            } else if (comparator != null) {
+                return null;
+            }
+        }
+
+        return new BlockDirectiveTable(blockDirectives, blocks, caseInsensitive);
+    }
+
+    private static boolean isGuavaImmutableMap(@Nonnull Class<?> mapClass) {
+        // Check the name of the class rather than referring to Guava, which this library doesn't depend on. Guava's immutable maps
+        // cannot be subclassed outside of Guava.
+        final String name = mapClass.getName();
+        return name.startsWith(GUAVA_COLLECT_PACKAGE) && name.indexOf("Immutable", GUAVA_COLLECT_PACKAGE.length()) != -1;
+    }
+
+    private static char foldCase(char ch) {
+        // This is the same transformation as the one performed by String.CASE_INSENSITIVE_ORDER.
+        return Character.toLowerCase(Character.toUpperCase(ch));
+    }
+
+    @Nonnull
+    private final Entry[] slots;
+    private final boolean caseInsensitive;
+
+    private BlockDirectiveTable(@Nonnull Map<String, BlockDirective> blockDirectives,
+            @Nonnull Map<BlockDirective, BlockParser> blocks, boolean caseInsensitive) {
+        this.caseInsensitive = caseInsensitive;
+
+        // Use a power of two that is at least twice the number of entries, so that probe sequences stay short.
+        int capacity = 8;
+        while (capacity < blockDirectives.size() * 2) {
+            capacity <<= 1;
+        }
+
+        this.slots = new Entry[capacity];
+        for (Map.Entry<String, BlockDirective> mapEntry : blockDirectives.entrySet()) {
+            final String mnemonic = mapEntry.getKey();
+            final BlockDirective blockDirective = mapEntry.getValue();
+            if (mnemonic == null || blockDirective == null) {
+                continue;
+            }
+
+            final int hash = this.hash(mnemonic, 0, mnemonic.length());
+            int slot = hash & capacity - 1;
+            while (this.slots[slot] != null) {
+                slot = slot + 1 & capacity - 1;
+            }
+
+            this.slots[slot] = new Entry(mnemonic, hash, blockDirective, blocks.get(blockDirective));
+        }
+    }
+
+    /**
+     * Looks up the block directive whose mnemonic is in the specified range of characters.
+     *
+     * @param text
+     *            the text that contains the mnemonic
+     * @param start
+     *            the position of the first character of the mnemonic in <code>text</code>
+     * @param end
+     *            the position following the last character of the mnemonic in <code>text</code>
+     * @return the {@link Entry} for the mnemonic, or <code>null</code> if the mnemonic is not a block directive
+     */
+    @CheckForNull
+    final Entry lookup(@Nonnull CharSequence text, int start, int end) {
+        // Remove the decoration, as in Parser.undecorateMnemonic(String).
+        if (start < end && text.charAt(start) == '!') {
+            start++;
+        }
+
+        final Entry[] slots = this.slots;
+        final int mask = slots.length - 1;
+        final int hash = this.hash(text, start, end);
+        Entry entry;
+        for (int slot = hash & mask; (entry = slots[slot]) != null; slot = slot + 1 & mask) {
+            if (entry.hash == hash && this.matches(entry.mnemonic, text, start, end)) {
+                return entry;
+            }
+        }
+
+        return null;
+    }
+
+    private final int hash(@Nonnull CharSequence text, int start, int end) {
+        int hash = 0;
+        if (this.caseInsensitive) {
+            for (int i = start; i < end; i++) {
+                hash = 31 * hash + foldCase(text.charAt(i));
+            }
+        } else {
+            for (int i = start; i < end; i++) {
+                hash = 31 * hash + text.charAt(i);
+            }
+        }
+
+        // Spread the high bits, since only the low bits are used to select a slot.
+        return hash ^ hash >>> 16;
+    }
+
+    private final boolean matches(@Nonnull String mnemonic, @Nonnull CharSequence text, int start, int end) {
+        final int length = mnemonic.length();
+        if (length != end - start) {
+            return false;
+        }
+
+        for (int i = 0; i < length; i++) {
+            final char expected = mnemonic.charAt(i);
+            final char actual = text.charAt(start + i);
+            if (expected != actual && (!this.caseInsensitive || foldCase(expected) != foldCase(actual))) {
+                return false;
+            }
+        }
+
+        return true;
+    }
+
+}
@@ -1,8 +1,12 @@
 package org.reasm.commons.source;
 
+import java.util.List;
+
+import javax.annotation.CheckForNull;
 import javax.annotation.Nonnull;
 import javax.annotation.concurrent.Immutable;
 
+import org.reasm.source.ParseError;
 import org.reasm.source.SourceNode;
 
 /**
@@ -33,4 +37,41 @@ public abstract class BlockParser {
     @Nonnull
     abstract SourceNode parseBlock(@Nonnull SourceNodeProducer sourceNodeProducer, @Nonnull BlockDirectiveLine firstLine);
 
+    /**
+     * Determines whether a child node of a block produced by this block parser is one of the block's bodies, i.e. a node that
+     * {@link #rebuildBodyBlock(List)} rebuilds.
+     *
+     * @param childNodes
+     *            the child nodes of the block. When a {@link ParseTreeSnapshot} is read, this list only contains the child nodes
+     *            that precede the child node at <code>index</code>.
+     * @param index
+     *            the index of the child node
+     * @return <code>true</code> if the child node is a body, otherwise <code>false</code>
+     */
+    abstract boolean isBodyBlock(@Nonnull List<SourceNode> childNodes, int index);
+
+    /**
+     * Creates a block from child nodes that were not produced by {@link #parseBlock(SourceNodeProducer, BlockDirectiveLine)}, for
+     * example because they were read from a {@link ParseTreeSnapshot}.
+     *
+     * @param childNodes
+     *            the child nodes of the block
+     * @param parseError
+     *            the parse error on the block, if any
+     * @return the block
+     */
+    @Nonnull
+    abstract SourceNode rebuildBlock(@Nonnull List<SourceNode> childNodes, @CheckForNull ParseError parseError);
+
+    /**
+     * Creates the body of a block from child nodes that were not produced by
+     * {@link #parseBlock(SourceNodeProducer, BlockDirectiveLine)}.
+     *
+     * @param childNodes
+     *            the child nodes of the block's body
+     * @return the block's body
+     */
+    @Nonnull
+    abstract SourceNode rebuildBodyBlock(@Nonnull List<SourceNode> childNodes);
+
 }
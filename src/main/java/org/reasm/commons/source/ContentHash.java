@@ -0,0 +1,107 @@
+package org.reasm.commons.source;
+
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Arrays;
+
+import javax.annotation.Nonnull;
+import javax.annotation.concurrent.Immutable;
+
+/**
+ * A SHA-256 hash of the contents of a source file. The hash is computed on the UTF-16 code units of the text, so it doesn't depend
+ * on the encoding the source file was read from.
+ *
+ * @author Francis Gagné
+ */
+@Immutable
+final class ContentHash {
+
+    /** The number of bytes in a hash. */
+    static final int LENGTH = 32;
+
+    private static final int BUFFER_SIZE = 8192;
+
+    /**
+     * Computes the hash of the specified text.
+     *
+     * @param text
+     *            the text
+     * @return the hash of the text
+     */
+    @Nonnull
+    static ContentHash of(@Nonnull CharSequence text) {
+        final MessageDigest digest;
+        try {
+            digest = MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            // Every implementation of the Java platform is required to support SHA-256.
+            throw new AssertionError(e);
+        }
+
+        final byte[] buffer = new byte[BUFFER_SIZE];
+        final int length = text.length();
+        int bufferLength = 0;
+        for (int i = 0; i < length; i++) {
+            final char ch = text.charAt(i);
+            buffer[bufferLength++] = (byte) (ch >>> 8);
+            buffer[bufferLength++] = (byte) ch;
+            if (bufferLength == BUFFER_SIZE) {
+                digest.update(buffer, 0, bufferLength);
+                bufferLength = 0;
+            }
+        }
+
+        digest.update(buffer, 0, bufferLength);
+        return new ContentHash(digest.digest());
+    }
+
+    @Nonnull
+    private final byte[] bytes;
+    private final int hashCode;
+
+    /**
+     * Initializes a new ContentHash.
+     *
+     * @param bytes
+     *            the bytes of the hash; the array must not be modified afterwards
+     */
+    ContentHash(@Nonnull byte[] bytes) {
+        if (bytes.length != LENGTH) {
+            throw new IllegalArgumentException("bytes.length != " + LENGTH);
+        }
+
+        this.bytes = bytes;
+
+        // The bytes are already uniformly distributed, so the first four are enough.
+        this.hashCode = (bytes[0] & 0xFF) << 24 | (bytes[1] & 0xFF) << 16 | (bytes[2] & 0xFF) << 8 | bytes[3] & 0xFF;
+    }
+
+    @Override
+    public final boolean equals(Object obj) {
+        if (this == obj) {
+            return true;
+        }
+
+        if (!(obj instanceof ContentHash)) {
+            return false;
+        }
+
+        return Arrays.equals(this.bytes, ((ContentHash) obj).bytes);
+    }
+
+    @Override
+    public final int hashCode() {
+        return this.hashCode;
+    }
+
+    /**
+     * Gets a copy of the bytes of this hash.
+     *
+     * @return the bytes of the hash
+     */
+    @Nonnull
+    final byte[] toByteArray() {
+        return this.bytes.clone();
+    }
+
+}
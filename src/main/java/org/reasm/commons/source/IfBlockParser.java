@@ -1,6 +1,7 @@
 package org.reasm.commons.source;
 
 import java.util.ArrayList;
+import java.util.List;
 
 import javax.annotation.CheckForNull;
 import javax.annotation.Nonnull;
@@ -123,4 +124,20 @@ public abstract class IfBlockParser extends BlockParser {
         return this.createBlock(nodes, new UnclosedBlockParseError(firstLine.getBlockDirective()));
     }
 
+    @Override
+    final boolean isBodyBlock(List<SourceNode> childNodes, int index) {
+        // Each directive line is followed by the body of its branch (see parseBlock).
+        return index % 2 == 1;
+    }
+
+    @Override
+    final SourceNode rebuildBlock(List<SourceNode> childNodes, ParseError parseError) {
+        return this.createBlock(childNodes, parseError);
+    }
+
+    @Override
+    final SourceNode rebuildBodyBlock(List<SourceNode> childNodes) {
+        return new SimpleCompositeSourceNode(childNodes);
+    }
+
 }
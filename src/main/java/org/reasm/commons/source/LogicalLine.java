@@ -13,6 +13,10 @@ import org.reasm.source.SourceNode;
 /**
  * A logical line, which is comprised of one or more source lines. A logical line contains more than one source line when a line
  * ends with a continuation character.
+ * <p>
+ * The positions of the labels, mnemonic, operands, comment and continuation characters are stored compactly; the
+ * {@link SubstringBounds} returned by the methods of this class are created on demand. The <code>get...Start()</code> and
+ * <code>get...End()</code> methods give access to the same positions without creating any object.
  *
  * @author Francis Gagné
  */
@@ -42,15 +46,7 @@ public abstract class LogicalLine extends SourceNode {
     }
 
     @Nonnull
-    private final SubstringBounds[] labels;
-    @CheckForNull
-    private final SubstringBounds mnemonic;
-    @Nonnull
-    private final SubstringBounds[] operands;
-    @CheckForNull
-    private final SubstringBounds comment;
-    @Nonnull
-    private final int[] continuationCharacters;
+    private final int[] bounds;
 
     /**
      * Initializes a new logical line.
@@ -61,21 +57,43 @@ public abstract class LogicalLine extends SourceNode {
     protected LogicalLine(@Nonnull LogicalLineAttributes attributes) {
         super(Objects.requireNonNull(attributes, "attributes").length, attributes.parseError);
 
-        this.labels = attributes.labels;
-        this.mnemonic = attributes.mnemonic;
-        this.operands = attributes.operands;
-        this.comment = attributes.comment;
-        this.continuationCharacters = attributes.continuationCharacters;
+        this.bounds = attributes.bounds;
     }
 
     /**
      * Gets the bounds of the comment on this logical line.
+     * <p>
+     * A new {@link SubstringBounds} is created on every call. Use {@link #getCommentStart()} and {@link #getCommentEnd()} to
+     * avoid the allocation.
      *
      * @return the bounds of the comment
      */
     @CheckForNull
     public final SubstringBounds getCommentBounds() {
-        return this.comment;
+        final int start = this.bounds[LogicalLineAttributes.COMMENT_START];
+        if (start == -1) {
+            return null;
+        }
+
+        return new SubstringBounds(start, this.bounds[LogicalLineAttributes.COMMENT_END]);
+    }
+
+    /**
+     * Gets the end position of the comment on this logical line.
+     *
+     * @return the end position of the comment, or -1 if there is no comment
+     */
+    public final int getCommentEnd() {
+        return this.bounds[LogicalLineAttributes.COMMENT_END];
+    }
+
+    /**
+     * Gets the start position of the comment on this logical line.
+     *
+     * @return the start position of the comment, or -1 if there is no comment
+     */
+    public final int getCommentStart() {
+        return this.bounds[LogicalLineAttributes.COMMENT_START];
     }
 
     /**
@@ -86,11 +104,18 @@ public abstract class LogicalLine extends SourceNode {
      * @return the position of the continuation character
      */
     public final int getContinuationCharacter(int index) {
-        return this.continuationCharacters[index];
+        if (index < 0 || index >= this.getNumberOfContinuationCharacters()) {
+            throw new IndexOutOfBoundsException(String.valueOf(index));
+        }
+
+        return this.bounds[this.getContinuationCharactersOffset() + index];
     }
 
     /**
      * Gets the bounds of a label on this logical line.
+     * <p>
+     * A new {@link SubstringBounds} is created on every call. Use {@link #getLabelStart(int)} and {@link #getLabelEnd(int)} to
+     * avoid the allocation.
      *
      * @param index
      *            the index of the label
@@ -98,17 +123,66 @@ public abstract class LogicalLine extends SourceNode {
      */
     @Nonnull
     public final SubstringBounds getLabelBounds(int index) {
-        return this.labels[index];
+        final int offset = this.getLabelOffset(index);
+        return new SubstringBounds(this.bounds[offset], this.bounds[offset + 1]);
+    }
+
+    /**
+     * Gets the end position of a label on this logical line.
+     *
+     * @param index
+     *            the index of the label
+     * @return the end position of the label
+     */
+    public final int getLabelEnd(int index) {
+        return this.bounds[this.getLabelOffset(index) + 1];
+    }
+
+    /**
+     * Gets the start position of a label on this logical line.
+     *
+     * @param index
+     *            the index of the label
+     * @return the start position of the label
+     */
+    public final int getLabelStart(int index) {
+        return this.bounds[this.getLabelOffset(index)];
     }
 
     /**
      * Gets the bounds of the mnemonic on this logical line.
+     * <p>
+     * A new {@link SubstringBounds} is created on every call. Use {@link #getMnemonicStart()} and {@link #getMnemonicEnd()} to
+     * avoid the allocation.
      *
      * @return the bounds of the mnemonic
      */
     @CheckForNull
     public final SubstringBounds getMnemonicBounds() {
-        return this.mnemonic;
+        final int start = this.bounds[LogicalLineAttributes.MNEMONIC_START];
+        if (start == -1) {
+            return null;
+        }
+
+        return new SubstringBounds(start, this.bounds[LogicalLineAttributes.MNEMONIC_END]);
+    }
+
+    /**
+     * Gets the end position of the mnemonic on this logical line.
+     *
+     * @return the end position of the mnemonic, or -1 if there is no mnemonic
+     */
+    public final int getMnemonicEnd() {
+        return this.bounds[LogicalLineAttributes.MNEMONIC_END];
+    }
+
+    /**
+     * Gets the start position of the mnemonic on this logical line.
+     *
+     * @return the start position of the mnemonic, or -1 if there is no mnemonic
+     */
+    public final int getMnemonicStart() {
+        return this.bounds[LogicalLineAttributes.MNEMONIC_START];
     }
 
     /**
@@ -117,7 +191,7 @@ public abstract class LogicalLine extends SourceNode {
      * @return the number of continuation characters
      */
     public final int getNumberOfContinuationCharacters() {
-        return this.continuationCharacters.length;
+        return this.bounds.length - this.getContinuationCharactersOffset();
     }
 
     /**
@@ -126,7 +200,7 @@ public abstract class LogicalLine extends SourceNode {
      * @return the number of labels
      */
     public final int getNumberOfLabels() {
-        return this.labels.length;
+        return this.bounds[LogicalLineAttributes.NUMBER_OF_LABELS];
     }
 
     /**
@@ -135,11 +209,14 @@ public abstract class LogicalLine extends SourceNode {
      * @return the number of operands
      */
     public final int getNumberOfOperands() {
-        return this.operands.length;
+        return this.bounds[LogicalLineAttributes.NUMBER_OF_OPERANDS];
     }
 
     /**
      * Gets the bounds of an operand on this logical line.
+     * <p>
+     * A new {@link SubstringBounds} is created on every call. Use {@link #getOperandStart(int)} and {@link #getOperandEnd(int)}
+     * to avoid the allocation.
      *
      * @param index
      *            the index of the operand
@@ -147,7 +224,30 @@ public abstract class LogicalLine extends SourceNode {
      */
     @Nonnull
     public final SubstringBounds getOperandBounds(int index) {
-        return this.operands[index];
+        final int offset = this.getOperandOffset(index);
+        return new SubstringBounds(this.bounds[offset], this.bounds[offset + 1]);
+    }
+
+    /**
+     * Gets the end position of an operand on this logical line.
+     *
+     * @param index
+     *            the index of the operand
+     * @return the end position of the operand
+     */
+    public final int getOperandEnd(int index) {
+        return this.bounds[this.getOperandOffset(index) + 1];
+    }
+
+    /**
+     * Gets the start position of an operand on this logical line.
+     *
+     * @param index
+     *            the index of the operand
+     * @return the start position of the operand
+     */
+    public final int getOperandStart(int index) {
+        return this.bounds[this.getOperandOffset(index)];
     }
 
     /**
@@ -158,9 +258,42 @@ public abstract class LogicalLine extends SourceNode {
      * @return <code>true</code> if the character is a continuation character; otherwise, <code>false</code>
      */
     public final boolean isContinuationCharacter(int position) {
-        // Assumes that this.continuationCharacters is sorted.
+        // Assumes that the continuation characters are sorted.
         // LogicalLineParser.parse() returns the continuation characters sorted.
-        return Arrays.binarySearch(this.continuationCharacters, position) >= 0;
+        return Arrays.binarySearch(this.bounds, this.getContinuationCharactersOffset(), this.bounds.length, position) >= 0;
+    }
+
+    /**
+     * Gets the positions on this logical line.
+     *
+     * @return the positions on this logical line, packed as described in {@link LogicalLineAttributes}. The array must not be
+     *         modified.
+     */
+    @Nonnull
+    final int[] getBounds() {
+        return this.bounds;
+    }
+
+    private final int getContinuationCharactersOffset() {
+        final int numberOfLabelsAndOperands = this.bounds[LogicalLineAttributes.NUMBER_OF_LABELS]
+                + this.bounds[LogicalLineAttributes.NUMBER_OF_OPERANDS];
+        return LogicalLineAttributes.HEADER_LENGTH + numberOfLabelsAndOperands * 2;
+    }
+
+    private final int getLabelOffset(int index) {
+        if (index < 0 || index >= this.bounds[LogicalLineAttributes.NUMBER_OF_LABELS]) {
+            throw new IndexOutOfBoundsException(String.valueOf(index));
+        }
+
+        return LogicalLineAttributes.HEADER_LENGTH + index * 2;
+    }
+
+    private final int getOperandOffset(int index) {
+        if (index < 0 || index >= this.bounds[LogicalLineAttributes.NUMBER_OF_OPERANDS]) {
+            throw new IndexOutOfBoundsException(String.valueOf(index));
+        }
+
+        return LogicalLineAttributes.HEADER_LENGTH + (this.bounds[LogicalLineAttributes.NUMBER_OF_LABELS] + index) * 2;
     }
 
 }
@@ -21,30 +21,66 @@ public final class LogicalLineAttributes {
     // to ensure some invariants are maintained (e.g. that continuationCharacters is sorted;
     // that the arrays are not aliased, so they will not be mutated externally).
 
+    // All the positions on a logical line are packed in a single int array, laid out like this:
+    //   [NUMBER_OF_LABELS]       the number of labels (L)
+    //   [NUMBER_OF_OPERANDS]     the number of operands (O)
+    //   [MNEMONIC_START]         the start of the mnemonic, or -1 if there is no mnemonic
+    //   [MNEMONIC_END]           the end of the mnemonic, or -1 if there is no mnemonic
+    //   [COMMENT_START]          the start of the comment, or -1 if there is no comment
+    //   [COMMENT_END]            the end of the comment, or -1 if there is no comment
+    //   [HEADER_LENGTH...]       L (start, end) pairs for the labels
+    //   [...]                    O (start, end) pairs for the operands
+    //   [...]                    the positions of the continuation characters, sorted
+    static final int NUMBER_OF_LABELS = 0;
+    static final int NUMBER_OF_OPERANDS = 1;
+    static final int MNEMONIC_START = 2;
+    static final int MNEMONIC_END = 3;
+    static final int COMMENT_START = 4;
+    static final int COMMENT_END = 5;
+    static final int HEADER_LENGTH = 6;
+
+    @Nonnull
+    private static int[] pack(@Nonnull SubstringBounds[] labels, @CheckForNull SubstringBounds mnemonic,
+            @Nonnull SubstringBounds[] operands, @CheckForNull SubstringBounds comment, @Nonnull int[] continuationCharacters) {
+        final int[] bounds = new int[HEADER_LENGTH + (labels.length + operands.length) * 2 + continuationCharacters.length];
+        bounds[NUMBER_OF_LABELS] = labels.length;
+        bounds[NUMBER_OF_OPERANDS] = operands.length;
+        bounds[MNEMONIC_START] = mnemonic == null ? -1 : mnemonic.getStart();
+        bounds[MNEMONIC_END] = mnemonic == null ? -1 : mnemonic.getEnd();
+        bounds[COMMENT_START] = comment == null ? -1 : comment.getStart();
+        bounds[COMMENT_END] = comment == null ? -1 : comment.getEnd();
+
+        int i = HEADER_LENGTH;
+        for (SubstringBounds label : labels) {
+            bounds[i++] = label.getStart();
+            bounds[i++] = label.getEnd();
+        }
+
+        for (SubstringBounds operand : operands) {
+            bounds[i++] = operand.getStart();
+            bounds[i++] = operand.getEnd();
+        }
+
+        System.arraycopy(continuationCharacters, 0, bounds, i, continuationCharacters.length);
+        return bounds;
+    }
+
     final int length;
     @CheckForNull
     final ParseError parseError;
     @Nonnull
-    final SubstringBounds[] labels;
-    @CheckForNull
-    final SubstringBounds mnemonic;
-    @Nonnull
-    final SubstringBounds[] operands;
-    @CheckForNull
-    final SubstringBounds comment;
-    @Nonnull
-    final int[] continuationCharacters;
+    final int[] bounds;
+
+    LogicalLineAttributes(int length, @CheckForNull ParseError parseError, @Nonnull int[] bounds) {
+        this.length = length;
+        this.parseError = parseError;
+        this.bounds = bounds;
+    }
 
     LogicalLineAttributes(int length, @CheckForNull ParseError parseError, @Nonnull SubstringBounds[] labels,
             @CheckForNull SubstringBounds mnemonic, @Nonnull SubstringBounds[] operands, @CheckForNull SubstringBounds comment,
             @Nonnull int[] continuationCharacters) {
-        this.length = length;
-        this.parseError = parseError;
-        this.labels = labels;
-        this.mnemonic = mnemonic;
-        this.operands = operands;
-        this.comment = comment;
-        this.continuationCharacters = continuationCharacters;
+        this(length, parseError, pack(labels, mnemonic, operands, comment, continuationCharacters));
     }
 
 }
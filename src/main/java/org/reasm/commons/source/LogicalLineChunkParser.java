@@ -0,0 +1,96 @@
+package org.reasm.commons.source;
+
+import java.util.ArrayList;
+import java.util.concurrent.Callable;
+
+import javax.annotation.Nonnull;
+
+import org.reasm.source.SourceNode;
+
+import ca.fragag.text.Document;
+import ca.fragag.text.DocumentReader;
+
+/**
+ * Parses the logical lines in a range of a source file that starts and ends on logical line boundaries. The block structure is not
+ * built here; the resulting logical lines are later fed to the block parsers by a {@link PrecomputedSourceNodeProducer}.
+ *
+ * @author Francis Gagné
+ */
+final class LogicalLineChunkParser implements Callable<ArrayList<SourceNode>> {
+
+    /**
+     * Finds the first logical line boundary at or after the specified position, using only the characters around each line
+     * separator.
+     * <p>
+     * A line separator that is not preceded by a continuation character always ends a logical line. A line separator that is
+     * preceded by an ampersand might end a logical line too (for example, if the ampersand is in a comment), but such line
+     * separators are skipped, since determining whether they end a logical line would require parsing the line.
+     *
+     * @param text
+     *            the text to search
+     * @param from
+     *            the position at which to start searching
+     * @return the position of the first logical line boundary at or after <code>from</code>, or the length of <code>text</code> if
+     *         there are no such boundaries
+     */
+    static int findLogicalLineBoundary(@Nonnull CharSequence text, int from) {
+        final int length = text.length();
+        for (int position = Math.max(from, 1); position < length; position++) {
+            if (isLogicalLineBoundary(text, position)) {
+                return position;
+            }
+        }
+
+        return length;
+    }
+
+    private static boolean isLogicalLineBoundary(@Nonnull CharSequence text, int position) {
+        final int startOfLineSeparator;
+        switch (text.charAt(position - 1)) {
+        case '\n':
+            startOfLineSeparator = position >= 2 && text.charAt(position - 2) == '\r' ? position - 2 : position - 1;
+            break;
+
+        case '\r':
+            if (text.charAt(position) == '\n') {
+                // The line separator is a CR LF sequence; the boundary is after the LF.
+                return false;
+            }
+
+            startOfLineSeparator = position - 1;
+            break;
+
+        default:
+            return false;
+        }
+
+        return startOfLineSeparator == 0 || text.charAt(startOfLineSeparator - 1) != '&';
+    }
+
+    @Nonnull
+    private final Parser parser;
+    @Nonnull
+    private final Document text;
+    private final int start;
+    private final int end;
+
+    LogicalLineChunkParser(@Nonnull Parser parser, @Nonnull Document text, int start, int end) {
+        this.parser = parser;
+        this.text = text;
+        this.start = start;
+        this.end = end;
+    }
+
+    @Override
+    public final ArrayList<SourceNode> call() {
+        final DocumentReader reader = new DocumentReader(this.text, this.start);
+        final SourceNodeProducer sourceNodeProducer = new SourceNodeProducer(this.parser, reader);
+        final ArrayList<SourceNode> nodes = new ArrayList<>();
+        while (reader.getCurrentPosition() < this.end) {
+            nodes.add(sourceNodeProducer.next());
+        }
+
+        return nodes;
+    }
+
+}
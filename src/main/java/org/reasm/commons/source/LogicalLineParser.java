@@ -1,11 +1,10 @@
 package org.reasm.commons.source;
 
-import java.util.ArrayList;
+import java.util.Arrays;
 
 import javax.annotation.CheckForNull;
 import javax.annotation.Nonnull;
 
-import org.reasm.SubstringBounds;
 import org.reasm.commons.parseerrors.LabelExpectedParseError;
 import org.reasm.source.ParseError;
 import org.reasm.source.parseerrors.MismatchedParenthesisParseError;
@@ -15,15 +14,16 @@ import ca.fragag.text.CharSequenceReader;
 
 /**
  * The logical line parser.
+ * <p>
+ * A LogicalLineParser keeps scratch buffers that are reused from one logical line to the next, so that parsing a logical line
+ * only allocates the {@link LogicalLineAttributes}, the packed array of positions it contains and the parse error, if any.
+ * Therefore, an instance must not be used by more than one thread at a time.
  *
  * @author Francis Gagné
  */
 final class LogicalLineParser {
 
-    @Nonnull
-    private static final SubstringBounds[] EMPTY_SUBSTRING_BOUNDS_ARRAY = new SubstringBounds[0];
-    @Nonnull
-    private static final int[] EMPTY_INT_ARRAY = new int[0];
+    private static final int INITIAL_BUFFER_CAPACITY = 16;
 
     /**
      * Parses a logical line starting at the current position of the specified reader.
@@ -36,16 +36,65 @@ final class LogicalLineParser {
      */
     @Nonnull
     static LogicalLineAttributes parse(@Nonnull CharSequenceReader<?> reader, @Nonnull Syntax syntax) {
+        return new LogicalLineParser(syntax).parse(reader);
+    }
+
+    @Nonnull
+    private static int[] grow(@Nonnull int[] buffer) {
+        return Arrays.copyOf(buffer, buffer.length * 2);
+    }
+
+    @Nonnull
+    private final Syntax syntax;
+
+    // Scratch buffers. Labels and operands are stored as (start, end) pairs.
+    private int mnemonicStart;
+    private int mnemonicEnd;
+    private int commentStart;
+    private int commentEnd;
+    @Nonnull
+    private int[] labels = new int[INITIAL_BUFFER_CAPACITY];
+    private int labelsLength;
+    @Nonnull
+    private int[] operands = new int[INITIAL_BUFFER_CAPACITY];
+    private int operandsLength;
+    @Nonnull
+    private int[] continuationCharacters = new int[INITIAL_BUFFER_CAPACITY];
+    private int continuationCharactersLength;
+
+    /**
+     * Initializes a new LogicalLineParser.
+     *
+     * @param syntax
+     *            the assembly language's syntax rules
+     */
+    LogicalLineParser(@Nonnull Syntax syntax) {
+        this.syntax = syntax;
+    }
+
+    /**
+     * Parses a logical line starting at the current position of the specified reader.
+     *
+     * @param reader
+     *            the {@link CharSequenceReader} to read from
+     * @return the attributes of the parsed logical line
+     */
+    @Nonnull
+    final LogicalLineAttributes parse(@Nonnull CharSequenceReader<?> reader) {
+        final Syntax syntax = this.syntax;
         ParseError parseError = null;
-        ArrayList<SubstringBounds> labels = new ArrayList<>();
-        SubstringBounds mnemonic = null;
-        ArrayList<SubstringBounds> operands = new ArrayList<>();
-        SubstringBounds comment = null;
-        ArrayList<Integer> continuationCharacters = new ArrayList<>();
+
+        this.mnemonicStart = -1;
+        this.mnemonicEnd = -1;
+        this.commentStart = -1;
+        this.commentEnd = -1;
+        this.labelsLength = 0;
+        this.operandsLength = 0;
+        this.continuationCharactersLength = 0;
 
         int startOfLogicalLine = reader.getCurrentPosition();
 
-        if (readLogicalChar(reader, startOfLogicalLine, continuationCharacters)) {
+        if (this.readLogicalChar(reader, startOfLogicalLine)) {
             int currentCodePoint = reader.getCurrentCodePoint();
 
             // When this flag becomes false, we have reached the end of the logical line.
@@ -53,7 +102,7 @@ final class LogicalLineParser {
 
             // Check if the line is a full-line comment.
             if (currentCodePoint == '*' || currentCodePoint == ';') {
-                comment = readComment(reader, startOfLogicalLine);
+                this.readComment(reader, startOfLogicalLine);
                 onTheLine = false;
             } else {
                 // Parse the labels.
@@ -62,32 +111,32 @@ final class LogicalLineParser {
                     // will just be skipped.
                     int start = reader.getCurrentPosition() - startOfLogicalLine;
 
-                    onTheLine = readLabelOrMnemonic(reader, startOfLogicalLine, continuationCharacters);
+                    onTheLine = this.readLabelOrMnemonic(reader, startOfLogicalLine);
 
                     // The colon, semicolon, whitespace or end of the line ends the label.
                     int end = reader.getCurrentPosition() - startOfLogicalLine;
-                    parseError = addLabel(labels, start, end, parseError);
+                    parseError = this.addLabel(start, end, parseError);
 
                     // If the character wasn't a colon, look for one.
                     currentCodePoint = reader.getCurrentCodePoint();
                     if (currentCodePoint != ':') {
-                        if (onTheLine = skipWhitespaceFromCurrent(reader, onTheLine, startOfLogicalLine, continuationCharacters)) {
+                        if (onTheLine = this.skipWhitespaceFromCurrent(reader, onTheLine, startOfLogicalLine)) {
                             currentCodePoint = reader.getCurrentCodePoint();
                         }
                     }
 
                     // If the following character is a colon, skip it.
                     if (currentCodePoint == ':') {
-                        onTheLine = advanceReadLogicalChar(reader, startOfLogicalLine, continuationCharacters);
+                        onTheLine = this.advanceReadLogicalChar(reader, startOfLogicalLine);
                     }
                 }
 
                 // Parse additional labels and the mnemonic.
-                while (onTheLine = skipWhitespaceFromCurrent(reader, onTheLine, startOfLogicalLine, continuationCharacters)) {
+                while (onTheLine = this.skipWhitespaceFromCurrent(reader, onTheLine, startOfLogicalLine)) {
                     currentCodePoint = reader.getCurrentCodePoint();
                     if (currentCodePoint == ';') {
                         // No mnemonic, just a comment.
-                        comment = readComment(reader, startOfLogicalLine);
+                        this.readComment(reader, startOfLogicalLine);
                         onTheLine = false;
                         break;
                     }
@@ -96,25 +145,26 @@ final class LogicalLineParser {
                     // followed by a colon, then it's the mnemonic.
                     int start = reader.getCurrentPosition() - startOfLogicalLine;
 
-                    onTheLine = readLabelOrMnemonic(reader, startOfLogicalLine, continuationCharacters);
+                    onTheLine = this.readLabelOrMnemonic(reader, startOfLogicalLine);
 
                     int end = reader.getCurrentPosition() - startOfLogicalLine;
-                    if ((onTheLine = skipWhitespaceFromCurrent(reader, onTheLine, startOfLogicalLine, continuationCharacters))
+                    if ((onTheLine = this.skipWhitespaceFromCurrent(reader, onTheLine, startOfLogicalLine))
                             && reader.getCurrentCodePoint() == ':') {
-                        parseError = addLabel(labels, start, end, parseError);
-                        onTheLine = advanceReadLogicalChar(reader, startOfLogicalLine, continuationCharacters);
+                        parseError = this.addLabel(start, end, parseError);
+                        onTheLine = this.advanceReadLogicalChar(reader, startOfLogicalLine);
                     } else {
-                        mnemonic = new SubstringBounds(start, end);
+                        this.mnemonicStart = start;
+                        this.mnemonicEnd = end;
                         break;
                     }
                 }
 
                 // Parse the operands.
-                if (onTheLine = skipWhitespaceFromCurrent(reader, onTheLine, startOfLogicalLine, continuationCharacters)) {
+                if (onTheLine = this.skipWhitespaceFromCurrent(reader, onTheLine, startOfLogicalLine)) {
                     currentCodePoint = reader.getCurrentCodePoint();
                     if (currentCodePoint == ';') {
                         // There are no operands; this is just a comment.
-                        comment = readComment(reader, startOfLogicalLine);
+                        this.readComment(reader, startOfLogicalLine);
                         onTheLine = false;
                     } else {
                         int currentOperandStart = reader.getCurrentPosition() - startOfLogicalLine;
@@ -131,13 +181,16 @@ final class LogicalLineParser {
                             if (inString != -1) {
                                 if (currentCodePoint == '\\') {
                                     // Skip the character after the backslash.
-                                    onTheLine = advanceReadLogicalChar(reader, startOfLogicalLine, continuationCharacters);
+                                    onTheLine = this.advanceReadLogicalChar(reader, startOfLogicalLine);
                                 } else if (currentCodePoint == inString) {
                                     inString = -1;
                                     startOfString = -1;
                                 }
                             } else {
-                                if (inNumberOrIdentifier && !syntax.isValidIdentifierCodePoint(currentCodePoint)) {
+                                // Classify the code point with a single table lookup.
+                                final int codePointClasses = syntax.getCodePointClasses(currentCodePoint);
+
+                                if (inNumberOrIdentifier && (codePointClasses & Syntax.IDENTIFIER) == 0) {
                                     inNumberOrIdentifier = false;
                                 }
 
@@ -171,9 +224,9 @@ final class LogicalLineParser {
 
                                     case ',':
                                         if (numberOfParentheses == 0) {
-                                            addOperand(operands, currentOperandStart, startOfTrailingWhitespace,
+                                            this.addOperand(currentOperandStart, startOfTrailingWhitespace,
                                                     reader.getCurrentPosition() - startOfLogicalLine);
-                                            onTheLine = skipWhitespaceFromNext(reader, startOfLogicalLine, continuationCharacters);
+                                            onTheLine = this.skipWhitespaceFromNext(reader, startOfLogicalLine);
                                             currentOperandStart = reader.getCurrentPosition() - startOfLogicalLine;
                                             continue;
                                         }
@@ -182,22 +235,21 @@ final class LogicalLineParser {
 
                                     }
 
-                                    if (Syntax.isWhitespace(currentCodePoint)) {
+                                    if ((codePointClasses & Syntax.WHITESPACE) != 0) {
                                         if (startOfTrailingWhitespace == -1) {
                                             startOfTrailingWhitespace = reader.getCurrentPosition() - startOfLogicalLine;
                                         }
                                     } else {
                                         startOfTrailingWhitespace = -1;
 
-                                        if (Syntax.isValidNumberInitialCodePoint(currentCodePoint)
-                                                || syntax.isValidIdentifierInitialCodePoint(currentCodePoint)) {
+                                        if ((codePointClasses & (Syntax.NUMBER_INITIAL | Syntax.IDENTIFIER_INITIAL)) != 0) {
                                             inNumberOrIdentifier = true;
                                         }
                                     }
                                 }
                             }
 
-                            onTheLine = advanceReadLogicalChar(reader, startOfLogicalLine, continuationCharacters);
+                            onTheLine = this.advanceReadLogicalChar(reader, startOfLogicalLine);
                         } while (onTheLine);
 
                         if (inString != -1) {
@@ -212,27 +264,17 @@ final class LogicalLineParser {
                             }
                         }
 
-                        addOperand(operands, currentOperandStart, startOfTrailingWhitespace, reader.getCurrentPosition()
+                        this.addOperand(currentOperandStart, startOfTrailingWhitespace, reader.getCurrentPosition()
                                 - startOfLogicalLine);
 
                         if (readComment) {
-                            comment = readComment(reader, startOfLogicalLine);
+                            this.readComment(reader, startOfLogicalLine);
                         }
                     }
                 }
             }
         }
 
-        int[] continuationCharactersArray;
-        if (continuationCharacters.isEmpty()) {
-            continuationCharactersArray = EMPTY_INT_ARRAY;
-        } else {
-            continuationCharactersArray = new int[continuationCharacters.size()];
-            for (int i = 0; i < continuationCharacters.size(); i++) {
-                continuationCharactersArray[i] = continuationCharacters.get(i);
-            }
-        }
-
         if (!reader.atEnd()) {
             if (reader.getCurrentCodePoint() == '\r') {
                 reader.advance();
@@ -247,15 +289,12 @@ final class LogicalLineParser {
         }
 
         final int length = reader.getCurrentPosition() - startOfLogicalLine;
-        return new LogicalLineAttributes(length, parseError, labels.toArray(EMPTY_SUBSTRING_BOUNDS_ARRAY), mnemonic,
-                operands.toArray(EMPTY_SUBSTRING_BOUNDS_ARRAY), comment, continuationCharactersArray);
+        return new LogicalLineAttributes(length, parseError, this.packBounds());
     }
 
     /**
      * Adds a label to the logical line.
      *
-     * @param labels
-     *            the list of labels on the logical line
      * @param start
      *            the starting position of the label
      * @param end
@@ -265,21 +304,23 @@ final class LogicalLineParser {
      * @return the new parse error for the logical line
      */
     @CheckForNull
-    private static ParseError addLabel(@Nonnull ArrayList<SubstringBounds> labels, int start, int end,
-            @CheckForNull ParseError parseError) {
+    private final ParseError addLabel(int start, int end, @CheckForNull ParseError parseError) {
         if (parseError == null && start == end) {
             parseError = new LabelExpectedParseError(start);
         }
 
-        labels.add(new SubstringBounds(start, end));
+        if (this.labelsLength == this.labels.length) {
+            this.labels = grow(this.labels);
+        }
+
+        this.labels[this.labelsLength++] = start;
+        this.labels[this.labelsLength++] = end;
         return parseError;
     }
 
     /**
      * Adds an operand to the logical line.
      *
-     * @param operands
-     *            the list of operands on the logical line
      * @param currentOperandStart
      *            the starting position of the operand
      * @param startOfTrailingWhitespace
@@ -287,8 +328,7 @@ final class LogicalLineParser {
      * @param currentPosition
      *            the reader's current position within the logical line
      */
-    private static void addOperand(@Nonnull ArrayList<SubstringBounds> operands, int currentOperandStart,
-            int startOfTrailingWhitespace, int currentPosition) {
+    private final void addOperand(int currentOperandStart, int startOfTrailingWhitespace, int currentPosition) {
         final int currentOperandEnd;
         if (startOfTrailingWhitespace != -1) {
             currentOperandEnd = startOfTrailingWhitespace;
@@ -296,7 +336,12 @@ final class LogicalLineParser {
             currentOperandEnd = currentPosition;
         }
 
-        operands.add(new SubstringBounds(currentOperandStart, currentOperandEnd));
+        if (this.operandsLength == this.operands.length) {
+            this.operands = grow(this.operands);
+        }
+
+        this.operands[this.operandsLength++] = currentOperandStart;
+        this.operands[this.operandsLength++] = currentOperandEnd;
     }
 
     /**
@@ -307,15 +352,12 @@ final class LogicalLineParser {
      *            the {@link CharSequenceReader} to read from
      * @param startOfLogicalLine
      *            the logical line's starting position
-     * @param continuationCharacters
-     *            the list of continuation characters on the logical line
      * @return <code>true</code> if the next character is on the same logical line, or <code>false</code> if the next character is a
      *         line separator.
      */
-    private static boolean advanceReadLogicalChar(@Nonnull CharSequenceReader<?> reader, int startOfLogicalLine,
-            @Nonnull ArrayList<Integer> continuationCharacters) {
+    private final boolean advanceReadLogicalChar(@Nonnull CharSequenceReader<?> reader, int startOfLogicalLine) {
         reader.advance();
-        return readLogicalChar(reader, startOfLogicalLine, continuationCharacters);
+        return this.readLogicalChar(reader, startOfLogicalLine);
     }
 
     /**
@@ -337,6 +379,31 @@ final class LogicalLineParser {
         return true;
     }
 
+    /**
+     * Packs the positions collected in the scratch buffers in the layout expected by {@link LogicalLineAttributes}.
+     *
+     * @return the packed positions
+     */
+    @Nonnull
+    private final int[] packBounds() {
+        final int[] bounds = new int[LogicalLineAttributes.HEADER_LENGTH + this.labelsLength + this.operandsLength
+                + this.continuationCharactersLength];
+        bounds[LogicalLineAttributes.NUMBER_OF_LABELS] = this.labelsLength / 2;
+        bounds[LogicalLineAttributes.NUMBER_OF_OPERANDS] = this.operandsLength / 2;
+        bounds[LogicalLineAttributes.MNEMONIC_START] = this.mnemonicStart;
+        bounds[LogicalLineAttributes.MNEMONIC_END] = this.mnemonicEnd;
+        bounds[LogicalLineAttributes.COMMENT_START] = this.commentStart;
+        bounds[LogicalLineAttributes.COMMENT_END] = this.commentEnd;
+
+        int offset = LogicalLineAttributes.HEADER_LENGTH;
+        System.arraycopy(this.labels, 0, bounds, offset, this.labelsLength);
+        offset += this.labelsLength;
+        System.arraycopy(this.operands, 0, bounds, offset, this.operandsLength);
+        offset += this.operandsLength;
+        System.arraycopy(this.continuationCharacters, 0, bounds, offset, this.continuationCharactersLength);
+        return bounds;
+    }
+
     /**
      * Reads the comment on the logical line.
      *
@@ -344,18 +411,16 @@ final class LogicalLineParser {
      *            the {@link CharSequenceReader} to read from
      * @param startOfLogicalLine
      *            the logical line's starting position
-     * @return the {@link SubstringBounds} for the comment
      */
-    @Nonnull
-    private static SubstringBounds readComment(@Nonnull CharSequenceReader<?> reader, int startOfLogicalLine) {
-        int start = reader.getCurrentPosition() - startOfLogicalLine;
+    private final void readComment(@Nonnull CharSequenceReader<?> reader, int startOfLogicalLine) {
+        this.commentStart = reader.getCurrentPosition() - startOfLogicalLine;
 
         // Skip to the end of the line, ignoring potential continuation characters.
         do {
             reader.advance();
         } while (isOnTheLine(reader));
 
-        return new SubstringBounds(start, reader.getCurrentPosition() - startOfLogicalLine);
+        this.commentEnd = reader.getCurrentPosition() - startOfLogicalLine;
     }
 
     /**
@@ -365,25 +430,22 @@ final class LogicalLineParser {
      *            the {@link CharSequenceReader} to read from
      * @param startOfLogicalLine
      *            the logical line's starting position
-     * @param continuationCharacters
-     *            the list of continuation characters on the logical line
      * @return <code>true</code> if the current character is on the same logical line, or <code>false</code> if the current
      *         character is a line separator
      */
-    private static boolean readLabelOrMnemonic(CharSequenceReader<?> reader, int startOfLogicalLine,
-            ArrayList<Integer> continuationCharacters) {
+    private final boolean readLabelOrMnemonic(CharSequenceReader<?> reader, int startOfLogicalLine) {
         boolean onTheLine;
         boolean isFirstCodePoint = true;
 
         // Find the end of the label or mnemonic.
-        while (onTheLine = readLogicalChar(reader, startOfLogicalLine, continuationCharacters)) {
+        while (onTheLine = this.readLogicalChar(reader, startOfLogicalLine)) {
             int currentCodePoint = reader.getCurrentCodePoint();
 
             if (currentCodePoint == '=') {
                 // If the label or mnemonic starts with a '=' character,
                 // then it is the only character in that label or mnemonic.
                 if (isFirstCodePoint) {
-                    onTheLine = advanceReadLogicalChar(reader, startOfLogicalLine, continuationCharacters);
+                    onTheLine = this.advanceReadLogicalChar(reader, startOfLogicalLine);
                 }
 
                 break;
@@ -408,13 +470,10 @@ final class LogicalLineParser {
      *            the {@link CharSequenceReader} to read from
      * @param startOfLogicalLine
      *            the logical line's starting position
-     * @param continuationCharacters
-     *            the list of continuation characters on the logical line
      * @return <code>true</code> if the current character is on the same logical line, or <code>false</code> if the current
      *         character is a line separator
      */
-    private static boolean readLogicalChar(@Nonnull CharSequenceReader<?> reader, int startOfLogicalLine,
-            @Nonnull ArrayList<Integer> continuationCharacters) {
+    private final boolean readLogicalChar(@Nonnull CharSequenceReader<?> reader, int startOfLogicalLine) {
         boolean onTheLine = isOnTheLine(reader);
 
         while (onTheLine && reader.getCurrentCodePoint() == '&') {
@@ -430,7 +489,11 @@ final class LogicalLineParser {
                 break;
             }
 
-            continuationCharacters.add(position);
+            if (this.continuationCharactersLength == this.continuationCharacters.length) {
+                this.continuationCharacters = grow(this.continuationCharacters);
+            }
+
+            this.continuationCharacters[this.continuationCharactersLength++] = position;
 
             // Read the line separator.
             reader.advance();
@@ -459,16 +522,14 @@ final class LogicalLineParser {
      *            is a line separator
      * @param startOfLogicalLine
      *            the logical line's starting position
-     * @param continuationCharacters
-     *            the list of continuation characters on the logical line
      * @return <code>true</code> if the next character is on the same logical line, or <code>false</code> if the next character is a
      *         line separator.
      */
-    private static boolean skipWhitespaceFromCurrent(@Nonnull CharSequenceReader<?> reader, boolean onTheLine,
-            int startOfLogicalLine, @Nonnull ArrayList<Integer> continuationCharacters) {
+    private final boolean skipWhitespaceFromCurrent(@Nonnull CharSequenceReader<?> reader, boolean onTheLine,
+            int startOfLogicalLine) {
         while (onTheLine && Syntax.isWhitespace(reader.getCurrentCodePoint())) {
             reader.advance();
-            onTheLine = readLogicalChar(reader, startOfLogicalLine, continuationCharacters);
+            onTheLine = this.readLogicalChar(reader, startOfLogicalLine);
         }
 
         return onTheLine;
@@ -481,24 +542,17 @@ final class LogicalLineParser {
      *            the {@link CharSequenceReader} to read from
      * @param startOfLogicalLine
      *            the logical line's starting position
-     * @param continuationCharacters
-     *            the list of continuation characters on the logical line
      * @return <code>true</code> if the next character is on the same logical line, or <code>false</code> if the next character is a
      *         line separator.
      */
-    private static boolean skipWhitespaceFromNext(@Nonnull CharSequenceReader<?> reader, int startOfLogicalLine,
-            @Nonnull ArrayList<Integer> continuationCharacters) {
+    private final boolean skipWhitespaceFromNext(@Nonnull CharSequenceReader<?> reader, int startOfLogicalLine) {
         boolean onTheLine;
         do {
             reader.advance();
-        } while ((onTheLine = readLogicalChar(reader, startOfLogicalLine, continuationCharacters))
+        } while ((onTheLine = this.readLogicalChar(reader, startOfLogicalLine))
                 && Syntax.isWhitespace(reader.getCurrentCodePoint()));
 
         return onTheLine;
     }
 
-    // This class is not meant to be instantiated.
-    private LogicalLineParser() {
-    }
-
 }
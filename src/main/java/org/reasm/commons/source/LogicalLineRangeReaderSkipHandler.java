@@ -25,6 +25,11 @@ public final class LogicalLineRangeReaderSkipHandler extends SkipHandler {
     @Nonnull
     private ContinuationCharacterSkipState continuationCharacterSkipState = ContinuationCharacterSkipState.LOOK_FOR_CONTINUATION_CHARACTER;
 
+    // The logical line referenced by the reader's source location, looked up once rather than for every code point.
+    private SourceLocation sourceLocation;
+    private LogicalLine logicalLine;
+    private boolean hasContinuationCharacters;
+
     /**
      * Initializes a new LogicalLineRangeReaderSkipHandler.
      */
@@ -35,7 +40,17 @@ public final class LogicalLineRangeReaderSkipHandler extends SkipHandler {
     protected boolean skipCurrentCodePoint() {
         final SourceNodeRangeReader reader = this.getReader();
         assert reader != null;
-        final LogicalLine logicalLine = SourceLocationUtils.getLogicalLineRequired(reader.getSourceLocation());
+        final SourceLocation sourceLocation = reader.getSourceLocation();
+        if (sourceLocation != this.sourceLocation) {
+            this.logicalLine = SourceLocationUtils.getLogicalLineRequired(sourceLocation);
+            this.hasContinuationCharacters = this.logicalLine.getNumberOfContinuationCharacters() != 0;
+            this.sourceLocation = sourceLocation;
+        }
+
+        if (!this.hasContinuationCharacters) {
+            // Nothing is ever skipped on a logical line that consists of a single source line.
+            return false;
+        }
 
         switch (this.continuationCharacterSkipState) {
         case LOOK_FOR_CONTINUATION_CHARACTER:
@@ -81,7 +96,7 @@ public final class LogicalLineRangeReaderSkipHandler extends SkipHandler {
         // Reset the state to LOOK_FOR_CONTINUATION_CHARACTER.
         this.continuationCharacterSkipState = ContinuationCharacterSkipState.LOOK_FOR_CONTINUATION_CHARACTER;
 
-        if (logicalLine.isContinuationCharacter(reader.getCurrentPositionInSourceNode())) {
+        if (this.logicalLine.isContinuationCharacter(reader.getCurrentPositionInSourceNode())) {
             this.continuationCharacterSkipState = ContinuationCharacterSkipState.EXPECT_CR_OR_LF;
             return true;
         }
@@ -5,26 +5,27 @@ import javax.annotation.Nonnull;
 import org.reasm.SubstringBounds;
 import org.reasm.source.SourceLocation;
 
-import ca.fragag.text.DocumentReader;
-
 /**
  * An object for progressively reading from a portion of a logical line.
+ * <p>
+ * The reader reads from the {@link LogicalLineText} of the range, so continuation characters and the line breaks and whitespace
+ * that follow them are skipped once, when the range is set, rather than on every advance.
  *
  * @author Francis Gagné
  */
 public final class LogicalLineReader {
 
-    private DocumentReader reader;
-    private LogicalLine logicalLine;
+    private LogicalLineText text;
     private int startOfLogicalLine;
-    private int endOfRange;
+    private int position;
 
     /**
      * Advances this reader to the next code point, skipping continuation characters.
      */
     public final void advance() {
-        this.reader.advance();
-        this.skipContinuationCharacters();
+        if (!this.atEnd()) {
+            this.position += Character.charCount(Character.codePointAt(this.text, this.position));
+        }
     }
 
     /**
@@ -34,25 +35,56 @@ public final class LogicalLineReader {
      * @return <code>true</code> if the end of the range has been reached, or <code>false</code> otherwise
      */
     public final boolean atEnd() {
-        return this.reader.getCurrentPosition() >= this.endOfRange;
+        return this.position >= this.text.length();
     }
 
     /**
-     * Gets this reader's current position, for restoring later with {@link #restorePosition(int)}.
+     * Gets this reader's current position, for restoring later with {@link #restorePosition(int)}. The position is relative to the
+     * start of the source file's text.
      *
      * @return the reader's current position
      */
     public final int backupPosition() {
-        return this.reader.getCurrentPosition();
+        return this.startOfLogicalLine + this.text.getPositionInLogicalLine(this.position);
     }
 
     /**
      * Gets the code point at this reader's current position.
      *
-     * @return the current code point
+     * @return the current code point, or -1 if the end of the range has been reached
      */
     public final int getCurrentCodePoint() {
-        return this.reader.getCurrentCodePoint();
+        if (this.atEnd()) {
+            return -1;
+        }
+
+        return Character.codePointAt(this.text, this.position);
+    }
+
+    /**
+     * Gets this reader's current position, relative to the start of the logical line.
+     *
+     * @return the reader's current position in the logical line
+     */
+    public final int getCurrentPositionInLogicalLine() {
+        return this.text.getPositionInLogicalLine(this.position);
+    }
+
+    /**
+     * Reads the text on the logical line from this reader's current position to the end of the range set by the last call to
+     * {@link #setRange(SourceLocation, SubstringBounds)} or {@link #setRange(SourceLocation, int, int)} and returns the text as a
+     * {@link LogicalLineText}. The reader is advanced to the end of the range.
+     * <p>
+     * If the range contains no continuation characters, the returned text is a view of the source text; otherwise, it is a view of
+     * the text that was copied when the range was set. In both cases, no characters are copied.
+     *
+     * @return a {@link LogicalLineText} containing the text on the rest of the range
+     */
+    @Nonnull
+    public final LogicalLineText readToCharSequence() {
+        final LogicalLineText result = this.text.subSequence(this.position, this.text.length());
+        this.position = this.text.length();
+        return result;
     }
 
     /**
@@ -64,26 +96,19 @@ public final class LogicalLineReader {
      */
     @Nonnull
     public final String readToString() {
-        final StringBuilder sb = new StringBuilder();
-        while (!this.atEnd()) {
-            sb.appendCodePoint(this.reader.getCurrentCodePoint());
-            this.advance();
-        }
-
-        return sb.toString();
+        return this.readToCharSequence().toString();
     }
 
     /**
-     * Sets this reader's current position. This method doesn't check if the specified position lies within the active range or if
-     * that position would be skipped due to continuation characters. It should only be called with values returned from
-     * {@link #backupPosition()} since the last call to {@link #setRange(SourceLocation, SubstringBounds)} or
-     * {@link #setRange(SourceLocation, int, int)}.
+     * Sets this reader's current position. This method doesn't check if the specified position lies within the active range. It
+     * should only be called with values returned from {@link #backupPosition()} since the last call to
+     * {@link #setRange(SourceLocation, SubstringBounds)} or {@link #setRange(SourceLocation, int, int)}.
      *
      * @param position
      *            the new reader's position
      */
     public final void restorePosition(int position) {
-        this.reader.setCurrentPosition(position);
+        this.position = this.text.getIndex(position - this.startOfLogicalLine);
     }
 
     /**
@@ -97,22 +122,10 @@ public final class LogicalLineReader {
      *            the end (exclusive) position of the range, relative to the start of the logical line
      */
     public final void setRange(@Nonnull SourceLocation sourceLocation, int start, int end) {
-        if (sourceLocation == null) {
-            throw new NullPointerException("sourceLocation");
-        }
-
-        // Obtain the logical line before setting any fields.
-        final LogicalLine logicalLine = SourceLocationUtils.getLogicalLineRequired(sourceLocation);
-
-        if (this.reader == null || sourceLocation.getFile().getText() != this.reader.getDocument()) {
-            this.reader = new DocumentReader(sourceLocation.getFile().getText());
-        }
-
-        this.logicalLine = logicalLine;
+        // Obtain the text before setting any fields.
+        this.text = LogicalLineText.get(sourceLocation, start, end);
         this.startOfLogicalLine = sourceLocation.getTextPosition();
-        this.reader.setCurrentPosition(this.startOfLogicalLine + start);
-        this.endOfRange = this.startOfLogicalLine + end;
-        this.skipContinuationCharacters();
+        this.position = 0;
     }
 
     /**
@@ -140,20 +153,9 @@ public final class LogicalLineReader {
      * Advances this reader to the next code point that is not whitespace, skipping continuation characters on the way.
      */
     public final void skipWhitespace() {
-        while (!this.atEnd() && Syntax.isWhitespace(this.reader.getCurrentCodePoint())) {
+        while (!this.atEnd() && Syntax.isWhitespace(this.getCurrentCodePoint())) {
             this.advance();
         }
     }
 
-    private final void skipContinuationCharacters() {
-        while (this.logicalLine.isContinuationCharacter(this.reader.getCurrentPosition() - this.startOfLogicalLine)) {
-            this.reader.advance();
-
-            // Skip the line separator and the leading whitespace on the following line.
-            while (!this.atEnd() && Syntax.isWhitespace(this.reader.getCurrentCodePoint())) {
-                this.reader.advance();
-            }
-        }
-    }
-
 }
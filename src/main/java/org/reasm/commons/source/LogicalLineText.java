@@ -0,0 +1,395 @@
+package org.reasm.commons.source;
+
+import java.util.Arrays;
+
+import javax.annotation.CheckForNull;
+import javax.annotation.Nonnull;
+import javax.annotation.concurrent.Immutable;
+
+import org.reasm.SubstringBounds;
+import org.reasm.source.SourceLocation;
+
+/**
+ * The text of a range of a logical line, with the continuation characters, the line breaks that follow them and the leading
+ * whitespace on the following source lines removed.
+ * <p>
+ * When the range contains no continuation characters, the LogicalLineText is a view of the source text and nothing is copied.
+ * Otherwise, the text is copied once, when the LogicalLineText is created, so that {@link #charAt(int)} costs a constant amount
+ * of work. {@link #subSequence(int, int)} returns a view that shares the text of this LogicalLineText. A LogicalLineText contains
+ * the same characters that a {@link LogicalLineReader} or a {@link org.reasm.source.SourceNodeRangeReader} with a
+ * {@link LogicalLineRangeReaderSkipHandler} would read over the same range. {@link #getPositionInLogicalLine(int)} maps an index
+ * in the text back to a position in the logical line, e.g. to report an error at the right position.
+ * <p>
+ * Like other {@link CharSequence} implementations, LogicalLineText doesn't override {@link Object#equals(Object)}. To look up a
+ * symbol without converting the text to a {@link String}, use {@link #contentEquals(CharSequence)} and
+ * {@link #contentHashCode()}.
+ *
+ * @author Francis Gagné
+ */
+@Immutable
+public final class LogicalLineText implements CharSequence {
+
+    /**
+     * Gets the text of a range of the logical line at the specified source location.
+     *
+     * @param sourceLocation
+     *            a {@link SourceLocation} that references a {@link LogicalLine}
+     * @param start
+     *            the start (inclusive) position of the range, relative to the start of the logical line
+     * @param end
+     *            the end (exclusive) position of the range, relative to the start of the logical line
+     * @return the text of the range
+     */
+    @Nonnull
+    public static LogicalLineText get(@Nonnull SourceLocation sourceLocation, int start, int end) {
+        if (sourceLocation == null) {
+            throw new NullPointerException("sourceLocation");
+        }
+
+        final LogicalLine logicalLine = SourceLocationUtils.getLogicalLineRequired(sourceLocation);
+        return create(sourceLocation.getFile().getText(), sourceLocation.getTextPosition(), logicalLine, start, end);
+    }
+
+    /**
+     * Gets the text of a range of the logical line at the specified source location.
+     *
+     * @param sourceLocation
+     *            a {@link SourceLocation} that references a {@link LogicalLine}
+     * @param bounds
+     *            a {@link SubstringBounds} that contains the start (inclusive) and the end (exclusive) position of the range,
+     *            relative to the start of the logical line
+     * @return the text of the range
+     */
+    @Nonnull
+    public static LogicalLineText get(@Nonnull SourceLocation sourceLocation, @Nonnull SubstringBounds bounds) {
+        if (sourceLocation == null) {
+            throw new NullPointerException("sourceLocation");
+        }
+
+        if (bounds == null) {
+            throw new NullPointerException("bounds");
+        }
+
+        return get(sourceLocation, bounds.getStart(), bounds.getEnd());
+    }
+
+    @Nonnull
+    static LogicalLineText create(@Nonnull CharSequence text, int startOfLogicalLine, @Nonnull LogicalLine logicalLine, int start,
+            int end) {
+        if (start < 0) {
+            throw new IllegalArgumentException("start < 0");
+        }
+
+        if (end < start) {
+            throw new IllegalArgumentException("end < start");
+        }
+
+        if (end > logicalLine.getLength()) {
+            throw new IllegalArgumentException("end > logicalLine.getLength()");
+        }
+
+        // Find the first continuation character in the range.
+        final int numberOfContinuationCharacters = logicalLine.getNumberOfContinuationCharacters();
+        int continuationCharacterIndex = 0;
+        while (continuationCharacterIndex < numberOfContinuationCharacters
+                && logicalLine.getContinuationCharacter(continuationCharacterIndex) < start) {
+            continuationCharacterIndex++;
+        }
+
+        if (continuationCharacterIndex == numberOfContinuationCharacters
+                || logicalLine.getContinuationCharacter(continuationCharacterIndex) >= end) {
+            // The range has no continuation characters: it is a contiguous slice of the text.
+            return new LogicalLineText(text, null, startOfLogicalLine + start, end - start, 0, start, end, null, null);
+        }
+
+        // Copy the segments between the continuation characters, and remember where each segment starts so that indices can be
+        // mapped back to positions in the logical line.
+        final char[] chars = new char[end - start];
+        final int maxSegments = numberOfContinuationCharacters - continuationCharacterIndex + 1;
+        final int[] segmentIndices = new int[maxSegments + 1];
+        final int[] segmentPositions = new int[maxSegments];
+        final int numberOfSegments = copySegments(text, startOfLogicalLine, logicalLine, start, end, continuationCharacterIndex,
+                chars, 0, segmentIndices, segmentPositions);
+        return new LogicalLineText(null, chars, 0, segmentIndices[numberOfSegments], 0, start, end, Arrays.copyOf(segmentIndices,
+                numberOfSegments), Arrays.copyOf(segmentPositions, numberOfSegments));
+    }
+
+    /**
+     * Copies the text of a range of a logical line to an array of characters, skipping the continuation characters, the line
+     * separators that follow them and the leading whitespace on the following source lines.
+     *
+     * @param text
+     *            the source text
+     * @param startOfLogicalLine
+     *            the position of the logical line in <code>text</code>
+     * @param logicalLine
+     *            the logical line
+     * @param start
+     *            the start (inclusive) position of the range, relative to the start of the logical line
+     * @param end
+     *            the end (exclusive) position of the range, relative to the start of the logical line
+     * @param continuationCharacterIndex
+     *            the index of the first continuation character of the logical line that is at or after <code>start</code>
+     * @param chars
+     *            the array to copy the text to
+     * @param offset
+     *            the offset in <code>chars</code> at which to copy the text
+     * @param segmentIndices
+     *            an array that receives the offset in <code>chars</code> at which each segment of text between continuation
+     *            characters starts, followed by the offset that follows the copied text; it must have room for two more elements
+     *            than the number of continuation characters in the range
+     * @param segmentPositions
+     *            an array that receives the position in the logical line at which each segment starts, or <code>null</code>
+     * @return the number of segments that were copied
+     */
+    static int copySegments(@Nonnull CharSequence text, int startOfLogicalLine, @Nonnull LogicalLine logicalLine, int start,
+            int end, int continuationCharacterIndex, @Nonnull char[] chars, int offset, @Nonnull int[] segmentIndices,
+            @CheckForNull int[] segmentPositions) {
+        final int numberOfContinuationCharacters = logicalLine.getNumberOfContinuationCharacters();
+        int numberOfSegments = 0;
+        int position = start;
+        while (position < end) {
+            int segmentEnd = end;
+            if (continuationCharacterIndex < numberOfContinuationCharacters) {
+                segmentEnd = Math.min(logicalLine.getContinuationCharacter(continuationCharacterIndex), end);
+            }
+
+            if (segmentEnd > position) {
+                segmentIndices[numberOfSegments] = offset;
+                if (segmentPositions != null) {
+                    segmentPositions[numberOfSegments] = position;
+                }
+
+                numberOfSegments++;
+                copy(text, startOfLogicalLine + position, startOfLogicalLine + segmentEnd, chars, offset);
+                offset += segmentEnd - position;
+            }
+
+            position = segmentEnd;
+            if (position < end) {
+                // Skip the continuation character, the line separator and the leading whitespace on the following line.
+                position++;
+                continuationCharacterIndex++;
+                while (position < end && Syntax.isWhitespace(text.charAt(startOfLogicalLine + position))) {
+                    position++;
+                }
+            }
+        }
+
+        segmentIndices[numberOfSegments] = offset;
+        return numberOfSegments;
+    }
+
+    private static void copy(@Nonnull CharSequence text, int start, int end, @Nonnull char[] chars, int offset) {
+        if (text instanceof String) {
+            ((String) text).getChars(start, end, chars, offset);
+            return;
+        }
+
+        for (int i = start; i < end; i++) {
+            chars[offset++] = text.charAt(i);
+        }
+    }
+
+    // Either text or chars is null. If text is not null, this is a view of a contiguous slice of the source text.
+    @CheckForNull
+    private final CharSequence text;
+    @CheckForNull
+    private final char[] chars;
+    private final int offset;
+    private final int length;
+
+    // The index, in the text of the whole range, of the first character of this text. This is 0 unless this text was returned by
+    // subSequence().
+    private final int base;
+
+    // The positions in the logical line of the first character of this text and of the end of this text.
+    private final int start;
+    private final int end;
+
+    // For each segment of text between continuation characters, the index in the text of the whole range and the position in the
+    // logical line at which the segment starts. These arrays are null when the range contains no continuation characters.
+    @CheckForNull
+    private final int[] segmentIndices;
+    @CheckForNull
+    private final int[] segmentPositions;
+
+    private LogicalLineText(@CheckForNull CharSequence text, @CheckForNull char[] chars, int offset, int length, int base,
+            int start, int end, @CheckForNull int[] segmentIndices, @CheckForNull int[] segmentPositions) {
+        this.text = text;
+        this.chars = chars;
+        this.offset = offset;
+        this.length = length;
+        this.base = base;
+        this.start = start;
+        this.end = end;
+        this.segmentIndices = segmentIndices;
+        this.segmentPositions = segmentPositions;
+    }
+
+    @Override
+    public final char charAt(int index) {
+        if (index < 0 || index >= this.length) {
+            throw new IndexOutOfBoundsException(Integer.toString(index));
+        }
+
+        final char[] chars = this.chars;
+        if (chars != null) {
+            return chars[this.offset + index];
+        }
+
+        assert this.text != null;
+        return this.text.charAt(this.offset + index);
+    }
+
+    /**
+     * Determines whether this text contains the same characters as the specified {@link CharSequence}.
+     *
+     * @param cs
+     *            the {@link CharSequence} to compare this text with
+     * @return <code>true</code> if this text and <code>cs</code> contain the same characters; otherwise, <code>false</code>
+     */
+    public final boolean contentEquals(@Nonnull CharSequence cs) {
+        if (cs == null) {
+            throw new NullPointerException("cs");
+        }
+
+        final int length = this.length;
+        if (cs.length() != length) {
+            return false;
+        }
+
+        for (int i = 0; i < length; i++) {
+            if (this.charAt(i) != cs.charAt(i)) {
+                return false;
+            }
+        }
+
+        return true;
+    }
+
+    /**
+     * Computes a hash code from the characters of this text. The result is equal to the hash code of the {@link String} returned
+     * by {@link #toString()}, so it can be used to look up a {@link String} in a custom hash table without converting this text.
+     *
+     * @return the hash code
+     */
+    public final int contentHashCode() {
+        int hashCode = 0;
+        for (int i = 0; i < this.length; i++) {
+            hashCode = 31 * hashCode + this.charAt(i);
+        }
+
+        return hashCode;
+    }
+
+    /**
+     * Gets the index in this text of the character at the specified position in the logical line. This is the inverse of
+     * {@link #getPositionInLogicalLine(int)}; a position that is skipped by this text, e.g. a continuation character, is mapped to
+     * the index of the next character.
+     *
+     * @param positionInLogicalLine
+     *            a position relative to the start of the logical line
+     * @return the index of the character in this text, or the length of this text if the position is at or after the end of
+     *         this text
+     */
+    final int getIndex(int positionInLogicalLine) {
+        if (positionInLogicalLine >= this.end) {
+            return this.length;
+        }
+
+        final int[] segmentIndices = this.segmentIndices;
+        if (segmentIndices == null) {
+            return Math.max(positionInLogicalLine - this.start, 0);
+        }
+
+        final int[] segmentPositions = this.segmentPositions;
+        assert segmentPositions != null;
+        int segment = Arrays.binarySearch(segmentPositions, positionInLogicalLine);
+        if (segment < 0) {
+            segment = -segment - 2;
+            if (segment < 0) {
+                return 0;
+            }
+        }
+
+        int indexInRange = segmentIndices[segment] + positionInLogicalLine - segmentPositions[segment];
+        if (segment + 1 < segmentIndices.length) {
+            // The position may be in the text that is skipped after the segment.
+            indexInRange = Math.min(indexInRange, segmentIndices[segment + 1]);
+        }
+
+        return Math.min(Math.max(indexInRange - this.base, 0), this.length);
+    }
+
+    /**
+     * Gets the position in the logical line of the character at the specified index in this text.
+     *
+     * @param index
+     *            the index of a character in this text, or the length of this text
+     * @return the position of the character, relative to the start of the logical line, or the end of the range if
+     *         <code>index</code> is the length of this text
+     */
+    public final int getPositionInLogicalLine(int index) {
+        if (index < 0 || index > this.length) {
+            throw new IndexOutOfBoundsException(Integer.toString(index));
+        }
+
+        if (index == this.length) {
+            return this.end;
+        }
+
+        final int[] segmentIndices = this.segmentIndices;
+        if (segmentIndices == null) {
+            return this.start + index;
+        }
+
+        final int indexInRange = this.base + index;
+        int segment = Arrays.binarySearch(segmentIndices, indexInRange);
+        if (segment < 0) {
+            segment = -segment - 2;
+        }
+
+        assert this.segmentPositions != null;
+        return this.segmentPositions[segment] + indexInRange - segmentIndices[segment];
+    }
+
+    @Override
+    public final int length() {
+        return this.length;
+    }
+
+    /**
+     * Returns a {@link LogicalLineText} that is a view of a portion of this text. No characters are copied.
+     */
+    @Nonnull
+    @Override
+    public final LogicalLineText subSequence(int start, int end) {
+        if (start < 0 || end > this.length || start > end) {
+            throw new IndexOutOfBoundsException();
+        }
+
+        final int endPosition;
+        if (end == this.length) {
+            endPosition = this.end;
+        } else {
+            endPosition = this.getPositionInLogicalLine(end);
+        }
+
+        return new LogicalLineText(this.text, this.chars, this.offset + start, end - start, this.base + start,
+                this.getPositionInLogicalLine(start), endPosition, this.segmentIndices, this.segmentPositions);
+    }
+
+    @Nonnull
+    @Override
+    public final String toString() {
+        final char[] chars = this.chars;
+        if (chars != null) {
+            return new String(chars, this.offset, this.length);
+        }
+
+        assert this.text != null;
+        return this.text.subSequence(this.offset, this.offset + this.length).toString();
+    }
+
+}
@@ -0,0 +1,309 @@
+package org.reasm.commons.source;
+
+import java.util.Arrays;
+
+import javax.annotation.Nonnull;
+
+import org.reasm.source.SourceLocation;
+
+/**
+ * A reusable buffer that holds the text of the operands (and optionally of the labels and of the mnemonic) of a logical line.
+ * <p>
+ * {@link #extract(SourceLocation, boolean)} copies the text of all the components of a logical line into a single array of
+ * characters in one pass, skipping continuation characters and the line breaks and whitespace that follow them, like
+ * {@link LogicalLineText}. The text of each component can then be read from {@link #getBuffer()} between the component's start
+ * and end offsets without allocating any object, or as a {@link String}. The arrays of the buffer are reused and grown as needed
+ * by subsequent calls to {@link #extract(SourceLocation, boolean)}, so a single LogicalLineTextBuffer can be used to process all
+ * the logical lines of a source file.
+ * <p>
+ * A LogicalLineTextBuffer must not be used by more than one thread at a time.
+ *
+ * @author Francis Gagné
+ */
+public final class LogicalLineTextBuffer {
+
+    private static final int INITIAL_BUFFER_SIZE = 64;
+    private static final int INITIAL_NUMBER_OF_COMPONENTS = 8;
+    private static final int INITIAL_NUMBER_OF_SEGMENTS = 4;
+
+    @Nonnull
+    private char[] buffer = new char[INITIAL_BUFFER_SIZE];
+
+    // The start and end offsets in the buffer of each component: the labels, then the mnemonic (if any), then the operands.
+    @Nonnull
+    private int[] componentStarts = new int[INITIAL_NUMBER_OF_COMPONENTS];
+    @Nonnull
+    private int[] componentEnds = new int[INITIAL_NUMBER_OF_COMPONENTS];
+    private int numberOfComponents;
+    private int numberOfLabels;
+    private boolean hasMnemonic;
+
+    // The index of the first continuation character that may lie in the component being extracted. Components are extracted in
+    // increasing order of position, so the continuation characters of a logical line are visited at most twice for all
+    // components.
+    private int continuationCharacterIndex;
+
+    // Receives the start offsets of the segments of a component that is being copied, followed by its end offset.
+    @Nonnull
+    private int[] segmentIndices = new int[INITIAL_NUMBER_OF_SEGMENTS];
+
+    /**
+     * Initializes a new LogicalLineTextBuffer.
+     */
+    public LogicalLineTextBuffer() {
+    }
+
+    /**
+     * Extracts the text of the operands of the logical line at the specified source location into this buffer, replacing the
+     * text that was previously extracted.
+     *
+     * @param location
+     *            a {@link SourceLocation} that references a {@link LogicalLine}
+     * @param includeLabelsAndMnemonic
+     *            <code>true</code> to also extract the text of the labels and of the mnemonic, or <code>false</code> to extract the
+     *            operands only, in which case {@link #getNumberOfLabels()} returns 0 and {@link #hasMnemonic()} returns
+     *            <code>false</code>
+     */
+    public final void extract(@Nonnull SourceLocation location, boolean includeLabelsAndMnemonic) {
+        if (location == null) {
+            throw new NullPointerException("location");
+        }
+
+        final LogicalLine logicalLine = SourceLocationUtils.getLogicalLineRequired(location);
+        final CharSequence text = location.getFile().getText();
+        final int startOfLogicalLine = location.getTextPosition();
+
+        final int numberOfLabels = includeLabelsAndMnemonic ? logicalLine.getNumberOfLabels() : 0;
+        final boolean hasMnemonic = includeLabelsAndMnemonic && logicalLine.getMnemonicStart() != -1;
+        final int numberOfOperands = logicalLine.getNumberOfOperands();
+        final int numberOfComponents = numberOfLabels + (hasMnemonic ? 1 : 0) + numberOfOperands;
+
+        // The components don't overlap, so their text cannot be longer than the logical line.
+        if (this.buffer.length < logicalLine.getLength()) {
+            this.buffer = new char[Math.max(logicalLine.getLength(), this.buffer.length * 2)];
+        }
+
+        if (this.componentStarts.length < numberOfComponents) {
+            final int newLength = Math.max(numberOfComponents, this.componentStarts.length * 2);
+            this.componentStarts = Arrays.copyOf(this.componentStarts, newLength);
+            this.componentEnds = Arrays.copyOf(this.componentEnds, newLength);
+        }
+
+        // A component has at most one more segment than there are continuation characters.
+        final int maxSegments = logicalLine.getNumberOfContinuationCharacters() + 1;
+        if (this.segmentIndices.length < maxSegments + 1) {
+            this.segmentIndices = new int[Math.max(maxSegments + 1, this.segmentIndices.length * 2)];
+        }
+
+        this.numberOfComponents = 0;
+        this.numberOfLabels = numberOfLabels;
+        this.hasMnemonic = hasMnemonic;
+
+        this.continuationCharacterIndex = 0;
+        for (int i = 0; i < numberOfLabels; i++) {
+            this.addComponent(text, startOfLogicalLine, logicalLine, logicalLine.getLabelStart(i),
+                    logicalLine.getLabelEnd(i));
+        }
+
+        if (hasMnemonic) {
+            this.addComponent(text, startOfLogicalLine, logicalLine, logicalLine.getMnemonicStart(),
+                    logicalLine.getMnemonicEnd());
+        }
+
+        for (int i = 0; i < numberOfOperands; i++) {
+            this.addComponent(text, startOfLogicalLine, logicalLine, logicalLine.getOperandStart(i),
+                    logicalLine.getOperandEnd(i));
+        }
+    }
+
+    /**
+     * Gets the array of characters that holds the text of the components that were extracted by the last call to
+     * {@link #extract(SourceLocation, boolean)}. The array is overwritten by the next call to that method, and it must not be
+     * modified.
+     *
+     * @return the array of characters
+     */
+    @Nonnull
+    public final char[] getBuffer() {
+        return this.buffer;
+    }
+
+    /**
+     * Gets the end offset, in the {@link #getBuffer() buffer}, of the text of a label.
+     *
+     * @param index
+     *            the index of the label
+     * @return the end (exclusive) offset of the label's text
+     */
+    public final int getLabelEnd(int index) {
+        return this.componentEnds[this.getLabelComponent(index)];
+    }
+
+    /**
+     * Gets the start offset, in the {@link #getBuffer() buffer}, of the text of a label.
+     *
+     * @param index
+     *            the index of the label
+     * @return the start (inclusive) offset of the label's text
+     */
+    public final int getLabelStart(int index) {
+        return this.componentStarts[this.getLabelComponent(index)];
+    }
+
+    /**
+     * Gets the text of a label.
+     *
+     * @param index
+     *            the index of the label
+     * @return the text of the label
+     */
+    @Nonnull
+    public final String getLabelText(int index) {
+        return this.getComponentText(this.getLabelComponent(index));
+    }
+
+    /**
+     * Gets the end offset, in the {@link #getBuffer() buffer}, of the text of the mnemonic.
+     *
+     * @return the end (exclusive) offset of the mnemonic's text
+     */
+    public final int getMnemonicEnd() {
+        return this.componentEnds[this.getMnemonicComponent()];
+    }
+
+    /**
+     * Gets the start offset, in the {@link #getBuffer() buffer}, of the text of the mnemonic.
+     *
+     * @return the start (inclusive) offset of the mnemonic's text
+     */
+    public final int getMnemonicStart() {
+        return this.componentStarts[this.getMnemonicComponent()];
+    }
+
+    /**
+     * Gets the text of the mnemonic.
+     *
+     * @return the text of the mnemonic
+     */
+    @Nonnull
+    public final String getMnemonicText() {
+        return this.getComponentText(this.getMnemonicComponent());
+    }
+
+    /**
+     * Gets the number of labels whose text was extracted.
+     *
+     * @return the number of labels
+     */
+    public final int getNumberOfLabels() {
+        return this.numberOfLabels;
+    }
+
+    /**
+     * Gets the number of operands whose text was extracted.
+     *
+     * @return the number of operands
+     */
+    public final int getNumberOfOperands() {
+        return this.numberOfComponents - this.getFirstOperandComponent();
+    }
+
+    /**
+     * Gets the end offset, in the {@link #getBuffer() buffer}, of the text of an operand.
+     *
+     * @param index
+     *            the index of the operand
+     * @return the end (exclusive) offset of the operand's text
+     */
+    public final int getOperandEnd(int index) {
+        return this.componentEnds[this.getOperandComponent(index)];
+    }
+
+    /**
+     * Gets the start offset, in the {@link #getBuffer() buffer}, of the text of an operand.
+     *
+     * @param index
+     *            the index of the operand
+     * @return the start (inclusive) offset of the operand's text
+     */
+    public final int getOperandStart(int index) {
+        return this.componentStarts[this.getOperandComponent(index)];
+    }
+
+    /**
+     * Gets the text of an operand.
+     *
+     * @param index
+     *            the index of the operand
+     * @return the text of the operand
+     */
+    @Nonnull
+    public final String getOperandText(int index) {
+        return this.getComponentText(this.getOperandComponent(index));
+    }
+
+    /**
+     * Determines whether the text of a mnemonic was extracted.
+     *
+     * @return <code>true</code> if the text of a mnemonic was extracted; otherwise, <code>false</code>
+     */
+    public final boolean hasMnemonic() {
+        return this.hasMnemonic;
+    }
+
+    private final void addComponent(@Nonnull CharSequence text, int startOfLogicalLine, @Nonnull LogicalLine logicalLine,
+            int start, int end) {
+        final int component = this.numberOfComponents++;
+        final int offset = component == 0 ? 0 : this.componentEnds[component - 1];
+        this.componentStarts[component] = offset;
+
+        // Skip the continuation characters that precede the component.
+        final int numberOfContinuationCharacters = logicalLine.getNumberOfContinuationCharacters();
+        int continuationCharacterIndex = this.continuationCharacterIndex;
+        while (continuationCharacterIndex < numberOfContinuationCharacters
+                && logicalLine.getContinuationCharacter(continuationCharacterIndex) < start) {
+            continuationCharacterIndex++;
+        }
+
+        this.continuationCharacterIndex = continuationCharacterIndex;
+        final int numberOfSegments = LogicalLineText.copySegments(text, startOfLogicalLine, logicalLine, start, end,
+                continuationCharacterIndex, this.buffer, offset, this.segmentIndices, null);
+        this.componentEnds[component] = this.segmentIndices[numberOfSegments];
+    }
+
+    @Nonnull
+    private final String getComponentText(int component) {
+        final int start = this.componentStarts[component];
+        return new String(this.buffer, start, this.componentEnds[component] - start);
+    }
+
+    private final int getFirstOperandComponent() {
+        return this.numberOfLabels + (this.hasMnemonic ? 1 : 0);
+    }
+
+    private final int getLabelComponent(int index) {
+        if (index < 0 || index >= this.numberOfLabels) {
+            throw new IndexOutOfBoundsException(String.valueOf(index));
+        }
+
+        return index;
+    }
+
+    private final int getMnemonicComponent() {
+        if (!this.hasMnemonic) {
+            throw new IllegalStateException("No mnemonic was extracted");
+        }
+
+        return this.numberOfLabels;
+    }
+
+    private final int getOperandComponent(int index) {
+        final int firstOperandComponent = this.getFirstOperandComponent();
+        if (index < 0 || index >= this.numberOfComponents - firstOperandComponent) {
+            throw new IndexOutOfBoundsException(String.valueOf(index));
+        }
+
+        return firstOperandComponent + index;
+    }
+
+}
@@ -0,0 +1,330 @@
+package org.reasm.commons.source;
+
+import java.lang.ref.ReferenceQueue;
+import java.lang.ref.SoftReference;
+import java.lang.ref.WeakReference;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+import javax.annotation.CheckForNull;
+import javax.annotation.Nonnull;
+import javax.annotation.concurrent.Immutable;
+import javax.annotation.concurrent.ThreadSafe;
+
+import org.reasm.source.SourceNode;
+
+import ca.fragag.text.Document;
+
+/**
+ * A cache of parsed source files, shared between parsers that have the same configuration.
+ * <p>
+ * Source files are identified by a SHA-256 hash of their contents, so a source file that is included by several programs is only
+ * parsed once. Two parsers are considered to have the same configuration if they are of the same class and if they were
+ * initialized with the same {@link Syntax}, the same maps of block directives and block parsers and the same factories. All of
+ * these are compared by identity: maps with equal entries may still look up mnemonics differently, e.g. if one of them compares
+ * keys case-insensitively, so parsers must be initialized with the same map instances to share trees. If the parser's class
+ * overrides {@link Parser#undecorateMnemonic(String)}, whose result may depend on the parser's state, trees are only shared
+ * between documents parsed by the same parser instance. Trees can be shared because the nodes produced by parsers are immutable.
+ * <p>
+ * The most recently used trees are kept in memory; when there are more than the maximum number of trees, the least recently used
+ * tree is only kept through a {@link SoftReference}, so that the garbage collector can reclaim it under memory pressure. The
+ * number of trees kept through soft references is also limited; beyond that limit, the least recently demoted tree is dropped.
+ *
+ * @author Francis Gagné
+ */
+@ThreadSafe
+public final class ParseTreeCache {
+
+    @Immutable
+    private static final class Key {
+
+        @Nonnull
+        private final Class<? extends Parser> parserClass;
+        @Nonnull
+        private final Syntax syntax;
+        @Nonnull
+        private final Map<String, BlockDirective> blockDirectives;
+        @Nonnull
+        private final Map<BlockDirective, BlockParser> blocks;
+        @Nonnull
+        private final LogicalLineFactory logicalLineFactory;
+        @Nonnull
+        private final BlockDirectiveLineFactory blockDirectiveLineFactory;
+
+        // The parser itself, if its class overrides undecorateMnemonic(), which may depend on the parser's state. The parser is
+        // held weakly, so that the cache doesn't keep the parsers that are no longer used from being reclaimed; a key whose parser
+        // has been reclaimed is only equal to itself.
+        @CheckForNull
+        private final WeakReference<Parser> parser;
+
+        @Nonnull
+        private final ContentHash contentHash;
+        private final int hashCode;
+
+        Key(@Nonnull Parser parser, @Nonnull ContentHash contentHash) {
+            this.parserClass = parser.getClass();
+            this.syntax = parser.syntax;
+            this.blockDirectives = parser.blockDirectives;
+            this.blocks = parser.blocks;
+            this.logicalLineFactory = parser.logicalLineFactory;
+            this.blockDirectiveLineFactory = parser.blockDirectiveLineFactory;
+            this.parser = Parser.overridesUndecorateMnemonic(this.parserClass) ? new WeakReference<>(parser) : null;
+            this.contentHash = contentHash;
+
+            // All the parts of the configuration are compared by identity.
+            int hashCode = contentHash.hashCode();
+            hashCode = 31 * hashCode + System.identityHashCode(this.parserClass);
+            hashCode = 31 * hashCode + System.identityHashCode(this.syntax);
+            hashCode = 31 * hashCode + System.identityHashCode(this.blockDirectives);
+            hashCode = 31 * hashCode + System.identityHashCode(this.blocks);
+            hashCode = 31 * hashCode + System.identityHashCode(this.logicalLineFactory);
+            hashCode = 31 * hashCode + System.identityHashCode(this.blockDirectiveLineFactory);
+            this.hashCode = 31 * hashCode + (this.parser == null ? 0 : System.identityHashCode(parser));
+        }
+
+        @Override
+        public final boolean equals(Object obj) {
+            if (this == obj) {
+                return true;
+            }
+
+            if (!(obj instanceof Key)) {
+                return false;
+            }
+
+            final Key other = (Key) obj;
+            if (this.hashCode != other.hashCode || this.parserClass != other.parserClass || this.syntax != other.syntax
+                    || this.blockDirectives != other.blockDirectives || this.blocks != other.blocks
+                    || this.logicalLineFactory != other.logicalLineFactory
+                    || this.blockDirectiveLineFactory != other.blockDirectiveLineFactory) {
+                return false;
+            }
+
+            if (this.parser != null) {
+                final Parser parser = this.parser.get();
+                if (parser == null || other.parser == null || parser != other.parser.get()) {
+                    return false;
+                }
+            }
+
+            return this.contentHash.equals(other.contentHash);
+        }
+
+        @Override
+        public final int hashCode() {
+            return this.hashCode;
+        }
+
+    }
+
+    private static final class SoftEntry extends SoftReference<SourceNode> {
+
+        @Nonnull
+        final Key key;
+
+        SoftEntry(@Nonnull Key key, @Nonnull SourceNode sourceNode, @Nonnull ReferenceQueue<SourceNode> queue) {
+            super(sourceNode, queue);
+            this.key = key;
+        }
+
+    }
+
+    private final int maximumSize;
+    private final int maximumSoftSize;
+    @Nonnull
+    private final LinkedHashMap<Key, SourceNode> strongEntries;
+    @Nonnull
+    private final LinkedHashMap<Key, SoftEntry> softEntries;
+
+
+    @Nonnull
+    private final ReferenceQueue<SourceNode> queue = new ReferenceQueue<>();
+    @Nonnull
+    private final AtomicLong hitCount = new AtomicLong();
+    @Nonnull
+    private final AtomicLong missCount = new AtomicLong();
+
+    /**
+     * Initializes a new ParseTreeCache that keeps as many trees through soft references as it keeps regardless of memory
+     * pressure.
+     *
+     * @param maximumSize
+     *            the maximum number of trees that are kept in memory regardless of memory pressure
+     * @throws IllegalArgumentException
+     *             <code>maximumSize</code> is negative
+     */
+    public ParseTreeCache(int maximumSize) {
+        this(maximumSize, maximumSize);
+    }
+
+    /**
+     * Initializes a new ParseTreeCache.
+     *
+     * @param maximumSize
+     *            the maximum number of trees that are kept in memory regardless of memory pressure
+     * @param maximumSoftSize
+     *            the maximum number of least recently used trees that are kept through soft references, in addition to the trees
+     *            that are kept regardless of memory pressure
+     * @throws IllegalArgumentException
+     *             <code>maximumSize</code> or <code>maximumSoftSize</code> is negative
+     */
+    public ParseTreeCache(int maximumSize, int maximumSoftSize) {
+        if (maximumSize < 0) {
+            throw new IllegalArgumentException("maximumSize < 0");
+        }
+
+        if (maximumSoftSize < 0) {
+            throw new IllegalArgumentException("maximumSoftSize < 0");
+        }
+
+        this.maximumSize = maximumSize;
+        this.maximumSoftSize = maximumSoftSize;
+
+        // Iterate in access order, so that the eldest entry is the least recently used one.
+        this.strongEntries = new LinkedHashMap<Key, SourceNode>(16, 0.75f, true) {
+
+            private static final long serialVersionUID = 1L;
+
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Key, SourceNode> eldest) {
+                if (this.size() > ParseTreeCache.this.maximumSize) {
+                    ParseTreeCache.this.demote(eldest.getKey(), eldest.getValue());
+                    return true;
+                }
+
+                return false;
+            }
+
+        };
+
+        // Iterate in insertion order, so that the eldest entry is the least recently demoted one.
+        this.softEntries = new LinkedHashMap<Key, SoftEntry>() {
+
+            private static final long serialVersionUID = 1L;
+
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Key, SoftEntry> eldest) {
+                return this.size() > ParseTreeCache.this.maximumSoftSize;
+            }
+
+        };
+    }
+
+    /**
+     * Removes all the trees from this cache. The hit and miss counts are not reset.
+     */
+    public final synchronized void clear() {
+        this.strongEntries.clear();
+        this.softEntries.clear();
+        while (this.queue.poll() != null) {
+        }
+    }
+
+    /**
+     * Gets the number of calls to {@link #parse(Parser, Document)} that returned a tree from this cache.
+     *
+     * @return the number of cache hits
+     */
+    public final long getHitCount() {
+        return this.hitCount.get();
+    }
+
+    /**
+     * Gets the number of calls to {@link #parse(Parser, Document)} that had to parse the source file.
+     *
+     * @return the number of cache misses
+     */
+    public final long getMissCount() {
+        return this.missCount.get();
+    }
+
+    /**
+     * Parses the contents of a source file with the specified parser, or returns the tree that was produced earlier for the same
+     * contents by a parser with the same configuration.
+     *
+     * @param parser
+     *            the parser
+     * @param text
+     *            the contents of the source file
+     * @return a {@link SourceNode} that is the root of the source file's abstract syntax tree
+     */
+    @Nonnull
+    public final SourceNode parse(@Nonnull Parser parser, @Nonnull Document text) {
+        if (parser == null) {
+            throw new NullPointerException("parser");
+        }
+
+        if (text == null) {
+            throw new NullPointerException("text");
+        }
+
+        final Key key = new Key(parser, ContentHash.of(text));
+        SourceNode sourceNode = this.get(key);
+        if (sourceNode != null) {
+            this.hitCount.incrementAndGet();
+            return sourceNode;
+        }
+
+        this.missCount.incrementAndGet();
+
+        // Parse outside of the lock. If several threads parse the same source file at once, the last one wins.
+        sourceNode = parser.parse(text);
+        this.put(key, sourceNode);
+        return sourceNode;
+    }
+
+    /**
+     * Gets the number of trees in this cache that have not been reclaimed by the garbage collector.
+     *
+     * @return the number of trees
+     */
+    public final synchronized int size() {
+        this.expungeStaleEntries();
+        return this.strongEntries.size() + this.softEntries.size();
+    }
+
+    private final void demote(@Nonnull Key key, @Nonnull SourceNode sourceNode) {
+        // Called with the lock held.
+        this.softEntries.put(key, new SoftEntry(key, sourceNode, this.queue));
+    }
+
+    private final void expungeStaleEntries() {
+        // Called with the lock held.
+        SoftEntry entry;
+        while ((entry = (SoftEntry) this.queue.poll()) != null) {
+            if (this.softEntries.get(entry.key) == entry) {
+                this.softEntries.remove(entry.key);
+            }
+        }
+    }
+
+    @CheckForNull
+    private final synchronized SourceNode get(@Nonnull Key key) {
+        this.expungeStaleEntries();
+
+        final SourceNode sourceNode = this.strongEntries.get(key);
+        if (sourceNode != null) {
+            return sourceNode;
+        }
+
+        // If the tree was demoted and hasn't been reclaimed yet, promote it again.
+        final SoftEntry entry = this.softEntries.remove(key);
+        if (entry != null) {
+            final SourceNode softSourceNode = entry.get();
+            if (softSourceNode != null) {
+                this.strongEntries.put(key, softSourceNode);
+                return softSourceNode;
+            }
+        }
+
+        return null;
+    }
+
+    private final synchronized void put(@Nonnull Key key, @Nonnull SourceNode sourceNode) {
+        this.expungeStaleEntries();
+        this.softEntries.remove(key);
+        this.strongEntries.put(key, sourceNode);
+    }
+
+}
@@ -0,0 +1,569 @@
+package org.reasm.commons.source;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.List;
+
+import javax.annotation.CheckForNull;
+import javax.annotation.Nonnull;
+
+import org.reasm.commons.parseerrors.ElseOrElseIfAfterElseParseError;
+import org.reasm.commons.parseerrors.UnclosedBlockParseError;
+import org.reasm.source.CompositeSourceNode;
+import org.reasm.source.ParseError;
+import org.reasm.source.SourceNode;
+
+import ca.fragag.text.Document;
+import ca.fragag.text.GenericCharSequenceReader;
+
+/**
+ * Provides methods to save the tree produced by a {@link Parser} in a compact binary format and to rebuild the tree from that
+ * format without parsing the source file again.
+ * <p>
+ * A snapshot contains the SHA-256 hash of the text it was produced from; {@link #read(Parser, Document, ByteBuffer)} refuses a
+ * snapshot that doesn't match the text. The logical lines are rebuilt from their packed positions with the parser's
+ * {@link LogicalLineFactory}, and the blocks are rebuilt by the {@link BlockParser} associated with the directive on their first
+ * line. Logical lines that have a parse error are parsed again from the text when the snapshot is read, because the snapshot
+ * doesn't record their parse error; the parse errors on blocks are recorded.
+ *
+ * @author Francis Gagné
+ */
+public final class ParseTreeSnapshot {
+
+    private static final class InvalidSnapshotException extends Exception {
+
+        private static final long serialVersionUID = 1L;
+
+    }
+
+    private static final class Reader {
+
+        private static void checkBounds(@Nonnull int[] bounds, int length) throws InvalidSnapshotException {
+            // The mnemonic and the comment are either absent or within the logical line.
+            checkOptionalRange(bounds[LogicalLineAttributes.MNEMONIC_START], bounds[LogicalLineAttributes.MNEMONIC_END], length);
+            checkOptionalRange(bounds[LogicalLineAttributes.COMMENT_START], bounds[LogicalLineAttributes.COMMENT_END], length);
+
+            // The labels and the operands are within the logical line, and each of them starts after the previous one ends.
+            final int operandsOffset = LogicalLineAttributes.HEADER_LENGTH + bounds[LogicalLineAttributes.NUMBER_OF_LABELS] * 2;
+            final int continuationCharactersOffset = operandsOffset + bounds[LogicalLineAttributes.NUMBER_OF_OPERANDS] * 2;
+            checkRanges(bounds, LogicalLineAttributes.HEADER_LENGTH, operandsOffset, length);
+            checkRanges(bounds, operandsOffset, continuationCharactersOffset, length);
+
+            // The continuation characters are within the logical line and sorted.
+            int previous = -1;
+            for (int i = continuationCharactersOffset; i < bounds.length; i++) {
+                final int position = bounds[i];
+                if (position <= previous || position >= length) {
+                    throw new InvalidSnapshotException();
+                }
+
+                previous = position;
+            }
+        }
+
+        private static void checkOptionalRange(int start, int end, int length) throws InvalidSnapshotException {
+            if (start == -1 ? end != -1 : start > end || end > length) {
+                throw new InvalidSnapshotException();
+            }
+        }
+
+        private static void checkRanges(@Nonnull int[] bounds, int from, int to, int length) throws InvalidSnapshotException {
+            int previousEnd = 0;
+            for (int i = from; i < to; i += 2) {
+                final int start = bounds[i];
+                final int end = bounds[i + 1];
+                if (start < previousEnd || start > end || end > length) {
+                    throw new InvalidSnapshotException();
+                }
+
+                previousEnd = end;
+            }
+        }
+
+        @Nonnull
+        private final Parser parser;
+        @Nonnull
+        private final Document text;
+        @Nonnull
+        private final ByteBuffer buffer;
+        @Nonnull
+        private final BlockDirective[] blockDirectives;
+        private int position;
+
+        Reader(@Nonnull Parser parser, @Nonnull Document text, @Nonnull ByteBuffer buffer) throws InvalidSnapshotException {
+            this.parser = parser;
+            this.text = text;
+            this.buffer = buffer;
+
+            // Map the mnemonics in the snapshot to the parser's block directives.
+            final HashMap<String, BlockDirective> blockDirectivesByMnemonic = new HashMap<>();
+            for (BlockDirective blockDirective : parser.blockDirectives.values()) {
+                blockDirectivesByMnemonic.put(blockDirective.getMnemonic(), blockDirective);
+            }
+
+            this.blockDirectives = new BlockDirective[this.readCount()];
+            for (int i = 0; i < this.blockDirectives.length; i++) {
+                final char[] mnemonic = new char[this.readCount()];
+                for (int j = 0; j < mnemonic.length; j++) {
+                    mnemonic[j] = (char) this.readVarInt();
+                }
+
+                final BlockDirective blockDirective = blockDirectivesByMnemonic.get(new String(mnemonic));
+                if (blockDirective == null) {
+                    throw new InvalidSnapshotException();
+                }
+
+                this.blockDirectives[i] = blockDirective;
+            }
+        }
+
+        @Nonnull
+        final SourceNode readRoot() throws InvalidSnapshotException {
+            final Block root = new Block(this.readChildNodes(), null);
+            if (this.position != this.text.length() || this.buffer.hasRemaining()) {
+                throw new InvalidSnapshotException();
+            }
+
+            return root;
+        }
+
+        @Nonnull
+        private final BlockDirective readBlockDirective() throws InvalidSnapshotException {
+            final int index = this.readVarInt();
+            if (index >= this.blockDirectives.length) {
+                throw new InvalidSnapshotException();
+            }
+
+            return this.blockDirectives[index];
+        }
+
+        @Nonnull
+        private final List<SourceNode> readChildNodes() throws InvalidSnapshotException {
+            final int count = this.readCount();
+            final ArrayList<SourceNode> childNodes = new ArrayList<>(count);
+            for (int i = 0; i < count; i++) {
+                childNodes.add(this.readNode());
+            }
+
+            return childNodes;
+        }
+
+        private final int readCount() throws InvalidSnapshotException {
+            final int count = this.readVarInt();
+
+            // Each element takes at least one byte, so a larger count can only come from a corrupted snapshot.
+            if (count > this.buffer.remaining()) {
+                throw new InvalidSnapshotException();
+            }
+
+            return count;
+        }
+
+        @Nonnull
+        private final LogicalLine readLogicalLine(byte tag) throws InvalidSnapshotException {
+            final int start = this.position;
+            final int length = this.readVarInt();
+            if (length > this.text.length() - start) {
+                throw new InvalidSnapshotException();
+            }
+
+            final LogicalLineAttributes attributes;
+            switch (tag) {
+            case LOGICAL_LINE: {
+                final int[] bounds = new int[this.readCount()];
+                for (int i = 0; i < bounds.length; i++) {
+                    bounds[i] = this.readVarInt() - 1;
+                }
+
+                if (bounds.length < LogicalLineAttributes.HEADER_LENGTH) {
+                    throw new InvalidSnapshotException();
+                }
+
+                final int numberOfLabels = bounds[LogicalLineAttributes.NUMBER_OF_LABELS];
+                final int numberOfOperands = bounds[LogicalLineAttributes.NUMBER_OF_OPERANDS];
+                if (numberOfLabels < 0 || numberOfOperands < 0
+                        || LogicalLineAttributes.HEADER_LENGTH + ((long) numberOfLabels + numberOfOperands) * 2 > bounds.length) {
+                    throw new InvalidSnapshotException();
+                }
+
+                checkBounds(bounds, length);
+                attributes = new LogicalLineAttributes(length, null, bounds);
+                break;
+            }
+
+            case LOGICAL_LINE_WITH_PARSE_ERROR:
+                attributes = LogicalLineParser.parse(new GenericCharSequenceReader(this.text, start), this.parser.syntax);
+                if (attributes.length != length) {
+                    throw new InvalidSnapshotException();
+                }
+
+                break;
+
+            default:
+                throw new InvalidSnapshotException();
+            }
+
+            this.position = start + length;
+            return this.parser.logicalLineFactory.createLogicalLine(attributes);
+        }
+
+        @Nonnull
+        private final SourceNode readBodyBlock(@Nonnull BlockParser blockParser) throws InvalidSnapshotException {
+            if (this.buffer.get() != BODY_BLOCK) {
+                throw new InvalidSnapshotException();
+            }
+
+            return blockParser.rebuildBodyBlock(this.readChildNodes());
+        }
+
+        @Nonnull
+        private final SourceNode readNode() throws InvalidSnapshotException {
+            // Bodies are read by readBodyBlock, so a BODY_BLOCK tag is invalid here.
+            final byte tag = this.buffer.get();
+            switch (tag) {
+            case LOGICAL_LINE:
+            case LOGICAL_LINE_WITH_PARSE_ERROR:
+                return this.readLogicalLine(tag);
+
+            case BLOCK_DIRECTIVE_LINE: {
+                final BlockDirective blockDirective = this.readBlockDirective();
+                return this.parser.blockDirectiveLineFactory.createBlockDirectiveLine(this.readLogicalLine(this.buffer.get()),
+                        blockDirective);
+            }
+
+            case BLOCK: {
+                // The first child node of a block is the line with the directive that opened the block.
+                final int count = this.readCount();
+                if (count == 0) {
+                    throw new InvalidSnapshotException();
+                }
+
+                final SourceNode firstLine = this.readNode();
+                final BlockDirective blockDirective = BlockDirective.getBlockDirective(firstLine);
+                final BlockParser blockParser = blockDirective == null ? null : this.parser.getBlockParser(blockDirective);
+                if (blockParser == null) {
+                    throw new InvalidSnapshotException();
+                }
+
+                // The block parser must agree with the snapshot on which child nodes are bodies.
+                final ArrayList<SourceNode> childNodes = new ArrayList<>(count);
+                childNodes.add(firstLine);
+                for (int i = 1; i < count; i++) {
+                    childNodes.add(blockParser.isBodyBlock(childNodes, i) ? this.readBodyBlock(blockParser) : this.readNode());
+                }
+
+                return blockParser.rebuildBlock(childNodes, this.readParseError());
+            }
+
+            default:
+                throw new InvalidSnapshotException();
+            }
+        }
+
+        @CheckForNull
+        private final ParseError readParseError() throws InvalidSnapshotException {
+            switch (this.buffer.get()) {
+            case NO_PARSE_ERROR:
+                return null;
+
+            case UNCLOSED_BLOCK_PARSE_ERROR:
+                return new UnclosedBlockParseError(this.readBlockDirective());
+
+            case ELSE_OR_ELSE_IF_AFTER_ELSE_PARSE_ERROR:
+                return new ElseOrElseIfAfterElseParseError(this.readBlockDirective());
+
+            default:
+                throw new InvalidSnapshotException();
+            }
+        }
+
+        private final int readVarInt() throws InvalidSnapshotException {
+            int value = 0;
+            for (int shift = 0; shift < 28; shift += 7) {
+                final byte b = this.buffer.get();
+                value |= (b & 0x7F) << shift;
+                if (b >= 0) {
+                    return value;
+                }
+            }
+
+            // The fifth byte holds bits 28 to 30; a larger byte would overflow a non-negative int.
+            final byte b = this.buffer.get();
+            if (b < 0 || b > 0x07) {
+                throw new InvalidSnapshotException();
+            }
+
+            return value | b << 28;
+        }
+
+    }
+
+    private static final class Writer {
+
+        @Nonnull
+        private final Parser parser;
+        @Nonnull
+        private final ByteArrayOutputStream out = new ByteArrayOutputStream();
+        @Nonnull
+        private final IdentityHashMap<BlockDirective, Integer> blockDirectiveIndices = new IdentityHashMap<>();
+        @Nonnull
+        private final ArrayList<BlockDirective> blockDirectives = new ArrayList<>();
+
+        Writer(@Nonnull Parser parser) {
+            this.parser = parser;
+        }
+
+        final void writeTo(@Nonnull OutputStream out, @Nonnull byte[] contentHash) throws IOException {
+            final ByteArrayOutputStream header = new ByteArrayOutputStream();
+            header.write(MAGIC);
+            header.write(VERSION);
+            header.write(contentHash);
+            writeVarInt(header, this.blockDirectives.size());
+            for (BlockDirective blockDirective : this.blockDirectives) {
+                final String mnemonic = blockDirective.getMnemonic();
+                writeVarInt(header, mnemonic.length());
+                for (int i = 0; i < mnemonic.length(); i++) {
+                    writeVarInt(header, mnemonic.charAt(i));
+                }
+            }
+
+            header.writeTo(out);
+            this.out.writeTo(out);
+        }
+
+        final void writeChildNodes(@Nonnull List<SourceNode> childNodes) {
+            writeVarInt(this.out, childNodes.size());
+            for (SourceNode childNode : childNodes) {
+                this.writeNode(childNode);
+            }
+        }
+
+        private final void writeBlock(@Nonnull CompositeSourceNode block) {
+            // The block parser associated with the directive on the block's first line knows which child nodes are bodies.
+            final List<SourceNode> childNodes = block.getChildNodes();
+            final BlockDirective blockDirective = childNodes.isEmpty() ? null : BlockDirective.getBlockDirective(childNodes.get(0));
+            final BlockParser blockParser = blockDirective == null ? null : this.parser.getBlockParser(blockDirective);
+            if (blockParser == null) {
+                throw new IllegalArgumentException("Unsupported composite source node: the first child node doesn't start a block");
+            }
+
+            this.out.write(BLOCK);
+            writeVarInt(this.out, childNodes.size());
+            for (int i = 0; i < childNodes.size(); i++) {
+                final SourceNode childNode = childNodes.get(i);
+                if (blockParser.isBodyBlock(childNodes, i)) {
+                    if (!(childNode instanceof CompositeSourceNode)) {
+                        throw new IllegalArgumentException("Unsupported block body type: " + childNode.getClass().getName());
+                    }
+
+                    this.out.write(BODY_BLOCK);
+                    this.writeChildNodes(((CompositeSourceNode) childNode).getChildNodes());
+                } else if (childNode instanceof CompositeSourceNode) {
+                    throw new IllegalArgumentException("Unsupported composite source node in a block: "
+                            + childNode.getClass().getName());
+                } else {
+                    this.writeNode(childNode);
+                }
+            }
+
+            this.writeParseError(block.getParseError());
+        }
+
+        private final void writeBlockDirective(@Nonnull BlockDirective blockDirective) {
+            Integer index = this.blockDirectiveIndices.get(blockDirective);
+            if (index == null) {
+                index = this.blockDirectives.size();
+                this.blockDirectiveIndices.put(blockDirective, index);
+                this.blockDirectives.add(blockDirective);
+            }
+
+            writeVarInt(this.out, index);
+        }
+
+        private final void writeLogicalLine(@Nonnull LogicalLine logicalLine) {
+            if (logicalLine.getParseError() != null) {
+                this.out.write(LOGICAL_LINE_WITH_PARSE_ERROR);
+                writeVarInt(this.out, logicalLine.getLength());
+                return;
+            }
+
+            this.out.write(LOGICAL_LINE);
+            writeVarInt(this.out, logicalLine.getLength());
+            final int[] bounds = logicalLine.getBounds();
+            writeVarInt(this.out, bounds.length);
+            for (int bound : bounds) {
+                // Missing positions are -1; shift the positions so that they are all positive.
+                writeVarInt(this.out, bound + 1);
+            }
+        }
+
+        private final void writeNode(@Nonnull SourceNode node) {
+            if (node instanceof LogicalLine) {
+                this.writeLogicalLine((LogicalLine) node);
+            } else if (node instanceof BlockDirectiveLine) {
+                final BlockDirectiveLine blockDirectiveLine = (BlockDirectiveLine) node;
+                this.out.write(BLOCK_DIRECTIVE_LINE);
+                this.writeBlockDirective(blockDirectiveLine.getBlockDirective());
+                this.writeLogicalLine(blockDirectiveLine.getLogicalLine());
+            } else if (node instanceof CompositeSourceNode) {
+                // Bodies are written by writeBlock, so any other composite node is a block.
+                this.writeBlock((CompositeSourceNode) node);
+            } else {
+                throw new IllegalArgumentException("Unsupported source node type: " + node.getClass().getName());
+            }
+        }
+
+        private final void writeParseError(@CheckForNull ParseError parseError) {
+            if (parseError == null) {
+                this.out.write(NO_PARSE_ERROR);
+            } else if (parseError instanceof UnclosedBlockParseError) {
+                this.out.write(UNCLOSED_BLOCK_PARSE_ERROR);
+                this.writeBlockDirective(((UnclosedBlockParseError) parseError).getStartingBlockDirective());
+            } else if (parseError instanceof ElseOrElseIfAfterElseParseError) {
+                this.out.write(ELSE_OR_ELSE_IF_AFTER_ELSE_PARSE_ERROR);
+                this.writeBlockDirective(((ElseOrElseIfAfterElseParseError) parseError).getDirective());
+            } else {
+                throw new IllegalArgumentException("Unsupported parse error type: " + parseError.getClass().getName());
+            }
+        }
+
+    }
+
+    private static final byte[] MAGIC = { 'R', 'A', 'S', 'T' };
+    private static final byte[] VERSION = { 0, 1 };
+
+    // Node tags
+    private static final byte LOGICAL_LINE = 0;
+    private static final byte LOGICAL_LINE_WITH_PARSE_ERROR = 1;
+    private static final byte BLOCK_DIRECTIVE_LINE = 2;
+    private static final byte BLOCK = 3;
+    private static final byte BODY_BLOCK = 4;
+
+    // Parse error tags
+    private static final byte NO_PARSE_ERROR = 0;
+    private static final byte UNCLOSED_BLOCK_PARSE_ERROR = 1;
+    private static final byte ELSE_OR_ELSE_IF_AFTER_ELSE_PARSE_ERROR = 2;
+
+    /**
+     * Rebuilds a tree from a snapshot written by {@link #write(Parser, SourceNode, Document, OutputStream)}.
+     * <p>
+     * The snapshot is read from the position to the limit of the buffer; the position of the buffer is not modified. The buffer
+     * may be a {@link java.nio.MappedByteBuffer}.
+     * <p>
+     * The snapshot only records the hash of the text and the mnemonics of the block directives, not the configuration of the
+     * parser that wrote it. The caller must read the snapshot with a parser that is configured identically to that parser, i.e.
+     * with the same {@link Syntax}, factories and block parsers; otherwise, the returned tree may differ from the tree that
+     * <code>parser.parse(text)</code> would produce.
+     *
+     * @param parser
+     *            the parser whose factories and block parsers are used to rebuild the tree
+     * @param text
+     *            the contents of the source file
+     * @param snapshot
+     *            the snapshot
+     * @return a {@link SourceNode} that is the root of the source file's abstract syntax tree, or <code>null</code> if the
+     *         snapshot was not produced from the same text, if it was produced by an incompatible version of this class, if it
+     *         refers to block directives that <code>parser</code> doesn't recognize or if it is corrupted; the source file must
+     *         then be parsed again
+     */
+    @CheckForNull
+    public static SourceNode read(@Nonnull Parser parser, @Nonnull Document text, @Nonnull ByteBuffer snapshot) {
+        if (parser == null) {
+            throw new NullPointerException("parser");
+        }
+
+        if (text == null) {
+            throw new NullPointerException("text");
+        }
+
+        if (snapshot == null) {
+            throw new NullPointerException("snapshot");
+        }
+
+        final ByteBuffer buffer = snapshot.duplicate();
+        try {
+            final byte[] magic = new byte[MAGIC.length];
+            final byte[] version = new byte[VERSION.length];
+            final byte[] contentHash = new byte[ContentHash.LENGTH];
+            buffer.get(magic).get(version).get(contentHash);
+            if (!Arrays.equals(magic, MAGIC) || !Arrays.equals(version, VERSION)
+                    || !new ContentHash(contentHash).equals(ContentHash.of(text))) {
+                return null;
+            }
+
+            return new Reader(parser, text, buffer).readRoot();
+        } catch (BufferUnderflowException | InvalidSnapshotException e) {
+            return null;
+        }
+    }
+
+    /**
+     * Writes a snapshot of a tree produced by {@link Parser#parse(Document)} or by one of its variants.
+     *
+     * @param parser
+     *            the parser that produced the tree; its block parsers determine which child nodes of each block are bodies
+     * @param root
+     *            the root of the tree
+     * @param text
+     *            the text that the tree was parsed from
+     * @param out
+     *            the stream to write the snapshot to
+     * @throws IOException
+     *             an I/O exception occurred
+     * @throws IllegalArgumentException
+     *             <code>root</code> is not a {@link Block}, or the tree contains a node or a parse error that was not produced by
+     *             <code>parser</code>
+     */
+    public static void write(@Nonnull Parser parser, @Nonnull SourceNode root, @Nonnull Document text, @Nonnull OutputStream out)
+            throws IOException {
+        if (parser == null) {
+            throw new NullPointerException("parser");
+        }
+
+        if (root == null) {
+            throw new NullPointerException("root");
+        }
+
+        if (text == null) {
+            throw new NullPointerException("text");
+        }
+
+        if (out == null) {
+            throw new NullPointerException("out");
+        }
+
+        if (!(root instanceof Block)) {
+            throw new IllegalArgumentException("root is not a Block");
+        }
+
+        if (root.getLength() != text.length()) {
+            throw new IllegalArgumentException("root.getLength() != text.length()");
+        }
+
+        // Write the nodes first, to collect the block directives they refer to.
+        final Writer writer = new Writer(parser);
+        writer.writeChildNodes(((Block) root).getChildNodes());
+        writer.writeTo(out, ContentHash.of(text).toByteArray());
+    }
+
+    private static void writeVarInt(@Nonnull ByteArrayOutputStream out, int value) {
+        while ((value & ~0x7F) != 0) {
+            out.write(value & 0x7F | 0x80);
+            value >>>= 7;
+        }
+
+        out.write(value);
+    }
+
+    // This class isn't meant to be instantiated.
+    private ParseTreeSnapshot() {
+    }
+
+}
@@ -1,18 +1,31 @@
 package org.reasm.commons.source;
 
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.atomic.AtomicLong;
 
 import javax.annotation.CheckForNull;
 import javax.annotation.Nonnull;
 
 import org.reasm.source.SourceNode;
 
+import ca.fragag.text.CharSequenceReader;
 import ca.fragag.text.Document;
 import ca.fragag.text.DocumentReader;
+import ca.fragag.text.GenericCharSequenceReader;
 
 /**
  * A generic parser for source files.
@@ -21,6 +34,17 @@ import ca.fragag.text.DocumentReader;
  */
 public class Parser {
 
+    /**
+     * The approximate number of characters in the chunks of a source file that are parsed in parallel by
+     * {@link #parse(Document, ForkJoinPool)}.
+     */
+    static final int DEFAULT_PARALLEL_CHUNK_SIZE = 256 * 1024;
+
+    /**
+     * The minimum number of bytes in the windows used by {@link #parse(Path, Charset, int, SourceNodeSink)}.
+     */
+    static final int MINIMUM_WINDOW_SIZE = 1024;
+
     private static Set<Class<? extends SourceNode>> calcOutputNodeTypes(@Nonnull LogicalLineFactory logicalLineFactory,
             @Nonnull BlockDirectiveLineFactory blockDirectiveLineFactory, @Nonnull Map<BlockDirective, BlockParser> blocks) {
         // This set contains the subclasses of SourceNode that can be generated as direct children of the root node.
@@ -42,21 +66,48 @@ public class Parser {
         return unmodifiableSet;
     }
 
+    /**
+     * Determines whether a subclass of {@link Parser} overrides {@link #undecorateMnemonic(String)}.
+     *
+     * @param parserClass
+     *            the class of a parser
+     * @return <code>true</code> if <code>parserClass</code> overrides {@link #undecorateMnemonic(String)}, otherwise
+     *         <code>false</code>
+     */
+    static boolean overridesUndecorateMnemonic(@Nonnull Class<? extends Parser> parserClass) {
+        try {
+            return parserClass.getMethod("undecorateMnemonic", String.class).getDeclaringClass() != Parser.class;
+        } catch (NoSuchMethodException e) {
+            throw new AssertionError(e);
+        }
+    }
+
     @Nonnull
     final Syntax syntax;
     @Nonnull
     final Map<String, BlockDirective> blockDirectives;
     @Nonnull
-    private final Map<BlockDirective, BlockParser> blocks;
+    final Map<BlockDirective, BlockParser> blocks;
     @Nonnull
     final LogicalLineFactory logicalLineFactory;
     @Nonnull
     final BlockDirectiveLineFactory blockDirectiveLineFactory;
     @Nonnull
     final Set<Class<? extends SourceNode>> outputNodeTypes;
+    @CheckForNull
+    final BlockDirectiveTable blockDirectiveTable;
+    @CheckForNull
+    final ParserInstrumentation instrumentation;
+    // Identifies the root blocks built by this parser, without making the parser reachable from them.
+    @Nonnull
+    final Object rootBlockToken = new Object();
+    @Nonnull
+    private final AtomicLong reparseFailureCount = new AtomicLong();
 
     /**
      * Initializes a new Parser.
+     * <p>
+     * The maps must not be modified after the parser has been initialized.
      *
      * @param syntax
      *            the assembly language's syntax rules
@@ -72,6 +123,31 @@ public class Parser {
     public Parser(@Nonnull final Syntax syntax, @Nonnull Map<String, BlockDirective> blockDirectives,
             @Nonnull Map<BlockDirective, BlockParser> blocks, @Nonnull LogicalLineFactory logicalLineFactory,
             @Nonnull BlockDirectiveLineFactory blockDirectiveLineFactory) {
+        this(syntax, blockDirectives, blocks, logicalLineFactory, blockDirectiveLineFactory, null);
+    }
+
+    /**
+     * Initializes a new Parser.
+     * <p>
+     * The maps must not be modified after the parser has been initialized.
+     *
+     * @param syntax
+     *            the assembly language's syntax rules
+     * @param blockDirectives
+     *            a {@link Map} of directive mnemonics to {@link BlockDirective}
+     * @param blocks
+     *            a {@link Map} of {@link BlockDirective} to the corresponding {@link BlockParser}
+     * @param logicalLineFactory
+     *            the {@link LogicalLineFactory} for this parser
+     * @param blockDirectiveLineFactory
+     *            the {@link BlockDirectiveLineFactory} for this parser
+     * @param instrumentation
+     *            the {@link ParserInstrumentation} that is notified of the work done by this parser, or <code>null</code> to not
+     *            measure anything
+     */
+    public Parser(@Nonnull final Syntax syntax, @Nonnull Map<String, BlockDirective> blockDirectives,
+            @Nonnull Map<BlockDirective, BlockParser> blocks, @Nonnull LogicalLineFactory logicalLineFactory,
+            @Nonnull BlockDirectiveLineFactory blockDirectiveLineFactory, @CheckForNull ParserInstrumentation instrumentation) {
         if (syntax == null) {
             throw new NullPointerException("syntax");
         }
@@ -97,8 +173,41 @@ public class Parser {
         this.blocks = blocks;
         this.logicalLineFactory = logicalLineFactory;
         this.blockDirectiveLineFactory = blockDirectiveLineFactory;
+        this.instrumentation = instrumentation;
 
         this.outputNodeTypes = calcOutputNodeTypes(logicalLineFactory, blockDirectiveLineFactory, blocks);
+        this.blockDirectiveTable = BlockDirectiveTable.create(this.getClass(), blockDirectives, blocks);
+    }
+
+    /**
+     * Returns an {@link Iterator} that parses the top-level nodes of a source file one at a time, as they are requested.
+     * <p>
+     * The nodes are the same as the child nodes of the root node returned by {@link #parse(Document)}, but the iterator doesn't
+     * keep a reference to the nodes it has returned, so a source file can be processed without keeping its whole tree in memory,
+     * and processing can stop at any point.
+     * <p>
+     * Only top-level nodes are returned one at a time. A block is returned as a single node once the whole block, including all
+     * the logical lines and the blocks nested in it, has been parsed, because the {@link BlockParser} builds the block from its
+     * child nodes. The memory used while iterating therefore depends on the size of the largest top-level block, not only on
+     * the size of a logical line: a source file that consists of one large block is held in memory as a whole before the iterator
+     * returns anything.
+     * <p>
+     * If this parser has a {@link ParserInstrumentation}, the logical lines parsed by the iterator are reported to it, but no
+     * {@link ParserInstrumentation.Phase} is reported: the iterator parses nodes only when the caller requests them, so the time
+     * between the creation of the iterator and its last node is mostly spent by the caller.
+     *
+     * @param text
+     *            the contents of the source file
+     * @return an {@link Iterator} over the top-level nodes of the source file. The iterator doesn't support
+     *         {@link Iterator#remove()}.
+     */
+    @Nonnull
+    public final Iterator<SourceNode> iterate(@Nonnull Document text) {
+        if (text == null) {
+            throw new NullPointerException("text");
+        }
+
+        return new TopLevelSourceNodeIterator(new SourceNodeProducer(this, new DocumentReader(text)));
     }
 
     /**
@@ -110,7 +219,179 @@ public class Parser {
      */
     @Nonnull
     public final SourceNode parse(@Nonnull Document text) {
-        return this.parse(new SourceNodeProducer(this, new DocumentReader(text)));
+        final long startTime = this.startPhase();
+        final SourceNode sourceNode = this.parse(new SourceNodeProducer(this, new DocumentReader(text)));
+        this.endPhase(ParserInstrumentation.Phase.PARSE, startTime);
+        return sourceNode;
+    }
+
+    /**
+     * Parses the contents of a source file, parsing the logical lines of large files in parallel.
+     * <p>
+     * The source file is split into chunks at logical line boundaries, and the logical lines in each chunk are parsed as a separate
+     * task in the specified pool. The block structure is then built sequentially from the resulting logical lines. The result is
+     * the same as {@link #parse(Document)}. Small source files are parsed sequentially on the calling thread.
+     * <p>
+     * The {@link LogicalLineFactory} and the {@link BlockDirectiveLineFactory} of this parser, as well as
+     * {@link #undecorateMnemonic(String)}, must be safe to call from several threads at once.
+     *
+     * @param text
+     *            the contents of the source file
+     * @param pool
+     *            the {@link ForkJoinPool} in which to parse the logical lines
+     * @return a {@link SourceNode} that is the root of the source file's abstract syntax tree
+     */
+    @Nonnull
+    public final SourceNode parse(@Nonnull Document text, @Nonnull ForkJoinPool pool) {
+        return this.parse(text, pool, DEFAULT_PARALLEL_CHUNK_SIZE);
+    }
+
+    /**
+     * Parses the contents of a source file encoded in UTF-8.
+     * <p>
+     * The bytes are not decoded up front: ASCII text is scanned directly from the array. If the text contains non-ASCII
+     * characters, the whole array is first validated and indexed in an extra pass, which doesn't copy the text. The lengths and
+     * positions in the resulting tree are measured in UTF-16 code units, so they match a {@link Document} that contains the
+     * decoded text.
+     *
+     * @param utf8Text
+     *            the contents of the source file, encoded in UTF-8. The array must not be modified while this method runs.
+     * @return a {@link SourceNode} that is the root of the source file's abstract syntax tree
+     * @throws IllegalArgumentException
+     *             <code>utf8Text</code> is not valid UTF-8
+     */
+    @Nonnull
+    public final SourceNode parse(@Nonnull byte[] utf8Text) {
+        if (utf8Text == null) {
+            throw new NullPointerException("utf8Text");
+        }
+
+        return this.parse(new Utf8CharSequence(utf8Text, 0, utf8Text.length));
+    }
+
+    /**
+     * Parses the contents of a source file encoded in UTF-8.
+     * <p>
+     * The bytes between the buffer's position and its limit are parsed; the buffer's position is not modified. If the buffer is
+     * backed by an accessible array, the bytes are read directly from that array; otherwise, they are copied first. The lengths and
+     * positions in the resulting tree are measured in UTF-16 code units, so they match a {@link Document} that contains the decoded
+     * text.
+     *
+     * @param utf8Text
+     *            the contents of the source file, encoded in UTF-8
+     * @return a {@link SourceNode} that is the root of the source file's abstract syntax tree
+     * @throws IllegalArgumentException
+     *             <code>utf8Text</code> is not valid UTF-8
+     */
+    @Nonnull
+    public final SourceNode parse(@Nonnull ByteBuffer utf8Text) {
+        if (utf8Text == null) {
+            throw new NullPointerException("utf8Text");
+        }
+
+        final Utf8CharSequence text;
+        if (utf8Text.hasArray()) {
+            text = new Utf8CharSequence(utf8Text.array(), utf8Text.arrayOffset() + utf8Text.position(), utf8Text.remaining());
+        } else {
+            final byte[] bytes = new byte[utf8Text.remaining()];
+            utf8Text.duplicate().get(bytes);
+            text = new Utf8CharSequence(bytes, 0, bytes.length);
+        }
+
+        return this.parse(text);
+    }
+
+    /**
+     * Parses a source file without loading its whole contents in memory.
+     * <p>
+     * The file is read and decoded in windows of <code>windowSize</code> bytes, and the top-level nodes of the source file are
+     * passed to <code>sink</code> as soon as they are parsed, so the memory used depends on the window size and on the size of the
+     * largest top-level node rather than on the size of the file. Each window is usually decoded once; a window is decoded again
+     * when a top-level node spans more than two windows.
+     *
+     * @param file
+     *            the path to the source file
+     * @param charset
+     *            the charset of the source file. The charset must be stateless, i.e. the bytes of a character must not be decoded
+     *            differently depending on the bytes that precede them.
+     * @param windowSize
+     *            the number of bytes in each window
+     * @param sink
+     *            the {@link SourceNodeSink} that receives the top-level nodes of the source file
+     * @throws IOException
+     *             an I/O error occurred, or the source file is not valid in the specified charset
+     * @throws IllegalArgumentException
+     *             <code>windowSize</code> is less than 1024
+     * @throws IllegalStateException
+     *             a top-level node is longer than {@link Integer#MAX_VALUE} characters
+     */
+    public final void parse(@Nonnull Path file, @Nonnull Charset charset, int windowSize, @Nonnull SourceNodeSink sink)
+            throws IOException {
+        if (file == null) {
+            throw new NullPointerException("file");
+        }
+
+        if (charset == null) {
+            throw new NullPointerException("charset");
+        }
+
+        if (windowSize < MINIMUM_WINDOW_SIZE) {
+            throw new IllegalArgumentException("windowSize < " + MINIMUM_WINDOW_SIZE);
+        }
+
+        if (sink == null) {
+            throw new NullPointerException("sink");
+        }
+
+        final long startTime = this.startPhase();
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            final WindowedFileText text = new WindowedFileText(channel, charset, windowSize);
+            final ArrayList<SourceNode> nodes = new ArrayList<>();
+            long start = 0;
+            int numberOfWindows = 2;
+            while (!text.isAtEnd(start)) {
+                // Positions in SourceNodeProducer are ints, so each view starts at a top-level node and the nodes are parsed until
+                // the position leaves the first window of the view.
+                final WindowedFileText.View view = text.view(start, numberOfWindows);
+                final SourceNodeProducer sourceNodeProducer = new SourceNodeProducer(this, new GenericCharSequenceReader(view, 0));
+                final CharSequenceReader<?> reader = sourceNodeProducer.getReader();
+                int nodeStart;
+                do {
+                    nodeStart = reader.getCurrentPosition();
+                    final SourceNode sourceNode = sourceNodeProducer.next();
+                    this.processBlockBodyLine(sourceNodeProducer, nodes, sourceNode, BlockDirective.getBlockDirective(sourceNode));
+                    if (reader.atEnd() && view.isTruncated()) {
+                        break;
+                    }
+
+                    for (SourceNode node : nodes) {
+                        sink.accept(node);
+                    }
+
+                    nodes.clear();
+                } while (!reader.atEnd() && reader.getCurrentPosition() < view.getFirstWindowLength());
+
+                if (nodes.isEmpty()) {
+                    start += reader.getCurrentPosition();
+                    numberOfWindows = 2;
+                } else {
+                    // The last node reached the end of the view, so it may continue after it. Parse it again from a view that
+                    // starts at that node, and that covers more windows if the node already started the view.
+                    nodes.clear();
+                    if (nodeStart == 0) {
+                        if (view.length() == Integer.MAX_VALUE) {
+                            throw new IllegalStateException("A top-level node is longer than Integer.MAX_VALUE characters");
+                        }
+
+                        numberOfWindows = (int) Math.min(numberOfWindows * 2L, Integer.MAX_VALUE);
+                    }
+
+                    start += nodeStart;
+                }
+            }
+        } finally {
+            this.endPhase(ParserInstrumentation.Phase.PARSE, startTime);
+        }
     }
 
     /**
@@ -150,12 +431,87 @@ public class Parser {
             return oldSourceFileRootNode;
         }
 
-        try {
-            return this.parse(new ReparserSourceNodeProducer(this, new DocumentReader(text), oldSourceFileRootNode, replaceOffset,
-                    lengthToRemove, lengthToInsert));
-        } catch (RuntimeException e) {
-            return this.parse(text);
+        if (replaceOffset < 0 || lengthToRemove < 0 || lengthToInsert < 0) {
+            // The replacement is invalid: parse the whole source file again.
+            return this.fullParseFallback(text);
         }
+
+        return this.reparse(text, oldSourceFileRootNode,
+                Collections.singletonList(new SourceEdit(replaceOffset, lengthToRemove, lengthToInsert)), lengthToInsert
+                        - lengthToRemove);
+    }
+
+    /**
+     * Re-parses the contents of a source file after several parts of it have been altered.
+     * <p>
+     * The edits are processed in a single pass: the nodes between the edited regions are recycled, and only the nodes that cross an
+     * edit are parsed again.
+     *
+     * @param text
+     *            the new contents of the source file
+     * @param oldSourceFileRootNode
+     *            the root source node of the old source
+     * @param edits
+     *            the edits that transform the old source file into the new source file. The offsets of all the edits are expressed
+     *            in terms of the old source file. The edits must be sorted by offset and must not overlap.
+     * @return a {@link SourceNode} that is the root of the source file's abstract syntax tree
+     */
+    @Nonnull
+    public final SourceNode reparse(@Nonnull Document text, @Nonnull SourceNode oldSourceFileRootNode,
+            @Nonnull List<SourceEdit> edits) {
+        if (text == null) {
+            throw new NullPointerException("text");
+        }
+
+        if (oldSourceFileRootNode == null) {
+            throw new NullPointerException("oldSourceFileRootNode");
+        }
+
+        if (edits == null) {
+            throw new NullPointerException("edits");
+        }
+
+        int lengthDelta = 0;
+        boolean hasReplacement = false;
+        int previousEditEnd = 0;
+        for (SourceEdit edit : edits) {
+            if (edit == null) {
+                throw new NullPointerException("edits contains a null element");
+            }
+
+            if (edit.getOffset() < previousEditEnd) {
+                throw new IllegalArgumentException("The edits are not sorted by offset or they overlap");
+            }
+
+            previousEditEnd = edit.getOffset() + edit.getLengthToRemove();
+            lengthDelta += edit.getLengthToInsert() - edit.getLengthToRemove();
+            hasReplacement |= edit.getLengthToRemove() != 0 || edit.getLengthToInsert() != 0;
+        }
+
+        // Basic sanity check
+        if (previousEditEnd > oldSourceFileRootNode.getLength()
+                || text.length() != oldSourceFileRootNode.getLength() + lengthDelta) {
+            throw new IllegalArgumentException(
+                    "The length of the new document doesn't match the old root source node and the edits");
+        }
+
+        // Optimization: if there is no replacement, return the old source node
+        if (!hasReplacement) {
+            return oldSourceFileRootNode;
+        }
+
+        return this.reparse(text, oldSourceFileRootNode, edits, lengthDelta);
+    }
+
+    /**
+     * Gets the number of times the incremental reparser failed on a call to one of the <code>reparse</code> methods. In these
+     * cases, the source file was re-parsed with a slower strategy that recycles only top-level nodes, or parsed from scratch if
+     * that also failed.
+     *
+     * @return the number of failures
+     */
+    public final long getReparseFailureCount() {
+        return this.reparseFailureCount.get();
     }
 
     /**
@@ -178,32 +534,175 @@ public class Parser {
         return mnemonic;
     }
 
+    /**
+     * Called when the incremental reparser fails on a call to one of the <code>reparse</code> methods, before the source file is
+     * re-parsed with a slower strategy. Failures are not expected; this method exists so that they can be logged or reported.
+     * <p>
+     * The default implementation does nothing.
+     *
+     * @param text
+     *            the new contents of the source file
+     * @param oldSourceFileRootNode
+     *            the root source node of the old source
+     * @param exception
+     *            the exception that was thrown by the incremental reparser
+     */
+    protected void reparseFailed(@Nonnull Document text, @Nonnull SourceNode oldSourceFileRootNode,
+            @Nonnull RuntimeException exception) {
+    }
+
+    @Nonnull
+    private final SourceNode reparse(@Nonnull Document text, @Nonnull SourceNode oldSourceFileRootNode,
+            @Nonnull List<SourceEdit> edits, int lengthDelta) {
+        long startTime = this.startPhase();
+        try {
+            final SourceNode sourceNode = this.parse(new ReparserSourceNodeProducer(this, new DocumentReader(text),
+                    oldSourceFileRootNode, edits));
+            this.endPhase(ParserInstrumentation.Phase.REPARSE, startTime);
+            return sourceNode;
+        } catch (RuntimeException e) {
+            this.endPhase(ParserInstrumentation.Phase.REPARSE, startTime);
+            this.reparseFailureCount.incrementAndGet();
+            this.reparseFailed(text, oldSourceFileRootNode, e);
+        }
+
+        // Recover by recycling only the top-level nodes that are not affected by the edits.
+        if (oldSourceFileRootNode instanceof Block) {
+            final SourceEdit firstEdit = edits.get(0);
+            final SourceEdit lastEdit = edits.get(edits.size() - 1);
+            startTime = this.startPhase();
+            try {
+                final SourceNode sourceNode = this.reparseTopLevel(text, (Block) oldSourceFileRootNode, firstEdit.getOffset(),
+                        lastEdit.getOffset() + lastEdit.getLengthToRemove(), lengthDelta);
+                this.endPhase(ParserInstrumentation.Phase.RESYNCHRONIZE, startTime);
+                return sourceNode;
+            } catch (RuntimeException e) {
+                // Fall back to a full parse.
+                this.endPhase(ParserInstrumentation.Phase.RESYNCHRONIZE, startTime);
+            }
+        }
+
+        return this.fullParseFallback(text);
+    }
+
+    private final void endPhase(@Nonnull ParserInstrumentation.Phase phase, long startTime) {
+        final ParserInstrumentation instrumentation = this.instrumentation;
+        if (instrumentation != null) {
+            instrumentation.phaseCompleted(phase, System.nanoTime() - startTime);
+        }
+    }
+
+    @Nonnull
+    private final SourceNode fullParseFallback(@Nonnull Document text) {
+        final ParserInstrumentation instrumentation = this.instrumentation;
+        if (instrumentation != null) {
+            instrumentation.fullParseFallback();
+        }
+
+        return this.parse(text);
+    }
+
+    @Nonnull
+    private final SourceNode parse(@Nonnull Utf8CharSequence text) {
+        final long startTime = this.startPhase();
+        final SourceNode sourceNode = this.parse(new SourceNodeProducer(this, new GenericCharSequenceReader(text, 0)));
+        this.endPhase(ParserInstrumentation.Phase.PARSE, startTime);
+        return sourceNode;
+    }
+
+    private final long startPhase() {
+        // Don't read the clock if nobody is measuring.
+        return this.instrumentation == null ? 0 : System.nanoTime();
+    }
+
+    @Nonnull
+    final SourceNode parse(@Nonnull Document text, @Nonnull ForkJoinPool pool, int chunkSize) {
+        if (text == null) {
+            throw new NullPointerException("text");
+        }
+
+        if (pool == null) {
+            throw new NullPointerException("pool");
+        }
+
+        final int length = text.length();
+        if (length < 2 * chunkSize) {
+            return this.parse(text);
+        }
+
+        // Split the source file at logical line boundaries and parse each chunk in the pool.
+        final long startTime = this.startPhase();
+        final ArrayList<ForkJoinTask<ArrayList<SourceNode>>> tasks = new ArrayList<>(length / chunkSize + 1);
+        int start = 0;
+        while (start < length) {
+            final int end = LogicalLineChunkParser.findLogicalLineBoundary(text, start + chunkSize);
+            tasks.add(pool.submit(new LogicalLineChunkParser(this, text, start, end)));
+            start = end;
+        }
+
+        final ArrayList<ArrayList<SourceNode>> chunks = new ArrayList<>(tasks.size());
+        for (ForkJoinTask<ArrayList<SourceNode>> task : tasks) {
+            chunks.add(task.join());
+        }
+
+        // Build the block structure sequentially.
+        final SourceNode sourceNode = this.parse(new PrecomputedSourceNodeProducer(this, new DocumentReader(text), chunks));
+        this.endPhase(ParserInstrumentation.Phase.PARSE, startTime);
+        return sourceNode;
+    }
+
+    @Nonnull
+    final SourceNode reparseTopLevel(@Nonnull Document text, @Nonnull Block oldRootBlock, int firstEditOffset, int lastEditEnd,
+            int lengthDelta) {
+        return this.parse(new ResynchronizingSourceNodeProducer(this, new DocumentReader(text), oldRootBlock, firstEditOffset,
+                lastEditEnd, lengthDelta));
+    }
+
+    @CheckForNull
+    final BlockParser getBlockParser(@Nonnull BlockDirective blockDirective) {
+        return this.blocks.get(blockDirective);
+    }
+
     final SourceNode parse(@Nonnull SourceNodeProducer sourceNodeProducer) {
-        final ArrayList<SourceNode> nodes = new ArrayList<>();
-        while (!sourceNodeProducer.atEnd()) {
+        // Record the end position of each top-level node as it is added, so that the root block doesn't have to compute them.
+        final RootNodeList nodes = new RootNodeList();
+        for (;;) {
+            // Let the producer add the top-level nodes that it can recycle in bulk.
+            sourceNodeProducer.recycleRootNodes(nodes);
+            if (sourceNodeProducer.atEnd()) {
+                break;
+            }
+
             final SourceNode sourceNode = sourceNodeProducer.next();
 
             // Get the block directive on this logical line, if any.
             final BlockDirective blockDirective = BlockDirective.getBlockDirective(sourceNode);
 
-            this.processBlockBodyLine(sourceNodeProducer, nodes, sourceNode, blockDirective);
+            nodes.add(this.parseBlockBodyLine(sourceNodeProducer, sourceNode, blockDirective));
         }
 
-        return new Block(nodes, null);
+        return nodes.toBlock(sourceNodeProducer.providesOnlyParserBuiltNodes() ? this.rootBlockToken : null);
     }
 
     final void processBlockBodyLine(@Nonnull SourceNodeProducer sourceNodeProducer, @Nonnull ArrayList<SourceNode> childNodes,
             @Nonnull SourceNode sourceNode, @CheckForNull BlockDirective blockDirective) {
+        childNodes.add(this.parseBlockBodyLine(sourceNodeProducer, sourceNode, blockDirective));
+    }
+
+    @Nonnull
+    private final SourceNode parseBlockBodyLine(@Nonnull SourceNodeProducer sourceNodeProducer, @Nonnull SourceNode sourceNode,
+            @CheckForNull BlockDirective blockDirective) {
         // Check if this mnemonic starts a block.
-        final BlockParser blockParser = blockDirective == null ? null : this.blocks.get(blockDirective);
+        final BlockParser blockParser = blockDirective == null ? null : sourceNodeProducer.getBlockParser(sourceNode,
+                blockDirective);
 
-        // If the mnemonic doesn't start a block, add the logical line to the child nodes list.
+        // If the mnemonic doesn't start a block, the logical line is the child node.
         // Otherwise, parse a block.
         if (blockParser == null) {
-            childNodes.add(sourceNode);
-        } else {
-            childNodes.add(blockParser.parseBlock(sourceNodeProducer, (BlockDirectiveLine) sourceNode));
+            return sourceNode;
         }
+
+        return blockParser.parseBlock(sourceNodeProducer, (BlockDirectiveLine) sourceNode);
     }
 
 }
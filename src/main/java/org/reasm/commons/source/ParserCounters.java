@@ -0,0 +1,156 @@
+package org.reasm.commons.source;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+import javax.annotation.Nonnull;
+import javax.annotation.concurrent.ThreadSafe;
+
+/**
+ * A {@link ParserInstrumentation} that accumulates the events it receives in counters, so that they can be read periodically and
+ * exported to a monitoring system.
+ * <p>
+ * The counters are updated atomically, but they are not read as a consistent snapshot: a counter read while a source file is
+ * being parsed may include events that are not yet included in another counter.
+ *
+ * @author Francis Gagné
+ */
+@ThreadSafe
+public final class ParserCounters extends ParserInstrumentation {
+
+    private static final int NUMBER_OF_REPARSE_STEPS = ReparseStep.values().length;
+    private static final int NUMBER_OF_PHASES = Phase.values().length;
+
+    @Nonnull
+    private final AtomicLong logicalLinesParsed = new AtomicLong();
+    @Nonnull
+    private final AtomicLong charactersScanned = new AtomicLong();
+    @Nonnull
+    private final AtomicLongArray nodesRecycled = new AtomicLongArray(NUMBER_OF_REPARSE_STEPS);
+    @Nonnull
+    private final AtomicLongArray nodesReparsed = new AtomicLongArray(NUMBER_OF_REPARSE_STEPS);
+    @Nonnull
+    private final AtomicLong fullParseFallbacks = new AtomicLong();
+    @Nonnull
+    private final AtomicLongArray phaseCounts = new AtomicLongArray(NUMBER_OF_PHASES);
+    @Nonnull
+    private final AtomicLongArray phaseNanos = new AtomicLongArray(NUMBER_OF_PHASES);
+
+    @Override
+    public final void fullParseFallback() {
+        this.fullParseFallbacks.incrementAndGet();
+    }
+
+    /**
+     * Gets the number of characters that were scanned to parse logical lines. Characters are counted in chars (UTF-16 code
+     * units); when the source text is UTF-8 encoded bytes, this is not the number of bytes.
+     *
+     * @return the number of characters
+     */
+    public final long getCharactersScanned() {
+        return this.charactersScanned.get();
+    }
+
+    /**
+     * Gets the number of times a reparse fell back to a full parse.
+     *
+     * @return the number of full parse fallbacks
+     */
+    public final long getFullParseFallbacks() {
+        return this.fullParseFallbacks.get();
+    }
+
+    /**
+     * Gets the number of logical lines that were parsed.
+     *
+     * @return the number of logical lines
+     */
+    public final long getLogicalLinesParsed() {
+        return this.logicalLinesParsed.get();
+    }
+
+    /**
+     * Gets the number of nodes that were recycled in the specified step.
+     *
+     * @param step
+     *            the step
+     * @return the number of nodes
+     */
+    public final long getNodesRecycled(@Nonnull ReparseStep step) {
+        return this.nodesRecycled.get(step.ordinal());
+    }
+
+    /**
+     * Gets the number of nodes that were parsed again in the specified step.
+     *
+     * @param step
+     *            the step
+     * @return the number of nodes
+     */
+    public final long getNodesReparsed(@Nonnull ReparseStep step) {
+        return this.nodesReparsed.get(step.ordinal());
+    }
+
+    /**
+     * Gets the number of times the specified phase was completed.
+     *
+     * @param phase
+     *            the phase
+     * @return the number of times the phase was completed
+     */
+    public final long getPhaseCount(@Nonnull Phase phase) {
+        return this.phaseCounts.get(phase.ordinal());
+    }
+
+    /**
+     * Gets the total time spent in the specified phase.
+     *
+     * @param phase
+     *            the phase
+     * @return the time spent in the phase, in nanoseconds
+     */
+    public final long getPhaseNanos(@Nonnull Phase phase) {
+        return this.phaseNanos.get(phase.ordinal());
+    }
+
+    @Override
+    public final void logicalLineParsed(int charactersScanned) {
+        this.logicalLinesParsed.incrementAndGet();
+        this.charactersScanned.addAndGet(charactersScanned);
+    }
+
+    @Override
+    public final void nodeReparsed(ReparseStep step) {
+        this.nodesReparsed.incrementAndGet(step.ordinal());
+    }
+
+    @Override
+    public final void nodesRecycled(ReparseStep step, int count) {
+        this.nodesRecycled.addAndGet(step.ordinal(), count);
+    }
+
+    @Override
+    public final void phaseCompleted(Phase phase, long elapsedNanos) {
+        this.phaseCounts.incrementAndGet(phase.ordinal());
+        this.phaseNanos.addAndGet(phase.ordinal(), elapsedNanos);
+    }
+
+    /**
+     * Resets all the counters to zero.
+     */
+    public final void reset() {
+        this.logicalLinesParsed.set(0);
+        this.charactersScanned.set(0);
+        for (int i = 0; i < NUMBER_OF_REPARSE_STEPS; i++) {
+            this.nodesRecycled.set(i, 0);
+            this.nodesReparsed.set(i, 0);
+        }
+
+        this.fullParseFallbacks.set(0);
+        for (int i = 0; i < NUMBER_OF_PHASES; i++) {
+            this.phaseCounts.set(i, 0);
+            this.phaseNanos.set(i, 0);
+        }
+    }
+
+}
@@ -0,0 +1,109 @@
+package org.reasm.commons.source;
+
+import javax.annotation.Nonnull;
+import javax.annotation.concurrent.Immutable;
+
+/**
+ * Receives notifications about the work done by a {@link Parser}, so that it can be measured.
+ * <p>
+ * The default implementation of each method does nothing; subclasses override the methods for the events they are interested in.
+ * The methods are called on the thread that does the work, so they may be called from several threads at once when a parser is
+ * shared or when a source file is parsed in parallel. When a parser is initialized without an instrumentation object, it doesn't
+ * call any of these methods nor measure the time spent in each phase.
+ *
+ * @author Francis Gagné
+ * @see Parser#Parser(Syntax, java.util.Map, java.util.Map, LogicalLineFactory, BlockDirectiveLineFactory,
+ *      ParserInstrumentation)
+ * @see ParserCounters
+ */
+public abstract class ParserInstrumentation {
+
+    /**
+     * The operations of a {@link Parser} whose duration is reported to {@link ParserInstrumentation#phaseCompleted(Phase, long)}.
+     */
+    @Immutable
+    public enum Phase {
+
+        /**
+         * A source file is parsed from scratch. {@link Parser#iterate(ca.fragag.text.Document)} doesn't report this phase,
+         * because the caller drives the iteration.
+         */
+        PARSE,
+
+        /** A source file is re-parsed incrementally by recycling the nodes that are not affected by the edits. */
+        REPARSE,
+
+        /**
+         * A source file is re-parsed by recycling only the top-level nodes that are not affected by the edits, after an incremental
+         * reparse failed.
+         */
+        RESYNCHRONIZE
+
+    }
+
+    /**
+     * Initializes a new ParserInstrumentation.
+     */
+    protected ParserInstrumentation() {
+    }
+
+    /**
+     * Called when a call to one of the <code>reparse</code> methods of a {@link Parser} cannot recycle any nodes and parses the
+     * whole source file again.
+     * <p>
+     * The default implementation does nothing.
+     */
+    public void fullParseFallback() {
+    }
+
+    /**
+     * Called after a logical line has been parsed from the source text.
+     * <p>
+     * The default implementation does nothing.
+     *
+     * @param charactersScanned
+     *            the length of the logical line, i.e. the number of characters that were scanned to parse it. Characters are
+     *            counted in chars (UTF-16 code units); when the source text is UTF-8 encoded bytes, this is not the number of
+     *            bytes.
+     */
+    public void logicalLineParsed(int charactersScanned) {
+    }
+
+    /**
+     * Called when the incremental reparser parses a node again.
+     * <p>
+     * The default implementation does nothing.
+     *
+     * @param step
+     *            the step the reparser was in, either {@link ReparseStep#PARSE_REPLACEMENT} or {@link ReparseStep#SYNCHRONIZE}
+     */
+    public void nodeReparsed(@Nonnull ReparseStep step) {
+    }
+
+    /**
+     * Called when a reparser reuses nodes from the old source file.
+     * <p>
+     * The default implementation does nothing.
+     *
+     * @param step
+     *            the step the reparser was in, either {@link ReparseStep#RECYCLE_BEFORE} or {@link ReparseStep#RECYCLE_AFTER}
+     * @param count
+     *            the number of nodes that were recycled
+     */
+    public void nodesRecycled(@Nonnull ReparseStep step, int count) {
+    }
+
+    /**
+     * Called when a phase of work has been completed.
+     * <p>
+     * The default implementation does nothing.
+     *
+     * @param phase
+     *            the phase that was completed
+     * @param elapsedNanos
+     *            the time spent in the phase, in nanoseconds
+     */
+    public void phaseCompleted(@Nonnull Phase phase, long elapsedNanos) {
+    }
+
+}
@@ -0,0 +1,50 @@
+package org.reasm.commons.source;
+
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+
+import javax.annotation.CheckForNull;
+import javax.annotation.Nonnull;
+
+import org.reasm.source.SourceNode;
+
+import ca.fragag.text.CharSequenceReader;
+
+/**
+ * A {@link SourceNodeProducer} that emits logical lines that have already been parsed, in order, advancing the reader past each of
+ * them. It is used to build the block structure of a source file whose logical lines were parsed in parallel.
+ *
+ * @author Francis Gagné
+ */
+final class PrecomputedSourceNodeProducer extends SourceNodeProducer {
+
+    @Nonnull
+    private final Iterator<? extends List<SourceNode>> chunkIterator;
+    @CheckForNull
+    private Iterator<SourceNode> nodeIterator;
+
+    PrecomputedSourceNodeProducer(@Nonnull Parser parser, @Nonnull CharSequenceReader<?> reader,
+            @Nonnull Iterable<? extends List<SourceNode>> chunks) {
+        super(parser, reader);
+        this.chunkIterator = chunks.iterator();
+        this.nodeIterator = this.chunkIterator.hasNext() ? this.chunkIterator.next().iterator() : null;
+    }
+
+    @Override
+    protected final SourceNode next() {
+        while (this.nodeIterator != null && !this.nodeIterator.hasNext()) {
+            this.nodeIterator = this.chunkIterator.hasNext() ? this.chunkIterator.next().iterator() : null;
+        }
+
+        if (this.nodeIterator == null) {
+            throw new NoSuchElementException();
+        }
+
+        final SourceNode node = this.nodeIterator.next();
+        final CharSequenceReader<?> reader = this.getReader();
+        reader.setCurrentPosition(reader.getCurrentPosition() + node.getLength());
+        return node;
+    }
+
+}
@@ -0,0 +1,26 @@
+package org.reasm.commons.source;
+
+import javax.annotation.concurrent.Immutable;
+
+/**
+ * The steps that the incremental reparser goes through for each edit to a source file.
+ *
+ * @author Francis Gagné
+ * @see ParserInstrumentation
+ */
+@Immutable
+public enum ReparseStep {
+
+    /** The nodes that end before the edit are recycled. */
+    RECYCLE_BEFORE,
+
+    /** The nodes that cross the edit are parsed again. */
+    PARSE_REPLACEMENT,
+
+    /** The nodes that follow the edit are parsed again until the new source file lines up with a node of the old source file. */
+    SYNCHRONIZE,
+
+    /** The nodes that follow the last edit are recycled. */
+    RECYCLE_AFTER
+
+}
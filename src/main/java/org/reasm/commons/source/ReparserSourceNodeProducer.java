@@ -1,173 +1,339 @@
 package org.reasm.commons.source;
 
 import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
 import java.util.NoSuchElementException;
 
+import javax.annotation.CheckForNull;
 import javax.annotation.Nonnull;
-import javax.annotation.concurrent.Immutable;
 
 import org.reasm.source.CompositeSourceNode;
 import org.reasm.source.SourceNode;
 
-import ca.fragag.collections.PeekableIterator;
 import ca.fragag.text.CharSequenceReader;
 
 final class ReparserSourceNodeProducer extends SourceNodeProducer {
 
-    @Immutable
-    private enum Step {
-        RECYCLE_BEFORE, PARSE_REPLACEMENT, SYNCHRONIZE, RECYCLE_AFTER
+    // A position in the list of child nodes of a composite node from the old source file.
+    private static final class OldNodeCursor {
+
+        @Nonnull
+        final List<SourceNode> nodes;
+        int index;
+
+        OldNodeCursor(@Nonnull List<SourceNode> nodes) {
+            this.nodes = nodes;
+        }
+
+        final boolean hasNext() {
+            return this.index < this.nodes.size();
+        }
+
     }
 
     @Nonnull
     private final SourceNode oldSourceFileRootNode;
-    private final int replaceOffset;
-    private final int lengthToRemove;
-    private final int lengthToInsert;
-    private final int endReplaceOffset;
     @Nonnull
-    private final ArrayList<PeekableIterator<SourceNode>> oldNodeIteratorStack;
+    private final List<SourceEdit> edits;
+    // The index in edits of the next edit to process.
+    private int nextEditIndex;
+    // The range of the current replacement in the new source file. The current replacement covers one or more edits.
+    private int replaceOffset;
+    private int endReplaceOffset;
+    // The total length of text removed from the old source file and inserted in the new source file by the edits processed so
+    // far.
+    private int totalLengthRemoved;
+    private int totalLengthInserted;
+    @CheckForNull
+    private final Block oldRootBlock;
+    @Nonnull
+    private final ArrayList<OldNodeCursor> oldNodeCursorStack;
     private int oldPosition;
     @Nonnull
-    private Step step;
+    private ReparseStep step;
 
     ReparserSourceNodeProducer(@Nonnull Parser parser, @Nonnull CharSequenceReader<?> reader,
             @Nonnull SourceNode oldSourceFileRootNode, int replaceOffset, int lengthToRemove, int lengthToInsert) {
+        this(parser, reader, oldSourceFileRootNode, Collections.singletonList(new SourceEdit(replaceOffset, lengthToRemove,
+                lengthToInsert)));
+    }
+
+    /**
+     * Initializes a new ReparserSourceNodeProducer.
+     *
+     * @param parser
+     *            the parser
+     * @param reader
+     *            a reader on the new source file
+     * @param oldSourceFileRootNode
+     *            the root source node of the old source file
+     * @param edits
+     *            the edits that transform the old source file into the new source file, sorted by offset, not overlapping and not
+     *            empty
+     */
+    ReparserSourceNodeProducer(@Nonnull Parser parser, @Nonnull CharSequenceReader<?> reader,
+            @Nonnull SourceNode oldSourceFileRootNode, @Nonnull List<SourceEdit> edits) {
         super(parser, reader);
         this.oldSourceFileRootNode = oldSourceFileRootNode;
-        this.replaceOffset = replaceOffset;
-        this.lengthToRemove = lengthToRemove;
-        this.lengthToInsert = lengthToInsert;
-        this.endReplaceOffset = replaceOffset + lengthToInsert;
-        this.oldNodeIteratorStack = new ArrayList<>();
-        this.step = Step.RECYCLE_BEFORE;
-        this.pushOldNodeIterator(this.oldSourceFileRootNode);
+        this.edits = edits;
+        this.oldRootBlock = oldSourceFileRootNode instanceof Block ? (Block) oldSourceFileRootNode : null;
+        this.oldNodeCursorStack = new ArrayList<>();
+        this.step = ReparseStep.RECYCLE_BEFORE;
+        this.pushOldNodeCursor(this.oldSourceFileRootNode);
+        this.beginNextEdit();
     }
 
     @Override
     protected final SourceNode next() {
         final CharSequenceReader<?> reader = this.getReader();
 
-        // Jump to the last step we were in last time next() returned.
-        switch (this.step) {
-        case RECYCLE_BEFORE:
-            // Recycle the nodes before the replacement.
-            if (reader.getCurrentPosition() < this.replaceOffset) {
-                for (;;) {
-                    final SourceNode node = this.peekOldNode();
-                    final int nodeLength = node.getLength();
-                    final int endPosition = reader.getCurrentPosition() + nodeLength;
-
-                    // Don't recycle the node if it crosses the replacement.
-                    // Don't recycle the node if its ends where the replacement begins and the node has a parse error.
-                    if (endPosition < this.replaceOffset || endPosition == this.replaceOffset && node.getParseError() == null) {
-                        // Don't recycle the node if that type of node cannot appear here.
-                        if (this.isParsableNode(node)) {
-                            // Don't recycle the node if it doesn't end with a line feed or a carriage return.
-                            // If characters are appended to a file that doesn't end with a line feed,
-                            // we must parse the last logical line again.
-                            // Also, we can't recycle a node that ends with a carriage return
-                            // if the following character in the new document is a line feed
-                            // (which is a character that was just inserted),
-                            // because we must parse the node again
-                            // to include the line feed in it.
-                            final char nodeLastChar = reader.getCharSequence().charAt(endPosition - 1);
-                            if (nodeLastChar == '\n'
-                                    || nodeLastChar == '\r'
-                                    && (reader.getCharSequence().length() <= endPosition || reader.getCharSequence().charAt(
-                                            endPosition) != '\n')) {
-                                this.nextOldNode();
-                                this.oldPosition += nodeLength;
-                                reader.setCurrentPosition(endPosition);
-                                return node;
+        for (;;) {
+            // Jump to the last step we were in last time next() returned.
+            switch (this.step) {
+            case RECYCLE_BEFORE:
+                // Recycle the nodes before the replacement.
+                if (reader.getCurrentPosition() < this.replaceOffset) {
+                    for (;;) {
+                        final SourceNode node = this.peekOldNode();
+                        final int nodeLength = node.getLength();
+                        final int endPosition = reader.getCurrentPosition() + nodeLength;
+
+                        // Don't recycle the node if it crosses the replacement.
+                        // Don't recycle the node if its ends where the replacement begins and the node has a parse error.
+                        if (endPosition < this.replaceOffset || endPosition == this.replaceOffset && node.getParseError() == null) {
+                            // Don't recycle the node if that type of node cannot appear here.
+                            if (this.isParsableNode(node)) {
+                                // Don't recycle the node if it doesn't end with a line feed or a carriage return.
+                                // If characters are appended to a file that doesn't end with a line feed,
+                                // we must parse the last logical line again.
+                                // Also, we can't recycle a node that ends with a carriage return
+                                // if the following character in the new document is a line feed
+                                // (which is a character that was just inserted),
+                                // because we must parse the node again
+                                // to include the line feed in it.
+                                if (endsWithLineSeparator(reader.getCharSequence(), endPosition)) {
+                                    this.nextOldNode();
+                                    this.oldPosition += nodeLength;
+                                    reader.setCurrentPosition(endPosition);
+                                    this.reportRecycledNodes(1);
+                                    return node;
+                                }
                             }
                         }
-                    }
 
-                    if (!(node instanceof CompositeSourceNode)) {
-                        break;
+                        if (!(node instanceof CompositeSourceNode)) {
+                            break;
+                        }
+
+                        this.pushOldNodeCursor(this.nextOldNode());
                     }
+                }
 
-                    this.pushOldNodeIterator(this.nextOldNode());
+                this.step = ReparseStep.PARSE_REPLACEMENT;
+                //$FALL-THROUGH$
+
+            case PARSE_REPLACEMENT:
+                // Re-parse the nodes that cross the replacement.
+                this.absorbReachedEdits(reader.getCurrentPosition());
+                if (reader.getCurrentPosition() < this.endReplaceOffset) {
+                    return this.reparseNext();
                 }
-            }
 
-            this.step = Step.PARSE_REPLACEMENT;
-            //$FALL-THROUGH$
+                this.step = ReparseStep.SYNCHRONIZE;
+                //$FALL-THROUGH$
 
-        case PARSE_REPLACEMENT:
-            // Re-parse the nodes that cross the replacement.
-            if (reader.getCurrentPosition() < this.endReplaceOffset) {
-                return super.next();
-            }
+            case SYNCHRONIZE:
+                // If we have reached the next edit, it becomes part of the current replacement.
+                if (this.absorbReachedEdits(reader.getCurrentPosition())
+                        && reader.getCurrentPosition() < this.endReplaceOffset) {
+                    this.step = ReparseStep.PARSE_REPLACEMENT;
+                    return this.reparseNext();
+                }
 
-            this.step = Step.SYNCHRONIZE;
-            //$FALL-THROUGH$
+                // Synchronize the old and the new document.
+                while (this.oldPosition - this.totalLengthRemoved < reader.getCurrentPosition() - this.totalLengthInserted) {
+                    final SourceNode node = this.nextOldNode();
+                    this.oldPosition += node.getLength();
+                }
 
-        case SYNCHRONIZE:
-            // Synchronize the old and the new document.
-            while (this.oldPosition - this.lengthToRemove < reader.getCurrentPosition() - this.lengthToInsert) {
-                final SourceNode node = this.nextOldNode();
-                this.oldPosition += node.getLength();
-            }
+                if (this.oldPosition - this.totalLengthRemoved > reader.getCurrentPosition() - this.totalLengthInserted) {
+                    return this.reparseNext();
+                }
 
-            if (this.oldPosition - this.lengthToRemove > reader.getCurrentPosition() - this.lengthToInsert) {
-                return super.next();
-            }
+                // If there are more edits, recycle the nodes up to the next edit.
+                if (this.nextEditIndex < this.edits.size()) {
+                    this.beginNextEdit();
+                    this.step = ReparseStep.RECYCLE_BEFORE;
+                    continue;
+                }
 
-            this.step = Step.RECYCLE_AFTER;
-            //$FALL-THROUGH$
+                this.step = ReparseStep.RECYCLE_AFTER;
+                //$FALL-THROUGH$
 
-        case RECYCLE_AFTER:
-            // Recycle the nodes after the replacement.
-            this.popExhaustedOldNodeIterators();
-            if (this.oldNodeIteratorStack.isEmpty()) {
-                throw new NoSuchElementException();
+            case RECYCLE_AFTER:
+                // Recycle the nodes after the replacement.
+                this.popExhaustedOldNodeCursors();
+                if (this.oldNodeCursorStack.isEmpty()) {
+                    throw new NoSuchElementException();
+                }
+
+                for (;;) {
+                    final SourceNode node = this.nextOldNode();
+                    if (this.isParsableNode(node)) {
+                        final int nodeLength = node.getLength();
+                        final int endPosition = reader.getCurrentPosition() + nodeLength;
+                        this.oldPosition += nodeLength;
+                        reader.setCurrentPosition(endPosition);
+                        this.reportRecycledNodes(1);
+                        return node;
+                    }
+
+                    this.pushOldNodeCursor(node);
+                }
+
+            default:
+                throw new AssertionError();
             }
+        }
+    }
 
-            for (;;) {
-                final SourceNode node = this.nextOldNode();
-                if (this.isParsableNode(node)) {
-                    final int nodeLength = node.getLength();
-                    final int endPosition = reader.getCurrentPosition() + nodeLength;
-                    this.oldPosition += nodeLength;
-                    reader.setCurrentPosition(endPosition);
-                    return node;
+    @Override
+    final void recycleRootNodes(RootNodeList nodes) {
+        if (this.oldRootBlock == null) {
+            return;
+        }
+
+        switch (this.step) {
+        case RECYCLE_BEFORE:
+            // Recycle the top-level nodes that end before the replacement.
+            if (this.oldNodeCursorStack.size() == 1) {
+                final OldNodeCursor cursor = this.oldNodeCursorStack.get(0);
+                final int delta = this.getReader().getCurrentPosition() - this.oldPosition;
+                int limit = this.oldRootBlock.findFirstChildNodeEndingAfter(this.replaceOffset - 1 - delta);
+
+                // Like next(), don't recycle the last node if it ends where the replacement begins and it has a parse error.
+                if (limit > cursor.index && this.oldRootBlock.getChildNodeEnd(limit - 1) + delta == this.replaceOffset
+                        && cursor.nodes.get(limit - 1).getParseError() != null) {
+                    limit--;
                 }
 
-                this.pushOldNodeIterator(node);
+                this.recycleRootNodes(nodes, cursor, limit, true);
+            }
+
+            break;
+
+        case RECYCLE_AFTER:
+            // Recycle the remaining top-level nodes after the replacement.
+            this.popExhaustedOldNodeCursors();
+            if (this.oldNodeCursorStack.size() == 1) {
+                final OldNodeCursor cursor = this.oldNodeCursorStack.get(0);
+                this.recycleRootNodes(nodes, cursor, cursor.nodes.size(), false);
             }
 
+            break;
+
         default:
-            throw new AssertionError();
+            break;
+        }
+    }
+
+    @Override
+    final boolean providesOnlyParserBuiltNodes() {
+        return this.oldRootBlock != null && this.oldRootBlock.isBuiltBy(this.getParser());
+    }
+
+    private final boolean absorbReachedEdits(int position) {
+        // Merge the edits that start before the specified position in the new source file into the current replacement.
+        boolean absorbed = false;
+        while (this.nextEditIndex < this.edits.size() && position > this.getNextEditNewOffset()) {
+            final SourceEdit edit = this.edits.get(this.nextEditIndex);
+            this.endReplaceOffset = this.getNextEditNewOffset() + edit.getLengthToInsert();
+            this.totalLengthRemoved += edit.getLengthToRemove();
+            this.totalLengthInserted += edit.getLengthToInsert();
+            this.nextEditIndex++;
+            absorbed = true;
         }
+
+        return absorbed;
+    }
+
+    private final void beginNextEdit() {
+        final SourceEdit edit = this.edits.get(this.nextEditIndex);
+        this.replaceOffset = this.getNextEditNewOffset();
+        this.endReplaceOffset = this.replaceOffset + edit.getLengthToInsert();
+        this.totalLengthRemoved += edit.getLengthToRemove();
+        this.totalLengthInserted += edit.getLengthToInsert();
+        this.nextEditIndex++;
     }
 
-    private final boolean isParsableNode(@Nonnull SourceNode node) {
-        return this.getParser().outputNodeTypes.contains(node.getClass());
+    private final int getNextEditNewOffset() {
+        // Translate the offset of the next edit to the new source file.
+        return this.edits.get(this.nextEditIndex).getOffset() - this.totalLengthRemoved + this.totalLengthInserted;
     }
 
     @Nonnull
     private final SourceNode nextOldNode() {
-        this.popExhaustedOldNodeIterators();
-        return this.oldNodeIteratorStack.get(this.oldNodeIteratorStack.size() - 1).next();
+        this.popExhaustedOldNodeCursors();
+        final OldNodeCursor cursor = this.oldNodeCursorStack.get(this.oldNodeCursorStack.size() - 1);
+        return cursor.nodes.get(cursor.index++);
     }
 
     @Nonnull
     private final SourceNode peekOldNode() {
-        this.popExhaustedOldNodeIterators();
-        return this.oldNodeIteratorStack.get(this.oldNodeIteratorStack.size() - 1).peek();
+        this.popExhaustedOldNodeCursors();
+        final OldNodeCursor cursor = this.oldNodeCursorStack.get(this.oldNodeCursorStack.size() - 1);
+        return cursor.nodes.get(cursor.index);
+    }
+
+    private final void popExhaustedOldNodeCursors() {
+        while (!this.oldNodeCursorStack.isEmpty() && !this.oldNodeCursorStack.get(this.oldNodeCursorStack.size() - 1).hasNext()) {
+            this.oldNodeCursorStack.remove(this.oldNodeCursorStack.size() - 1);
+        }
+    }
+
+    private final void pushOldNodeCursor(@Nonnull SourceNode node) {
+        this.oldNodeCursorStack.add(new OldNodeCursor(((CompositeSourceNode) node).getChildNodes()));
+    }
+
+    private final void recycleRootNodes(@Nonnull RootNodeList nodes, @Nonnull OldNodeCursor cursor, int limit,
+            boolean checkLastChar) {
+        final CharSequenceReader<?> reader = this.getReader();
+        final int start = cursor.index;
+        final int startPosition = start == 0 ? 0 : this.oldRootBlock.getChildNodeEnd(start - 1);
+        final int delta = reader.getCurrentPosition() - startPosition;
+
+        // Find the nodes that next() would recycle as is, and stop at the first node that it would handle differently.
+        final int end = this.findRecyclableRootNodes(this.oldRootBlock, start, limit, checkLastChar);
+        if (end == start) {
+            return;
+        }
+
+        // Copy the nodes in bulk.
+        nodes.addAll(this.oldRootBlock, start, end, delta);
+        cursor.index = end;
+
+        final int length = this.oldRootBlock.getChildNodeEnd(end - 1) - startPosition;
+        this.oldPosition += length;
+        reader.setCurrentPosition(reader.getCurrentPosition() + length);
+        this.reportRecycledNodes(end - start);
     }
 
-    private final void popExhaustedOldNodeIterators() {
-        while (!this.oldNodeIteratorStack.isEmpty()
-                && !this.oldNodeIteratorStack.get(this.oldNodeIteratorStack.size() - 1).hasNext()) {
-            this.oldNodeIteratorStack.remove(this.oldNodeIteratorStack.size() - 1);
+    @Nonnull
+    private final SourceNode reparseNext() {
+        final ParserInstrumentation instrumentation = this.instrumentation;
+        if (instrumentation != null) {
+            instrumentation.nodeReparsed(this.step);
         }
+
+        return super.next();
     }
 
-    private final void pushOldNodeIterator(@Nonnull SourceNode node) {
-        this.oldNodeIteratorStack.add(new PeekableIterator<>(((CompositeSourceNode) node).getChildNodes().iterator()));
+    private final void reportRecycledNodes(int count) {
+        final ParserInstrumentation instrumentation = this.instrumentation;
+        if (instrumentation != null) {
+            instrumentation.nodesRecycled(this.step, count);
+        }
     }
 
 }
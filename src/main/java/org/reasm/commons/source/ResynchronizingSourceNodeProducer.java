@@ -0,0 +1,108 @@
+package org.reasm.commons.source;
+
+import javax.annotation.Nonnull;
+
+import ca.fragag.text.CharSequenceReader;
+
+/**
+ * A {@link SourceNodeProducer} that re-parses a source file by recycling only top-level nodes of the old source file. It is used to
+ * recover when a {@link ReparserSourceNodeProducer} fails.
+ * <p>
+ * The top-level nodes that end before the first edit are recycled. The following nodes are parsed again, until the parser reaches
+ * a position after the last edit that is also the end of a top-level node in the old source file. Since parsing at the top level
+ * only depends on the text that follows, the remaining top-level nodes of the old source file are then recycled.
+ * <p>
+ * Recycled nodes go through the same checks as in {@link ReparserSourceNodeProducer}, so that a root block that was not built by
+ * the parser doesn't leak nodes that the parser wouldn't produce at the top level. The first node that fails the checks is parsed
+ * again.
+ *
+ * @author Francis Gagné
+ */
+final class ResynchronizingSourceNodeProducer extends SourceNodeProducer {
+
+    @Nonnull
+    private final Block oldRootBlock;
+    private final int firstEditOffset;
+    private final int lastEditEnd;
+    private final int lengthDelta;
+    private boolean prefixRecycled;
+
+    /**
+     * Initializes a new ResynchronizingSourceNodeProducer.
+     *
+     * @param parser
+     *            the parser
+     * @param reader
+     *            a reader on the new source file
+     * @param oldRootBlock
+     *            the root block of the old source file
+     * @param firstEditOffset
+     *            the offset of the first edit, in the old source file
+     * @param lastEditEnd
+     *            the end of the text removed by the last edit, in the old source file
+     * @param lengthDelta
+     *            the difference between the length of the new source file and the length of the old source file
+     */
+    ResynchronizingSourceNodeProducer(@Nonnull Parser parser, @Nonnull CharSequenceReader<?> reader, @Nonnull Block oldRootBlock,
+            int firstEditOffset, int lastEditEnd, int lengthDelta) {
+        super(parser, reader);
+        this.oldRootBlock = oldRootBlock;
+        this.firstEditOffset = firstEditOffset;
+        this.lastEditEnd = lastEditEnd;
+        this.lengthDelta = lengthDelta;
+    }
+
+    @Override
+    final void recycleRootNodes(RootNodeList nodes) {
+        final CharSequenceReader<?> reader = this.getReader();
+
+        if (!this.prefixRecycled) {
+            this.prefixRecycled = true;
+
+            // Recycle the nodes that end before the first edit. The character that follows each of these nodes is unchanged, so
+            // they still end at the same place.
+            final int limit = this.oldRootBlock.findFirstChildNodeEndingAfter(this.firstEditOffset - 1);
+            final int end = this.findRecyclableRootNodes(this.oldRootBlock, 0, limit, true);
+            if (end != 0) {
+                nodes.addAll(this.oldRootBlock, 0, end, 0);
+                reader.setCurrentPosition(this.oldRootBlock.getChildNodeEnd(end - 1));
+                this.reportRecycledNodes(ReparseStep.RECYCLE_BEFORE, end);
+            }
+
+            return;
+        }
+
+        // Look for a top-level node in the old source file that ends at the current position, after the last edit.
+        final int oldPosition = reader.getCurrentPosition() - this.lengthDelta;
+        if (oldPosition < this.lastEditEnd || oldPosition <= 0) {
+            return;
+        }
+
+        final int index = this.oldRootBlock.findFirstChildNodeEndingAfter(oldPosition);
+        if (index == 0 || this.oldRootBlock.getChildNodeEnd(index - 1) != oldPosition) {
+            return;
+        }
+
+        // The rest of the source file is unchanged: recycle the remaining nodes. If a node must be parsed again, we'll try to
+        // synchronize again after it.
+        final int end = this.findRecyclableRootNodes(this.oldRootBlock, index, this.oldRootBlock.getChildNodes().size(), true);
+        if (end != index) {
+            nodes.addAll(this.oldRootBlock, index, end, this.lengthDelta);
+            reader.setCurrentPosition(reader.getCurrentPosition() + this.oldRootBlock.getChildNodeEnd(end - 1) - oldPosition);
+            this.reportRecycledNodes(ReparseStep.RECYCLE_AFTER, end - index);
+        }
+    }
+
+    @Override
+    final boolean providesOnlyParserBuiltNodes() {
+        return this.oldRootBlock.isBuiltBy(this.getParser());
+    }
+
+    private final void reportRecycledNodes(@Nonnull ReparseStep step, int count) {
+        final ParserInstrumentation instrumentation = this.instrumentation;
+        if (instrumentation != null) {
+            instrumentation.nodesRecycled(step, count);
+        }
+    }
+
+}
@@ -0,0 +1,95 @@
+package org.reasm.commons.source;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+
+import javax.annotation.CheckForNull;
+import javax.annotation.Nonnull;
+
+import org.reasm.source.SourceNode;
+
+/**
+ * The top-level nodes of a source file that is being parsed, from which {@link Parser} builds the root {@link Block}. The end
+ * position of each node is recorded as the node is added, so that the block doesn't have to compute the end positions again.
+ *
+ * @author Francis Gagné
+ */
+final class RootNodeList {
+
+    @Nonnull
+    private final ArrayList<SourceNode> nodes = new ArrayList<>();
+    @Nonnull
+    private int[] ends = new int[16];
+
+    RootNodeList() {
+    }
+
+    /**
+     * Adds a node at the end of this list.
+     *
+     * @param node
+     *            the node to add
+     */
+    final void add(@Nonnull SourceNode node) {
+        final int size = this.nodes.size();
+        this.ensureCapacity(size + 1);
+        this.ends[size] = this.getEnd() + node.getLength();
+        this.nodes.add(node);
+    }
+
+    /**
+     * Adds a range of top-level nodes from the old source file at the end of this list.
+     *
+     * @param oldRootBlock
+     *            the root block of the old source file
+     * @param fromIndex
+     *            the index of the first node to add
+     * @param toIndex
+     *            the index following the last node to add
+     * @param delta
+     *            the difference between the position of the nodes in the new source file and their position in the old source file
+     */
+    final void addAll(@Nonnull Block oldRootBlock, int fromIndex, int toIndex, int delta) {
+        final int size = this.nodes.size();
+        final int count = toIndex - fromIndex;
+        this.ensureCapacity(size + count);
+        final int[] oldEnds = oldRootBlock.getChildNodeEnds();
+        final int[] ends = this.ends;
+        for (int i = 0; i < count; i++) {
+            ends[size + i] = oldEnds[fromIndex + i] + delta;
+        }
+
+        this.nodes.addAll(oldRootBlock.getChildNodes().subList(fromIndex, toIndex));
+    }
+
+    /**
+     * Gets the end position of the last node in this list.
+     *
+     * @return the end position of the last node, or 0 if this list is empty
+     */
+    final int getEnd() {
+        final int size = this.nodes.size();
+        return size == 0 ? 0 : this.ends[size - 1];
+    }
+
+    /**
+     * Creates the root {@link Block} of the source file.
+     *
+     * @param parserToken
+     *            the root block token of the parser that built the nodes in this list, or <code>null</code> if some nodes were
+     *            not built by a parser
+     * @return the new {@link Block}
+     */
+    @Nonnull
+    final Block toBlock(@CheckForNull Object parserToken) {
+        final int size = this.nodes.size();
+        return new Block(this.nodes, size == this.ends.length ? this.ends : Arrays.copyOf(this.ends, size), parserToken);
+    }
+
+    private final void ensureCapacity(int capacity) {
+        if (capacity > this.ends.length) {
+            this.ends = Arrays.copyOf(this.ends, Math.max(capacity, this.ends.length * 2));
+        }
+    }
+
+}
@@ -0,0 +1,75 @@
+package org.reasm.commons.source;
+
+import javax.annotation.concurrent.Immutable;
+
+/**
+ * An edit on a source file: a range of text that was replaced with some other text. The offset is expressed in terms of the
+ * source file before the edit.
+ *
+ * @author Francis Gagné
+ */
+@Immutable
+public final class SourceEdit {
+
+    private final int offset;
+    private final int lengthToRemove;
+    private final int lengthToInsert;
+
+    /**
+     * Initializes a new SourceEdit.
+     *
+     * @param offset
+     *            the offset in the old source file at which the replace occurred
+     * @param lengthToRemove
+     *            the length of text from the old source file that was removed
+     * @param lengthToInsert
+     *            the length of text from the new source file that was inserted
+     * @throws IllegalArgumentException
+     *             <code>offset</code>, <code>lengthToRemove</code> or <code>lengthToInsert</code> is negative
+     */
+    public SourceEdit(int offset, int lengthToRemove, int lengthToInsert) {
+        if (offset < 0) {
+            throw new IllegalArgumentException("offset < 0");
+        }
+
+        if (lengthToRemove < 0) {
+            throw new IllegalArgumentException("lengthToRemove < 0");
+        }
+
+        if (lengthToInsert < 0) {
+            throw new IllegalArgumentException("lengthToInsert < 0");
+        }
+
+        this.offset = offset;
+        this.lengthToRemove = lengthToRemove;
+        this.lengthToInsert = lengthToInsert;
+    }
+
+    /**
+     * Gets the length of text from the new source file that was inserted.
+     *
+     * @return the length of the inserted text
+     */
+    public final int getLengthToInsert() {
+        return this.lengthToInsert;
+    }
+
+    /**
+     * Gets the length of text from the old source file that was removed.
+     *
+     * @return the length of the removed text
+     */
+    public final int getLengthToRemove() {
+        return this.lengthToRemove;
+    }
+
+    /**
+     * Gets the offset in the old source file at which the replace occurred.
+     *
+     * @return the offset
+     */
+    public final int getOffset() {
+        return this.offset;
+    }
+
+}
@@ -15,6 +15,24 @@ import org.reasm.source.SourceNodeRangeReader;
  */
 public final class SourceLocationUtils {
 
+    /**
+     * Gets the {@link LogicalLineText} of the comment on the logical line at the specified source location.
+     *
+     * @param location
+     *            the source location
+     * @return the text of the comment, with continuation characters removed
+     */
+    @Nonnull
+    public static LogicalLineText getCommentLogicalText(@Nonnull SourceLocation location) {
+        final LogicalLine logicalLine = getLogicalLineRequired(location);
+        final int commentStart = logicalLine.getCommentStart();
+        if (commentStart == -1) {
+            throw new IllegalArgumentException("LogicalLine has no comment");
+        }
+
+        return LogicalLineText.get(location, commentStart, logicalLine.getCommentEnd());
+    }
+
     /**
      * Gets a {@link SourceNodeRangeReader} for the comment on the logical line at the specified source location.
      *
@@ -41,7 +59,22 @@ public final class SourceLocationUtils {
      */
     @Nonnull
     public static String getCommentText(@Nonnull SourceLocation location) {
-        return getCommentReader(location).readToString();
+        return getCommentLogicalText(location).toString();
+    }
+
+    /**
+     * Gets the {@link LogicalLineText} of a label on the logical line at the specified source location.
+     *
+     * @param location
+     *            the source location
+     * @param index
+     *            the index of the label
+     * @return the text of the label, with continuation characters removed
+     */
+    @Nonnull
+    public static LogicalLineText getLabelLogicalText(@Nonnull SourceLocation location, int index) {
+        final LogicalLine logicalLine = getLogicalLineRequired(location);
+        return LogicalLineText.get(location, logicalLine.getLabelStart(index), logicalLine.getLabelEnd(index));
     }
 
     /**
@@ -70,7 +103,7 @@ public final class SourceLocationUtils {
      */
     @Nonnull
     public static String getLabelText(@Nonnull SourceLocation location, int index) {
-        return getLabelReader(location, index).readToString();
+        return getLabelLogicalText(location, index).toString();
     }
 
     /**
@@ -105,6 +138,24 @@ public final class SourceLocationUtils {
         throw new IllegalArgumentException("The SourceLocation doesn't reference a LogicalLine");
     }
 
+    /**
+     * Gets the {@link LogicalLineText} of the mnemonic on the logical line at the specified source location.
+     *
+     * @param location
+     *            the source location
+     * @return the text of the mnemonic, with continuation characters removed
+     */
+    @Nonnull
+    public static LogicalLineText getMnemonicLogicalText(@Nonnull SourceLocation location) {
+        final LogicalLine logicalLine = getLogicalLineRequired(location);
+        final int mnemonicStart = logicalLine.getMnemonicStart();
+        if (mnemonicStart == -1) {
+            throw new IllegalArgumentException("LogicalLine has no mnemonic");
+        }
+
+        return LogicalLineText.get(location, mnemonicStart, logicalLine.getMnemonicEnd());
+    }
+
     /**
      * Gets a {@link SourceNodeRangeReader} for the mnemonic on the logical line at the specified source location.
      *
@@ -131,7 +182,22 @@ public final class SourceLocationUtils {
      */
     @Nonnull
     public static String getMnemonicText(@Nonnull SourceLocation location) {
-        return getMnemonicReader(location).readToString();
+        return getMnemonicLogicalText(location).toString();
+    }
+
+    /**
+     * Gets the {@link LogicalLineText} of an operand on the logical line at the specified source location.
+     *
+     * @param location
+     *            the source location
+     * @param index
+     *            the index of the operand
+     * @return the text of the operand, with continuation characters removed
+     */
+    @Nonnull
+    public static LogicalLineText getOperandLogicalText(@Nonnull SourceLocation location, int index) {
+        final LogicalLine logicalLine = getLogicalLineRequired(location);
+        return LogicalLineText.get(location, logicalLine.getOperandStart(index), logicalLine.getOperandEnd(index));
     }
 
     /**
@@ -151,6 +217,9 @@ public final class SourceLocationUtils {
 
     /**
      * Gets the text of an operand on the logical line at the specified source location.
+     * <p>
+     * To get the text of all the operands of a logical line, use {@link LogicalLineTextBuffer#extract(SourceLocation, boolean)}
+     * instead, which extracts them in one pass into a reusable buffer.
      *
      * @param location
      *            the source location
@@ -160,7 +229,7 @@ public final class SourceLocationUtils {
      */
     @Nonnull
     public static String getOperandText(@Nonnull SourceLocation location, int index) {
-        return getOperandReader(location, index).readToString();
+        return getOperandLogicalText(location, index).toString();
     }
 
     /**
@@ -171,7 +240,7 @@ public final class SourceLocationUtils {
      * @return <code>true</code> if the logical line contains a comment; otherwise, <code>false</code>
      */
     public static boolean hasComment(@Nonnull SourceLocation location) {
-        return getLogicalLineRequired(location).getCommentBounds() != null;
+        return getLogicalLineRequired(location).getCommentStart() != -1;
     }
 
     /**
@@ -182,7 +251,7 @@ public final class SourceLocationUtils {
      * @return <code>true</code> if the logical line contains a mnemonic; otherwise, <code>false</code>
      */
     public static boolean hasMnemonic(@Nonnull SourceLocation location) {
-        return getLogicalLineRequired(location).getMnemonicBounds() != null;
+        return getLogicalLineRequired(location).getMnemonicStart() != -1;
     }
 
     // This class isn't meant to be instantiated.
@@ -1,23 +1,44 @@
 package org.reasm.commons.source;
 
+import java.util.List;
+
 import javax.annotation.CheckForNull;
 import javax.annotation.Nonnull;
 
-import org.reasm.SubstringBounds;
 import org.reasm.source.SourceNode;
 
 import ca.fragag.text.CharSequenceReader;
 
 class SourceNodeProducer {
 
+    static boolean endsWithLineSeparator(@Nonnull CharSequence text, int endPosition) {
+        final char lastChar = text.charAt(endPosition - 1);
+        return lastChar == '\n' || lastChar == '\r' && (text.length() <= endPosition || text.charAt(endPosition) != '\n');
+    }
+
     @Nonnull
     private final Parser parser;
     @Nonnull
     private final CharSequenceReader<?> reader;
+    @Nonnull
+    private final LogicalLineParser logicalLineParser;
+    @CheckForNull
+    final ParserInstrumentation instrumentation;
+
+    // The last block directive line returned by next() and the block parser for its block directive.
+    @CheckForNull
+    private BlockDirectiveLine lastBlockDirectiveLine;
+    @CheckForNull
+    private BlockParser lastBlockParser;
+
+    @CheckForNull
+    private Class<? extends SourceNode> lastParsableNodeClass;
 
     SourceNodeProducer(@Nonnull Parser parser, @Nonnull CharSequenceReader<?> reader) {
         this.parser = parser;
         this.reader = reader;
+        this.logicalLineParser = new LogicalLineParser(parser.syntax);
+        this.instrumentation = parser.instrumentation;
     }
 
     @Nonnull
@@ -36,8 +57,34 @@ class SourceNodeProducer {
 
     @Nonnull
     protected SourceNode next() {
-        final LogicalLine logicalLine = this.parser.logicalLineFactory.createLogicalLine(LogicalLineParser.parse(this.reader,
-                this.parser.syntax));
+        final LogicalLine logicalLine = this.parser.logicalLineFactory
+                .createLogicalLine(this.logicalLineParser.parse(this.reader));
+
+        final ParserInstrumentation instrumentation = this.instrumentation;
+        if (instrumentation != null) {
+            instrumentation.logicalLineParsed(logicalLine.getLength());
+        }
+
+        final BlockDirectiveTable blockDirectiveTable = this.parser.blockDirectiveTable;
+        if (blockDirectiveTable != null) {
+            // Look up the mnemonic directly in the source text.
+            final int mnemonicStart = logicalLine.getMnemonicStart();
+            if (mnemonicStart != -1) {
+                final int startOfLogicalLine = this.reader.getCurrentPosition() - logicalLine.getLength();
+                final BlockDirectiveTable.Entry entry = blockDirectiveTable.lookup(this.reader.getCharSequence(),
+                        startOfLogicalLine + mnemonicStart, startOfLogicalLine + logicalLine.getMnemonicEnd());
+                if (entry != null) {
+                    final BlockDirectiveLine blockDirectiveLine = this.parser.blockDirectiveLineFactory.createBlockDirectiveLine(
+                            logicalLine, entry.blockDirective);
+                    this.lastBlockDirectiveLine = blockDirectiveLine;
+                    this.lastBlockParser = entry.blockParser;
+                    return blockDirectiveLine;
+                }
+            }
+
+            return logicalLine;
+        }
+
         final String mnemonic = this.getMnemonic(logicalLine);
         final BlockDirective blockDirective;
         if (mnemonic != null && (blockDirective = this.parser.blockDirectives.get(mnemonic)) != null) {
@@ -47,10 +94,126 @@ class SourceNodeProducer {
         return logicalLine;
     }
 
+    /**
+     * Gets the {@link BlockParser} for the block directive of a node.
+     *
+     * @param sourceNode
+     *            the node
+     * @param blockDirective
+     *            the node's block directive
+     * @return the {@link BlockParser} for the block directive, or <code>null</code> if the block directive doesn't start a block
+     */
+    @CheckForNull
+    final BlockParser getBlockParser(@Nonnull SourceNode sourceNode, @Nonnull BlockDirective blockDirective) {
+        // The block parser was already looked up if the node was produced by the last call to next().
+        if (sourceNode == this.lastBlockDirectiveLine) {
+            return this.lastBlockParser;
+        }
+
+        return this.parser.getBlockParser(blockDirective);
+    }
+
+    /**
+     * Adds the nodes that follow at the top level of the source file to a list of nodes, if they can be recycled without being
+     * parsed again. This method is only called between top-level nodes.
+     * <p>
+     * The default implementation does nothing.
+     *
+     * @param nodes
+     *            the list of top-level nodes to add the recycled nodes to
+     */
+    void recycleRootNodes(@Nonnull RootNodeList nodes) {
+    }
+
+    /**
+     * Finds the top-level nodes of the old source file, starting at the specified index, that can be recycled as is at the current
+     * position of the reader, i.e. the nodes that the parser would produce again at the top level. The search stops at the first
+     * node that must be parsed again.
+     *
+     * @param oldRootBlock
+     *            the root block of the old source file
+     * @param start
+     *            the index of the first node to examine
+     * @param limit
+     *            the index following the last node to examine
+     * @param checkLastChar
+     *            <code>true</code> if the nodes must also end with a line separator in the new source file
+     * @return the index following the last node that can be recycled
+     */
+    final int findRecyclableRootNodes(@Nonnull Block oldRootBlock, int start, int limit, boolean checkLastChar) {
+        final CharSequence text = this.reader.getCharSequence();
+        final List<SourceNode> oldNodes = oldRootBlock.getChildNodes();
+        final int delta = this.reader.getCurrentPosition() - (start == 0 ? 0 : oldRootBlock.getChildNodeEnd(start - 1));
+
+        if (oldRootBlock.isBuiltBy(this.parser)) {
+            // The parser built these nodes, so they can appear at the top level, they don't start a block and each of them ends
+            // with a line separator, unless it's the last node of the old source file. Only the last node needs to be checked.
+            if (checkLastChar && limit > start && !endsWithLineSeparator(text, oldRootBlock.getChildNodeEnd(limit - 1) + delta)) {
+                return limit - 1;
+            }
+
+            return limit;
+        }
+
+        int end = start;
+        while (end < limit) {
+            final SourceNode node = oldNodes.get(end);
+
+            // Don't recycle the node if that type of node cannot appear at the top level, or if it should start a block.
+            if (!this.isParsableNode(node) || this.startsBlock(node)) {
+                break;
+            }
+
+            // Don't recycle the node if it doesn't end with a line separator.
+            if (checkLastChar && !endsWithLineSeparator(text, oldRootBlock.getChildNodeEnd(end) + delta)) {
+                break;
+            }
+
+            end++;
+        }
+
+        return end;
+    }
+
+    /**
+     * Determines whether all the top-level nodes that this producer provides were built by the parser, either because they were
+     * parsed or because they were recycled from a root block that the parser built. If so, the root block built from these nodes
+     * is marked so that its nodes can later be recycled without being examined one at a time.
+     * <p>
+     * The default implementation returns <code>true</code>.
+     *
+     * @return <code>true</code> if the parser built all the top-level nodes, otherwise <code>false</code>
+     */
+    boolean providesOnlyParserBuiltNodes() {
+        return true;
+    }
+
+    /**
+     * Determines whether a node from the old source file is of a type that the parser produces.
+     *
+     * @param node
+     *            the node
+     * @return <code>true</code> if the parser produces nodes of that type, otherwise <code>false</code>
+     */
+    final boolean isParsableNode(@Nonnull SourceNode node) {
+        // Consecutive nodes usually have the same type.
+        final Class<? extends SourceNode> nodeClass = node.getClass();
+        if (nodeClass == this.lastParsableNodeClass) {
+            return true;
+        }
+
+        if (this.parser.outputNodeTypes.contains(nodeClass)) {
+            this.lastParsableNodeClass = nodeClass;
+            return true;
+        }
+
+        return false;
+    }
+
     @CheckForNull
     private final String getMnemonic(@Nonnull LogicalLine logicalLine) {
-        final SubstringBounds mnemonicBounds = logicalLine.getMnemonicBounds();
-        if (mnemonicBounds == null) {
+        final int mnemonicStart = logicalLine.getMnemonicStart();
+        if (mnemonicStart == -1) {
             // There's no mnemonic on this line.
             return null;
         }
@@ -58,8 +221,8 @@ class SourceNodeProducer {
         final int backupPosition = this.reader.getCurrentPosition();
         try {
             // Temporarily move back the reader to the start of the mnemonic and read the mnemonic.
-            this.reader.setCurrentPosition(backupPosition - logicalLine.getLength() + mnemonicBounds.getStart());
-            final String mnemonic = this.reader.readSubstring(mnemonicBounds.getEnd() - mnemonicBounds.getStart());
+            this.reader.setCurrentPosition(backupPosition - logicalLine.getLength() + mnemonicStart);
+            final String mnemonic = this.reader.readSubstring(logicalLine.getMnemonicEnd() - mnemonicStart);
 
             // Strip off "decorations" on the mnemonic.
             return this.parser.undecorateMnemonic(mnemonic);
@@ -69,4 +232,9 @@ class SourceNodeProducer {
         }
     }
 
+    private final boolean startsBlock(@Nonnull SourceNode node) {
+        final BlockDirective blockDirective = BlockDirective.getBlockDirective(node);
+        return blockDirective != null && this.parser.getBlockParser(blockDirective) != null;
+    }
+
 }
@@ -0,0 +1,23 @@
+package org.reasm.commons.source;
+
+import javax.annotation.Nonnull;
+
+import org.reasm.source.SourceNode;
+
+/**
+ * Receives the top-level nodes of a source file, in order, as they are parsed.
+ *
+ * @author Francis Gagné
+ * @see Parser#parse(java.nio.file.Path, java.nio.charset.Charset, int, SourceNodeSink)
+ */
+public interface SourceNodeSink {
+
+    /**
+     * Receives the next top-level node of the source file.
+     *
+     * @param sourceNode
+     *            the node
+     */
+    void accept(@Nonnull SourceNode sourceNode);
+
+}
@@ -13,6 +13,50 @@ import javax.annotation.concurrent.Immutable;
 @Immutable
 public final class Syntax {
 
+    /**
+     * The class flag for code points that represent whitespace.
+     *
+     * @see #isWhitespace(int)
+     */
+    public static final int WHITESPACE = 0x01;
+
+    /**
+     * The class flag for code points that are valid in an identifier.
+     *
+     * @see #isValidIdentifierCodePoint(int)
+     */
+    public static final int IDENTIFIER = 0x02;
+
+    /**
+     * The class flag for code points that are valid as the first code point of an identifier.
+     *
+     * @see #isValidIdentifierInitialCodePoint(int)
+     */
+    public static final int IDENTIFIER_INITIAL = 0x04;
+
+    /**
+     * The class flag for code points that are valid as the first code point of a number.
+     *
+     * @see #isValidNumberInitialCodePoint(int)
+     */
+    public static final int NUMBER_INITIAL = 0x08;
+
+    /**
+     * The class flag for code points that are decimal digits.
+     *
+     * @see #isDigit(int)
+     */
+    public static final int DIGIT = 0x10;
+
+    /**
+     * The class flag for code points that are hexadecimal digits.
+     *
+     * @see #isHexDigit(int)
+     */
+    public static final int HEX_DIGIT = 0x20;
+
+    private static final int NUMBER_OF_BMP_CODE_POINTS = Character.MAX_VALUE + 1;
+
     /**
      * Determines whether the specified code point is a binary digit.
      *
@@ -84,6 +128,11 @@ public final class Syntax {
     @Nonnull
     private final int[] invalidIdentifierInitialCodePoints;
 
+    // The class flags of all the code points in the Basic Multilingual Plane.
+    // Code points in the supplementary planes are classified on demand.
+    @Nonnull
+    private final byte[] bmpCodePointClasses;
+
     /**
      * Initializes a new Syntax.
      *
@@ -106,6 +155,41 @@ public final class Syntax {
 
         Arrays.sort(this.invalidIdentifierCodePoints);
         Arrays.sort(this.invalidIdentifierInitialCodePoints);
+
+        this.bmpCodePointClasses = new byte[NUMBER_OF_BMP_CODE_POINTS];
+        for (int codePoint = 0; codePoint < NUMBER_OF_BMP_CODE_POINTS; codePoint++) {
+            this.bmpCodePointClasses[codePoint] = (byte) this.computeCodePointClasses(codePoint);
+        }
+    }
+
+    /**
+     * Gets the class flags of the specified code point.
+     *
+     * @param codePoint
+     *            the code point to classify
+     * @return a combination of {@link #WHITESPACE}, {@link #IDENTIFIER}, {@link #IDENTIFIER_INITIAL}, {@link #NUMBER_INITIAL},
+     *         {@link #DIGIT} and {@link #HEX_DIGIT}
+     */
+    public final int getCodePointClasses(int codePoint) {
+        if (codePoint >= 0 && codePoint < NUMBER_OF_BMP_CODE_POINTS) {
+            return this.bmpCodePointClasses[codePoint];
+        }
+
+        return this.computeCodePointClasses(codePoint);
+    }
+
+    /**
+     * Determines whether the specified code point belongs to at least one of the specified classes.
+     *
+     * @param codePoint
+     *            the code point to check
+     * @param classes
+     *            a combination of {@link #WHITESPACE}, {@link #IDENTIFIER}, {@link #IDENTIFIER_INITIAL}, {@link #NUMBER_INITIAL},
+     *            {@link #DIGIT} and {@link #HEX_DIGIT}
+     * @return <code>true</code> if the code point belongs to at least one of the specified classes; otherwise, <code>false</code>
+     */
+    public final boolean isInClass(int codePoint, int classes) {
+        return (this.getCodePointClasses(codePoint) & classes) != 0;
     }
 
     /**
@@ -116,16 +200,7 @@ public final class Syntax {
      * @return <code>true</code> if the code point is valid in an identifier; otherwise, <code>false</code>
      */
     public final boolean isValidIdentifierCodePoint(int codePoint) {
-        switch (codePoint) {
-        case '(': // grouping left parenthesis; start of function call argument list
-        case ')': // grouping right parenthesis; end of function call argument list
-        case ',': // operand separator, argument separator
-        case ';': // start of comment
-            return false;
-        }
-
-        return !isWhitespace(codePoint) && Arrays.binarySearch(this.invalidIdentifierCodePoints, codePoint) < 0
-                && Character.isValidCodePoint(codePoint);
+        return this.isInClass(codePoint, IDENTIFIER);
     }
 
     /**
@@ -136,8 +211,90 @@ public final class Syntax {
      * @return <code>true</code> if the code point is valid as the first code point of an identifier; otherwise, <code>false</code>
      */
     public final boolean isValidIdentifierInitialCodePoint(int codePoint) {
-        return !isValidNumberInitialCodePoint(codePoint)
-                && Arrays.binarySearch(this.invalidIdentifierInitialCodePoints, codePoint) < 0
-                && this.isValidIdentifierCodePoint(codePoint);
+        return this.isInClass(codePoint, IDENTIFIER_INITIAL);
+    }
+
+    /**
+     * Scans an identifier in a character sequence. This method does not check that the code point at <code>start</code> is valid as
+     * the first code point of an identifier.
+     *
+     * @param text
+     *            the character sequence to scan
+     * @param start
+     *            the offset in <code>text</code> at which to start scanning
+     * @return the offset in <code>text</code> of the first code point that is not valid in an identifier, or the length of
+     *         <code>text</code> if all the code points from <code>start</code> are valid in an identifier
+     */
+    public final int scanIdentifier(@Nonnull CharSequence text, int start) {
+        if (text == null) {
+            throw new NullPointerException("text");
+        }
+
+        final byte[] bmpCodePointClasses = this.bmpCodePointClasses;
+        final int length = text.length();
+        int i = start;
+        while (i < length) {
+            final char ch = text.charAt(i);
+            if (!Character.isHighSurrogate(ch)) {
+                if ((bmpCodePointClasses[ch] & IDENTIFIER) == 0) {
+                    break;
+                }
+
+                i++;
+            } else {
+                final int codePoint = Character.codePointAt(text, i);
+                if (!this.isInClass(codePoint, IDENTIFIER)) {
+                    break;
+                }
+
+                i += Character.charCount(codePoint);
+            }
+        }
+
+        return i;
+    }
+
+    private int computeCodePointClasses(int codePoint) {
+        int classes = 0;
+
+        if (isWhitespace(codePoint)) {
+            classes |= WHITESPACE;
+        }
+
+        if (this.computeIsValidIdentifierCodePoint(codePoint)) {
+            classes |= IDENTIFIER;
+
+            if (!isValidNumberInitialCodePoint(codePoint)
+                    && Arrays.binarySearch(this.invalidIdentifierInitialCodePoints, codePoint) < 0) {
+                classes |= IDENTIFIER_INITIAL;
+            }
+        }
+
+        if (isValidNumberInitialCodePoint(codePoint)) {
+            classes |= NUMBER_INITIAL;
+        }
+
+        if (isDigit(codePoint)) {
+            classes |= DIGIT;
+        }
+
+        if (isHexDigit(codePoint)) {
+            classes |= HEX_DIGIT;
+        }
+
+        return classes;
+    }
+
+    private boolean computeIsValidIdentifierCodePoint(int codePoint) {
+        switch (codePoint) {
+        case '(': // grouping left parenthesis; start of function call argument list
+        case ')': // grouping right parenthesis; end of function call argument list
+        case ',': // operand separator, argument separator
+        case ';': // start of comment
+            return false;
+        }
+
+        return !isWhitespace(codePoint) && Arrays.binarySearch(this.invalidIdentifierCodePoints, codePoint) < 0
+                && Character.isValidCodePoint(codePoint);
     }
 }
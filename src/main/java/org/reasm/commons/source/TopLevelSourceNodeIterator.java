@@ -0,0 +1,56 @@
+package org.reasm.commons.source;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+import javax.annotation.Nonnull;
+
+import org.reasm.source.SourceNode;
+
+/**
+ * An {@link Iterator} that parses the top-level nodes of a source file one at a time. A block is parsed completely before it is
+ * returned.
+ *
+ * @author Francis Gagné
+ * @see Parser#iterate(ca.fragag.text.Document)
+ */
+final class TopLevelSourceNodeIterator implements Iterator<SourceNode> {
+
+    @Nonnull
+    private final SourceNodeProducer sourceNodeProducer;
+    // Receives the node built by Parser.processBlockBodyLine().
+    @Nonnull
+    private final ArrayList<SourceNode> nodes = new ArrayList<>(1);
+
+    TopLevelSourceNodeIterator(@Nonnull SourceNodeProducer sourceNodeProducer) {
+        this.sourceNodeProducer = sourceNodeProducer;
+    }
+
+    @Override
+    public final boolean hasNext() {
+        return !this.sourceNodeProducer.atEnd();
+    }
+
+    @Override
+    public final SourceNode next() {
+        if (!this.hasNext()) {
+            throw new NoSuchElementException();
+        }
+
+        final SourceNodeProducer sourceNodeProducer = this.sourceNodeProducer;
+        final SourceNode sourceNode = sourceNodeProducer.next();
+        sourceNodeProducer.getParser().processBlockBodyLine(sourceNodeProducer, this.nodes, sourceNode,
+                BlockDirective.getBlockDirective(sourceNode));
+
+        final SourceNode node = this.nodes.get(0);
+        this.nodes.clear();
+        return node;
+    }
+
+    @Override
+    public final void remove() {
+        throw new UnsupportedOperationException();
+    }
+
+}
@@ -0,0 +1,252 @@
+package org.reasm.commons.source;
+
+import java.nio.charset.StandardCharsets;
+
+import javax.annotation.Nonnull;
+
+/**
+ * A {@link CharSequence} that presents UTF-8 encoded bytes as UTF-16 code units, without decoding them up front.
+ * <p>
+ * Indices in a Utf8CharSequence are expressed in UTF-16 code units, so that positions and lengths computed on it match those of
+ * the decoded text. If the bytes are all ASCII, each code unit is read directly from the corresponding byte. Otherwise, the
+ * sequence keeps a cursor on the last code point that was read, so that sequential access costs a constant amount of work per
+ * code unit, and a checkpoint every 256 code units for random access.
+ * <p>
+ * Only ASCII text avoids a full pass over the bytes before parsing. The constructor always scans the bytes for a non-ASCII byte.
+ * If it finds one, it makes a second pass over the whole text. That pass validates the UTF-8 encoding and computes the
+ * checkpoints and the length in code units, which {@link #length()} must know up front. Non-ASCII text is therefore still read
+ * twice, but unlike decoding, this doesn't allocate a copy of the text.
+ * <p>
+ * Because of the cursor, a Utf8CharSequence must not be used by more than one thread at a time.
+ *
+ * @author Francis Gagné
+ */
+final class Utf8CharSequence implements CharSequence {
+
+    private static final int CHECKPOINT_SHIFT = 8;
+    private static final int CHECKPOINT_INTERVAL = 1 << CHECKPOINT_SHIFT;
+
+    @Nonnull
+    private static IllegalArgumentException malformedInput(int byteOffset) {
+        return new IllegalArgumentException("Malformed UTF-8 input at byte offset " + byteOffset);
+    }
+
+    private static boolean isContinuationByte(int b) {
+        return (b & 0xC0) == 0x80;
+    }
+
+    @Nonnull
+    private final byte[] bytes;
+    private final int start;
+    private final int end;
+    private final int length;
+    private final boolean ascii;
+
+    // For each checkpoint k, the index of the code unit and the offset of the byte at which the code point that contains the code
+    // unit at index k * CHECKPOINT_INTERVAL starts. These arrays are null if the bytes are all ASCII.
+    private final int[] checkpointCodeUnits;
+    private final int[] checkpointBytes;
+
+    // The index of the code unit and the offset of the byte at which the last code point that was read starts.
+    private int cursorCodeUnit;
+    private int cursorByte;
+
+    /**
+     * Initializes a new Utf8CharSequence.
+     *
+     * @param bytes
+     *            the array that contains the UTF-8 encoded text. The array is not copied, so it must not be modified while the
+     *            Utf8CharSequence is in use.
+     * @param offset
+     *            the offset of the first byte of the text in <code>bytes</code>
+     * @param byteLength
+     *            the number of bytes in the text. If the text contains a non-ASCII byte, all the bytes are validated and indexed
+     *            here, in a pass proportional to this length.
+     * @throws IllegalArgumentException
+     *             the bytes are not valid UTF-8
+     */
+    Utf8CharSequence(@Nonnull byte[] bytes, int offset, int byteLength) {
+        if (bytes == null) {
+            throw new NullPointerException("bytes");
+        }
+
+        if (offset < 0 || byteLength < 0 || offset > bytes.length - byteLength) {
+            throw new IndexOutOfBoundsException();
+        }
+
+        this.bytes = bytes;
+        this.start = offset;
+        this.end = offset + byteLength;
+
+        // Fast path: look for a non-ASCII byte.
+        int i = offset;
+        while (i < this.end && bytes[i] >= 0) {
+            i++;
+        }
+
+        if (i == this.end) {
+            this.length = byteLength;
+            this.ascii = true;
+            this.checkpointCodeUnits = null;
+            this.checkpointBytes = null;
+            return;
+        }
+
+        // The text contains at least one non-ASCII code point: validate the text and compute the checkpoints. There cannot be more
+        // code units than bytes.
+        final int maxCheckpoints = (byteLength >> CHECKPOINT_SHIFT) + 1;
+        final int[] checkpointCodeUnits = new int[maxCheckpoints];
+        final int[] checkpointBytes = new int[maxCheckpoints];
+        int nextCheckpoint = 0;
+        int codeUnit = 0;
+        i = offset;
+        while (i < this.end) {
+            final int lead = bytes[i] & 0xFF;
+            final int byteCount;
+            final int codeUnitCount;
+            if (lead < 0x80) {
+                byteCount = 1;
+                codeUnitCount = 1;
+            } else if (lead < 0xC2) {
+                throw malformedInput(i - offset);
+            } else if (lead < 0xE0) {
+                byteCount = 2;
+                codeUnitCount = 1;
+            } else if (lead < 0xF0) {
+                byteCount = 3;
+                codeUnitCount = 1;
+            } else if (lead < 0xF5) {
+                byteCount = 4;
+                codeUnitCount = 2;
+            } else {
+                throw malformedInput(i - offset);
+            }
+
+            if (i + byteCount > this.end) {
+                throw malformedInput(i - offset);
+            }
+
+            for (int j = 1; j < byteCount; j++) {
+                if (!isContinuationByte(bytes[i + j])) {
+                    throw malformedInput(i - offset);
+                }
+            }
+
+            if (byteCount > 2) {
+                // Reject overlong encodings, surrogate code points and code points beyond U+10FFFF.
+                final int second = bytes[i + 1] & 0xFF;
+                if (lead == 0xE0 && second < 0xA0 || lead == 0xED && second >= 0xA0 || lead == 0xF0 && second < 0x90
+                        || lead == 0xF4 && second >= 0x90) {
+                    throw malformedInput(i - offset);
+                }
+            }
+
+            while (nextCheckpoint << CHECKPOINT_SHIFT < codeUnit + codeUnitCount) {
+                checkpointCodeUnits[nextCheckpoint] = codeUnit;
+                checkpointBytes[nextCheckpoint] = i;
+                nextCheckpoint++;
+            }
+
+            i += byteCount;
+            codeUnit += codeUnitCount;
+        }
+
+        this.length = codeUnit;
+        this.ascii = false;
+        this.checkpointCodeUnits = checkpointCodeUnits;
+        this.checkpointBytes = checkpointBytes;
+        this.cursorCodeUnit = 0;
+        this.cursorByte = offset;
+    }
+
+    @Override
+    public final char charAt(int index) {
+        if (index < 0 || index >= this.length) {
+            throw new IndexOutOfBoundsException(Integer.toString(index));
+        }
+
+        final byte[] bytes = this.bytes;
+        if (this.ascii) {
+            return (char) bytes[this.start + index];
+        }
+
+        int codeUnit = this.cursorCodeUnit;
+        int i = this.cursorByte;
+        if (index < codeUnit || index - codeUnit >= CHECKPOINT_INTERVAL) {
+            final int checkpoint = index >> CHECKPOINT_SHIFT;
+            codeUnit = this.checkpointCodeUnits[checkpoint];
+            i = this.checkpointBytes[checkpoint];
+        }
+
+        for (;;) {
+            final int lead = bytes[i] & 0xFF;
+            final int codePoint;
+            final int byteCount;
+            if (lead < 0x80) {
+                codePoint = lead;
+                byteCount = 1;
+            } else if (lead < 0xE0) {
+                codePoint = (lead & 0x1F) << 6 | bytes[i + 1] & 0x3F;
+                byteCount = 2;
+            } else if (lead < 0xF0) {
+                codePoint = (lead & 0x0F) << 12 | (bytes[i + 1] & 0x3F) << 6 | bytes[i + 2] & 0x3F;
+                byteCount = 3;
+            } else {
+                codePoint = (lead & 0x07) << 18 | (bytes[i + 1] & 0x3F) << 12 | (bytes[i + 2] & 0x3F) << 6 | bytes[i + 3] & 0x3F;
+                byteCount = 4;
+            }
+
+            if (codePoint < Character.MIN_SUPPLEMENTARY_CODE_POINT) {
+                if (codeUnit == index) {
+                    this.cursorCodeUnit = codeUnit;
+                    this.cursorByte = i;
+                    return (char) codePoint;
+                }
+
+                codeUnit++;
+            } else {
+                if (codeUnit == index || codeUnit + 1 == index) {
+                    this.cursorCodeUnit = codeUnit;
+                    this.cursorByte = i;
+                    return codeUnit == index ? Character.highSurrogate(codePoint) : Character.lowSurrogate(codePoint);
+                }
+
+                codeUnit += 2;
+            }
+
+            i += byteCount;
+        }
+    }
+
+    @Override
+    public final int length() {
+        return this.length;
+    }
+
+    @Nonnull
+    @Override
+    public final CharSequence subSequence(int start, int end) {
+        if (start < 0 || end > this.length || start > end) {
+            throw new IndexOutOfBoundsException();
+        }
+
+        if (this.ascii) {
+            return new String(this.bytes, this.start + start, end - start, StandardCharsets.US_ASCII);
+        }
+
+        final StringBuilder sb = new StringBuilder(end - start);
+        for (int i = start; i < end; i++) {
+            sb.append(this.charAt(i));
+        }
+
+        return sb.toString();
+    }
+
+    @Nonnull
+    @Override
+    public final String toString() {
+        return new String(this.bytes, this.start, this.end - this.start, this.ascii ? StandardCharsets.US_ASCII
+                : StandardCharsets.UTF_8);
+    }
+
+}
@@ -0,0 +1,356 @@
+package org.reasm.commons.source;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.CharacterCodingException;
+import java.nio.charset.Charset;
+import java.nio.charset.CharsetDecoder;
+import java.nio.charset.CoderResult;
+import java.nio.charset.CodingErrorAction;
+import java.util.Arrays;
+
+import javax.annotation.Nonnull;
+
+/**
+ * The text of a file that is read and decoded in windows of a fixed number of bytes. Only the decoded characters of the two most
+ * recently used windows are kept on the heap, along with the byte offset and the character offset of each window that was reached
+ * so far.
+ * <p>
+ * The windows are found as the text is read: a window is decoded for the first time when a position beyond the windows that were
+ * found so far is requested. The bytes of each window are read into a single reusable buffer, so no file mapping is created.
+ * <p>
+ * The charset must be stateless, i.e. decoding must not depend on the bytes that precede a character, so that each window can be
+ * decoded independently.
+ *
+ * @author Francis Gagné
+ */
+final class WindowedFileText {
+
+    /**
+     * A view of the text of a {@link WindowedFileText} that starts at some position and ends at the end of a window. The length of
+     * the view is limited to {@link Integer#MAX_VALUE}.
+     *
+     * @author Francis Gagné
+     */
+    final class View implements CharSequence {
+
+        private final long start;
+        private final int length;
+        private final int firstWindowLength;
+
+        View(long start, int length, int firstWindowLength) {
+            this.start = start;
+            this.length = length;
+            this.firstWindowLength = firstWindowLength;
+        }
+
+        @Override
+        public final char charAt(int index) {
+            if (index < 0 || index >= this.length) {
+                throw new IndexOutOfBoundsException(Integer.toString(index));
+            }
+
+            try {
+                return WindowedFileText.this.charAt(this.start + index);
+            } catch (IOException e) {
+                throw new IllegalStateException("Unable to read the file", e);
+            }
+        }
+
+        @Override
+        public final int length() {
+            return this.length;
+        }
+
+        @Override
+        public final CharSequence subSequence(int start, int end) {
+            if (start < 0 || end > this.length || start > end) {
+                throw new IndexOutOfBoundsException();
+            }
+
+            final char[] chars = new char[end - start];
+            for (int i = 0; i < chars.length; i++) {
+                chars[i] = this.charAt(start + i);
+            }
+
+            return new String(chars);
+        }
+
+        @Override
+        public final String toString() {
+            return this.subSequence(0, this.length).toString();
+        }
+
+        /**
+         * Gets the number of characters of this view that are in the window that contains the start of this view.
+         *
+         * @return the number of characters in the first window
+         */
+        final int getFirstWindowLength() {
+            return this.firstWindowLength;
+        }
+
+        /**
+         * Determines whether this view ends before the end of the text.
+         *
+         * @return <code>true</code> if the view is truncated, otherwise <code>false</code>
+         */
+        final boolean isTruncated() {
+            return this.start + this.length < WindowedFileText.this.windowCharStarts[WindowedFileText.this.numberOfWindows]
+                    || !WindowedFileText.this.complete;
+        }
+
+    }
+
+    @Nonnull
+    private final FileChannel channel;
+    @Nonnull
+    private final CharsetDecoder decoder;
+    @Nonnull
+    private final ByteBuffer byteBuffer;
+    @Nonnull
+    private final CharBuffer windowBuffer;
+    private final long size;
+
+    // The byte offset and the character offset of the start of each window that was found so far, followed by the byte offset and
+    // the character offset of the end of the last window that was found.
+    @Nonnull
+    private long[] windowByteStarts = new long[16];
+    @Nonnull
+    private long[] windowCharStarts = new long[16];
+    private int numberOfWindows;
+
+    // True when the windows that were found so far cover the whole file.
+    private boolean complete;
+
+    // The decoded characters of the most recently used window and of the window that was used before it.
+    private int currentWindow = -1;
+    @Nonnull
+    private char[] currentChars;
+    private int previousWindow = -1;
+    @Nonnull
+    private char[] previousChars;
+
+    /**
+     * Initializes a new WindowedFileText. The file is not read until a character is requested.
+     *
+     * @param channel
+     *            a channel on the file to read
+     * @param charset
+     *            the charset of the file
+     * @param windowSize
+     *            the maximum number of bytes in a window
+     * @throws IOException
+     *             an I/O error occurred
+     */
+    WindowedFileText(@Nonnull FileChannel channel, @Nonnull Charset charset, int windowSize) throws IOException {
+        this.channel = channel;
+        this.decoder = charset.newDecoder().onMalformedInput(CodingErrorAction.REPORT)
+                .onUnmappableCharacter(CodingErrorAction.REPORT);
+        this.byteBuffer = ByteBuffer.allocate(windowSize);
+        this.windowBuffer = CharBuffer.allocate((int) Math.ceil(windowSize * (double) this.decoder.maxCharsPerByte()));
+        this.currentChars = new char[this.windowBuffer.capacity()];
+        this.previousChars = new char[this.windowBuffer.capacity()];
+        this.size = channel.size();
+        this.complete = this.size == 0;
+    }
+
+    /**
+     * Gets the character at the specified position in the text.
+     *
+     * @param index
+     *            the position of the character
+     * @return the character
+     * @throws IOException
+     *             an I/O error occurred, or the file is not valid in the charset
+     */
+    final char charAt(long index) throws IOException {
+        if (index < 0 || !this.reach(index + 1)) {
+            throw new IndexOutOfBoundsException(Long.toString(index));
+        }
+
+        int window = this.currentWindow;
+        if (window == -1 || index < this.windowCharStarts[window] || index >= this.windowCharStarts[window + 1]) {
+            window = this.findWindow(index);
+            this.loadWindow(window);
+        }
+
+        return this.currentChars[(int) (index - this.windowCharStarts[window])];
+    }
+
+    /**
+     * Determines whether the specified position is at or after the end of the text.
+     *
+     * @param position
+     *            a position in the text
+     * @return <code>true</code> if there are no characters at or after <code>position</code>; otherwise, <code>false</code>
+     * @throws IOException
+     *             an I/O error occurred, or the file is not valid in the charset
+     */
+    final boolean isAtEnd(long position) throws IOException {
+        return !this.reach(position + 1);
+    }
+
+    /**
+     * Gets the length of the text. This reads the rest of the file if the end of the text was not reached yet.
+     *
+     * @return the number of characters in the text
+     * @throws IOException
+     *             an I/O error occurred, or the file is not valid in the charset
+     */
+    final long length() throws IOException {
+        this.reach(Long.MAX_VALUE);
+        return this.windowCharStarts[this.numberOfWindows];
+    }
+
+    /**
+     * Gets a view of the text that starts at the specified position and that ends at the end of a window.
+     *
+     * @param start
+     *            the position in the text at which the view starts
+     * @param numberOfWindows
+     *            the number of windows that the view covers, counting the window that contains <code>start</code>
+     * @return the view
+     * @throws IOException
+     *             an I/O error occurred, or the file is not valid in the charset
+     */
+    @Nonnull
+    final View view(long start, int numberOfWindows) throws IOException {
+        if (numberOfWindows < 1) {
+            throw new IllegalArgumentException("numberOfWindows < 1");
+        }
+
+        if (start < 0 || this.isAtEnd(start)) {
+            throw new IndexOutOfBoundsException(Long.toString(start));
+        }
+
+        final int firstWindow = this.findWindow(start);
+        final int firstWindowLength = (int) (this.windowCharStarts[firstWindow + 1] - start);
+
+        // Find the windows that the view covers, reading them if necessary.
+        long end = this.windowCharStarts[firstWindow + 1];
+        for (int i = 1; i < numberOfWindows && end - start < Integer.MAX_VALUE && this.reach(end + 1); i++) {
+            end = this.windowCharStarts[firstWindow + i + 1];
+        }
+
+        return new View(start, (int) Math.min(end - start, Integer.MAX_VALUE), firstWindowLength);
+    }
+
+    private final void decode(@Nonnull ByteBuffer bytes, boolean endOfInput) throws CharacterCodingException {
+        this.decoder.reset();
+        this.windowBuffer.clear();
+        CoderResult result = this.decoder.decode(bytes, this.windowBuffer, endOfInput);
+        if (result.isError()) {
+            result.throwException();
+        }
+
+        if (endOfInput) {
+            result = this.decoder.flush(this.windowBuffer);
+            if (result.isError()) {
+                result.throwException();
+            }
+        }
+    }
+
+    private final int findWindow(long index) {
+        int low = 0;
+        int high = this.numberOfWindows - 1;
+        while (low < high) {
+            final int mid = low + high + 1 >>> 1;
+            if (this.windowCharStarts[mid] <= index) {
+                low = mid;
+            } else {
+                high = mid - 1;
+            }
+        }
+
+        return low;
+    }
+
+    private final void findNextWindow() throws IOException {
+        // Decode as many bytes as fit in a window. The window ends after the last complete character; the bytes of a character that
+        // straddles the end of the buffer are read again at the start of the next window.
+        final int window = this.numberOfWindows;
+        final long byteStart = this.windowByteStarts[window];
+        final ByteBuffer bytes = this.read(byteStart, (int) Math.min(this.byteBuffer.capacity(), this.size - byteStart));
+        final boolean endOfInput = byteStart + bytes.limit() == this.size;
+        this.decode(bytes, endOfInput);
+        if (bytes.position() == 0) {
+            throw new CharacterCodingException();
+        }
+
+        if (window + 1 == this.windowByteStarts.length) {
+            this.windowByteStarts = Arrays.copyOf(this.windowByteStarts, this.windowByteStarts.length * 2);
+            this.windowCharStarts = Arrays.copyOf(this.windowCharStarts, this.windowCharStarts.length * 2);
+        }
+
+        this.windowByteStarts[window + 1] = byteStart + bytes.position();
+        this.windowCharStarts[window + 1] = this.windowCharStarts[window] + this.windowBuffer.position();
+        this.numberOfWindows = window + 1;
+        this.complete = this.windowByteStarts[window + 1] == this.size;
+
+        // The characters were just decoded, so keep them: the window is usually read right after it is found.
+        this.useDecodedWindow(window);
+    }
+
+    private final void loadWindow(int window) throws IOException {
+        if (this.previousWindow == window) {
+            // The window was decoded recently: swapping the buffers is enough.
+            final char[] chars = this.previousChars;
+            this.previousChars = this.currentChars;
+            this.previousWindow = this.currentWindow;
+            this.currentChars = chars;
+            this.currentWindow = window;
+            return;
+        }
+
+        // Each window starts and ends on a character boundary, so it can be decoded on its own.
+        final long byteStart = this.windowByteStarts[window];
+        this.decode(this.read(byteStart, (int) (this.windowByteStarts[window + 1] - byteStart)), true);
+        this.useDecodedWindow(window);
+    }
+
+    private final boolean reach(long end) throws IOException {
+        // Find windows until the windows that were found cover the specified number of characters or the whole file.
+        while (this.windowCharStarts[this.numberOfWindows] < end) {
+            if (this.complete) {
+                return false;
+            }
+
+            this.findNextWindow();
+        }
+
+        return true;
+    }
+
+    @Nonnull
+    private final ByteBuffer read(long position, int length) throws IOException {
+        final ByteBuffer bytes = this.byteBuffer;
+        bytes.clear();
+        bytes.limit(length);
+        while (bytes.hasRemaining()) {
+            if (this.channel.read(bytes, position + bytes.position()) == -1) {
+                throw new IOException("The file was truncated while it was being read");
+            }
+        }
+
+        bytes.flip();
+        return bytes;
+    }
+
+    private final void useDecodedWindow(int window) {
+        // Move the window that was current to the previous window's buffer, and copy the characters in the windowBuffer to the
+        // current window's buffer.
+        final char[] chars = this.previousChars;
+        this.previousChars = this.currentChars;
+        this.previousWindow = this.currentWindow;
+        this.currentChars = chars;
+        this.currentWindow = window;
+
+        this.windowBuffer.flip();
+        this.windowBuffer.get(chars, 0, this.windowBuffer.remaining());
+    }
+
+}
@@ -0,0 +1,249 @@
+package org.reasm.commons.util;
+
+import javax.annotation.Nonnull;
+
+import org.reasm.commons.source.Syntax;
+
+/**
+ * An implementation of {@link ScanningParserReader} reading from a range of an array of characters.
+ * <p>
+ * Positions are indices in the array, so the position of a reader that reads a range that doesn't start at the beginning of the
+ * array is never less than the start of the range. The reader caches the code point at its current position, so that
+ * {@link #getCurrentCodePoint()} doesn't read from the array. The array must not be modified while it is being read.
+ *
+ * @author Francis Gagné
+ */
+public final class CharArrayParserReader implements ScanningParserReader<CharArrayParserReader> {
+
+    @Nonnull
+    private final char[] chars;
+    private final int start;
+    private final int end;
+    private int position;
+    private int currentCodePoint;
+
+    /**
+     * Initializes a new CharArrayParserReader that reads a whole array of characters.
+     *
+     * @param chars
+     *            the array of characters to read from
+     */
+    public CharArrayParserReader(@Nonnull char[] chars) {
+        this(chars, 0, chars.length);
+    }
+
+    /**
+     * Initializes a new CharArrayParserReader that reads a range of an array of characters.
+     *
+     * @param chars
+     *            the array of characters to read from
+     * @param start
+     *            the start (inclusive) of the range, which is the reader's initial position
+     * @param end
+     *            the end (exclusive) of the range
+     */
+    public CharArrayParserReader(@Nonnull char[] chars, int start, int end) {
+        this(chars, start, end, start);
+    }
+
+    /**
+     * Initializes a new CharArrayParserReader that reads a range of an array of characters.
+     *
+     * @param chars
+     *            the array of characters to read from
+     * @param start
+     *            the start (inclusive) of the range
+     * @param end
+     *            the end (exclusive) of the range
+     * @param position
+     *            the reader's initial position
+     */
+    public CharArrayParserReader(@Nonnull char[] chars, int start, int end, int position) {
+        if (chars == null) {
+            throw new NullPointerException("chars");
+        }
+
+        if (start < 0) {
+            throw new IllegalArgumentException("start < 0");
+        }
+
+        if (end < start) {
+            throw new IllegalArgumentException("end < start");
+        }
+
+        if (end > chars.length) {
+            throw new IllegalArgumentException("end > chars.length");
+        }
+
+        if (position < start) {
+            throw new IllegalArgumentException("position < start");
+        }
+
+        if (position > end) {
+            throw new IllegalArgumentException("position > end");
+        }
+
+        this.chars = chars;
+        this.start = start;
+        this.end = end;
+        this.setPosition(position);
+    }
+
+    @Override
+    public final void advance() {
+        if (this.currentCodePoint != -1) {
+            this.setPosition(this.position + Character.charCount(this.currentCodePoint));
+        }
+    }
+
+    @Override
+    public final void copyFrom(@Nonnull CharArrayParserReader other) {
+        if (other == null) {
+            throw new NullPointerException("other");
+        }
+
+        if (this.chars != other.chars || this.start != other.start || this.end != other.end) {
+            throw new IllegalArgumentException("The other reader's range is different from this reader's range.");
+        }
+
+        this.position = other.position;
+        this.currentCodePoint = other.currentCodePoint;
+    }
+
+    @Nonnull
+    @Override
+    public final CharArrayParserReader duplicate() {
+        return new CharArrayParserReader(this.chars, this.start, this.end, this.position);
+    }
+
+    /**
+     * Gets the array of characters that this reader reads from.
+     *
+     * @return the array of characters
+     */
+    @Nonnull
+    public final char[] getChars() {
+        return this.chars;
+    }
+
+    @Override
+    public final int getCurrentCodePoint() {
+        return this.currentCodePoint;
+    }
+
+    /**
+     * Gets the end (exclusive) of the range that this reader reads.
+     *
+     * @return the end of the range
+     */
+    public final int getEnd() {
+        return this.end;
+    }
+
+    @Override
+    public final int getPosition() {
+        return this.position;
+    }
+
+    /**
+     * Gets the start (inclusive) of the range that this reader reads.
+     *
+     * @return the start of the range
+     */
+    public final int getStart() {
+        return this.start;
+    }
+
+    @Override
+    public final int indexOf(int codePoint) {
+        final char[] chars = this.chars;
+        final int end = this.end;
+        if (codePoint >= 0 && codePoint < Character.MIN_SUPPLEMENTARY_CODE_POINT) {
+            for (int i = this.position; i < end; i++) {
+                if (chars[i] == codePoint) {
+                    return i;
+                }
+            }
+        } else if (Character.isValidCodePoint(codePoint)) {
+            final char high = Character.highSurrogate(codePoint);
+            final char low = Character.lowSurrogate(codePoint);
+            for (int i = this.position; i < end - 1; i++) {
+                if (chars[i] == high && chars[i + 1] == low) {
+                    return i;
+                }
+            }
+        }
+
+        return -1;
+    }
+
+    @Override
+    public final int mark() {
+        return this.position;
+    }
+
+    @Override
+    public final boolean regionMatches(boolean ignoreCase, @Nonnull CharSequence other) {
+        if (other == null) {
+            throw new NullPointerException("other");
+        }
+
+        final char[] chars = this.chars;
+        final int position = this.position;
+        final int length = other.length();
+        if (length > this.end - position) {
+            return false;
+        }
+
+        for (int i = 0; i < length; i++) {
+            if (!ParserReaders.charsEqual(chars[position + i], other.charAt(i), ignoreCase)) {
+                return false;
+            }
+        }
+
+        return true;
+    }
+
+    @Override
+    public final void reset(int mark) {
+        if (mark < this.start) {
+            throw new IllegalArgumentException("mark < start");
+        }
+
+        if (mark > this.end) {
+            throw new IllegalArgumentException("mark > end");
+        }
+
+        this.setPosition(mark);
+    }
+
+    @Override
+    public final int skipWhile(@Nonnull Syntax syntax, int classes) {
+        if (syntax == null) {
+            throw new NullPointerException("syntax");
+        }
+
+        final char[] chars = this.chars;
+        final int end = this.end;
+        int position = this.position;
+        int count = 0;
+        while (position < end) {
+            final int codePoint = Character.codePointAt(chars, position, end);
+            if (!syntax.isInClass(codePoint, classes)) {
+                break;
+            }
+
+            position += Character.charCount(codePoint);
+            count++;
+        }
+
+        this.setPosition(position);
+        return count;
+    }
+
+    private final void setPosition(int position) {
+        this.position = position;
+        this.currentCodePoint = position < this.end ? Character.codePointAt(this.chars, position, this.end) : -1;
+    }
+
+}
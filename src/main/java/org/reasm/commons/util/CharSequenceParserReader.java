@@ -2,12 +2,18 @@ package org.reasm.commons.util;
 
 import javax.annotation.Nonnull;
 
+import org.reasm.commons.source.Syntax;
+
 /**
- * An implementation of {@link ParserReader} reading from a {@link CharSequence}.
+ * An implementation of {@link ScanningParserReader} reading from a {@link CharSequence}.
+ * <p>
+ * A CharSequenceParserReader reads the {@link CharSequence} through its interface on every call, so that it sees the changes made
+ * to a mutable {@link CharSequence}, such as a {@link StringBuilder}. To read from a {@link String} or from an array of
+ * characters, use {@link StringParserReader} or {@link CharArrayParserReader}, which are faster.
  *
  * @author Francis Gagné
  */
-public final class CharSequenceParserReader implements ParserReader<CharSequenceParserReader> {
+public final class CharSequenceParserReader implements ScanningParserReader<CharSequenceParserReader> {
 
     @Nonnull
     private final CharSequence charSequence;
@@ -97,13 +103,78 @@ public final class CharSequenceParserReader implements ParserReader<CharSequence
         return Character.codePointAt(this.charSequence, this.position);
     }
 
-    /**
-     * Gets this reader's current position.
-     *
-     * @return the reader's position
-     */
+    @Override
     public final int getPosition() {
         return this.position;
     }
 
+    @Override
+    public final int indexOf(int codePoint) {
+        return ParserReaders.indexOf(this.charSequence, this.position, codePoint);
+    }
+
+    @Override
+    public final int mark() {
+        return this.position;
+    }
+
+    @Override
+    public final boolean regionMatches(boolean ignoreCase, @Nonnull CharSequence other) {
+        if (other == null) {
+            throw new NullPointerException("other");
+        }
+
+        final CharSequence charSequence = this.charSequence;
+        final int position = this.position;
+        final int length = other.length();
+        if (length > charSequence.length() - position) {
+            return false;
+        }
+
+        for (int i = 0; i < length; i++) {
+            if (!ParserReaders.charsEqual(charSequence.charAt(position + i), other.charAt(i), ignoreCase)) {
+                return false;
+            }
+        }
+
+        return true;
+    }
+
+    @Override
+    public final void reset(int mark) {
+        if (mark < 0) {
+            throw new IllegalArgumentException("mark < 0");
+        }
+
+        if (mark > this.charSequence.length()) {
+            throw new IllegalArgumentException("mark > charSequence.length()");
+        }
+
+        this.position = mark;
+    }
+
+    @Override
+    public final int skipWhile(@Nonnull Syntax syntax, int classes) {
+        if (syntax == null) {
+            throw new NullPointerException("syntax");
+        }
+
+        final CharSequence charSequence = this.charSequence;
+        final int length = charSequence.length();
+        int position = this.position;
+        int count = 0;
+        while (position < length) {
+            final int codePoint = Character.codePointAt(charSequence, position);
+            if (!syntax.isInClass(codePoint, classes)) {
+                break;
+            }
+
+            position += Character.charCount(codePoint);
+            count++;
+        }
+
+        this.position = position;
+        return count;
+    }
+
 }
@@ -0,0 +1,73 @@
+package org.reasm.commons.util;
+
+/**
+ * Provides helper methods for the implementations of {@link ScanningParserReader}.
+ *
+ * @author Francis Gagné
+ */
+final class ParserReaders {
+
+    /**
+     * Determines whether two characters are equal, optionally ignoring case, using the same rules as
+     * {@link String#regionMatches(boolean, int, String, int, int)}.
+     *
+     * @param c1
+     *            the first character
+     * @param c2
+     *            the second character
+     * @param ignoreCase
+     *            <code>true</code> to ignore case; otherwise, <code>false</code>
+     * @return <code>true</code> if the characters are equal; otherwise, <code>false</code>
+     */
+    static boolean charsEqual(char c1, char c2, boolean ignoreCase) {
+        if (c1 == c2) {
+            return true;
+        }
+
+        if (!ignoreCase) {
+            return false;
+        }
+
+        final char u1 = Character.toUpperCase(c1);
+        final char u2 = Character.toUpperCase(c2);
+        return u1 == u2 || Character.toLowerCase(u1) == Character.toLowerCase(u2);
+    }
+
+    /**
+     * Finds the next occurrence of a code point in a {@link CharSequence}.
+     *
+     * @param charSequence
+     *            the {@link CharSequence} to search
+     * @param fromIndex
+     *            the index at which to start searching
+     * @param codePoint
+     *            the code point to look for
+     * @return the index of the next occurrence of the code point, or -1 if the code point doesn't occur in the
+     *         {@link CharSequence} at or after <code>fromIndex</code>
+     */
+    static int indexOf(CharSequence charSequence, int fromIndex, int codePoint) {
+        final int length = charSequence.length();
+        if (codePoint >= 0 && codePoint < Character.MIN_SUPPLEMENTARY_CODE_POINT) {
+            for (int i = fromIndex; i < length; i++) {
+                if (charSequence.charAt(i) == codePoint) {
+                    return i;
+                }
+            }
+        } else if (Character.isValidCodePoint(codePoint)) {
+            final char high = Character.highSurrogate(codePoint);
+            final char low = Character.lowSurrogate(codePoint);
+            for (int i = fromIndex; i < length - 1; i++) {
+                if (charSequence.charAt(i) == high && charSequence.charAt(i + 1) == low) {
+                    return i;
+                }
+            }
+        }
+
+        return -1;
+    }
+
+    // This class isn't meant to be instantiated.
+    private ParserReaders() {
+    }
+
+}
@@ -0,0 +1,77 @@
+package org.reasm.commons.util;
+
+import javax.annotation.Nonnull;
+
+import org.reasm.commons.source.Syntax;
+
+/**
+ * A {@link ParserReader} that provides bulk operations, such as {@link #skipWhile(Syntax, int)} and {@link #indexOf(int)}, that
+ * scan a run of code points in a single call. The position of a reader can be saved with {@link #mark()} and restored with
+ * {@link #reset(int)} to backtrack without creating a new reader with {@link #duplicate()}.
+ *
+ * @param <T>
+ *            the concrete type of ScanningParserReader
+ *
+ * @author Francis Gagné
+ */
+public interface ScanningParserReader<T extends ScanningParserReader<T>> extends ParserReader<T> {
+
+    /**
+     * Gets this reader's current position, in UTF-16 code units.
+     *
+     * @return the reader's position
+     */
+    int getPosition();
+
+    /**
+     * Finds the next occurrence of the specified code point, starting at this reader's current position. The reader is not
+     * advanced.
+     *
+     * @param codePoint
+     *            the code point to look for
+     * @return the position of the next occurrence of the code point, or -1 if the code point doesn't occur between the reader's
+     *         current position and the end of the string
+     */
+    int indexOf(int codePoint);
+
+    /**
+     * Gets this reader's current position, for restoring later with {@link #reset(int)}.
+     *
+     * @return the reader's current position
+     */
+    int mark();
+
+    /**
+     * Determines whether the text at this reader's current position starts with the specified text. The reader is not advanced.
+     *
+     * @param ignoreCase
+     *            <code>true</code> to ignore case when comparing characters, in the same way as
+     *            {@link String#regionMatches(boolean, int, String, int, int)}; otherwise, <code>false</code>
+     * @param other
+     *            the text to compare with the text at the reader's current position
+     * @return <code>true</code> if the text at the reader's current position starts with <code>other</code>; otherwise,
+     *         <code>false</code>
+     */
+    boolean regionMatches(boolean ignoreCase, @Nonnull CharSequence other);
+
+    /**
+     * Sets this reader's current position to a position returned by {@link #mark()}.
+     *
+     * @param mark
+     *            the position to restore
+     */
+    void reset(int mark);
+
+    /**
+     * Advances the reader past the code points that belong to at least one of the specified classes.
+     *
+     * @param syntax
+     *            the {@link Syntax} that classifies the code points
+     * @param classes
+     *            a combination of {@link Syntax#WHITESPACE}, {@link Syntax#IDENTIFIER}, {@link Syntax#IDENTIFIER_INITIAL},
+     *            {@link Syntax#NUMBER_INITIAL}, {@link Syntax#DIGIT} and {@link Syntax#HEX_DIGIT}
+     * @return the number of code points that were skipped
+     */
+    int skipWhile(@Nonnull Syntax syntax, int classes);
+
+}
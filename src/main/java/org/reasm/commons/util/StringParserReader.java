@@ -0,0 +1,185 @@
+package org.reasm.commons.util;
+
+import javax.annotation.Nonnull;
+
+import org.reasm.commons.source.Syntax;
+
+/**
+ * An implementation of {@link ScanningParserReader} reading from a {@link String}.
+ * <p>
+ * The reader caches the code point at its current position, so that {@link #getCurrentCodePoint()} doesn't read from the string.
+ *
+ * @author Francis Gagné
+ */
+public final class StringParserReader implements ScanningParserReader<StringParserReader> {
+
+    @Nonnull
+    private final String string;
+    private int position;
+    private int currentCodePoint;
+
+    /**
+     * Initializes a new StringParserReader.
+     *
+     * @param string
+     *            the {@link String} to read from
+     */
+    public StringParserReader(@Nonnull String string) {
+        this(string, 0);
+    }
+
+    /**
+     * Initializes a new StringParserReader.
+     *
+     * @param string
+     *            the {@link String} to read from
+     * @param position
+     *            the reader's initial position
+     */
+    public StringParserReader(@Nonnull String string, int position) {
+        if (string == null) {
+            throw new NullPointerException("string");
+        }
+
+        if (position < 0) {
+            throw new IllegalArgumentException("position < 0");
+        }
+
+        if (position > string.length()) {
+            throw new IllegalArgumentException("position > string.length()");
+        }
+
+        this.string = string;
+        this.setPosition(position);
+    }
+
+    @Override
+    public final void advance() {
+        if (this.currentCodePoint != -1) {
+            this.setPosition(this.position + Character.charCount(this.currentCodePoint));
+        }
+    }
+
+    @Override
+    public final void copyFrom(@Nonnull StringParserReader other) {
+        if (other == null) {
+            throw new NullPointerException("other");
+        }
+
+        if (this.string != other.string) {
+            throw new IllegalArgumentException("The other reader's String is different from this reader's String.");
+        }
+
+        this.position = other.position;
+        this.currentCodePoint = other.currentCodePoint;
+    }
+
+    @Nonnull
+    @Override
+    public final StringParserReader duplicate() {
+        return new StringParserReader(this.string, this.position);
+    }
+
+    @Override
+    public final int getCurrentCodePoint() {
+        return this.currentCodePoint;
+    }
+
+    @Override
+    public final int getPosition() {
+        return this.position;
+    }
+
+    /**
+     * Gets the {@link String} that this reader reads from.
+     *
+     * @return the {@link String}
+     */
+    @Nonnull
+    public final String getString() {
+        return this.string;
+    }
+
+    @Override
+    public final int indexOf(int codePoint) {
+        if (codePoint < 0) {
+            return -1;
+        }
+
+        return this.string.indexOf(codePoint, this.position);
+    }
+
+    @Override
+    public final int mark() {
+        return this.position;
+    }
+
+    @Override
+    public final boolean regionMatches(boolean ignoreCase, @Nonnull CharSequence other) {
+        if (other == null) {
+            throw new NullPointerException("other");
+        }
+
+        final String string = this.string;
+        final int position = this.position;
+        final int length = other.length();
+        if (other instanceof String) {
+            return string.regionMatches(ignoreCase, position, (String) other, 0, length);
+        }
+
+        if (length > string.length() - position) {
+            return false;
+        }
+
+        for (int i = 0; i < length; i++) {
+            if (!ParserReaders.charsEqual(string.charAt(position + i), other.charAt(i), ignoreCase)) {
+                return false;
+            }
+        }
+
+        return true;
+    }
+
+    @Override
+    public final void reset(int mark) {
+        if (mark < 0) {
+            throw new IllegalArgumentException("mark < 0");
+        }
+
+        if (mark > this.string.length()) {
+            throw new IllegalArgumentException("mark > string.length()");
+        }
+
+        this.setPosition(mark);
+    }
+
+    @Override
+    public final int skipWhile(@Nonnull Syntax syntax, int classes) {
+        if (syntax == null) {
+            throw new NullPointerException("syntax");
+        }
+
+        final String string = this.string;
+        final int length = string.length();
+        int position = this.position;
+        int count = 0;
+        while (position < length) {
+            final int codePoint = string.codePointAt(position);
+            if (!syntax.isInClass(codePoint, classes)) {
+                break;
+            }
+
+            position += Character.charCount(codePoint);
+            count++;
+        }
+
+        this.setPosition(position);
+        return count;
+    }
+
+    private final void setPosition(int position) {
+        this.position = position;
+        this.currentCodePoint = position < this.string.length() ? this.string.codePointAt(position) : -1;
+    }
+
+}
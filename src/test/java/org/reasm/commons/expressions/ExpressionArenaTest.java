@@ -0,0 +1,64 @@
+package org.reasm.commons.expressions;
+
+import static org.hamcrest.Matchers.is;
+import static org.junit.Assert.assertThat;
+
+import org.junit.Test;
+
+/**
+ * Test class for {@link ExpressionArena}.
+ *
+ * @author Francis Gagné
+ */
+public class ExpressionArenaTest {
+
+    /**
+     * Asserts that the arrays of an {@link ExpressionArena} grow to hold many nodes.
+     */
+    @Test
+    public void addManyNodes() {
+        final ExpressionArena arena = new ExpressionArena();
+        final int[] operands = new int[2];
+        operands[0] = arena.addSymbol(0, 3, "abc");
+        for (int i = 1; i < 1000; i++) {
+            operands[1] = arena.addNumber(0, 1, i);
+            operands[0] = arena.addOperation(ExpressionArena.BINARY_OPERATION, 0, 1, 7, operands, 0, 2);
+        }
+
+        assertThat(arena.getNumberOfNodes(), is(1999));
+        assertThat(arena.getOperator(operands[0]), is(7));
+        assertThat(arena.getNumber(arena.getOperand(operands[0], 1)), is(999L));
+        assertThat(arena.getSymbolName(0), is("abc"));
+    }
+
+    /**
+     * Asserts that {@link ExpressionArena#getNumber(int)} throws an {@link IllegalArgumentException} when the node is not a
+     * {@link ExpressionArena#NUMBER} node.
+     */
+    @Test(expected = IllegalArgumentException.class)
+    public void getNumberNotNumber() {
+        final ExpressionArena arena = new ExpressionArena();
+        arena.getNumber(arena.addSymbol(0, 1, "a"));
+    }
+
+    /**
+     * Asserts that {@link ExpressionArena#getOperand(int, int)} throws an {@link IndexOutOfBoundsException} when the index is equal
+     * to the number of operands of the node.
+     */
+    @Test(expected = IndexOutOfBoundsException.class)
+    public void getOperandOutOfBounds() {
+        final ExpressionArena arena = new ExpressionArena();
+        arena.getOperand(arena.addNumber(0, 1, 1), 0);
+    }
+
+    /**
+     * Asserts that {@link ExpressionArena#getOperator(int)} throws an {@link IllegalArgumentException} when the node is not an
+     * operation.
+     */
+    @Test(expected = IllegalArgumentException.class)
+    public void getOperatorNotOperation() {
+        final ExpressionArena arena = new ExpressionArena();
+        arena.getOperator(arena.addNumber(0, 1, 1));
+    }
+
+}
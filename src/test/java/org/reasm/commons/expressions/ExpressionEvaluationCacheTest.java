@@ -0,0 +1,156 @@
+package org.reasm.commons.expressions;
+
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.nullValue;
+import static org.junit.Assert.assertThat;
+
+import javax.annotation.Nonnull;
+
+import org.junit.Test;
+
+/**
+ * Test class for {@link ExpressionEvaluationCache}.
+ *
+ * @author Francis Gagné
+ */
+public class ExpressionEvaluationCacheTest {
+
+    private static void evaluate(@Nonnull ExpressionEvaluationCache<String, Long> cache, int expression, long value,
+            @Nonnull String... symbols) {
+        cache.beginEvaluation(expression);
+        for (String symbol : symbols) {
+            cache.symbolRead(symbol);
+        }
+
+        cache.endEvaluation(value);
+    }
+
+    /**
+     * Asserts that {@link ExpressionEvaluationCache#beginEvaluation(int)} throws an {@link IllegalStateException} when an
+     * evaluation is already in progress.
+     */
+    @Test(expected = IllegalStateException.class)
+    public void beginEvaluationInProgress() {
+        final ExpressionEvaluationCache<String, Long> cache = new ExpressionEvaluationCache<>();
+        cache.beginEvaluation(0);
+        cache.beginEvaluation(1);
+    }
+
+    /**
+     * Asserts that {@link ExpressionEvaluationCache#cancelEvaluation()} leaves the expression invalid.
+     */
+    @Test
+    public void cancelEvaluation() {
+        final ExpressionEvaluationCache<String, Long> cache = new ExpressionEvaluationCache<>();
+        evaluate(cache, 0, 1, "a");
+        cache.beginEvaluation(0);
+        cache.cancelEvaluation();
+        assertThat(cache.isValid(0), is(false));
+        assertThat(cache.nextInvalidExpression(0), is(0));
+    }
+
+    /**
+     * Asserts that {@link ExpressionEvaluationCache#endEvaluation(Object)} stores the value of the expression.
+     */
+    @Test
+    public void endEvaluation() {
+        final ExpressionEvaluationCache<String, Long> cache = new ExpressionEvaluationCache<>();
+        assertThat(cache.isValid(100), is(false));
+        assertThat(cache.getValue(100), is(nullValue()));
+
+        evaluate(cache, 100, 42, "a", "b");
+        assertThat(cache.isValid(100), is(true));
+        assertThat(cache.getValue(100), is(42L));
+        assertThat(cache.getNumberOfInvalidExpressions(), is(0));
+    }
+
+    /**
+     * Asserts that {@link ExpressionEvaluationCache#invalidateAll()} invalidates all the expressions.
+     */
+    @Test
+    public void invalidateAll() {
+        final ExpressionEvaluationCache<String, Long> cache = new ExpressionEvaluationCache<>();
+        evaluate(cache, 0, 1, "a");
+        evaluate(cache, 1, 2);
+        cache.invalidateAll();
+        assertThat(cache.isValid(0), is(false));
+        assertThat(cache.isValid(1), is(false));
+        assertThat(cache.getNumberOfInvalidExpressions(), is(2));
+        assertThat(cache.symbolChanged("a"), is(0));
+    }
+
+    /**
+     * Asserts that {@link ExpressionEvaluationCache#symbolChanged(Object)} invalidates the expressions that read the symbol, and
+     * only those expressions.
+     */
+    @Test
+    public void symbolChanged() {
+        final ExpressionEvaluationCache<String, Long> cache = new ExpressionEvaluationCache<>();
+        evaluate(cache, 0, 1, "a");
+        evaluate(cache, 1, 2, "b");
+        evaluate(cache, 2, 3, "a", "b", "a");
+        evaluate(cache, 3, 4);
+
+        assertThat(cache.symbolChanged("a"), is(2));
+        assertThat(cache.isValid(0), is(false));
+        assertThat(cache.isValid(1), is(true));
+        assertThat(cache.isValid(2), is(false));
+        assertThat(cache.isValid(3), is(true));
+        assertThat(cache.getNumberOfInvalidExpressions(), is(2));
+        assertThat(cache.nextInvalidExpression(0), is(0));
+        assertThat(cache.nextInvalidExpression(1), is(2));
+        assertThat(cache.nextInvalidExpression(3), is(-1));
+
+        // Changing the symbol again doesn't invalidate anything until the expressions read it again.
+        assertThat(cache.symbolChanged("a"), is(0));
+        assertThat(cache.symbolChanged("c"), is(0));
+    }
+
+    /**
+     * Asserts that {@link ExpressionEvaluationCache#symbolChanged(Object)} doesn't invalidate an expression that read the symbol
+     * during an earlier evaluation, but not during its last evaluation.
+     */
+    @Test
+    public void symbolChangedStaleDependency() {
+        final ExpressionEvaluationCache<String, Long> cache = new ExpressionEvaluationCache<>();
+        evaluate(cache, 0, 1, "a", "b");
+        assertThat(cache.symbolChanged("b"), is(1));
+        evaluate(cache, 0, 2, "b");
+        assertThat(cache.symbolChanged("a"), is(0));
+        assertThat(cache.isValid(0), is(true));
+        assertThat(cache.symbolChanged("b"), is(1));
+    }
+
+    /**
+     * Asserts that an {@link ExpressionEvaluationCache} keeps track of the dependencies on a symbol that never changes while the
+     * expressions that read it are evaluated again on every pass.
+     */
+    @Test
+    public void symbolReadManyPasses() {
+        final ExpressionEvaluationCache<String, Long> cache = new ExpressionEvaluationCache<>();
+        for (int pass = 0; pass < 1000; pass++) {
+            for (int expression = 0; expression < 3; expression++) {
+                evaluate(cache, expression, pass, "constant", "label");
+            }
+
+            assertThat(cache.symbolChanged("label"), is(3));
+        }
+
+        cache.invalidateAll();
+        for (int expression = 0; expression < 3; expression++) {
+            evaluate(cache, expression, 0, "constant");
+        }
+
+        assertThat(cache.symbolChanged("constant"), is(3));
+    }
+
+    /**
+     * Asserts that {@link ExpressionEvaluationCache#symbolRead(Object)} throws an {@link IllegalStateException} when no evaluation
+     * is in progress.
+     */
+    @Test(expected = IllegalStateException.class)
+    public void symbolReadNoEvaluationInProgress() {
+        new ExpressionEvaluationCache<String, Long>().symbolRead("a");
+    }
+
+}
@@ -0,0 +1,297 @@
+package org.reasm.commons.expressions;
+
+import static org.hamcrest.Matchers.contains;
+import static org.hamcrest.Matchers.empty;
+import static org.hamcrest.Matchers.is;
+import static org.junit.Assert.assertThat;
+
+import java.util.ArrayList;
+
+import javax.annotation.Nonnull;
+
+import org.junit.Test;
+import org.reasm.AssemblyMessage;
+import org.reasm.commons.messages.InvalidTokenErrorMessage;
+import org.reasm.commons.source.Syntax;
+import org.reasm.testhelpers.AssemblyMessageCollector;
+import org.reasm.testhelpers.EquivalentAssemblyMessage;
+
+/**
+ * Test class for {@link ExpressionParser}.
+ *
+ * @author Francis Gagné
+ */
+public class ExpressionParserTest {
+
+    @Nonnull
+    private static final Syntax SYNTAX = new Syntax(new int[] { '*', '+', '-', '<', '=', '>' }, new int[0]);
+
+    // The code of each operator is its index in this array.
+    @Nonnull
+    private static final String[] SYMBOLS = { "+", "-", "*", "**", "neg", "<<", "<" };
+
+    @Nonnull
+    private static final OperatorTable OPERATOR_TABLE = new OperatorTable(
+            new OperatorTable.Operator("+", OperatorTable.Fixity.INFIX_LEFT_ASSOCIATIVE, 10, 0),
+            new OperatorTable.Operator("-", OperatorTable.Fixity.INFIX_LEFT_ASSOCIATIVE, 10, 1),
+            new OperatorTable.Operator("*", OperatorTable.Fixity.INFIX_LEFT_ASSOCIATIVE, 20, 2),
+            new OperatorTable.Operator("**", OperatorTable.Fixity.INFIX_RIGHT_ASSOCIATIVE, 30, 3),
+            new OperatorTable.Operator("-", OperatorTable.Fixity.PREFIX, 40, 4),
+            new OperatorTable.Operator("<<", OperatorTable.Fixity.INFIX_LEFT_ASSOCIATIVE, 5, 5),
+            new OperatorTable.Operator("<", OperatorTable.Fixity.INFIX_LEFT_ASSOCIATIVE, 3, 6));
+
+    private static void parse(@Nonnull String text, @Nonnull String expectedTree) {
+        parse(new ExpressionParser(SYNTAX, OPERATOR_TABLE), text, expectedTree);
+    }
+
+    private static void parse(@Nonnull ExpressionParser parser, @Nonnull String text, @Nonnull String expectedTree) {
+        final ArrayList<AssemblyMessage> messages = new ArrayList<>();
+        final ExpressionArena arena = new ExpressionArena();
+        final int root = parser.parse(text, arena, new AssemblyMessageCollector(messages));
+        assertThat(toString(arena, root), is(expectedTree));
+        assertThat(messages, is(empty()));
+    }
+
+    private static void parseInvalid(@Nonnull String text, @Nonnull String expectedTree, @Nonnull String invalidToken) {
+        final ArrayList<AssemblyMessage> messages = new ArrayList<>();
+        final ExpressionArena arena = new ExpressionArena();
+        final int root = new ExpressionParser(SYNTAX, OPERATOR_TABLE).parse(text, arena, new AssemblyMessageCollector(messages));
+        assertThat(toString(arena, root), is(expectedTree));
+        assertThat(messages, contains(new EquivalentAssemblyMessage(new InvalidTokenErrorMessage(invalidToken))));
+    }
+
+    @Nonnull
+    private static String toString(@Nonnull ExpressionArena arena, int node) {
+        switch (arena.getKind(node)) {
+        case ExpressionArena.NUMBER:
+            return Long.toString(arena.getNumber(node));
+
+        case ExpressionArena.STRING:
+            return Expressions.serializeString(arena.getString(node));
+
+        case ExpressionArena.SYMBOL:
+            return arena.getSymbolName(node);
+
+        case ExpressionArena.ERROR:
+            return "error[" + arena.getStart(node) + "," + arena.getEnd(node) + "]";
+
+        default:
+            final StringBuilder sb = new StringBuilder("(");
+            sb.append(arena.getKind(node) == ExpressionArena.FUNCTION_CALL ? "call" : SYMBOLS[arena.getOperator(node)]);
+            for (int i = 0; i < arena.getNumberOfOperands(node); i++) {
+                sb.append(' ').append(toString(arena, arena.getOperand(node, i)));
+            }
+
+            return sb.append(')').toString();
+        }
+    }
+
+    /**
+     * Asserts that {@link ExpressionParser#parse(CharSequence, ExpressionArena, ca.fragag.Consumer)} parses function calls with
+     * no arguments, one argument and several arguments.
+     */
+    @Test
+    public void parseFunctionCall() {
+        parse("f(1, x + 1, g(), h(y))", "(call f 1 (+ x 1) (call g) (call h y))");
+    }
+
+    /**
+     * Asserts that {@link ExpressionParser#parse(CharSequence, ExpressionArena, ca.fragag.Consumer)} reports an invalid token and
+     * returns an {@link ExpressionArena#ERROR} node when an argument list contains two consecutive arguments.
+     */
+    @Test
+    public void parseFunctionCallMissingComma() {
+        parseInvalid("f(1 2)", "error[0,6]", "2");
+    }
+
+    /**
+     * Asserts that {@link ExpressionParser#parse(CharSequence, ExpressionArena, ca.fragag.Consumer)} groups operators of the same
+     * precedence from left to right when they are left-associative.
+     */
+    @Test
+    public void parseLeftAssociativeOperator() {
+        parse("a - b - c", "(- (- a b) c)");
+    }
+
+    /**
+     * Asserts that {@link ExpressionParser#parse(CharSequence, ExpressionArena, ca.fragag.Consumer)} returns an
+     * {@link ExpressionArena#ERROR} node in place of a missing operand, and reports the end of the expression as an invalid token.
+     */
+    @Test
+    public void parseMissingOperand() {
+        parseInvalid("1+", "(+ 1 error[2,2])", "");
+        parseInvalid("-", "(neg error[1,1])", "");
+        parseInvalid("", "error[0,0]", "");
+    }
+
+    /**
+     * Asserts that {@link ExpressionParser#parse(CharSequence, ExpressionArena, ca.fragag.Consumer)} recognizes operators made of
+     * several code points, and prefers the longest operator.
+     */
+    @Test
+    public void parseMultiCodePointOperator() {
+        parse("a<<2<b", "(< (<< a 2) b)");
+        parse("2**3", "(** 2 3)");
+    }
+
+    /**
+     * Asserts that {@link ExpressionParser#parse(CharSequence, ExpressionArena, ca.fragag.Consumer)} adds the nodes of several
+     * expressions to the same arena, and that the operands of a node are added before the node.
+     */
+    @Test
+    public void parseMultipleExpressions() {
+        final ExpressionParser parser = new ExpressionParser(SYNTAX, OPERATOR_TABLE);
+        final ExpressionArena arena = new ExpressionArena();
+        final int first = parser.parse("1+2", arena, null);
+        final int second = parser.parse("x*y", arena, null);
+        assertThat(arena.getNumberOfNodes(), is(6));
+        assertThat(first, is(2));
+        assertThat(second, is(5));
+        assertThat(toString(arena, first), is("(+ 1 2)"));
+        assertThat(toString(arena, second), is("(* x y)"));
+        assertThat(arena.symbolNameEquals(arena.getOperand(second, 0), "x"), is(true));
+        assertThat(arena.symbolNameEquals(arena.getOperand(second, 0), "y"), is(false));
+
+        arena.clear();
+        assertThat(arena.getNumberOfNodes(), is(0));
+        assertThat(toString(arena, parser.parse("z", arena, null)), is("z"));
+    }
+
+    /**
+     * Asserts that {@link ExpressionParser#parse(CharSequence, ExpressionArena, ca.fragag.Consumer)} parses decimal, hexadecimal
+     * and binary numbers.
+     */
+    @Test
+    public void parseNumber() {
+        parse("42", "42");
+        parse("0x1F", "31");
+        parse("0b101", "5");
+        parse("9223372036854775807", "9223372036854775807");
+        parse("0xFFFFFFFFFFFFFFFF", "-1");
+    }
+
+    /**
+     * Asserts that {@link ExpressionParser#parse(CharSequence, ExpressionArena, ca.fragag.Consumer)} reports an invalid token and
+     * returns an {@link ExpressionArena#ERROR} node for a number that doesn't fit in a <code>long</code>.
+     */
+    @Test
+    public void parseNumberOverflow() {
+        parseInvalid("9223372036854775808", "error[0,19]", "9223372036854775808");
+        parseInvalid("0x10000000000000000", "error[0,19]", "0x10000000000000000");
+    }
+
+    /**
+     * Asserts that {@link ExpressionParser#parse(CharSequence, ExpressionArena, ca.fragag.Consumer)} uses
+     * {@link ExpressionParser#parseNumber(CharSequence, int, int)} to convert numbers.
+     */
+    @Test
+    public void parseNumberOverridden() {
+        final ExpressionParser parser = new ExpressionParser(SYNTAX, OPERATOR_TABLE) {
+            @Override
+            protected long parseNumber(CharSequence text, int start, int end) throws NumberFormatException {
+                // Parse numbers in octal.
+                return Long.parseLong(text.subSequence(start, end).toString(), 8);
+            }
+        };
+
+        parse(parser, "17+1", "(+ 15 1)");
+    }
+
+    /**
+     * Asserts that {@link ExpressionParser#parse(CharSequence, ExpressionArena, ca.fragag.Consumer)} groups operators according to
+     * their precedence.
+     */
+    @Test
+    public void parseOperatorPrecedence() {
+        parse("1 + 2 * 3", "(+ 1 (* 2 3))");
+        parse("1 * 2 + 3", "(+ (* 1 2) 3)");
+    }
+
+    /**
+     * Asserts that {@link ExpressionParser#parse(CharSequence, ExpressionArena, ca.fragag.Consumer)} parses expressions in
+     * parentheses, and that the offsets of a node include the parentheses around its operands.
+     */
+    @Test
+    public void parseParentheses() {
+        final ExpressionArena arena = new ExpressionArena();
+        final int root = new ExpressionParser(SYNTAX, OPERATOR_TABLE).parse("(a + b) * c", arena, null);
+        assertThat(toString(arena, root), is("(* (+ a b) c)"));
+        assertThat(arena.getStart(root), is(0));
+        assertThat(arena.getEnd(root), is(11));
+        assertThat(arena.getStart(arena.getOperand(root, 0)), is(1));
+        assertThat(arena.getEnd(arena.getOperand(root, 0)), is(6));
+    }
+
+    /**
+     * Asserts that {@link ExpressionParser#parse(CharSequence, ExpressionArena, ca.fragag.Consumer)} parses prefix operators,
+     * including a prefix operator that uses the same symbol as an infix operator.
+     */
+    @Test
+    public void parsePrefixOperator() {
+        parse("-a * b", "(* (neg a) b)");
+        parse("a--b", "(- a (neg b))");
+    }
+
+    /**
+     * Asserts that {@link ExpressionParser#parse(CharSequence, int, int, ExpressionArena, ca.fragag.Consumer)} only parses the
+     * specified range, and that the offsets of the nodes are relative to the start of the text.
+     */
+    @Test
+    public void parseRange() {
+        final ExpressionArena arena = new ExpressionArena();
+        final int root = new ExpressionParser(SYNTAX, OPERATOR_TABLE).parse(" DC.B 1+x,2", 6, 9, arena, null);
+        assertThat(toString(arena, root), is("(+ 1 x)"));
+        assertThat(arena.getStart(root), is(6));
+        assertThat(arena.getEnd(root), is(9));
+    }
+
+    /**
+     * Asserts that {@link ExpressionParser#parse(CharSequence, ExpressionArena, ca.fragag.Consumer)} groups operators of the same
+     * precedence from right to left when they are right-associative.
+     */
+    @Test
+    public void parseRightAssociativeOperator() {
+        parse("2 ** 3 ** 4", "(** 2 (** 3 4))");
+    }
+
+    /**
+     * Asserts that {@link ExpressionParser#parse(CharSequence, ExpressionArena, ca.fragag.Consumer)} decodes the escape sequences
+     * in strings.
+     */
+    @Test
+    public void parseString() {
+        parse("'a\\nb' + \"c\"", "(+ \"a\\nb\" \"c\")");
+    }
+
+    /**
+     * Asserts that {@link ExpressionParser#parse(CharSequence, ExpressionArena, ca.fragag.Consumer)} reports an invalid token and
+     * returns an {@link ExpressionArena#ERROR} node when there are tokens after the end of the expression.
+     */
+    @Test
+    public void parseTrailingToken() {
+        parseInvalid("a b", "error[0,3]", "b");
+        parseInvalid(")", "error[0,1]", ")");
+    }
+
+    /**
+     * Asserts that {@link ExpressionParser#parse(CharSequence, ExpressionArena, ca.fragag.Consumer)} returns an
+     * {@link ExpressionArena#ERROR} node for a parenthesis or an argument list that is not closed, and reports the end of the
+     * expression as an invalid token only once.
+     */
+    @Test
+    public void parseUnclosedParenthesis() {
+        parseInvalid("(1", "error[0,2]", "");
+        parseInvalid("f(a", "error[0,3]", "");
+        parseInvalid("(1+", "error[0,3]", "");
+    }
+
+    /**
+     * Asserts that {@link ExpressionParser#parse(CharSequence, ExpressionArena, ca.fragag.Consumer)} reports an invalid token and
+     * returns an {@link ExpressionArena#ERROR} node for an unterminated string.
+     */
+    @Test
+    public void parseUnterminatedString() {
+        parseInvalid("'abc", "error[0,4]", "'abc");
+    }
+
+}
@@ -5,7 +5,13 @@ import static org.hamcrest.Matchers.empty;
 import static org.hamcrest.Matchers.is;
 import static org.junit.Assert.assertThat;
 
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.CharacterCodingException;
+import java.nio.charset.CharsetEncoder;
+import java.nio.charset.StandardCharsets;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
 
 import javax.annotation.CheckForNull;
@@ -83,6 +89,15 @@ public class ExpressionsTest {
 
             // A string delimited by double quotes with an escaped backslash
             addDataItem("\"\\\\\"", "\\");
+
+            // A string with an escape sequence between other characters
+            addDataItem("'abc\\ndef'", "abc\ndef");
+
+            // A string with an escaped supplementary character, which raises a warning
+            addDataItem("'a\\\uD835\uDC00b'", "a\uD835\uDC00b", new UnrecognizedEscapeSequenceWarningMessage(0x1D400));
+
+            // A string that ends with a backslash, which escapes the final delimiter
+            addDataItem("'abc\\'", "abc'");
         }
 
         /**
@@ -139,6 +154,34 @@ public class ExpressionsTest {
             }
         }
 
+        /**
+         * Asserts that {@link Expressions#encodeString(CharSequence, Consumer, CharsetEncoder, ByteBuffer)} correctly parses and
+         * encodes a string.
+         *
+         * @throws CharacterCodingException
+         *             the string cannot be encoded
+         */
+        @Test
+        public void encodeString() throws CharacterCodingException {
+            final ArrayList<AssemblyMessage> messages = new ArrayList<>();
+            final Consumer<AssemblyMessage> assemblyMessageConsumer = this.expectedAssemblyMessageMatchers == null ? null
+                    : new AssemblyMessageCollector(messages);
+            final ByteBuffer out = ByteBuffer.allocate(100);
+            final int length = Expressions.encodeString(this.string, assemblyMessageConsumer,
+                    StandardCharsets.UTF_8.newEncoder(), out);
+            final byte[] expectedBytes = this.expectedResult.getBytes(StandardCharsets.UTF_8);
+            assertThat(length, is(expectedBytes.length));
+            assertThat(Arrays.copyOf(out.array(), length), is(expectedBytes));
+
+            if (this.expectedAssemblyMessageMatchers != null) {
+                if (this.expectedAssemblyMessageMatchers.isEmpty()) {
+                    assertThat(messages, is(empty()));
+                } else {
+                    assertThat(messages, contains(this.expectedAssemblyMessageMatchers));
+                }
+            }
+        }
+
         /**
          * Asserts that {@link Expressions#parseString(CharSequence, Consumer)} correctly parses a string.
          */
@@ -159,6 +202,85 @@ public class ExpressionsTest {
             }
         }
 
+        /**
+         * Asserts that {@link Expressions#parseString(CharSequence, Consumer, Appendable)} correctly parses a string.
+         *
+         * @throws IOException
+         *             an I/O exception occurred
+         */
+        @Test
+        public void parseStringAppendable() throws IOException {
+            final ArrayList<AssemblyMessage> messages = new ArrayList<>();
+            final Consumer<AssemblyMessage> assemblyMessageConsumer = this.expectedAssemblyMessageMatchers == null ? null
+                    : new AssemblyMessageCollector(messages);
+            final StringBuilder sb = new StringBuilder(">");
+            Expressions.parseString(this.string, assemblyMessageConsumer, sb);
+            assertThat(sb.toString(), is(">" + this.expectedResult));
+
+            if (this.expectedAssemblyMessageMatchers != null) {
+                if (this.expectedAssemblyMessageMatchers.isEmpty()) {
+                    assertThat(messages, is(empty()));
+                } else {
+                    assertThat(messages, contains(this.expectedAssemblyMessageMatchers));
+                }
+            }
+        }
+
+    }
+
+    /**
+     * Asserts that {@link Expressions#encodeString(CharSequence, Consumer, CharsetEncoder, ByteBuffer)} returns -1 when the encoded
+     * string doesn't fit in the buffer, restores the position of the buffer and stops decoding the string soon after that point.
+     *
+     * @throws CharacterCodingException
+     *             the string cannot be encoded
+     */
+    @Test
+    public void encodeStringTooLong() throws CharacterCodingException {
+        final StringBuilder literal = new StringBuilder("'");
+        for (int i = 0; i < 5000; i++) {
+            literal.append('\u00E9');
+        }
+
+        literal.append("\\z'");
+
+        final ArrayList<AssemblyMessage> messages = new ArrayList<>();
+        final ByteBuffer out = ByteBuffer.allocate(10);
+        out.position(1).limit(5);
+        assertThat(Expressions.encodeString(literal, new AssemblyMessageCollector(messages), StandardCharsets.UTF_8.newEncoder(),
+                out), is(-1));
+        assertThat(out.position(), is(1));
+        assertThat(messages, is(empty()));
+
+        // Without escape sequences
+        out.clear().position(2).limit(5);
+        assertThat(Expressions.encodeString("'abcd'", null, StandardCharsets.UTF_8.newEncoder(), out), is(-1));
+        assertThat(out.position(), is(2));
+
+        // Exactly the maximum length
+        out.clear().limit(4);
+        assertThat(Expressions.encodeString("'a\\nc\\\\'", null, StandardCharsets.UTF_8.newEncoder(), out), is(4));
+    }
+
+    /**
+     * Asserts that {@link Expressions#encodeString(CharSequence, Consumer, CharsetEncoder, ByteBuffer)} encodes a long string with
+     * many escape sequences in several batches.
+     *
+     * @throws CharacterCodingException
+     *             the string cannot be encoded
+     */
+    @Test
+    public void encodeStringLong() throws CharacterCodingException {
+        final StringBuilder literal = new StringBuilder("\"");
+        for (int i = 0; i < 1000; i++) {
+            literal.append("\u00E9\\n\\\uD835\uDC00");
+        }
+
+        literal.append('"');
+        final byte[] expectedBytes = Expressions.parseString(literal, null).getBytes(StandardCharsets.UTF_16BE);
+        final ByteBuffer out = ByteBuffer.allocate(expectedBytes.length);
+        assertThat(Expressions.encodeString(literal, null, StandardCharsets.UTF_16BE.newEncoder(), out), is(expectedBytes.length));
+        assertThat(out.array(), is(expectedBytes));
     }
 
     /**
@@ -0,0 +1,113 @@
+package org.reasm.commons.expressions;
+
+import static org.hamcrest.Matchers.is;
+import static org.junit.Assert.assertThat;
+
+import javax.annotation.Nonnull;
+
+import org.junit.Test;
+import org.reasm.commons.source.Syntax;
+
+/**
+ * Test class for {@link OperandTokenizer}.
+ *
+ * @author Francis Gagné
+ */
+public class OperandTokenizerTest {
+
+    @Nonnull
+    private static final Syntax SYNTAX = new Syntax(new int[] { '*', '+', '-', '<', '=', '>' }, new int[0]);
+
+    private static void assertTokens(@Nonnull OperandTokenizer tokenizer, @Nonnull Object... kindsAndTexts) {
+        assertThat(tokenizer.getNumberOfTokens(), is(kindsAndTexts.length / 2));
+        for (int i = 0; i < tokenizer.getNumberOfTokens(); i++) {
+            assertThat(tokenizer.getTokenKind(i), is(kindsAndTexts[i * 2]));
+            assertThat(tokenizer.getTokenText(i).toString(), is(kindsAndTexts[i * 2 + 1]));
+        }
+    }
+
+    /**
+     * Asserts that {@link OperandTokenizer#getTokenKind(int)} throws an {@link IndexOutOfBoundsException} when the index is equal
+     * to the number of tokens.
+     */
+    @Test(expected = IndexOutOfBoundsException.class)
+    public void getTokenKindOutOfBounds() {
+        final OperandTokenizer tokenizer = new OperandTokenizer(SYNTAX);
+        tokenizer.tokenize("a");
+        tokenizer.getTokenKind(1);
+    }
+
+    /**
+     * Asserts that {@link OperandTokenizer#tokenize(CharSequence)} recognizes identifiers, numbers, parentheses, commas and
+     * operators, and skips whitespace.
+     */
+    @Test
+    public void tokenize() {
+        final OperandTokenizer tokenizer = new OperandTokenizer(SYNTAX);
+        tokenizer.tokenize(" foo+(1, $FF) * .5-.loop");
+        assertTokens(tokenizer, OperandTokenizer.IDENTIFIER, "foo", OperandTokenizer.OPERATOR, "+",
+                OperandTokenizer.OPEN_PARENTHESIS, "(", OperandTokenizer.NUMBER, "1", OperandTokenizer.COMMA, ",",
+                OperandTokenizer.IDENTIFIER, "$FF", OperandTokenizer.CLOSE_PARENTHESIS, ")", OperandTokenizer.OPERATOR, "*",
+                OperandTokenizer.NUMBER, ".5", OperandTokenizer.OPERATOR, "-", OperandTokenizer.IDENTIFIER, ".loop");
+        assertThat(tokenizer.getTokenStart(0), is(1));
+        assertThat(tokenizer.getTokenEnd(0), is(4));
+    }
+
+    /**
+     * Asserts that {@link OperandTokenizer#tokenize(CharSequence)} produces one token per code point for operators made of several
+     * code points, and that these tokens are adjacent.
+     */
+    @Test
+    public void tokenizeMultiCodePointOperator() {
+        final OperandTokenizer tokenizer = new OperandTokenizer(SYNTAX);
+        tokenizer.tokenize("a<=b");
+        assertTokens(tokenizer, OperandTokenizer.IDENTIFIER, "a", OperandTokenizer.OPERATOR, "<", OperandTokenizer.OPERATOR, "=",
+                OperandTokenizer.IDENTIFIER, "b");
+        assertThat(tokenizer.getTokenEnd(1), is(tokenizer.getTokenStart(2)));
+    }
+
+    /**
+     * Asserts that {@link OperandTokenizer#tokenize(CharSequence, int, int)} only tokenizes the specified range, and that the
+     * offsets of the tokens are relative to the start of the text.
+     */
+    @Test
+    public void tokenizeRange() {
+        final OperandTokenizer tokenizer = new OperandTokenizer(SYNTAX);
+        tokenizer.tokenize("xx(abcdef)yy", 3, 6);
+        assertTokens(tokenizer, OperandTokenizer.IDENTIFIER, "abc");
+        assertThat(tokenizer.getTokenStart(0), is(3));
+        assertThat(tokenizer.getTokenEnd(0), is(6));
+    }
+
+    /**
+     * Asserts that {@link OperandTokenizer#tokenize(CharSequence)} replaces the tokens of the previous text.
+     */
+    @Test
+    public void tokenizeReuse() {
+        final StringBuilder sb = new StringBuilder("0");
+        for (int i = 1; i < 100; i++) {
+            sb.append('+').append(i);
+        }
+
+        final OperandTokenizer tokenizer = new OperandTokenizer(SYNTAX);
+        tokenizer.tokenize(sb);
+        assertThat(tokenizer.getNumberOfTokens(), is(199));
+        assertThat(tokenizer.getTokenText(198).toString(), is("99"));
+
+        tokenizer.tokenize("a");
+        assertTokens(tokenizer, OperandTokenizer.IDENTIFIER, "a");
+    }
+
+    /**
+     * Asserts that {@link OperandTokenizer#tokenize(CharSequence)} recognizes strings delimited by quotes or apostrophes,
+     * including escaped delimiters, as well as unterminated strings.
+     */
+    @Test
+    public void tokenizeStrings() {
+        final OperandTokenizer tokenizer = new OperandTokenizer(SYNTAX);
+        tokenizer.tokenize("'a\\'b'+\"c,d\" \"e");
+        assertTokens(tokenizer, OperandTokenizer.STRING, "'a\\'b'", OperandTokenizer.OPERATOR, "+", OperandTokenizer.STRING,
+                "\"c,d\"", OperandTokenizer.UNTERMINATED_STRING, "\"e");
+    }
+
+}
@@ -0,0 +1,51 @@
+package org.reasm.commons.expressions;
+
+import static org.hamcrest.Matchers.is;
+import static org.junit.Assert.assertThat;
+
+import org.junit.Test;
+
+/**
+ * Test class for {@link OperatorTable}.
+ *
+ * @author Francis Gagné
+ */
+public class OperatorTableTest {
+
+    /**
+     * Asserts that {@link OperatorTable.Operator#Operator(String, OperatorTable.Fixity, int, int)} throws an
+     * {@link IllegalArgumentException} when the symbol is empty.
+     */
+    @Test(expected = IllegalArgumentException.class)
+    public void operatorEmptySymbol() {
+        new OperatorTable.Operator("", OperatorTable.Fixity.PREFIX, 0, 0);
+    }
+
+    /**
+     * Asserts that {@link OperatorTable#OperatorTable(OperatorTable.Operator...)} sorts the operators from the longest symbol to
+     * the shortest, and accepts a prefix operator and an infix operator with the same symbol.
+     */
+    @Test
+    public void operatorTable() {
+        final OperatorTable.Operator negate = new OperatorTable.Operator("-", OperatorTable.Fixity.PREFIX, 3, 0);
+        final OperatorTable.Operator subtract = new OperatorTable.Operator("-", OperatorTable.Fixity.INFIX_LEFT_ASSOCIATIVE, 1, 1);
+        final OperatorTable.Operator lessThan = new OperatorTable.Operator("<", OperatorTable.Fixity.INFIX_LEFT_ASSOCIATIVE, 0, 2);
+        final OperatorTable.Operator shiftLeft = new OperatorTable.Operator("<<", OperatorTable.Fixity.INFIX_RIGHT_ASSOCIATIVE, 2,
+                3);
+        final OperatorTable operatorTable = new OperatorTable(negate, subtract, lessThan, shiftLeft);
+        assertThat(operatorTable.getPrefixOperators(), is(new OperatorTable.Operator[] { negate }));
+        assertThat(operatorTable.getInfixOperators()[0], is(shiftLeft));
+        assertThat(operatorTable.getInfixOperators().length, is(3));
+    }
+
+    /**
+     * Asserts that {@link OperatorTable#OperatorTable(OperatorTable.Operator...)} throws an {@link IllegalArgumentException} when
+     * two infix operators have the same symbol.
+     */
+    @Test(expected = IllegalArgumentException.class)
+    public void operatorTableDuplicateOperator() {
+        new OperatorTable(new OperatorTable.Operator("+", OperatorTable.Fixity.INFIX_LEFT_ASSOCIATIVE, 1, 0),
+                new OperatorTable.Operator("+", OperatorTable.Fixity.INFIX_RIGHT_ASSOCIATIVE, 2, 1));
+    }
+
+}
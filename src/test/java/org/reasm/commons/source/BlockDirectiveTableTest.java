@@ -0,0 +1,145 @@
+package org.reasm.commons.source;
+
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.notNullValue;
+import static org.hamcrest.Matchers.nullValue;
+import static org.hamcrest.Matchers.sameInstance;
+import static org.junit.Assert.assertThat;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.TreeMap;
+
+import javax.annotation.Nonnull;
+
+import org.junit.Test;
+
+import com.google.common.collect.ImmutableMap;
+
+/**
+ * Test class for {@link BlockDirectiveTable}.
+ *
+ * @author Francis Gagné
+ */
+public class BlockDirectiveTableTest {
+
+    private static final class DecoratingParser extends Parser {
+
+        DecoratingParser() {
+            super(TestParser.SYNTAX, Collections.<String, BlockDirective> emptyMap(), Collections
+                    .<BlockDirective, BlockParser> emptyMap(), TestParser.TEST_PARSER.logicalLineFactory,
+                    TestParser.TEST_PARSER.blockDirectiveLineFactory);
+        }
+
+        @Override
+        public String undecorateMnemonic(String mnemonic) {
+            return mnemonic;
+        }
+
+    }
+
+    @Nonnull
+    private static final BlockDirective BLOCK = TestParser.BLOCK0;
+    @Nonnull
+    private static final BlockDirective ELSE = TestParser.ELSE;
+    @Nonnull
+    private static final Map<BlockDirective, BlockParser> BLOCKS = TestParser.BLOCKS;
+
+    /**
+     * Asserts that {@link BlockDirectiveTable#create(Class, Map, Map)} returns <code>null</code> when the parser overrides
+     * {@link Parser#undecorateMnemonic(String)}.
+     */
+    @Test
+    public void createOverriddenUndecorateMnemonic() {
+        assertThat(BlockDirectiveTable.create(DecoratingParser.class, ImmutableMap.of("BLOCK", BLOCK), BLOCKS), is(nullValue()));
+    }
+
+    /**
+     * Asserts that {@link BlockDirectiveTable#create(Class, Map, Map)} creates a table for Guava's immutable maps and for
+     * unmodifiable views.
+     */
+    @Test
+    public void createSupportedMaps() {
+        assertThat(BlockDirectiveTable.create(Parser.class, ImmutableMap.of("BLOCK", BLOCK), BLOCKS), is(notNullValue()));
+        assertThat(BlockDirectiveTable.create(Parser.class, TestParser.BLOCK_DIRECTIVES, BLOCKS), is(notNullValue()));
+        assertThat(BlockDirectiveTable.create(Parser.class, Collections.unmodifiableMap(new HashMap<>(TestParser.BLOCK_DIRECTIVES)),
+                BLOCKS), is(notNullValue()));
+        assertThat(BlockDirectiveTable.create(Parser.class, Collections.<String, BlockDirective> emptyMap(), BLOCKS),
+                is(notNullValue()));
+    }
+
+    /**
+     * Asserts that {@link BlockDirectiveTable#create(Class, Map, Map)} returns <code>null</code> when the map of block directives
+     * uses a comparator other than {@link String#CASE_INSENSITIVE_ORDER}.
+     */
+    @Test
+    public void createUnsupportedComparator() {
+        final TreeMap<String, BlockDirective> blockDirectives = new TreeMap<>(Collections.reverseOrder());
+        blockDirectives.put("BLOCK", BLOCK);
+        assertThat(BlockDirectiveTable.create(Parser.class, blockDirectives, BLOCKS), is(nullValue()));
+    }
+
+    /**
+     * Asserts that {@link BlockDirectiveTable#create(Class, Map, Map)} returns <code>null</code> when the map of block directives
+     * is of a class whose lookups may not follow {@link String#equals(Object)}, such as a subclass of {@link HashMap}.
+     */
+    @Test
+    public void createUnsupportedMap() {
+        final HashMap<String, BlockDirective> blockDirectives = new HashMap<String, BlockDirective>() {
+
+            private static final long serialVersionUID = 1L;
+
+        };
+
+        blockDirectives.put("BLOCK", BLOCK);
+        assertThat(BlockDirectiveTable.create(Parser.class, blockDirectives, BLOCKS), is(nullValue()));
+    }
+
+    /**
+     * Asserts that {@link BlockDirectiveTable#lookup(CharSequence, int, int)} finds the block directive and the block parser that
+     * correspond to a mnemonic.
+     */
+    @Test
+    public void lookup() {
+        final BlockDirectiveTable table = BlockDirectiveTable.create(Parser.class,
+                ImmutableMap.of("BLOCK", BLOCK, "ELSE", ELSE), BLOCKS);
+        assertThat(table, is(notNullValue()));
+
+        final BlockDirectiveTable.Entry block = table.lookup(" BLOCK ", 1, 6);
+        assertThat(block.blockDirective, is(sameInstance(BLOCK)));
+        assertThat(block.blockParser, is(sameInstance(BLOCKS.get(BLOCK))));
+
+        final BlockDirectiveTable.Entry elseEntry = table.lookup(" ELSE", 1, 5);
+        assertThat(elseEntry.blockDirective, is(sameInstance(ELSE)));
+        assertThat(elseEntry.blockParser, is(nullValue()));
+
+        assertThat(table.lookup(" !BLOCK", 1, 7).blockDirective, is(sameInstance(BLOCK)));
+        assertThat(table.lookup(" !!BLOCK", 1, 8), is(nullValue()));
+        assertThat(table.lookup(" block", 1, 6), is(nullValue()));
+        assertThat(table.lookup(" BLOCKS", 1, 7), is(nullValue()));
+        assertThat(table.lookup(" BLOC", 1, 5), is(nullValue()));
+        assertThat(table.lookup(" NOP", 1, 4), is(nullValue()));
+        assertThat(table.lookup(" !", 1, 2), is(nullValue()));
+    }
+
+    /**
+     * Asserts that {@link BlockDirectiveTable#lookup(CharSequence, int, int)} matches mnemonics case-insensitively when the map of
+     * block directives uses {@link String#CASE_INSENSITIVE_ORDER}.
+     */
+    @Test
+    public void lookupCaseInsensitive() {
+        final TreeMap<String, BlockDirective> blockDirectives = new TreeMap<>(String.CASE_INSENSITIVE_ORDER);
+        blockDirectives.put("Block", BLOCK);
+        blockDirectives.put("Else", ELSE);
+        final BlockDirectiveTable table = BlockDirectiveTable.create(Parser.class, blockDirectives, BLOCKS);
+        assertThat(table, is(notNullValue()));
+
+        assertThat(table.lookup("BLOCK", 0, 5).blockDirective, is(sameInstance(BLOCK)));
+        assertThat(table.lookup("block", 0, 5).blockDirective, is(sameInstance(BLOCK)));
+        assertThat(table.lookup("!bLoCk", 0, 6).blockDirective, is(sameInstance(BLOCK)));
+        assertThat(table.lookup("eLSE", 0, 4).blockDirective, is(sameInstance(ELSE)));
+        assertThat(table.lookup("blocks", 0, 6), is(nullValue()));
+    }
+
+}
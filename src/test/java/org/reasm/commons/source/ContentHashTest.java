@@ -0,0 +1,48 @@
+package org.reasm.commons.source;
+
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.not;
+import static org.junit.Assert.assertThat;
+
+import org.junit.Test;
+
+/**
+ * Test class for {@link ContentHash}.
+ *
+ * @author Francis Gagné
+ */
+public class ContentHashTest {
+
+    /**
+     * Asserts that {@link ContentHash#of(CharSequence)} returns equal hashes for equal texts and different hashes for different
+     * texts, including texts longer than the internal buffer.
+     */
+    @Test
+    public void of() {
+        final StringBuilder sb = new StringBuilder();
+        for (int i = 0; i < 10000; i++) {
+            sb.append((char) i);
+        }
+
+        final String text = sb.toString();
+        assertThat(ContentHash.of(text), is(ContentHash.of(new StringBuilder(text))));
+        assertThat(ContentHash.of(text).hashCode(), is(ContentHash.of(new StringBuilder(text)).hashCode()));
+        assertThat(ContentHash.of(text), is(not(ContentHash.of(text.substring(1)))));
+        assertThat(ContentHash.of("\u0100"), is(not(ContentHash.of("\u0001"))));
+        assertThat(ContentHash.of(""), is(not(ContentHash.of("\u0000"))));
+    }
+
+    /**
+     * Asserts that {@link ContentHash#toByteArray()} returns the SHA-256 digest of the UTF-16BE encoding of the text.
+     */
+    @Test
+    public void toByteArray() {
+        // SHA-256 of the empty string
+        final byte[] bytes = ContentHash.of("").toByteArray();
+        assertThat(bytes.length, is(ContentHash.LENGTH));
+        assertThat(bytes[0], is((byte) 0xE3));
+        assertThat(bytes[1], is((byte) 0xB0));
+        assertThat(bytes[31], is((byte) 0x55));
+    }
+
+}
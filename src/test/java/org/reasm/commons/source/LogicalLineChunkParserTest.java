@@ -0,0 +1,42 @@
+package org.reasm.commons.source;
+
+import static org.hamcrest.Matchers.is;
+import static org.junit.Assert.assertThat;
+
+import org.junit.Test;
+
+/**
+ * Test class for {@link LogicalLineChunkParser}.
+ *
+ * @author Francis Gagné
+ */
+public class LogicalLineChunkParserTest {
+
+    /**
+     * Asserts that {@link LogicalLineChunkParser#findLogicalLineBoundary(CharSequence, int)} finds the position after a line
+     * separator that is not preceded by a continuation character.
+     */
+    @Test
+    public void findLogicalLineBoundary() {
+        assertThat(LogicalLineChunkParser.findLogicalLineBoundary(" NOP\n NOP", 0), is(5));
+        assertThat(LogicalLineChunkParser.findLogicalLineBoundary(" NOP\n NOP", 5), is(5));
+        assertThat(LogicalLineChunkParser.findLogicalLineBoundary(" NOP\n NOP", 6), is(9));
+        assertThat(LogicalLineChunkParser.findLogicalLineBoundary(" NOP\r NOP", 0), is(5));
+        assertThat(LogicalLineChunkParser.findLogicalLineBoundary(" NOP\r\n NOP", 0), is(6));
+        assertThat(LogicalLineChunkParser.findLogicalLineBoundary("\n NOP", 0), is(1));
+    }
+
+    /**
+     * Asserts that {@link LogicalLineChunkParser#findLogicalLineBoundary(CharSequence, int)} skips line separators that are
+     * preceded by a continuation character.
+     */
+    @Test
+    public void findLogicalLineBoundaryContinuation() {
+        assertThat(LogicalLineChunkParser.findLogicalLineBoundary(" DC.B 1,&\n 2\n NOP", 0), is(13));
+        assertThat(LogicalLineChunkParser.findLogicalLineBoundary(" DC.B 1,&\r\n 2\n NOP", 0), is(14));
+        assertThat(LogicalLineChunkParser.findLogicalLineBoundary(" DC.B 1,&\r 2\r\n NOP", 0), is(14));
+        assertThat(LogicalLineChunkParser.findLogicalLineBoundary(" DC.B 1,&\n\r\n NOP", 0), is(12));
+        assertThat(LogicalLineChunkParser.findLogicalLineBoundary(" DC.B 1,&\n", 0), is(10));
+    }
+
+}
@@ -0,0 +1,79 @@
+package org.reasm.commons.source;
+
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.lessThan;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assume.assumeTrue;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+
+import javax.annotation.Nonnull;
+
+import org.junit.Test;
+
+import ca.fragag.text.GenericCharSequenceReader;
+
+/**
+ * Test class for the allocation behavior of {@link LogicalLineParser}.
+ *
+ * @author Francis Gagné
+ */
+public class LogicalLineParserAllocationTest {
+
+    private static final int NUMBER_OF_LINES = 1000;
+
+    @Nonnull
+    private static final String LINE = "label: MOVE.W (A0)+,D1 ; copy&\n";
+
+    @Nonnull
+    private static final int[] EMPTY_INT_ARRAY = new int[0];
+
+    private static long getAllocatedBytes(@Nonnull com.sun.management.ThreadMXBean threadMXBean,
+            @Nonnull LogicalLineParser parser, @Nonnull String text) {
+        final GenericCharSequenceReader reader = new GenericCharSequenceReader(text, 0);
+        final long threadId = Thread.currentThread().getId();
+        final long before = threadMXBean.getThreadAllocatedBytes(threadId);
+        while (!reader.atEnd()) {
+            parser.parse(reader);
+        }
+
+        return threadMXBean.getThreadAllocatedBytes(threadId) - before;
+    }
+
+    @Nonnull
+    private static String repeatLine(int count) {
+        final StringBuilder sb = new StringBuilder(LINE.length() * count);
+        for (int i = 0; i < count; i++) {
+            sb.append(LINE);
+        }
+
+        return sb.toString();
+    }
+
+    /**
+     * Asserts that {@link LogicalLineParser#parse(ca.fragag.text.CharSequenceReader)} reuses its scratch buffers from one logical
+     * line to the next, such that the memory it allocates per logical line doesn't grow with the number of logical lines.
+     */
+    @Test
+    public void parseAllocationPerLineDoesNotGrow() {
+        final ThreadMXBean threadMXBean = ManagementFactory.getThreadMXBean();
+        assumeTrue(threadMXBean instanceof com.sun.management.ThreadMXBean);
+        final com.sun.management.ThreadMXBean sunThreadMXBean = (com.sun.management.ThreadMXBean) threadMXBean;
+        assumeTrue(sunThreadMXBean.isThreadAllocatedMemorySupported() && sunThreadMXBean.isThreadAllocatedMemoryEnabled());
+
+        final String text = repeatLine(NUMBER_OF_LINES);
+        final String longText = repeatLine(NUMBER_OF_LINES * 10);
+        final LogicalLineParser parser = new LogicalLineParser(new Syntax(EMPTY_INT_ARRAY, EMPTY_INT_ARRAY));
+
+        // Warm up, so that the scratch buffers reach their final size.
+        getAllocatedBytes(sunThreadMXBean, parser, longText);
+
+        final long allocatedBytes = getAllocatedBytes(sunThreadMXBean, parser, text);
+        final long allocatedBytesForTenTimesMoreLines = getAllocatedBytes(sunThreadMXBean, parser, longText);
+
+        // Parsing 10 times more lines should allocate about 10 times more memory. Leave some slack for unrelated allocations.
+        assertThat(allocatedBytesForTenTimesMoreLines, is(lessThan(allocatedBytes * 15)));
+    }
+
+}
@@ -251,21 +251,6 @@ public class LogicalLineParserTest {
             assertThat(attributes.parseError, is(new EquivalentParseError(this.parseError)));
         }
 
-        // Check labels
-        assertThat(attributes.labels, is(this.labels));
-
-        // Check mnemonic
-        assertThat(attributes.mnemonic, is(this.mnemonic));
-
-        // Check operands
-        assertThat(attributes.operands, is(this.operands));
-
-        // Check comment
-        assertThat(attributes.comment, is(this.comment));
-
-        // Check continuation characters
-        assertThat(attributes.continuationCharacters, is(this.continuationCharacters));
-
         final LogicalLine logicalLine = TestLogicalLineFactory.INSTANCE.createLogicalLine(attributes);
 
         // Check SourceNode properties
@@ -280,19 +265,27 @@ public class LogicalLineParserTest {
         assertThat(logicalLine.getNumberOfLabels(), is(this.labels.length));
         for (int i = 0; i < this.labels.length; i++) {
             assertThat(logicalLine.getLabelBounds(i), is(this.labels[i]));
+            assertThat(logicalLine.getLabelStart(i), is(this.labels[i].getStart()));
+            assertThat(logicalLine.getLabelEnd(i), is(this.labels[i].getEnd()));
         }
 
         // Check mnemonic
         assertThat(logicalLine.getMnemonicBounds(), is(this.mnemonic));
+        assertThat(logicalLine.getMnemonicStart(), is(this.mnemonic == null ? -1 : this.mnemonic.getStart()));
+        assertThat(logicalLine.getMnemonicEnd(), is(this.mnemonic == null ? -1 : this.mnemonic.getEnd()));
 
         // Check operands
         assertThat(logicalLine.getNumberOfOperands(), is(this.operands.length));
         for (int i = 0; i < this.operands.length; i++) {
             assertThat(logicalLine.getOperandBounds(i), is(this.operands[i]));
+            assertThat(logicalLine.getOperandStart(i), is(this.operands[i].getStart()));
+            assertThat(logicalLine.getOperandEnd(i), is(this.operands[i].getEnd()));
         }
 
         // Check comment
         assertThat(logicalLine.getCommentBounds(), is(this.comment));
+        assertThat(logicalLine.getCommentStart(), is(this.comment == null ? -1 : this.comment.getStart()));
+        assertThat(logicalLine.getCommentEnd(), is(this.comment == null ? -1 : this.comment.getEnd()));
 
         // Check continuation characters
         assertThat(logicalLine.getNumberOfContinuationCharacters(), is(this.continuationCharacters.length));
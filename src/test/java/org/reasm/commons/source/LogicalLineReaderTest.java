@@ -0,0 +1,69 @@
+package org.reasm.commons.source;
+
+import static org.hamcrest.Matchers.is;
+import static org.junit.Assert.assertThat;
+
+import org.junit.Test;
+import org.reasm.commons.testhelpers.TestArchitecture;
+import org.reasm.source.SourceFile;
+import org.reasm.source.SourceLocation;
+
+/**
+ * Test class for {@link LogicalLineReader}.
+ *
+ * @author Francis Gagné
+ */
+public class LogicalLineReaderTest {
+
+    /**
+     * Asserts that {@link LogicalLineReader#advance()} skips continuation characters as well as the line break and subsequent
+     * whitespace following them.
+     */
+    @Test
+    public void advance() {
+        final SourceFile sourceFile = new SourceFile("a\tb c&d&\ne&\rf&\r\ng&\n\t h", "");
+        final SourceLocation sourceLocation = sourceFile.getSourceLocations(TestArchitecture.INSTANCE).get(0)
+                .getChildSourceLocations().get(0);
+        final LogicalLineReader reader = new LogicalLineReader();
+        reader.setRange(sourceLocation, 4, 22);
+        assertThat(reader.getCurrentCodePoint(), is((int) 'c'));
+        reader.advance();
+        assertThat(reader.getCurrentCodePoint(), is((int) '&'));
+        reader.advance();
+        assertThat(reader.getCurrentCodePoint(), is((int) 'd'));
+        reader.advance();
+        assertThat(reader.getCurrentCodePoint(), is((int) 'e'));
+        assertThat(reader.getCurrentPositionInLogicalLine(), is(9));
+
+        final int position = reader.backupPosition();
+        assertThat(position, is(sourceLocation.getTextPosition() + 9));
+        assertThat(reader.readToString(), is("efgh"));
+        assertThat(reader.atEnd(), is(true));
+        assertThat(reader.getCurrentCodePoint(), is(-1));
+
+        reader.restorePosition(position);
+        reader.advance();
+        reader.skipWhitespace();
+        assertThat(reader.getCurrentCodePoint(), is((int) 'f'));
+        assertThat(reader.getCurrentPositionInLogicalLine(), is(12));
+    }
+
+    /**
+     * Asserts that {@link LogicalLineReader#readToCharSequence()} returns the text on the rest of the range and advances the reader
+     * to the end of the range.
+     */
+    @Test
+    public void readToCharSequence() {
+        final SourceFile sourceFile = new SourceFile(" MOVE D0,D1", "");
+        final SourceLocation sourceLocation = sourceFile.getSourceLocations(TestArchitecture.INSTANCE).get(0)
+                .getChildSourceLocations().get(0);
+        final LogicalLineReader reader = new LogicalLineReader();
+        reader.setRange(sourceLocation, 1, 11);
+        reader.advance();
+        final LogicalLineText text = reader.readToCharSequence();
+        assertThat(text.toString(), is("OVE D0,D1"));
+        assertThat(text.getPositionInLogicalLine(0), is(2));
+        assertThat(reader.atEnd(), is(true));
+    }
+
+}
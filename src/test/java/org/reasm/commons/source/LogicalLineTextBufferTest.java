@@ -0,0 +1,110 @@
+package org.reasm.commons.source;
+
+import static org.hamcrest.Matchers.is;
+import static org.junit.Assert.assertThat;
+
+import javax.annotation.Nonnull;
+
+import org.junit.Test;
+import org.reasm.commons.testhelpers.TestArchitecture;
+import org.reasm.source.SourceFile;
+import org.reasm.source.SourceLocation;
+
+/**
+ * Test class for {@link LogicalLineTextBuffer}.
+ *
+ * @author Francis Gagné
+ */
+public class LogicalLineTextBufferTest {
+
+    @Nonnull
+    private static SourceLocation getFirstLine(@Nonnull String text) {
+        return new SourceFile(text, "").getSourceLocations(TestArchitecture.INSTANCE).get(0).getChildSourceLocations().get(0);
+    }
+
+    /**
+     * Asserts that {@link LogicalLineTextBuffer#extract(SourceLocation, boolean)} extracts the text of the labels, of the mnemonic
+     * and of the operands of a logical line, skipping continuation characters.
+     */
+    @Test
+    public void extract() {
+        final LogicalLineTextBuffer buffer = new LogicalLineTextBuffer();
+        buffer.extract(getFirstLine("lab&\nel0: label1: MO&\nVE D&\n0,D1 ; Move D0 to D1"), true);
+        assertThat(buffer.getNumberOfLabels(), is(2));
+        assertThat(buffer.getLabelText(0), is("label0"));
+        assertThat(buffer.getLabelText(1), is("label1"));
+        assertThat(buffer.hasMnemonic(), is(true));
+        assertThat(buffer.getMnemonicText(), is("MOVE"));
+        assertThat(buffer.getNumberOfOperands(), is(2));
+        assertThat(buffer.getOperandText(0), is("D0"));
+        assertThat(buffer.getOperandText(1), is("D1"));
+
+        assertThat(new String(buffer.getBuffer(), 0, buffer.getOperandEnd(1)), is("label0label1MOVED0D1"));
+        assertThat(buffer.getLabelStart(1), is(6));
+        assertThat(buffer.getLabelEnd(1), is(12));
+        assertThat(buffer.getMnemonicStart(), is(12));
+        assertThat(buffer.getMnemonicEnd(), is(16));
+        assertThat(buffer.getOperandStart(0), is(16));
+        assertThat(buffer.getOperandEnd(0), is(18));
+    }
+
+    /**
+     * Asserts that {@link LogicalLineTextBuffer#extract(SourceLocation, boolean)} extracts only the text of the operands of a
+     * logical line when labels and mnemonic are excluded.
+     */
+    @Test
+    public void extractOperandsOnly() {
+        final LogicalLineTextBuffer buffer = new LogicalLineTextBuffer();
+        buffer.extract(getFirstLine("label0: MOVE D0,D1"), false);
+        assertThat(buffer.getNumberOfLabels(), is(0));
+        assertThat(buffer.hasMnemonic(), is(false));
+        assertThat(buffer.getNumberOfOperands(), is(2));
+        assertThat(buffer.getOperandStart(0), is(0));
+        assertThat(buffer.getOperandText(0), is("D0"));
+        assertThat(buffer.getOperandText(1), is("D1"));
+    }
+
+    /**
+     * Asserts that {@link LogicalLineTextBuffer#extract(SourceLocation, boolean)} replaces the text that was previously extracted,
+     * growing the buffer as needed.
+     */
+    @Test
+    public void extractReuse() {
+        final StringBuilder sb = new StringBuilder(" DC.B 0");
+        for (int i = 1; i < 200; i++) {
+            sb.append(',').append(i);
+        }
+
+        final LogicalLineTextBuffer buffer = new LogicalLineTextBuffer();
+        buffer.extract(getFirstLine(sb.toString()), true);
+        assertThat(buffer.getNumberOfOperands(), is(200));
+        assertThat(buffer.getOperandText(199), is("199"));
+
+        buffer.extract(getFirstLine(" NOP"), true);
+        assertThat(buffer.getMnemonicText(), is("NOP"));
+        assertThat(buffer.getNumberOfOperands(), is(0));
+    }
+
+    /**
+     * Asserts that {@link LogicalLineTextBuffer#getMnemonicText()} throws an {@link IllegalStateException} when no mnemonic was
+     * extracted.
+     */
+    @Test(expected = IllegalStateException.class)
+    public void getMnemonicTextNoMnemonic() {
+        final LogicalLineTextBuffer buffer = new LogicalLineTextBuffer();
+        buffer.extract(getFirstLine(" NOP"), false);
+        buffer.getMnemonicText();
+    }
+
+    /**
+     * Asserts that {@link LogicalLineTextBuffer#getOperandText(int)} throws an {@link IndexOutOfBoundsException} when the index is
+     * out of bounds.
+     */
+    @Test(expected = IndexOutOfBoundsException.class)
+    public void getOperandTextOutOfBounds() {
+        final LogicalLineTextBuffer buffer = new LogicalLineTextBuffer();
+        buffer.extract(getFirstLine(" MOVE D0,D1"), true);
+        buffer.getOperandText(2);
+    }
+
+}
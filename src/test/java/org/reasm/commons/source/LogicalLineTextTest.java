@@ -0,0 +1,169 @@
+package org.reasm.commons.source;
+
+import static org.hamcrest.Matchers.is;
+import static org.junit.Assert.assertThat;
+
+import javax.annotation.Nonnull;
+
+import org.junit.Test;
+import org.reasm.commons.testhelpers.TestArchitecture;
+import org.reasm.source.SourceFile;
+import org.reasm.source.SourceLocation;
+
+/**
+ * Test class for {@link LogicalLineText}.
+ *
+ * @author Francis Gagné
+ */
+public class LogicalLineTextTest {
+
+    @Nonnull
+    private static final SourceFile SOURCE_FILE = new SourceFile("a\tb c&d&\ne&\rf&\r\ng&\n\t h", "");
+    @Nonnull
+    private static final SourceLocation SOURCE_LOCATION = SOURCE_FILE.getSourceLocations(TestArchitecture.INSTANCE).get(0)
+            .getChildSourceLocations().get(0);
+
+    /**
+     * Asserts that {@link LogicalLineText#charAt(int)} returns the characters of the logical line, skipping continuation
+     * characters as well as the line break and subsequent whitespace following them.
+     */
+    @Test
+    public void charAt() {
+        final LogicalLineText text = LogicalLineText.get(SOURCE_LOCATION, 0, 22);
+        assertThat(text.length(), is(11));
+        assertThat(text.charAt(0), is('a'));
+        assertThat(text.charAt(1), is('\t'));
+        assertThat(text.charAt(5), is('&'));
+        assertThat(text.charAt(6), is('d'));
+        assertThat(text.charAt(7), is('e'));
+        assertThat(text.charAt(10), is('h'));
+    }
+
+    /**
+     * Asserts that {@link LogicalLineText#charAt(int)} throws an {@link IndexOutOfBoundsException} when the index is equal to the
+     * length of the text.
+     */
+    @Test(expected = IndexOutOfBoundsException.class)
+    public void charAtOutOfBounds() {
+        LogicalLineText.get(SOURCE_LOCATION, 0, 22).charAt(11);
+    }
+
+    /**
+     * Asserts that {@link LogicalLineText#contentEquals(CharSequence)} compares the characters of the text with those of another
+     * {@link CharSequence}.
+     */
+    @Test
+    public void contentEquals() {
+        final LogicalLineText text = LogicalLineText.get(SOURCE_LOCATION, 6, 22);
+        assertThat(text.contentEquals("defgh"), is(true));
+        assertThat(text.contentEquals("defgx"), is(false));
+        assertThat(text.contentEquals("defg"), is(false));
+    }
+
+    /**
+     * Asserts that {@link LogicalLineText#contentHashCode()} returns the hash code of the {@link String} that contains the same
+     * characters.
+     */
+    @Test
+    public void contentHashCode() {
+        assertThat(LogicalLineText.get(SOURCE_LOCATION, 6, 22).contentHashCode(), is("defgh".hashCode()));
+        assertThat(LogicalLineText.get(SOURCE_LOCATION, 0, 5).contentHashCode(), is("a\tb c".hashCode()));
+    }
+
+    /**
+     * Asserts that {@link LogicalLineText#get(SourceLocation, int, int)} throws an {@link IllegalArgumentException} when the
+     * range ends after the end of the logical line.
+     */
+    @Test(expected = IllegalArgumentException.class)
+    public void getEndAfterLogicalLine() {
+        LogicalLineText.get(SOURCE_LOCATION, 0, 23);
+    }
+
+    /**
+     * Asserts that {@link LogicalLineText#getIndex(int)} maps each position in the logical line to the index of the corresponding
+     * character in the text, and maps skipped positions to the index of the next character.
+     */
+    @Test
+    public void getIndex() {
+        final LogicalLineText text = LogicalLineText.get(SOURCE_LOCATION, 0, 22);
+        final int[] positions = new int[] { 0, 1, 2, 3, 4, 5, 6, 9, 12, 16, 21, 22 };
+        for (int i = 0; i < positions.length; i++) {
+            assertThat(text.getIndex(positions[i]), is(i));
+        }
+
+        assertThat(text.getIndex(7), is(7));
+        assertThat(text.getIndex(8), is(7));
+
+        final LogicalLineText subSequence = text.subSequence(7, 11);
+        assertThat(subSequence.getIndex(12), is(1));
+        assertThat(subSequence.getIndex(22), is(4));
+    }
+
+    /**
+     * Asserts that {@link LogicalLineText#get(SourceLocation, int, int)} throws an {@link IllegalArgumentException} when the
+     * range's start is negative.
+     */
+    @Test(expected = IllegalArgumentException.class)
+    public void getNegativeStart() {
+        LogicalLineText.get(SOURCE_LOCATION, -1, 22);
+    }
+
+    /**
+     * Asserts that {@link LogicalLineText#getPositionInLogicalLine(int)} maps each index in the text to the position of the
+     * corresponding character in the logical line.
+     */
+    @Test
+    public void getPositionInLogicalLine() {
+        final LogicalLineText text = LogicalLineText.get(SOURCE_LOCATION, 0, 22);
+        final int[] expectedPositions = new int[] { 0, 1, 2, 3, 4, 5, 6, 9, 12, 16, 21, 22 };
+        for (int i = 0; i < expectedPositions.length; i++) {
+            assertThat(text.getPositionInLogicalLine(i), is(expectedPositions[i]));
+        }
+    }
+
+    /**
+     * Asserts that {@link LogicalLineText#getPositionInLogicalLine(int)} maps indices to positions in the logical line for a range
+     * that contains no continuation characters.
+     */
+    @Test
+    public void getPositionInLogicalLineNoContinuationCharacters() {
+        final LogicalLineText text = LogicalLineText.get(SOURCE_LOCATION, 2, 5);
+        assertThat(text.toString(), is("b c"));
+        assertThat(text.getPositionInLogicalLine(0), is(2));
+        assertThat(text.getPositionInLogicalLine(2), is(4));
+        assertThat(text.getPositionInLogicalLine(3), is(5));
+    }
+
+    /**
+     * Asserts that {@link LogicalLineText#subSequence(int, int)} returns the specified portion of the text.
+     */
+    @Test
+    public void subSequence() {
+        assertThat(LogicalLineText.get(SOURCE_LOCATION, 0, 22).subSequence(4, 9).toString(), is("c&def"));
+    }
+
+    /**
+     * Asserts that the text returned by {@link LogicalLineText#subSequence(int, int)} maps its indices to the positions of the
+     * corresponding characters in the logical line.
+     */
+    @Test
+    public void subSequenceGetPositionInLogicalLine() {
+        final LogicalLineText text = LogicalLineText.get(SOURCE_LOCATION, 0, 22).subSequence(7, 11);
+        assertThat(text.toString(), is("efgh"));
+        assertThat(text.getPositionInLogicalLine(0), is(9));
+        assertThat(text.getPositionInLogicalLine(1), is(12));
+        assertThat(text.getPositionInLogicalLine(4), is(22));
+    }
+
+    /**
+     * Asserts that {@link LogicalLineText#toString()} returns the text of a range of the logical line, skipping continuation
+     * characters as well as the line break and subsequent whitespace following them.
+     */
+    @Test
+    public void toStringOfRange() {
+        assertThat(LogicalLineText.get(SOURCE_LOCATION, 0, 22).toString(), is("a\tb c&defgh"));
+        assertThat(LogicalLineText.get(SOURCE_LOCATION, 6, 17).toString(), is("defg"));
+        assertThat(LogicalLineText.get(SOURCE_LOCATION, 9, 9).toString(), is(""));
+    }
+
+}
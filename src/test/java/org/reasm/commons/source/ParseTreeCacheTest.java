@@ -0,0 +1,156 @@
+package org.reasm.commons.source;
+
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.not;
+import static org.hamcrest.Matchers.sameInstance;
+import static org.junit.Assert.assertThat;
+
+import java.util.HashMap;
+
+import org.junit.Test;
+import org.reasm.commons.testhelpers.TestBlockDirectiveLineFactory;
+import org.reasm.commons.testhelpers.TestLogicalLineFactory;
+import org.reasm.source.SourceNode;
+
+import ca.fragag.text.Document;
+
+/**
+ * Test class for {@link ParseTreeCache}.
+ *
+ * @author Francis Gagné
+ */
+public class ParseTreeCacheTest {
+
+    private static final class DecoratingParser extends Parser {
+
+        DecoratingParser() {
+            super(TestParser.SYNTAX, TestParser.BLOCK_DIRECTIVES, TestParser.BLOCKS, TestLogicalLineFactory.INSTANCE,
+                    TestBlockDirectiveLineFactory.INSTANCE);
+        }
+
+        @Override
+        public String undecorateMnemonic(String mnemonic) {
+            return mnemonic;
+        }
+
+    }
+
+    private static final String TEXT = " NOP\n BLOCK0\n MOVE D0,D1\n ENDBLOCK0\n";
+
+    /**
+     * Asserts that {@link ParseTreeCache#parse(Parser, Document)} returns the same tree for documents with the same contents and
+     * parsers with the same configuration.
+     */
+    @Test
+    public void parse() {
+        final ParseTreeCache cache = new ParseTreeCache(4);
+        final SourceNode first = cache.parse(TestParser.TEST_PARSER, new Document(TEXT));
+        assertThat(cache.getMissCount(), is(1L));
+        assertThat(cache.getHitCount(), is(0L));
+
+        final Parser otherParser = new Parser(TestParser.SYNTAX, TestParser.BLOCK_DIRECTIVES, TestParser.BLOCKS,
+                TestLogicalLineFactory.INSTANCE, TestBlockDirectiveLineFactory.INSTANCE);
+        final SourceNode second = cache.parse(otherParser, new Document(TEXT));
+        assertThat(second, is(sameInstance(first)));
+        assertThat(cache.getMissCount(), is(1L));
+        assertThat(cache.getHitCount(), is(1L));
+        assertThat(cache.size(), is(1));
+    }
+
+    /**
+     * Asserts that {@link ParseTreeCache#parse(Parser, Document)} parses the source file again when the contents are different or
+     * when the parser's configuration is different, including when the parser was initialized with an equal but distinct map of
+     * block directives.
+     */
+    @Test
+    public void parseMiss() {
+        final ParseTreeCache cache = new ParseTreeCache(4);
+        final SourceNode first = cache.parse(TestParser.TEST_PARSER, new Document(TEXT));
+        assertThat(cache.parse(TestParser.TEST_PARSER, new Document(TEXT + " NOP\n")), is(not(sameInstance(first))));
+
+        final Parser otherSyntaxParser = new Parser(new Syntax(new int[] { '+' }, new int[0]), TestParser.BLOCK_DIRECTIVES,
+                TestParser.BLOCKS, TestLogicalLineFactory.INSTANCE, TestBlockDirectiveLineFactory.INSTANCE);
+        assertThat(cache.parse(otherSyntaxParser, new Document(TEXT)), is(not(sameInstance(first))));
+
+        final Parser otherMapParser = new Parser(TestParser.SYNTAX, new HashMap<>(TestParser.BLOCK_DIRECTIVES), TestParser.BLOCKS,
+                TestLogicalLineFactory.INSTANCE, TestBlockDirectiveLineFactory.INSTANCE);
+        assertThat(cache.parse(otherMapParser, new Document(TEXT)), is(not(sameInstance(first))));
+
+        assertThat(cache.getMissCount(), is(4L));
+        assertThat(cache.getHitCount(), is(0L));
+        assertThat(cache.size(), is(4));
+    }
+
+    /**
+     * Asserts that {@link ParseTreeCache#parse(Parser, Document)} doesn't share trees between two instances of a parser class that
+     * overrides {@link Parser#undecorateMnemonic(String)}.
+     */
+    @Test
+    public void parseOverriddenUndecorateMnemonic() {
+        final ParseTreeCache cache = new ParseTreeCache(4);
+        final Parser parser = new DecoratingParser();
+        final SourceNode first = cache.parse(parser, new Document(TEXT));
+        assertThat(cache.parse(parser, new Document(TEXT)), is(sameInstance(first)));
+        assertThat(cache.parse(new DecoratingParser(), new Document(TEXT)), is(not(sameInstance(first))));
+        assertThat(cache.getMissCount(), is(2L));
+        assertThat(cache.getHitCount(), is(1L));
+    }
+
+    /**
+     * Asserts that {@link ParseTreeCache#parse(Parser, Document)} keeps the least recently used trees through soft references when
+     * the cache exceeds its maximum size, and that {@link ParseTreeCache#clear()} removes all the trees.
+     */
+    @Test
+    public void parseEviction() {
+        final ParseTreeCache cache = new ParseTreeCache(1);
+        final SourceNode first = cache.parse(TestParser.TEST_PARSER, new Document(TEXT));
+        cache.parse(TestParser.TEST_PARSER, new Document(TEXT + " NOP\n"));
+
+        // The first tree was demoted, but it is strongly reachable from this test, so it cannot have been reclaimed.
+        assertThat(cache.size(), is(2));
+        assertThat(cache.parse(TestParser.TEST_PARSER, new Document(TEXT)), is(sameInstance(first)));
+        assertThat(cache.getHitCount(), is(1L));
+
+        cache.clear();
+        assertThat(cache.size(), is(0));
+        assertThat(cache.parse(TestParser.TEST_PARSER, new Document(TEXT)), is(not(sameInstance(first))));
+    }
+
+    /**
+     * Asserts that {@link ParseTreeCache#parse(Parser, Document)} drops the least recently demoted tree when there are more trees
+     * kept through soft references than the maximum.
+     */
+    @Test
+    public void parseEvictionSoftLimit() {
+        final ParseTreeCache cache = new ParseTreeCache(1, 1);
+        final SourceNode first = cache.parse(TestParser.TEST_PARSER, new Document(TEXT));
+        final SourceNode second = cache.parse(TestParser.TEST_PARSER, new Document(TEXT + " NOP\n"));
+        cache.parse(TestParser.TEST_PARSER, new Document(TEXT + " NOP\n NOP\n"));
+
+        // The first tree was dropped even though it is still reachable; the second tree is still kept through a soft reference.
+        assertThat(cache.size(), is(2));
+        assertThat(cache.parse(TestParser.TEST_PARSER, new Document(TEXT + " NOP\n")), is(sameInstance(second)));
+        assertThat(cache.parse(TestParser.TEST_PARSER, new Document(TEXT)), is(not(sameInstance(first))));
+        assertThat(cache.getHitCount(), is(1L));
+        assertThat(cache.getMissCount(), is(4L));
+    }
+
+    /**
+     * Asserts that {@link ParseTreeCache#ParseTreeCache(int)} throws an {@link IllegalArgumentException} when the maximum size is
+     * negative.
+     */
+    @Test(expected = IllegalArgumentException.class)
+    public void parseTreeCacheNegativeMaximumSize() {
+        new ParseTreeCache(-1);
+    }
+
+    /**
+     * Asserts that {@link ParseTreeCache#ParseTreeCache(int, int)} throws an {@link IllegalArgumentException} when the maximum
+     * number of trees kept through soft references is negative.
+     */
+    @Test(expected = IllegalArgumentException.class)
+    public void parseTreeCacheNegativeMaximumSoftSize() {
+        new ParseTreeCache(1, -1);
+    }
+
+}
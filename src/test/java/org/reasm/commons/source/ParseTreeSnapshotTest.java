@@ -0,0 +1,264 @@
+package org.reasm.commons.source;
+
+import static org.hamcrest.Matchers.instanceOf;
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.notNullValue;
+import static org.hamcrest.Matchers.nullValue;
+import static org.hamcrest.Matchers.sameInstance;
+import static org.junit.Assert.assertThat;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import javax.annotation.Nonnull;
+
+import org.junit.Test;
+import org.reasm.commons.parseerrors.ElseOrElseIfAfterElseParseError;
+import org.reasm.commons.parseerrors.UnclosedBlockParseError;
+import org.reasm.commons.testhelpers.EquivalentParseError;
+import org.reasm.commons.testhelpers.TestBlockDirectiveLineFactory;
+import org.reasm.commons.testhelpers.TestLogicalLineFactory;
+import org.reasm.source.CompositeSourceNode;
+import org.reasm.source.SimpleCompositeSourceNode;
+import org.reasm.source.SourceNode;
+
+import ca.fragag.text.Document;
+
+import com.google.common.collect.ImmutableMap;
+
+/**
+ * Test class for {@link ParseTreeSnapshot}.
+ *
+ * @author Francis Gagné
+ */
+public class ParseTreeSnapshotTest {
+
+    private static final String TEXT = "FOO: MOVE D0,D1 ; comment &\n D2\n:\n BLOCK0\n IF 1\n NOP\n ELSE\n ELSE\n NOP\n ENDIF\n"
+            + " ENDBLOCK0\n BLOCK1\n NOP";
+
+    @Nonnull
+    private static byte[] write(@Nonnull SourceNode root, @Nonnull Document text) throws IOException {
+        final ByteArrayOutputStream out = new ByteArrayOutputStream();
+        ParseTreeSnapshot.write(TestParser.TEST_PARSER, root, text, out);
+        return out.toByteArray();
+    }
+
+    /**
+     * Asserts that {@link ParseTreeSnapshot#read(Parser, Document, ByteBuffer)} rebuilds the tree that was written by
+     * {@link ParseTreeSnapshot#write(Parser, SourceNode, Document, java.io.OutputStream)}, including the parse errors.
+     *
+     * @throws IOException
+     *             an I/O exception occurred
+     */
+    @Test
+    public void read() throws IOException {
+        final Document text = new Document(TEXT);
+        final SourceNode expected = TestParser.TEST_PARSER.parse(text);
+        final SourceNode actual = ParseTreeSnapshot.read(TestParser.TEST_PARSER, text, ByteBuffer.wrap(write(expected, text)));
+        assertThat(actual, is(notNullValue()));
+        ParserTest.assertEquivalentTree(actual, expected);
+
+        final List<SourceNode> childNodes = ((Block) actual).getChildNodes();
+        assertThat(childNodes.get(1).getParseError(), is(notNullValue()));
+
+        final SourceNode block0 = childNodes.get(2);
+        assertThat(block0, is(instanceOf(Block0Block.class)));
+        assertThat(((Block0Block) block0).getChildNodes().get(0).getParseError(), is(nullValue()));
+        assertThat(BlockDirective.getBlockDirective(((Block0Block) block0).getChildNodes().get(0)),
+                is(sameInstance(TestParser.BLOCK0)));
+
+        final SourceNode ifBlock = ((Block) ((Block0Block) block0).getChildNodes().get(1)).getChildNodes().get(0);
+        assertThat(ifBlock, is(instanceOf(IfBlock.class)));
+        assertThat(ifBlock.getParseError(), is(new EquivalentParseError(new ElseOrElseIfAfterElseParseError(TestParser.ELSE))));
+
+        final SourceNode block1 = childNodes.get(3);
+        assertThat(block1, is(instanceOf(Block1Block.class)));
+        assertThat(block1.getParseError(), is(new EquivalentParseError(new UnclosedBlockParseError(TestParser.BLOCK1))));
+    }
+
+    /**
+     * Asserts that {@link ParseTreeSnapshot#read(Parser, Document, ByteBuffer)} returns <code>null</code> when the snapshot is
+     * corrupted.
+     *
+     * @throws IOException
+     *             an I/O exception occurred
+     */
+    @Test
+    public void readCorrupted() throws IOException {
+        final Document text = new Document(TEXT);
+        final byte[] snapshot = write(TestParser.TEST_PARSER.parse(text), text);
+        assertThat(ParseTreeSnapshot.read(TestParser.TEST_PARSER, text, ByteBuffer.wrap(snapshot, 0, snapshot.length - 1)),
+                is(nullValue()));
+        assertThat(ParseTreeSnapshot.read(TestParser.TEST_PARSER, text, ByteBuffer.wrap(Arrays.copyOf(snapshot, 10))),
+                is(nullValue()));
+
+        snapshot[0] = 0;
+        assertThat(ParseTreeSnapshot.read(TestParser.TEST_PARSER, text, ByteBuffer.wrap(snapshot)), is(nullValue()));
+    }
+
+    /**
+     * Asserts that {@link ParseTreeSnapshot#read(Parser, Document, ByteBuffer)} returns <code>null</code> when the positions on a
+     * logical line are corrupted, or when a number in the snapshot doesn't fit in an <code>int</code>.
+     *
+     * @throws IOException
+     *             an I/O exception occurred
+     */
+    @Test
+    public void readCorruptedBounds() throws IOException {
+        final Document text = new Document(" NOP\n");
+        final byte[] snapshot = write(TestParser.TEST_PARSER.parse(text), text);
+
+        // The body is: 1 child node, a logical line of 5 characters with 6 positions: no labels, no operands, the mnemonic from 1
+        // to 4 and no comment (the positions are shifted by 1).
+        final int bodyStart = snapshot.length - 10;
+        assertThat(Arrays.copyOfRange(snapshot, bodyStart, snapshot.length), is(new byte[] { 1, 0, 5, 6, 0 + 1, 0 + 1, 1 + 1,
+                4 + 1, -1 + 1, -1 + 1 }));
+        assertThat(ParseTreeSnapshot.read(TestParser.TEST_PARSER, text, ByteBuffer.wrap(snapshot)), is(notNullValue()));
+
+        // The mnemonic ends after the end of the logical line.
+        byte[] corrupted = snapshot.clone();
+        corrupted[bodyStart + 7] = 6 + 1;
+        assertThat(ParseTreeSnapshot.read(TestParser.TEST_PARSER, text, ByteBuffer.wrap(corrupted)), is(nullValue()));
+
+        // The mnemonic ends before it starts.
+        corrupted = snapshot.clone();
+        corrupted[bodyStart + 6] = 3 + 1;
+        corrupted[bodyStart + 7] = 2 + 1;
+        assertThat(ParseTreeSnapshot.read(TestParser.TEST_PARSER, text, ByteBuffer.wrap(corrupted)), is(nullValue()));
+
+        // The comment has a start but no end.
+        corrupted = snapshot.clone();
+        corrupted[bodyStart + 8] = 4 + 1;
+        assertThat(ParseTreeSnapshot.read(TestParser.TEST_PARSER, text, ByteBuffer.wrap(corrupted)), is(nullValue()));
+
+        // The length of the logical line is encoded on 5 bytes, with bits beyond the 32nd set.
+        final ByteArrayOutputStream out = new ByteArrayOutputStream();
+        out.write(snapshot, 0, bodyStart + 2);
+        out.write(new byte[] { (byte) 0x85, (byte) 0x80, (byte) 0x80, (byte) 0x80, 0x10 });
+        out.write(snapshot, bodyStart + 3, 7);
+        assertThat(ParseTreeSnapshot.read(TestParser.TEST_PARSER, text, ByteBuffer.wrap(out.toByteArray())), is(nullValue()));
+    }
+
+    /**
+     * Asserts that {@link ParseTreeSnapshot#read(Parser, Document, ByteBuffer)} returns <code>null</code> when the bodies in a block
+     * are not where the block parser expects them.
+     *
+     * @throws IOException
+     *             an I/O exception occurred
+     */
+    @Test
+    public void readMismatchedBodyBlocks() throws IOException {
+        final Document text = new Document(" IF 1\n NOP\n ELSE\n NOP\n ENDIF\n");
+        final byte[] snapshot = write(TestParser.TEST_PARSER.parse(text), text);
+
+        // A BasicBlockParser expects a single body, at index 1, but the IF block has another body at index 3.
+        final Parser parser = new Parser(TestParser.SYNTAX, TestParser.BLOCK_DIRECTIVES, ImmutableMap.of(
+                TestParser.BLOCK_DIRECTIVES.get("IF"), TestParser.BLOCK0_BLOCK_PARSER), TestLogicalLineFactory.INSTANCE,
+                TestBlockDirectiveLineFactory.INSTANCE);
+        assertThat(ParseTreeSnapshot.read(parser, text, ByteBuffer.wrap(snapshot)), is(nullValue()));
+    }
+
+    /**
+     * Asserts that {@link ParseTreeSnapshot#read(Parser, Document, ByteBuffer)} rebuilds IF blocks that are nested in the body of
+     * a block and in the branches of other IF blocks.
+     *
+     * @throws IOException
+     *             an I/O exception occurred
+     */
+    @Test
+    public void readNestedIfBlocks() throws IOException {
+        final Document text = new Document(" BLOCK0\n IF 1\n IF 2\n NOP\n ELSE\n IF 3\n ENDIF\n ENDIF\n ELSEIF 4\n NOP\n ENDIF\n"
+                + " ENDBLOCK0\n");
+        final SourceNode expected = TestParser.TEST_PARSER.parse(text);
+        final SourceNode actual = ParseTreeSnapshot.read(TestParser.TEST_PARSER, text, ByteBuffer.wrap(write(expected, text)));
+        assertThat(actual, is(notNullValue()));
+        ParserTest.assertEquivalentTree(actual, expected);
+
+        final Block0Block block0 = (Block0Block) ((Block) actual).getChildNodes().get(0);
+        final IfBlock outerIfBlock = (IfBlock) ((CompositeSourceNode) block0.getChildNodes().get(1)).getChildNodes().get(0);
+        assertThat(outerIfBlock.getChildNodes().size(), is(5));
+        final IfBlock innerIfBlock = (IfBlock) ((CompositeSourceNode) outerIfBlock.getChildNodes().get(1)).getChildNodes().get(0);
+        assertThat(innerIfBlock.getChildNodes().size(), is(5));
+        final List<SourceNode> elseBodyChildNodes = ((CompositeSourceNode) innerIfBlock.getChildNodes().get(3)).getChildNodes();
+        assertThat(elseBodyChildNodes.get(0), is(instanceOf(IfBlock.class)));
+    }
+
+    /**
+     * Asserts that {@link ParseTreeSnapshot#read(Parser, Document, ByteBuffer)} returns <code>null</code> when the snapshot was
+     * written for a different text.
+     *
+     * @throws IOException
+     *             an I/O exception occurred
+     */
+    @Test
+    public void readDifferentText() throws IOException {
+        final Document text = new Document(TEXT);
+        final byte[] snapshot = write(TestParser.TEST_PARSER.parse(text), text);
+        assertThat(ParseTreeSnapshot.read(TestParser.TEST_PARSER, new Document(TEXT + "\n"), ByteBuffer.wrap(snapshot)),
+                is(nullValue()));
+    }
+
+    /**
+     * Asserts that {@link ParseTreeSnapshot#read(Parser, Document, ByteBuffer)} returns <code>null</code> when the snapshot refers
+     * to block directives that the parser doesn't recognize.
+     *
+     * @throws IOException
+     *             an I/O exception occurred
+     */
+    @Test
+    public void readUnknownBlockDirective() throws IOException {
+        final Document text = new Document(TEXT);
+        final byte[] snapshot = write(TestParser.TEST_PARSER.parse(text), text);
+        final Parser parser = new Parser(TestParser.SYNTAX, Collections.<String, BlockDirective> emptyMap(),
+                Collections.<BlockDirective, BlockParser> emptyMap(), TestLogicalLineFactory.INSTANCE,
+                TestBlockDirectiveLineFactory.INSTANCE);
+        assertThat(ParseTreeSnapshot.read(parser, text, ByteBuffer.wrap(snapshot)), is(nullValue()));
+    }
+
+    /**
+     * Asserts that {@link ParseTreeSnapshot#read(Parser, Document, ByteBuffer)} doesn't change the position of the buffer.
+     *
+     * @throws IOException
+     *             an I/O exception occurred
+     */
+    @Test
+    public void readPosition() throws IOException {
+        final Document text = new Document(TEXT);
+        final ByteBuffer buffer = ByteBuffer.wrap(write(TestParser.TEST_PARSER.parse(text), text));
+        assertThat(ParseTreeSnapshot.read(TestParser.TEST_PARSER, text, buffer), is(notNullValue()));
+        assertThat(buffer.position(), is(0));
+    }
+
+    /**
+     * Asserts that {@link ParseTreeSnapshot#write(Parser, SourceNode, Document, java.io.OutputStream)} throws an
+     * {@link IllegalArgumentException} when the tree contains a composite node that is neither a block nor the body of a block.
+     *
+     * @throws IOException
+     *             an I/O exception occurred
+     */
+    @Test(expected = IllegalArgumentException.class)
+    public void writeCompositeNotBlock() throws IOException {
+        final Document text = new Document(" NOP");
+        final SourceNode root = TestParser.TEST_PARSER.parse(text);
+        write(new Block(Arrays.<SourceNode> asList(new SimpleCompositeSourceNode(((Block) root).getChildNodes())), null), text);
+    }
+
+    /**
+     * Asserts that {@link ParseTreeSnapshot#write(Parser, SourceNode, Document, java.io.OutputStream)} throws an
+     * {@link IllegalArgumentException} when the root node is not a {@link Block}.
+     *
+     * @throws IOException
+     *             an I/O exception occurred
+     */
+    @Test(expected = IllegalArgumentException.class)
+    public void writeRootNotBlock() throws IOException {
+        final Document text = new Document(" NOP");
+        final SourceNode root = TestParser.TEST_PARSER.parse(text);
+        write(((Block) root).getChildNodes().get(0), text);
+    }
+
+}
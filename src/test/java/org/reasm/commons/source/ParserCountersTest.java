@@ -0,0 +1,155 @@
+package org.reasm.commons.source;
+
+import static org.hamcrest.Matchers.greaterThan;
+import static org.hamcrest.Matchers.is;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.fail;
+
+import java.io.IOException;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import javax.annotation.Nonnull;
+
+import org.junit.Test;
+import org.reasm.commons.testhelpers.TestBlockDirectiveLineFactory;
+import org.reasm.commons.testhelpers.TestLogicalLineFactory;
+import org.reasm.source.SourceNode;
+
+import ca.fragag.text.Document;
+
+/**
+ * Test class for {@link ParserCounters}.
+ *
+ * @author Francis Gagné
+ */
+public class ParserCountersTest {
+
+    @Nonnull
+    private static Parser createParser(@Nonnull ParserCounters counters) {
+        return new Parser(TestParser.SYNTAX, TestParser.BLOCK_DIRECTIVES, TestParser.BLOCKS, TestLogicalLineFactory.INSTANCE,
+                TestBlockDirectiveLineFactory.INSTANCE, counters);
+    }
+
+    /**
+     * Asserts that a {@link Parser} reports the logical lines it parses and the time spent parsing to its
+     * {@link ParserCounters}.
+     */
+    @Test
+    public void parse() {
+        final ParserCounters counters = new ParserCounters();
+        final String text = " NOP\n BLOCK0\n NOP\n ENDBLOCK0\n";
+        createParser(counters).parse(new Document(text));
+
+        assertThat(counters.getLogicalLinesParsed(), is(4L));
+        assertThat(counters.getCharactersScanned(), is((long) text.length()));
+        assertThat(counters.getPhaseCount(ParserInstrumentation.Phase.PARSE), is(1L));
+        assertThat(counters.getPhaseCount(ParserInstrumentation.Phase.REPARSE), is(0L));
+        assertThat(counters.getFullParseFallbacks(), is(0L));
+    }
+
+    /**
+     * Asserts that {@link Parser#parse(Path, Charset, int, SourceNodeSink)} reports the time spent parsing to its
+     * {@link ParserCounters} even when the parse is interrupted by an exception.
+     */
+    @Test
+    public void parseFileFailure() throws IOException {
+        final ParserCounters counters = new ParserCounters();
+        final Path file = Files.createTempFile("ParserCountersTest", ".asm");
+        try {
+            Files.write(file, " NOP\n NOP\n".getBytes(StandardCharsets.UTF_8));
+
+            try {
+                createParser(counters).parse(file, StandardCharsets.UTF_8, 1024, new SourceNodeSink() {
+                    @Override
+                    public void accept(SourceNode sourceNode) {
+                        throw new IllegalStateException();
+                    }
+                });
+                fail("Parser.parse() should have thrown an IllegalStateException");
+            } catch (IllegalStateException e) {
+            }
+        } finally {
+            Files.delete(file);
+        }
+
+        assertThat(counters.getPhaseCount(ParserInstrumentation.Phase.PARSE), is(1L));
+    }
+
+    /**
+     * Asserts that a {@link Parser} reports the nodes it recycles and the nodes it parses again during a reparse to its
+     * {@link ParserCounters}.
+     */
+    @Test
+    public void reparse() {
+        final ParserCounters counters = new ParserCounters();
+        final Parser parser = createParser(counters);
+        final StringBuilder sb = new StringBuilder();
+        for (int i = 0; i < 20; i++) {
+            sb.append(" NOP\n");
+        }
+
+        final Document oldDocument = new Document(sb.toString());
+        final Block oldNode = (Block) parser.parse(oldDocument);
+        counters.reset();
+
+        final Block newNode = (Block) parser.reparse(oldDocument.replace(50, 0, " NOP\n"), oldNode, 50, 0, 5);
+
+        // Every top-level node of the new tree was either recycled or parsed again.
+        final long recycledBefore = counters.getNodesRecycled(ReparseStep.RECYCLE_BEFORE);
+        final long recycledAfter = counters.getNodesRecycled(ReparseStep.RECYCLE_AFTER);
+        final long reparsed = counters.getNodesReparsed(ReparseStep.PARSE_REPLACEMENT)
+                + counters.getNodesReparsed(ReparseStep.SYNCHRONIZE);
+        assertThat(recycledBefore, is(greaterThan(0L)));
+        assertThat(recycledAfter, is(greaterThan(0L)));
+        assertThat(recycledBefore + recycledAfter + reparsed, is((long) newNode.getChildNodes().size()));
+        assertThat(counters.getLogicalLinesParsed(), is(reparsed));
+        assertThat(counters.getPhaseCount(ParserInstrumentation.Phase.REPARSE), is(1L));
+        assertThat(counters.getPhaseCount(ParserInstrumentation.Phase.PARSE), is(0L));
+        assertThat(counters.getFullParseFallbacks(), is(0L));
+    }
+
+    /**
+     * Asserts that a {@link Parser} reports a full parse fallback to its {@link ParserCounters} when the arguments to
+     * {@link Parser#reparse(Document, org.reasm.source.SourceNode, int, int, int)} describe an invalid replacement.
+     */
+    @Test
+    public void reparseFullParseFallback() {
+        final ParserCounters counters = new ParserCounters();
+        final Parser parser = createParser(counters);
+        final Block oldNode = (Block) parser.parse(new Document(" NOP\n"));
+        parser.reparse(new Document(" NOP\n NOP"), oldNode, -1, 0, 4);
+
+        assertThat(counters.getFullParseFallbacks(), is(1L));
+        assertThat(counters.getPhaseCount(ParserInstrumentation.Phase.PARSE), is(2L));
+        assertThat(counters.getLogicalLinesParsed(), is(3L));
+    }
+
+    /**
+     * Asserts that {@link ParserCounters#reset()} resets all the counters to zero.
+     */
+    @Test
+    public void reset() {
+        final ParserCounters counters = new ParserCounters();
+        counters.logicalLineParsed(10);
+        counters.nodesRecycled(ReparseStep.RECYCLE_AFTER, 3);
+        counters.nodeReparsed(ReparseStep.SYNCHRONIZE);
+        counters.fullParseFallback();
+        counters.phaseCompleted(ParserInstrumentation.Phase.RESYNCHRONIZE, 1000);
+        assertThat(counters.getCharactersScanned(), is(10L));
+        assertThat(counters.getNodesRecycled(ReparseStep.RECYCLE_AFTER), is(3L));
+        assertThat(counters.getPhaseNanos(ParserInstrumentation.Phase.RESYNCHRONIZE), is(1000L));
+
+        counters.reset();
+        assertThat(counters.getLogicalLinesParsed(), is(0L));
+        assertThat(counters.getCharactersScanned(), is(0L));
+        assertThat(counters.getNodesRecycled(ReparseStep.RECYCLE_AFTER), is(0L));
+        assertThat(counters.getNodesReparsed(ReparseStep.SYNCHRONIZE), is(0L));
+        assertThat(counters.getFullParseFallbacks(), is(0L));
+        assertThat(counters.getPhaseCount(ParserInstrumentation.Phase.RESYNCHRONIZE), is(0L));
+        assertThat(counters.getPhaseNanos(ParserInstrumentation.Phase.RESYNCHRONIZE), is(0L));
+    }
+
+}
@@ -1,18 +1,38 @@
 package org.reasm.commons.source;
 
 import static org.hamcrest.Matchers.empty;
+import static org.hamcrest.Matchers.greaterThanOrEqualTo;
 import static org.hamcrest.Matchers.instanceOf;
 import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.lessThan;
+import static org.hamcrest.Matchers.not;
+import static org.hamcrest.Matchers.notNullValue;
 import static org.hamcrest.Matchers.nullValue;
 import static org.hamcrest.Matchers.sameInstance;
 import static org.junit.Assert.assertThat;
 import static org.junit.Assert.fail;
 
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collections;
+import java.util.HashMap;
+import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.concurrent.ForkJoinPool;
+
+import javax.annotation.Nonnull;
 
 import org.junit.Test;
+import org.reasm.commons.testhelpers.EquivalentLogicalLine;
 import org.reasm.commons.testhelpers.TestBlockDirectiveLineFactory;
 import org.reasm.commons.testhelpers.TestLogicalLineFactory;
 import org.reasm.source.CompositeSourceNode;
@@ -28,6 +48,102 @@ import ca.fragag.text.Document;
  */
 public class ParserTest {
 
+    private static final class CountingBlockMap extends HashMap<BlockDirective, BlockParser> {
+
+        private static final long serialVersionUID = 1L;
+
+        int lookups;
+
+        CountingBlockMap() {
+            super(TestParser.BLOCKS);
+        }
+
+        @Override
+        public BlockParser get(Object key) {
+            this.lookups++;
+            return super.get(key);
+        }
+
+    }
+
+    private static final class FailureRecordingParser extends Parser {
+
+        RuntimeException lastException;
+
+        FailureRecordingParser() {
+            super(TestParser.SYNTAX, TestParser.BLOCK_DIRECTIVES, TestParser.BLOCKS, TestLogicalLineFactory.INSTANCE,
+                    TestBlockDirectiveLineFactory.INSTANCE);
+        }
+
+        @Override
+        protected void reparseFailed(Document text, SourceNode oldSourceFileRootNode, RuntimeException exception) {
+            this.lastException = exception;
+        }
+
+    }
+
+    @Nonnull
+    private static final String UTF8_SOURCE = "\u00C9TIQUETTE: MOVE.W #'\u4E2D',D0 ; \uD835\uDC00&\n BLOCK0\n NOP \u00E9&\n"
+            + " , \u00E9\n ENDBLOCK0\n* commentaire \u00E0 la fin\r\n DC.B \"\u00E9\"";
+
+    static void assertEquivalentTree(@Nonnull SourceNode actual, @Nonnull SourceNode expected) {
+        assertThat((Object) actual.getClass(), is((Object) expected.getClass()));
+        assertThat(actual.getLength(), is(expected.getLength()));
+
+        if (expected instanceof LogicalLine) {
+            assertThat((LogicalLine) actual, is(new EquivalentLogicalLine((LogicalLine) expected)));
+        } else if (expected instanceof CompositeSourceNode) {
+            final List<SourceNode> actualChildNodes = ((CompositeSourceNode) actual).getChildNodes();
+            final List<SourceNode> expectedChildNodes = ((CompositeSourceNode) expected).getChildNodes();
+            assertThat(actualChildNodes.size(), is(expectedChildNodes.size()));
+            for (int i = 0; i < expectedChildNodes.size(); i++) {
+                assertEquivalentTree(actualChildNodes.get(i), expectedChildNodes.get(i));
+            }
+        }
+    }
+
+    /**
+     * Asserts that {@link Parser#iterate(Document)} returns the same nodes as the child nodes of the root node returned by
+     * {@link Parser#parse(Document)}, one at a time.
+     */
+    @Test
+    public void iterate() {
+        final Document document = new Document(" NOP\n BLOCK0\n NOP\n ENDBLOCK0\n MOVE D0,D1\n BLOCK1\n NOP");
+        final List<SourceNode> expectedNodes = ((Block) TestParser.TEST_PARSER.parse(document)).getChildNodes();
+
+        final Iterator<SourceNode> iterator = TestParser.TEST_PARSER.iterate(document);
+        for (SourceNode expectedNode : expectedNodes) {
+            assertThat(iterator.hasNext(), is(true));
+            assertEquivalentTree(iterator.next(), expectedNode);
+        }
+
+        assertThat(iterator.hasNext(), is(false));
+        try {
+            iterator.next();
+            fail("Iterator.next() should have thrown a NoSuchElementException");
+        } catch (NoSuchElementException e) {
+        }
+    }
+
+    /**
+     * Asserts that {@link Parser#iterate(Document)} throws a {@link NullPointerException} when the <code>text</code> argument is
+     * <code>null</code>.
+     */
+    @Test(expected = NullPointerException.class)
+    public void iterateNullText() {
+        TestParser.TEST_PARSER.iterate(null);
+    }
+
+    /**
+     * Asserts that the {@link Iterator} returned by {@link Parser#iterate(Document)} doesn't support {@link Iterator#remove()}.
+     */
+    @Test(expected = UnsupportedOperationException.class)
+    public void iterateRemove() {
+        final Iterator<SourceNode> iterator = TestParser.TEST_PARSER.iterate(new Document(" NOP\n NOP"));
+        iterator.next();
+        iterator.remove();
+    }
+
     /**
      * Asserts that {@link Parser#parse(Document)} returns a {@link Block} with a single {@link Block0Block} child node when the
      * document contains a <code>BLOCK0</code> block.
@@ -112,6 +228,196 @@ public class ParserTest {
         assertThat(node, is(instanceOf(LogicalLine.class)));
     }
 
+    /**
+     * Asserts that {@link Parser#parse(byte[])} produces the same tree as {@link Parser#parse(Document)} on the decoded text.
+     */
+    @Test
+    public void parseUtf8Bytes() {
+        final SourceNode expected = TestParser.TEST_PARSER.parse(new Document(UTF8_SOURCE));
+        final SourceNode actual = TestParser.TEST_PARSER.parse(UTF8_SOURCE.getBytes(StandardCharsets.UTF_8));
+        assertEquivalentTree(actual, expected);
+    }
+
+    /**
+     * Asserts that {@link Parser#parse(Path, Charset, int, SourceNodeSink)} passes the same top-level nodes to the sink as the
+     * child nodes of the tree produced by {@link Parser#parse(Document)}, even when nodes and multi-byte characters straddle
+     * window boundaries.
+     */
+    @Test
+    public void parseFile() throws IOException {
+        final StringBuilder sb = new StringBuilder();
+        for (int i = 0; i < 50; i++) {
+            sb.append(UTF8_SOURCE).append('\n');
+            sb.append(" BLOCK0\n NOP ; \u00E9\u00E9\u00E9 &\n IF 1\n  MOVE A,&\r\n B\n ELSE\r\n ENDIF\n ENDBLOCK0\n");
+        }
+
+        sb.append(" BLOCK0 ; unclosed");
+
+        final Block expected = (Block) TestParser.TEST_PARSER.parse(new Document(sb.toString()));
+
+        final Path file = Files.createTempFile("ParserTest", ".asm");
+        try {
+            Files.write(file, sb.toString().getBytes(StandardCharsets.UTF_8));
+
+            final List<SourceNode> nodes = new ArrayList<>();
+            TestParser.TEST_PARSER.parse(file, StandardCharsets.UTF_8, 1024, new SourceNodeSink() {
+                @Override
+                public void accept(SourceNode sourceNode) {
+                    nodes.add(sourceNode);
+                }
+            });
+
+            assertEquivalentTree(new Block(nodes, null), expected);
+        } finally {
+            Files.delete(file);
+        }
+    }
+
+    /**
+     * Asserts that {@link Parser#parse(Path, Charset, int, SourceNodeSink)} passes the same top-level nodes to the sink as the
+     * child nodes of the tree produced by {@link Parser#parse(Document)} when a top-level node spans more than two windows.
+     */
+    @Test
+    public void parseFileLargeNode() throws IOException {
+        final StringBuilder sb = new StringBuilder(" NOP\n BLOCK0\n");
+        for (int i = 0; i < 1000; i++) {
+            sb.append(" MOVE \u00E9,D").append(i).append('\n');
+        }
+
+        sb.append(" ENDBLOCK0\n NOP\n");
+
+        final Block expected = (Block) TestParser.TEST_PARSER.parse(new Document(sb.toString()));
+
+        final Path file = Files.createTempFile("ParserTest", ".asm");
+        try {
+            Files.write(file, sb.toString().getBytes(StandardCharsets.UTF_8));
+
+            final List<SourceNode> nodes = new ArrayList<>();
+            TestParser.TEST_PARSER.parse(file, StandardCharsets.UTF_8, 1024, new SourceNodeSink() {
+                @Override
+                public void accept(SourceNode sourceNode) {
+                    nodes.add(sourceNode);
+                }
+            });
+
+            assertEquivalentTree(new Block(nodes, null), expected);
+            assertThat(nodes.size(), is(3));
+        } finally {
+            Files.delete(file);
+        }
+    }
+
+    /**
+     * Asserts that {@link Parser#parse(Path, Charset, int, SourceNodeSink)} throws an {@link IllegalArgumentException} when the
+     * window size is too small.
+     */
+    @Test(expected = IllegalArgumentException.class)
+    public void parseFileWindowSizeTooSmall() throws IOException {
+        TestParser.TEST_PARSER.parse(Paths.get("unused.asm"), StandardCharsets.UTF_8, 16, new SourceNodeSink() {
+            @Override
+            public void accept(SourceNode sourceNode) {
+            }
+        });
+    }
+
+    /**
+     * Asserts that {@link Parser#parse(Document, ForkJoinPool)} produces the same tree as {@link Parser#parse(Document)}, even when
+     * blocks, continued lines and comments that end with an ampersand straddle chunk boundaries.
+     */
+    @Test
+    public void parseParallel() {
+        final StringBuilder sb = new StringBuilder();
+        for (int i = 0; i < 50; i++) {
+            sb.append(" BLOCK0\n NOP ; comment &\n IF 1\n  MOVE A,&\r\n B\n ELSE\r\n BLOCK1\r\r\n ENDBLOCK1\n ENDIF\n");
+            sb.append(" ENDBLOCK0\n  DC.B \"&\"&\n\n, 'a'\n");
+        }
+
+        sb.append(" BLOCK0 ; unclosed");
+
+        final Document document = new Document(sb.toString());
+        final SourceNode expected = TestParser.TEST_PARSER.parse(document);
+
+        final ForkJoinPool pool = new ForkJoinPool(4);
+        try {
+            for (int chunkSize = 1; chunkSize < 100; chunkSize += 7) {
+                assertEquivalentTree(TestParser.TEST_PARSER.parse(document, pool, chunkSize), expected);
+            }
+
+            assertEquivalentTree(TestParser.TEST_PARSER.parse(document, pool), expected);
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    /**
+     * Asserts that {@link Parser#parse(ByteBuffer)} produces the same tree as {@link Parser#parse(Document)} on the decoded text,
+     * both for heap buffers and for direct buffers, and that it doesn't change the buffer's position.
+     */
+    @Test
+    public void parseUtf8ByteBuffer() {
+        final SourceNode expected = TestParser.TEST_PARSER.parse(new Document(UTF8_SOURCE));
+        final byte[] bytes = UTF8_SOURCE.getBytes(StandardCharsets.UTF_8);
+
+        final ByteBuffer heapBuffer = ByteBuffer.allocate(bytes.length + 2);
+        heapBuffer.put((byte) 'x').put(bytes).put((byte) 'x');
+        heapBuffer.position(1);
+        heapBuffer.limit(bytes.length + 1);
+        assertEquivalentTree(TestParser.TEST_PARSER.parse(heapBuffer.slice()), expected);
+        assertEquivalentTree(TestParser.TEST_PARSER.parse(heapBuffer), expected);
+        assertThat(heapBuffer.position(), is(1));
+
+        final ByteBuffer directBuffer = ByteBuffer.allocateDirect(bytes.length);
+        directBuffer.put(bytes);
+        directBuffer.flip();
+        assertEquivalentTree(TestParser.TEST_PARSER.parse(directBuffer), expected);
+        assertThat(directBuffer.position(), is(0));
+    }
+
+    /**
+     * Asserts that {@link Parser#parse(byte[])} throws an {@link IllegalArgumentException} when the bytes are not valid UTF-8.
+     */
+    @Test(expected = IllegalArgumentException.class)
+    public void parseUtf8BytesMalformed() {
+        TestParser.TEST_PARSER.parse(new byte[] { ' ', 'N', 'O', 'P', (byte) 0xFF });
+    }
+
+    /**
+     * Asserts that {@link Parser#Parser(Syntax, Map, Map, LogicalLineFactory, BlockDirectiveLineFactory)} builds a
+     * {@link BlockDirectiveTable} for the test parser, so that the other tests exercise the lookup of block directives through the
+     * table.
+     */
+    @Test
+    public void parserBlockDirectiveTable() {
+        assertThat(TestParser.TEST_PARSER.blockDirectiveTable, is(notNullValue()));
+    }
+
+    /**
+     * Asserts that {@link Parser#Parser(Syntax, Map, Map, LogicalLineFactory, BlockDirectiveLineFactory)} keeps a map of block
+     * directives of an unsupported type, so that mnemonics are looked up with its {@link Map#get(Object)} method.
+     */
+    @Test
+    public void parserCustomMapKept() {
+        final HashMap<String, BlockDirective> blockDirectives = new HashMap<String, BlockDirective>(TestParser.BLOCK_DIRECTIVES) {
+
+            private static final long serialVersionUID = 1L;
+
+            @Override
+            public BlockDirective get(Object key) {
+                return super.get(key instanceof String ? ((String) key).toUpperCase() : key);
+            }
+
+        };
+
+        final Parser parser = new Parser(TestParser.SYNTAX, blockDirectives, TestParser.BLOCKS, TestLogicalLineFactory.INSTANCE,
+                TestBlockDirectiveLineFactory.INSTANCE);
+        assertThat(parser.blockDirectiveTable, is(nullValue()));
+
+        final SourceNode block = parser.parse(new Document(" block0\n NOP\n EndBlock0"));
+        final List<SourceNode> childNodes = ((Block) block).getChildNodes();
+        assertThat(childNodes.size(), is(1));
+        assertThat(childNodes.get(0), is(instanceOf(Block0Block.class)));
+    }
+
     /**
      * Asserts that {@link Parser#Parser(Syntax, Map, Map, LogicalLineFactory, BlockDirectiveLineFactory)} throws a
      * {@link NullPointerException} when the <code>blockDirectiveLineFactory</code> argument is <code>null</code>.
@@ -160,6 +466,108 @@ public class ParserTest {
                 TestBlockDirectiveLineFactory.INSTANCE);
     }
 
+    /**
+     * Asserts that {@link Parser#reparse(Document, SourceNode, int, int, int)} examines the top-level nodes it recycles when the
+     * old root block was not built by the parser and contains nodes that the parser doesn't produce at the top level, and produces
+     * the same tree as {@link Parser#parse(Document)}.
+     */
+    @Test
+    public void reparseBlockNotBuiltByParser() {
+        final Document oldDocument = new Document(" NOP\n BLOCK0\n NOP\n ENDBLOCK0\n NOP\n NOP\n");
+        final List<SourceNode> parsedChildNodes = ((Block) TestParser.TEST_PARSER.parse(oldDocument)).getChildNodes();
+
+        // Replace the block with its child nodes, which the parser doesn't produce at the top level.
+        final ArrayList<SourceNode> oldChildNodes = new ArrayList<>();
+        oldChildNodes.add(parsedChildNodes.get(0));
+        oldChildNodes.addAll(((CompositeSourceNode) parsedChildNodes.get(1)).getChildNodes());
+        oldChildNodes.addAll(parsedChildNodes.subList(2, parsedChildNodes.size()));
+        final Block oldNode = new Block(oldChildNodes, null);
+
+        final Document newDocument = oldDocument.replace(39, 0, " NOP\n");
+        final Block newNode = (Block) TestParser.TEST_PARSER.reparse(newDocument, oldNode, 39, 0, 5);
+        assertEquivalentTree(newNode, TestParser.TEST_PARSER.parse(newDocument));
+        assertThat(newNode.getChildNodes().get(0), is(sameInstance(oldChildNodes.get(0))));
+        assertThat(newNode.getChildNodes().get(1), is(instanceOf(Block0Block.class)));
+    }
+
+    /**
+     * Asserts that {@link Parser#reparse(Document, SourceNode, int, int, int)} recycles the top-level nodes before and after the
+     * replacement in a large source file, produces the same tree as {@link Parser#parse(Document)} and records the end positions
+     * of the top-level nodes in the new root.
+     */
+    @Test
+    public void reparseLargeFile() {
+        final StringBuilder sb = new StringBuilder();
+        for (int i = 0; i < 1000; i++) {
+            sb.append(" NOP\n BLOCK0\n MOVE D0,D1\n ENDBLOCK0\n");
+        }
+
+        final Document oldDocument = new Document(sb.toString());
+        final Block oldNode = (Block) TestParser.TEST_PARSER.parse(oldDocument);
+
+        // Open a block in the middle of the source file.
+        final int replaceOffset = 500 * 36;
+        final Document newDocument = oldDocument.replace(replaceOffset, 0, " BLOCK1\n ENDBLOCK1\n");
+        final Block newNode = (Block) TestParser.TEST_PARSER.reparse(newDocument, oldNode, replaceOffset, 0, 19);
+        assertEquivalentTree(newNode, TestParser.TEST_PARSER.parse(newDocument));
+
+        final List<SourceNode> oldChildNodes = oldNode.getChildNodes();
+        final List<SourceNode> newChildNodes = newNode.getChildNodes();
+        assertThat(newChildNodes.size(), is(oldChildNodes.size() + 1));
+        assertThat(newChildNodes.get(0), is(sameInstance(oldChildNodes.get(0))));
+        assertThat(newChildNodes.get(999), is(sameInstance(oldChildNodes.get(999))));
+        assertThat(newChildNodes.get(1001), is(sameInstance(oldChildNodes.get(1000))));
+        assertThat(newChildNodes.get(2000), is(sameInstance(oldChildNodes.get(1999))));
+
+        // The end positions of the child nodes were recorded while the new root was built.
+        int end = 0;
+        for (int i = 0; i < newChildNodes.size(); i++) {
+            end += newChildNodes.get(i).getLength();
+            assertThat(newNode.getChildNodeEnd(i), is(end));
+        }
+    }
+
+    /**
+     * Asserts that {@link Parser#reparse(Document, SourceNode, int, int, int)} recycles the top-level nodes of a root block that
+     * the same parser built without examining them one at a time, and that it examines them when the root block was not built by
+     * the parser.
+     */
+    @Test
+    public void reparseRecycledNodesNotExamined() {
+        final CountingBlockMap blocks = new CountingBlockMap();
+        final Parser parser = new Parser(TestParser.SYNTAX, TestParser.BLOCK_DIRECTIVES, blocks, TestLogicalLineFactory.INSTANCE,
+                TestBlockDirectiveLineFactory.INSTANCE);
+
+        // Examining a block directive line that doesn't start a block looks up its block directive in the map of blocks.
+        final StringBuilder sb = new StringBuilder();
+        for (int i = 0; i < 1000; i++) {
+            sb.append(" ENDBLOCK0\n");
+        }
+
+        final Document oldDocument = new Document(sb.toString());
+        final Block oldNode = (Block) parser.parse(oldDocument);
+
+        final int replaceOffset = 500 * 11;
+        final Document newDocument = oldDocument.replace(replaceOffset, 0, " NOP\n");
+        blocks.lookups = 0;
+        final Block newNode = (Block) parser.reparse(newDocument, oldNode, replaceOffset, 0, 5);
+        assertThat(blocks.lookups, is(lessThan(10)));
+        assertEquivalentTree(newNode, parser.parse(newDocument));
+
+        final List<SourceNode> oldChildNodes = oldNode.getChildNodes();
+        final List<SourceNode> newChildNodes = newNode.getChildNodes();
+        assertThat(newChildNodes.size(), is(1001));
+        assertThat(newChildNodes.get(0), is(sameInstance(oldChildNodes.get(0))));
+        assertThat(newChildNodes.get(499), is(sameInstance(oldChildNodes.get(499))));
+        assertThat(newChildNodes.get(501), is(sameInstance(oldChildNodes.get(500))));
+        assertThat(newChildNodes.get(1000), is(sameInstance(oldChildNodes.get(999))));
+
+        // A copy of the root block was not built by the parser.
+        blocks.lookups = 0;
+        parser.reparse(newDocument, new Block(oldChildNodes, null), replaceOffset, 0, 5);
+        assertThat(blocks.lookups, is(greaterThanOrEqualTo(1000)));
+    }
+
     /**
      * Asserts that {@link Parser#reparse(Document, SourceNode, int, int, int)} reparses a document.
      */
@@ -202,6 +610,25 @@ public class ParserTest {
         assertThat(newNode.getLength(), is(42));
     }
 
+    /**
+     * Asserts that {@link Parser#reparse(Document, SourceNode, int, int, int)} reports a failure of the incremental reparser
+     * through {@link Parser#reparseFailed(Document, SourceNode, RuntimeException)} and still returns the correct tree.
+     */
+    @Test
+    public void reparseFailure() {
+        final FailureRecordingParser parser = new FailureRecordingParser();
+
+        // A logical line cannot be the root of a source file, so the incremental reparser fails.
+        final Block oldRootNode = (Block) parser.parse(new Document(" NOP\n"));
+        final SourceNode oldNode = oldRootNode.getChildNodes().get(0);
+
+        final Document newDocument = new Document(" NOP\n NOP");
+        final SourceNode newNode = parser.reparse(newDocument, oldNode, 5, 0, 4);
+        assertEquivalentTree(newNode, parser.parse(newDocument));
+        assertThat(parser.getReparseFailureCount(), is(1L));
+        assertThat(parser.lastException, is(instanceOf(ClassCastException.class)));
+    }
+
     /**
      * Asserts that {@link Parser#reparse(Document, SourceNode, int, int, int)} throws an {@link IllegalArgumentException} when the
      * length of the new document doesn't match the old root source node and the replacement.
@@ -247,6 +674,121 @@ public class ParserTest {
         assertThat(newNode, is(sameInstance(oldNode)));
     }
 
+    /**
+     * Asserts that {@link Parser#reparseTopLevel(Document, Block, int, int, int)} recycles the top-level nodes before the first
+     * edit and after the last edit, and produces the same tree as {@link Parser#parse(Document)}.
+     */
+    @Test
+    public void reparseTopLevel() {
+        final StringBuilder sb = new StringBuilder();
+        for (int i = 0; i < 20; i++) {
+            sb.append(" NOP\n BLOCK0\n MOVE D0,D1\n ENDBLOCK0\n");
+        }
+
+        final Document oldDocument = new Document(sb.toString());
+        final Block oldNode = (Block) TestParser.TEST_PARSER.parse(oldDocument);
+
+        // Each iteration is 36 characters long and produces 2 top-level nodes.
+        // Remove the ENDBLOCK0 line of the 6th block and insert one in the 9th block.
+        final Document newDocument = oldDocument.replace(8 * 36 + 25, 0, " ENDBLOCK0\n").replace(5 * 36 + 25, 11, "");
+        final Block newNode = (Block) TestParser.TEST_PARSER.reparseTopLevel(newDocument, oldNode, 5 * 36 + 25, 8 * 36 + 25,
+                0);
+        assertEquivalentTree(newNode, TestParser.TEST_PARSER.parse(newDocument));
+
+        final List<SourceNode> oldChildNodes = oldNode.getChildNodes();
+        final List<SourceNode> newChildNodes = newNode.getChildNodes();
+        // The 6th block now ends with the 9th block, so it contains the nodes from 3 iterations.
+        assertThat(newChildNodes.size(), is(oldChildNodes.size() - 6));
+        assertThat(newChildNodes.get(10), is(sameInstance(oldChildNodes.get(10))));
+        assertThat(newChildNodes.get(11), is(not(sameInstance(oldChildNodes.get(11)))));
+        assertThat(newChildNodes.get(12), is(sameInstance(oldChildNodes.get(18))));
+        assertThat(newChildNodes.get(newChildNodes.size() - 1), is(sameInstance(oldChildNodes.get(oldChildNodes.size() - 1))));
+    }
+
+    /**
+     * Asserts that {@link Parser#reparseTopLevel(Document, Block, int, int, int)} examines the top-level nodes it recycles before
+     * the first edit and after the last edit when the old root block contains nodes that the parser doesn't produce at the top
+     * level, and produces the same tree as {@link Parser#parse(Document)}.
+     */
+    @Test
+    public void reparseTopLevelBlockNotBuiltByParser() {
+        final Document oldDocument = new Document(" NOP\n BLOCK0\n NOP\n ENDBLOCK0\n NOP\n BLOCK0\n NOP\n ENDBLOCK0\n NOP\n");
+        final List<SourceNode> parsedChildNodes = ((Block) TestParser.TEST_PARSER.parse(oldDocument)).getChildNodes();
+
+        // Replace the blocks with their child nodes, which the parser doesn't produce at the top level.
+        final ArrayList<SourceNode> oldChildNodes = new ArrayList<>();
+        for (SourceNode childNode : parsedChildNodes) {
+            if (childNode instanceof Block0Block) {
+                oldChildNodes.addAll(((CompositeSourceNode) childNode).getChildNodes());
+            } else {
+                oldChildNodes.add(childNode);
+            }
+        }
+
+        final Block oldNode = new Block(oldChildNodes, null);
+
+        final Document newDocument = oldDocument.replace(34, 0, " NOP\n");
+        final Block newNode = (Block) TestParser.TEST_PARSER.reparseTopLevel(newDocument, oldNode, 34, 34, 5);
+        assertEquivalentTree(newNode, TestParser.TEST_PARSER.parse(newDocument));
+
+        final List<SourceNode> newChildNodes = newNode.getChildNodes();
+        assertThat(newChildNodes.size(), is(6));
+        assertThat(newChildNodes.get(0), is(sameInstance(oldChildNodes.get(0))));
+        assertThat(newChildNodes.get(1), is(instanceOf(Block0Block.class)));
+        assertThat(newChildNodes.get(4), is(instanceOf(Block0Block.class)));
+        assertThat(newChildNodes.get(5), is(sameInstance(oldChildNodes.get(8))));
+    }
+
+    /**
+     * Asserts that {@link Parser#reparse(Document, SourceNode, List)} recycles the nodes between the edits and produces the same
+     * tree as {@link Parser#parse(Document)}, including when edits are close enough that a reparsed node spans several of them.
+     */
+    @Test
+    public void reparseMultipleEdits() {
+        final StringBuilder sb = new StringBuilder();
+        for (int i = 0; i < 100; i++) {
+            sb.append(" NOP\n BLOCK0\n MOVE D0,D1\n ENDBLOCK0\n");
+        }
+
+        final Document oldDocument = new Document(sb.toString());
+        final Block oldNode = (Block) TestParser.TEST_PARSER.parse(oldDocument);
+
+        // Each iteration is 36 characters long and produces 2 top-level nodes.
+        final List<SourceEdit> edits = Arrays.asList(new SourceEdit(10 * 36 + 2, 1, 1), new SourceEdit(10 * 36 + 3, 1, 0),
+                new SourceEdit(30 * 36 + 5, 0, 5), new SourceEdit(60 * 36 + 13, 12, 0), new SourceEdit(90 * 36, 0, 1));
+        final String[] insertedTexts = { "X", "", " NOP\n", "", "A" };
+
+        // Apply the edits from the last one, so that the offsets of the remaining edits stay valid.
+        Document newDocument = oldDocument;
+        for (int i = edits.size() - 1; i >= 0; i--) {
+            final SourceEdit edit = edits.get(i);
+            newDocument = newDocument.replace(edit.getOffset(), edit.getLengthToRemove(), insertedTexts[i]);
+        }
+
+        final Block newNode = (Block) TestParser.TEST_PARSER.reparse(newDocument, oldNode, edits);
+        assertEquivalentTree(newNode, TestParser.TEST_PARSER.parse(newDocument));
+
+        final List<SourceNode> oldChildNodes = oldNode.getChildNodes();
+        final List<SourceNode> newChildNodes = newNode.getChildNodes();
+        assertThat(newChildNodes.get(0), is(sameInstance(oldChildNodes.get(0))));
+        assertThat(newChildNodes.get(19), is(sameInstance(oldChildNodes.get(19))));
+        assertThat(newChildNodes.get(21), is(sameInstance(oldChildNodes.get(21))));
+        assertThat(newChildNodes.get(59), is(sameInstance(oldChildNodes.get(59))));
+        assertThat(newChildNodes.get(newChildNodes.size() - 1), is(sameInstance(oldChildNodes.get(oldChildNodes.size() - 1))));
+    }
+
+    /**
+     * Asserts that {@link Parser#reparse(Document, SourceNode, List)} throws an {@link IllegalArgumentException} when the edits
+     * overlap.
+     */
+    @Test(expected = IllegalArgumentException.class)
+    public void reparseMultipleEditsOverlapping() {
+        final Document oldDocument = new Document(" NOP\n NOP\n NOP");
+        final SourceNode oldNode = TestParser.TEST_PARSER.parse(oldDocument);
+        TestParser.TEST_PARSER.reparse(new Document(" NOP\n NOP"), oldNode,
+                Arrays.asList(new SourceEdit(4, 3, 0), new SourceEdit(6, 2, 0)));
+    }
+
     /**
      * Asserts that {@link Parser#reparse(Document, SourceNode, int, int, int)} throws a {@link NullPointerException} when the
      * <code>oldSourceFileRootNode</code> argument is <code>null</code>.
@@ -157,6 +157,17 @@ public class SourceLocationUtilsTest {
         SourceLocationUtils.getLogicalLineRequired(SOURCE_LOCATION_BLOCK);
     }
 
+    /**
+     * Asserts that {@link SourceLocationUtils#getMnemonicLogicalText(SourceLocation)} returns the text of the mnemonic of the
+     * specified {@link SourceLocation}, without the continuation characters in the source.
+     */
+    @Test
+    public void getMnemonicLogicalText() {
+        final LogicalLineText mnemonicText = SourceLocationUtils.getMnemonicLogicalText(SOURCE_LOCATION_C);
+        assertThat(mnemonicText.contentEquals("MOVE"), is(true));
+        assertThat(mnemonicText.getPositionInLogicalLine(2), is(22));
+    }
+
     /**
      * Asserts that {@link SourceLocationUtils#getMnemonicReader(SourceLocation)} returns a {@link SourceNodeRangeReader} for the
      * mnemonic of the specified {@link SourceLocation}.
@@ -203,6 +214,19 @@ public class SourceLocationUtilsTest {
         assertThat(mnemonicText, is("MOVE"));
     }
 
+    /**
+     * Asserts that {@link SourceLocationUtils#getOperandLogicalText(SourceLocation, int)} returns the text of the specified
+     * operand of the specified {@link SourceLocation}, without the continuation characters in the source.
+     */
+    @Test
+    public void getOperandLogicalText() {
+        final LogicalLineText operandText = SourceLocationUtils.getOperandLogicalText(SOURCE_LOCATION_C, 0);
+        assertThat(operandText.toString(), is("D0"));
+        assertThat(operandText.getPositionInLogicalLine(0), is(25));
+        assertThat(operandText.getPositionInLogicalLine(1), is(28));
+        assertThat(operandText.getPositionInLogicalLine(2), is(29));
+    }
+
     /**
      * Asserts that {@link SourceLocationUtils#getOperandReader(SourceLocation, int)} returns an {@link SourceNodeRangeReader} for
      * the specified operand of the specified {@link SourceLocation}.
@@ -17,6 +17,28 @@ public class SyntaxTest {
     @Nonnull
     private static final int[] EMPTY_INT_ARRAY = new int[0];
 
+    /**
+     * Asserts that {@link Syntax#getCodePointClasses(int)} returns the classes of the specified code point.
+     */
+    @Test
+    public void getCodePointClasses() {
+        final Syntax syntax = new Syntax(new int[] { '+' }, new int[] { '$' });
+        assertThat(syntax.getCodePointClasses(' '), is(Syntax.WHITESPACE));
+        assertThat(syntax.getCodePointClasses('\n'), is(Syntax.WHITESPACE));
+        assertThat(syntax.getCodePointClasses('a'), is(Syntax.IDENTIFIER | Syntax.IDENTIFIER_INITIAL | Syntax.HEX_DIGIT));
+        assertThat(syntax.getCodePointClasses('g'), is(Syntax.IDENTIFIER | Syntax.IDENTIFIER_INITIAL));
+        assertThat(syntax.getCodePointClasses('7'),
+                is(Syntax.IDENTIFIER | Syntax.NUMBER_INITIAL | Syntax.DIGIT | Syntax.HEX_DIGIT));
+        assertThat(syntax.getCodePointClasses('.'), is(Syntax.IDENTIFIER | Syntax.NUMBER_INITIAL));
+        assertThat(syntax.getCodePointClasses('$'), is(Syntax.IDENTIFIER));
+        assertThat(syntax.getCodePointClasses('+'), is(0));
+        assertThat(syntax.getCodePointClasses(','), is(0));
+        // MATHEMATICAL BOLD CAPITAL A
+        assertThat(syntax.getCodePointClasses(0x1D400), is(Syntax.IDENTIFIER | Syntax.IDENTIFIER_INITIAL));
+        assertThat(syntax.getCodePointClasses(-1), is(0));
+        assertThat(syntax.getCodePointClasses(0x110000), is(0));
+    }
+
     /**
      * Asserts that {@link Syntax#isBinDigit(int)} returns <code>true</code> for binary digits and <code>false</code> for other code
      * points.
@@ -191,6 +213,31 @@ public class SyntaxTest {
         assertThat(Syntax.isWhitespace(0x2000), is(false)); // EN QUAD
     }
 
+    /**
+     * Asserts that {@link Syntax#scanIdentifier(CharSequence, int)} returns the offset of the first code point that is not valid in
+     * an identifier.
+     */
+    @Test
+    public void scanIdentifier() {
+        final Syntax syntax = new Syntax(new int[] { '+' }, EMPTY_INT_ARRAY);
+        assertThat(syntax.scanIdentifier("foo+bar", 0), is(3));
+        assertThat(syntax.scanIdentifier("foo+bar", 4), is(7));
+        assertThat(syntax.scanIdentifier("foo bar", 1), is(3));
+        assertThat(syntax.scanIdentifier("(foo)", 0), is(0));
+        assertThat(syntax.scanIdentifier("(foo)", 1), is(4));
+        assertThat(syntax.scanIdentifier("a\uD835\uDC00b,", 0), is(4));
+        assertThat(syntax.scanIdentifier("foo", 3), is(3));
+    }
+
+    /**
+     * Asserts that {@link Syntax#scanIdentifier(CharSequence, int)} throws a {@link NullPointerException} when the
+     * <code>text</code> argument is <code>null</code>.
+     */
+    @Test(expected = NullPointerException.class)
+    public void scanIdentifierNullText() {
+        new Syntax(EMPTY_INT_ARRAY, EMPTY_INT_ARRAY).scanIdentifier(null, 0);
+    }
+
     /**
      * Asserts that {@link Syntax#Syntax(int[], int[])} throws a {@link NullPointerException} when the
      * <code>invalidIdentifierCodePoints</code> argument is <code>null</code>.
@@ -0,0 +1,106 @@
+package org.reasm.commons.source;
+
+import static org.hamcrest.Matchers.is;
+import static org.junit.Assert.assertThat;
+
+import java.nio.charset.StandardCharsets;
+
+import javax.annotation.Nonnull;
+
+import org.junit.Test;
+
+/**
+ * Test class for {@link Utf8CharSequence}.
+ *
+ * @author Francis Gagné
+ */
+public class Utf8CharSequenceTest {
+
+    @Nonnull
+    private static Utf8CharSequence utf8(@Nonnull String text) {
+        final byte[] bytes = text.getBytes(StandardCharsets.UTF_8);
+        return new Utf8CharSequence(bytes, 0, bytes.length);
+    }
+
+    /**
+     * Asserts that {@link Utf8CharSequence#charAt(int)} returns the same code units as the decoded string, both for sequential and
+     * for random access, including across checkpoints and in the middle of surrogate pairs.
+     */
+    @Test
+    public void charAt() {
+        final StringBuilder sb = new StringBuilder();
+        for (int i = 0; i < 1000; i++) {
+            sb.append("a\u00E9\u4E2D\uD835\uDC00");
+        }
+
+        final String text = sb.toString();
+        final Utf8CharSequence sequence = utf8(text);
+        assertThat(sequence.length(), is(text.length()));
+
+        for (int i = 0; i < text.length(); i++) {
+            assertThat(sequence.charAt(i), is(text.charAt(i)));
+        }
+
+        for (int i = text.length() - 1; i >= 0; i -= 7) {
+            assertThat(sequence.charAt(i), is(text.charAt(i)));
+        }
+    }
+
+    /**
+     * Asserts that {@link Utf8CharSequence#charAt(int)} reads ASCII text directly.
+     */
+    @Test
+    public void charAtAscii() {
+        final Utf8CharSequence sequence = utf8(" MOVE.W D0,D1");
+        assertThat(sequence.length(), is(13));
+        assertThat(sequence.charAt(1), is('M'));
+        assertThat(sequence.charAt(12), is('1'));
+    }
+
+    /**
+     * Asserts that {@link Utf8CharSequence#charAt(int)} throws an {@link IndexOutOfBoundsException} when the index is out of
+     * bounds.
+     */
+    @Test(expected = IndexOutOfBoundsException.class)
+    public void charAtOutOfBounds() {
+        utf8("\u00E9").charAt(1);
+    }
+
+    /**
+     * Asserts that {@link Utf8CharSequence#subSequence(int, int)} and {@link Utf8CharSequence#toString()} return the decoded text.
+     */
+    @Test
+    public void subSequence() {
+        assertThat(utf8("abc").subSequence(1, 3).toString(), is("bc"));
+        assertThat(utf8("a\u00E9\uD835\uDC00b").subSequence(1, 4).toString(), is("\u00E9\uD835\uDC00"));
+        assertThat(utf8("a\u00E9\uD835\uDC00b").toString(), is("a\u00E9\uD835\uDC00b"));
+    }
+
+    /**
+     * Asserts that {@link Utf8CharSequence#Utf8CharSequence(byte[], int, int)} throws an {@link IllegalArgumentException} when the
+     * bytes contain an overlong encoding.
+     */
+    @Test(expected = IllegalArgumentException.class)
+    public void utf8CharSequenceOverlongEncoding() {
+        new Utf8CharSequence(new byte[] { (byte) 0xC0, (byte) 0x80 }, 0, 2);
+    }
+
+    /**
+     * Asserts that {@link Utf8CharSequence#Utf8CharSequence(byte[], int, int)} throws an {@link IllegalArgumentException} when the
+     * bytes contain an encoded surrogate code point.
+     */
+    @Test(expected = IllegalArgumentException.class)
+    public void utf8CharSequenceSurrogate() {
+        new Utf8CharSequence(new byte[] { (byte) 0xED, (byte) 0xA0, (byte) 0x80 }, 0, 3);
+    }
+
+    /**
+     * Asserts that {@link Utf8CharSequence#Utf8CharSequence(byte[], int, int)} throws an {@link IllegalArgumentException} when the
+     * bytes end in the middle of a code point.
+     */
+    @Test(expected = IllegalArgumentException.class)
+    public void utf8CharSequenceTruncated() {
+        new Utf8CharSequence(new byte[] { 'a', (byte) 0xE4, (byte) 0xB8 }, 0, 3);
+    }
+
+}
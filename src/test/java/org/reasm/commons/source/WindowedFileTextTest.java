@@ -0,0 +1,135 @@
+package org.reasm.commons.source;
+
+import static org.hamcrest.Matchers.is;
+import static org.junit.Assert.assertThat;
+
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.charset.CharacterCodingException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+import javax.annotation.Nonnull;
+
+import org.junit.Test;
+
+/**
+ * Test class for {@link WindowedFileText}.
+ *
+ * @author Francis Gagné
+ */
+public class WindowedFileTextTest {
+
+    private static final String TEXT = "ABCDEFGHIJKLMN\u00E9OPQRSTUVWXYZ\u4E2D0123456789\uD835\uDC00abcdefghijklmnopqrstuvwxyz";
+
+    @Nonnull
+    private static Path createFile(@Nonnull byte[] contents) throws IOException {
+        final Path file = Files.createTempFile("WindowedFileTextTest", ".asm");
+        Files.write(file, contents);
+        return file;
+    }
+
+    /**
+     * Asserts that {@link WindowedFileText#charAt(long)} returns the characters of the decoded text, in any order, when multi-byte
+     * characters straddle window boundaries.
+     */
+    @Test
+    public void charAt() throws IOException {
+        final Path file = createFile(TEXT.getBytes(StandardCharsets.UTF_8));
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            final WindowedFileText text = new WindowedFileText(channel, StandardCharsets.UTF_8, 16);
+            assertThat(text.length(), is((long) TEXT.length()));
+
+            for (int i = 0; i < TEXT.length(); i++) {
+                assertThat(text.charAt(i), is(TEXT.charAt(i)));
+            }
+
+            for (int i = TEXT.length() - 1; i >= 0; i--) {
+                assertThat(text.charAt(i), is(TEXT.charAt(i)));
+            }
+
+            for (int i = 0; i < TEXT.length(); i++) {
+                final int index = i * 37 % TEXT.length();
+                assertThat(text.charAt(index), is(TEXT.charAt(index)));
+            }
+        } finally {
+            Files.delete(file);
+        }
+    }
+
+    /**
+     * Asserts that {@link WindowedFileText#isAtEnd(long)} finds the end of the text, reading only the windows that precede the
+     * specified position.
+     */
+    @Test
+    public void isAtEnd() throws IOException {
+        final Path file = createFile(TEXT.getBytes(StandardCharsets.UTF_8));
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            final WindowedFileText text = new WindowedFileText(channel, StandardCharsets.UTF_8, 16);
+            assertThat(text.isAtEnd(0), is(false));
+            assertThat(text.isAtEnd(TEXT.length() - 1), is(false));
+            assertThat(text.isAtEnd(TEXT.length()), is(true));
+            assertThat(text.isAtEnd(TEXT.length() + 100), is(true));
+        } finally {
+            Files.delete(file);
+        }
+    }
+
+    /**
+     * Asserts that {@link WindowedFileText#isAtEnd(long)} returns <code>true</code> at position 0 when the file is empty.
+     */
+    @Test
+    public void isAtEndEmpty() throws IOException {
+        final Path file = createFile(new byte[0]);
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            final WindowedFileText text = new WindowedFileText(channel, StandardCharsets.UTF_8, 16);
+            assertThat(text.isAtEnd(0), is(true));
+            assertThat(text.length(), is(0L));
+        } finally {
+            Files.delete(file);
+        }
+    }
+
+    /**
+     * Asserts that {@link WindowedFileText#length()} throws a {@link CharacterCodingException} when the file is not valid in the
+     * specified charset.
+     */
+    @Test(expected = CharacterCodingException.class)
+    public void lengthMalformed() throws IOException {
+        final Path file = createFile(new byte[] { 'A', 'B', (byte) 0xC3, 'C' });
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            new WindowedFileText(channel, StandardCharsets.UTF_8, 16).length();
+        } finally {
+            Files.delete(file);
+        }
+    }
+
+    /**
+     * Asserts that {@link WindowedFileText#view(long, int)} returns a {@link CharSequence} on the text that follows the specified
+     * position and that ends at the end of a window.
+     */
+    @Test
+    public void view() throws IOException {
+        final Path file = createFile(TEXT.getBytes(StandardCharsets.UTF_8));
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            final WindowedFileText text = new WindowedFileText(channel, StandardCharsets.UTF_8, 16);
+
+            // The first window holds the 16 bytes of the first 15 characters.
+            final WindowedFileText.View view = text.view(10, 2);
+            assertThat(view.getFirstWindowLength(), is(5));
+            assertThat(view.isTruncated(), is(true));
+            assertThat(view.toString(), is(TEXT.substring(10, 10 + view.length())));
+            assertThat(view.subSequence(3, 9).toString(), is(TEXT.substring(13, 19)));
+
+            final WindowedFileText.View wholeView = text.view(10, Integer.MAX_VALUE);
+            assertThat(wholeView.length(), is(TEXT.length() - 10));
+            assertThat(wholeView.isTruncated(), is(false));
+            assertThat(wholeView.toString(), is(TEXT.substring(10)));
+        } finally {
+            Files.delete(file);
+        }
+    }
+
+}
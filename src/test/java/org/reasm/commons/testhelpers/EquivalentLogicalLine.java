@@ -70,10 +70,12 @@ public final class EquivalentLogicalLine extends TypeSafeDiagnosingMatcher<Logic
                 && this.matchesProperty("length", item, mismatchDescription) && this.matchesParseError(item, mismatchDescription)
                 && this.matchesProperty("numberOfLabels", item, mismatchDescription)
                 && this.matchesLabels(item, mismatchDescription)
-                && this.matchesProperty("mnemonicBounds", item, mismatchDescription)
+                && this.matchesProperty("mnemonicStart", item, mismatchDescription)
+                && this.matchesProperty("mnemonicEnd", item, mismatchDescription)
                 && this.matchesProperty("numberOfOperands", item, mismatchDescription)
                 && this.matchesOperands(item, mismatchDescription)
-                && this.matchesProperty("commentBounds", item, mismatchDescription)
+                && this.matchesProperty("commentStart", item, mismatchDescription)
+                && this.matchesProperty("commentEnd", item, mismatchDescription)
                 && this.matchesProperty("numberOfContinuationCharacters", item, mismatchDescription)
                 && this.matchesContinuationCharacters(item, mismatchDescription);
     }
@@ -141,7 +143,8 @@ public final class EquivalentLogicalLine extends TypeSafeDiagnosingMatcher<Logic
 
     private final boolean matchesLabels(@Nonnull LogicalLine item, @Nonnull Description mismatchDescription) {
         for (int i = 0; i < this.expectedValue.getNumberOfLabels(); i++) {
-            if (!Objects.equals(item.getLabelBounds(i), this.expectedValue.getLabelBounds(i))) {
+            if (item.getLabelStart(i) != this.expectedValue.getLabelStart(i)
+                    || item.getLabelEnd(i) != this.expectedValue.getLabelEnd(i)) {
                 mismatchDescription.appendText("got labelBounds[").appendText(String.valueOf(i)).appendText("] = ")
                         .appendValue(item.getLabelBounds(i));
                 return false;
@@ -153,7 +156,8 @@ public final class EquivalentLogicalLine extends TypeSafeDiagnosingMatcher<Logic
 
     private final boolean matchesOperands(@Nonnull LogicalLine item, @Nonnull Description mismatchDescription) {
         for (int i = 0; i < this.expectedValue.getNumberOfOperands(); i++) {
-            if (!Objects.equals(item.getOperandBounds(i), this.expectedValue.getOperandBounds(i))) {
+            if (item.getOperandStart(i) != this.expectedValue.getOperandStart(i)
+                    || item.getOperandEnd(i) != this.expectedValue.getOperandEnd(i)) {
                 mismatchDescription.appendText("got operandBounds[").appendText(String.valueOf(i)).appendText("] = ")
                         .appendValue(item.getOperandBounds(i));
                 return false;
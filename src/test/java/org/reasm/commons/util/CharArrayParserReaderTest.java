@@ -0,0 +1,159 @@
+package org.reasm.commons.util;
+
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.not;
+import static org.hamcrest.Matchers.sameInstance;
+import static org.junit.Assert.assertThat;
+
+import javax.annotation.Nonnull;
+
+import org.junit.Test;
+import org.reasm.commons.source.Syntax;
+
+/**
+ * Test class for {@link CharArrayParserReader}.
+ *
+ * @author Francis Gagné
+ */
+public class CharArrayParserReaderTest {
+
+    @Nonnull
+    private static final char[] CHARS = "[[x\uD83C\uDF41y,def]]".toCharArray();
+    @Nonnull
+    private static final Syntax SYNTAX = new Syntax(new int[0], new int[0]);
+
+    /**
+     * Asserts that {@link CharArrayParserReader#advance()} advances the {@link CharArrayParserReader} by one code point and stops
+     * at the end of the range.
+     */
+    @Test
+    public void advance() {
+        final CharArrayParserReader r = new CharArrayParserReader(CHARS, 2, 6);
+        assertThat(r.getPosition(), is(2));
+        assertThat(r.getCurrentCodePoint(), is(0x78));
+
+        r.advance();
+        assertThat(r.getPosition(), is(3));
+        assertThat(r.getCurrentCodePoint(), is(0x1F341));
+
+        r.advance();
+        assertThat(r.getPosition(), is(5));
+        assertThat(r.getCurrentCodePoint(), is(0x79));
+
+        r.advance();
+        assertThat(r.getPosition(), is(6));
+        assertThat(r.getCurrentCodePoint(), is(-1));
+
+        r.advance();
+        assertThat(r.getPosition(), is(6));
+        assertThat(r.getCurrentCodePoint(), is(-1));
+    }
+
+    /**
+     * Asserts that {@link CharArrayParserReader#CharArrayParserReader(char[], int, int, int)} throws an
+     * {@link IllegalArgumentException} when the range extends past the end of the array.
+     */
+    @Test(expected = IllegalArgumentException.class)
+    public void charArrayParserReaderEndTooHigh() {
+        new CharArrayParserReader(CHARS, 2, CHARS.length + 1, 2);
+    }
+
+    /**
+     * Asserts that {@link CharArrayParserReader#CharArrayParserReader(char[], int, int, int)} throws an
+     * {@link IllegalArgumentException} when the <code>position</code> argument is before the start of the range.
+     */
+    @Test(expected = IllegalArgumentException.class)
+    public void charArrayParserReaderPositionTooLow() {
+        new CharArrayParserReader(CHARS, 2, 6, 1);
+    }
+
+    /**
+     * Asserts that {@link CharArrayParserReader#copyFrom(CharArrayParserReader)} copies the position of a different compatible
+     * {@link CharArrayParserReader}.
+     */
+    @Test
+    public void copyFrom() {
+        final CharArrayParserReader r0 = new CharArrayParserReader(CHARS, 2, 12);
+        final CharArrayParserReader r1 = r0.duplicate();
+        assertThat(r1, is(not(sameInstance(r0))));
+        r1.advance();
+        r0.copyFrom(r1);
+        assertThat(r0.getChars(), is(sameInstance(CHARS)));
+        assertThat(r0.getPosition(), is(3));
+        assertThat(r0.getCurrentCodePoint(), is(0x1F341));
+    }
+
+    /**
+     * Asserts that {@link CharArrayParserReader#copyFrom(CharArrayParserReader)} throws an {@link IllegalArgumentException} when
+     * the other {@link CharArrayParserReader}'s range is different from the receiver's range.
+     */
+    @Test(expected = IllegalArgumentException.class)
+    public void copyFromWrongRange() {
+        new CharArrayParserReader(CHARS, 2, 12).copyFrom(new CharArrayParserReader(CHARS, 2, 11));
+    }
+
+    /**
+     * Asserts that {@link CharArrayParserReader#indexOf(int)} returns the position of the next occurrence of a code point within
+     * the range without advancing the {@link CharArrayParserReader}.
+     */
+    @Test
+    public void indexOf() {
+        final CharArrayParserReader r = new CharArrayParserReader(CHARS, 2, 10);
+        assertThat(r.indexOf(0x1F341), is(3));
+        assertThat(r.indexOf(','), is(6));
+        assertThat(r.indexOf(']'), is(-1));
+        assertThat(r.getPosition(), is(2));
+    }
+
+    /**
+     * Asserts that {@link CharArrayParserReader#regionMatches(boolean, CharSequence)} compares the text at the reader's current
+     * position with another text, without reading past the end of the range.
+     */
+    @Test
+    public void regionMatches() {
+        final CharArrayParserReader r = new CharArrayParserReader(CHARS, 7, 10);
+        assertThat(r.regionMatches(false, "def"), is(true));
+        assertThat(r.regionMatches(true, "DEF"), is(true));
+        assertThat(r.regionMatches(false, "DEF"), is(false));
+        assertThat(r.regionMatches(false, "def]"), is(false));
+    }
+
+    /**
+     * Asserts that {@link CharArrayParserReader#reset(int)} restores a position returned by {@link CharArrayParserReader#mark()}.
+     */
+    @Test
+    public void reset() {
+        final CharArrayParserReader r = new CharArrayParserReader(CHARS, 2, 12);
+        final int mark = r.mark();
+        r.advance();
+        r.advance();
+        r.reset(mark);
+        assertThat(r.getPosition(), is(2));
+        assertThat(r.getCurrentCodePoint(), is(0x78));
+    }
+
+    /**
+     * Asserts that {@link CharArrayParserReader#reset(int)} throws an {@link IllegalArgumentException} when the <code>mark</code>
+     * argument is before the start of the range.
+     */
+    @Test(expected = IllegalArgumentException.class)
+    public void resetTooLow() {
+        new CharArrayParserReader(CHARS, 2, 12).reset(1);
+    }
+
+    /**
+     * Asserts that {@link CharArrayParserReader#skipWhile(Syntax, int)} advances the {@link CharArrayParserReader} past the code
+     * points that belong to the specified classes, without reading past the end of the range.
+     */
+    @Test
+    public void skipWhile() {
+        final CharArrayParserReader r = new CharArrayParserReader(CHARS, 2, 9);
+        assertThat(r.skipWhile(SYNTAX, Syntax.IDENTIFIER), is(3));
+        assertThat(r.getPosition(), is(6));
+        r.advance();
+        assertThat(r.skipWhile(SYNTAX, Syntax.IDENTIFIER), is(2));
+        assertThat(r.getPosition(), is(9));
+        assertThat(r.getCurrentCodePoint(), is(-1));
+    }
+
+}
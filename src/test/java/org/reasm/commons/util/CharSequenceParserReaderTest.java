@@ -8,6 +8,7 @@ import static org.junit.Assert.assertThat;
 import javax.annotation.Nonnull;
 
 import org.junit.Test;
+import org.reasm.commons.source.Syntax;
 
 /**
  * Test class for {@link CharSequenceParserReader}.
@@ -20,6 +21,10 @@ public class CharSequenceParserReaderTest {
     private static final CharSequence CHAR_SEQUENCE = "abc";
     @Nonnull
     private static final CharSequence CHAR_SEQUENCE_NON_BMP = "x\uD83C\uDF41y";
+    @Nonnull
+    private static final CharSequence CHAR_SEQUENCE_WORDS = "  abc12 x\uD83C\uDF41y,def";
+    @Nonnull
+    private static final Syntax SYNTAX = new Syntax(new int[0], new int[0]);
 
     /**
      * Asserts that {@link CharSequenceParserReader#advance()} advances the {@link CharSequenceParserReader} by one code point.
@@ -207,4 +212,72 @@ public class CharSequenceParserReaderTest {
         assertThat(r1.getCurrentCodePoint(), is(0x63));
     }
 
+    /**
+     * Asserts that {@link CharSequenceParserReader#indexOf(int)} returns the position of the next occurrence of a code point
+     * without advancing the {@link CharSequenceParserReader}.
+     */
+    @Test
+    public void indexOf() {
+        final CharSequenceParserReader r = new CharSequenceParserReader(CHAR_SEQUENCE_WORDS, 3);
+        assertThat(r.indexOf(','), is(12));
+        assertThat(r.indexOf(0x1F341), is(9));
+        assertThat(r.indexOf('a'), is(-1));
+        assertThat(r.getPosition(), is(3));
+    }
+
+    /**
+     * Asserts that {@link CharSequenceParserReader#regionMatches(boolean, CharSequence)} compares the text at the reader's
+     * current position with another text.
+     */
+    @Test
+    public void regionMatches() {
+        final CharSequenceParserReader r = new CharSequenceParserReader(CHAR_SEQUENCE_WORDS, 2);
+        assertThat(r.regionMatches(false, "abc"), is(true));
+        assertThat(r.regionMatches(false, "ABC"), is(false));
+        assertThat(r.regionMatches(true, "ABC"), is(true));
+        assertThat(r.regionMatches(false, "abd"), is(false));
+        assertThat(new CharSequenceParserReader(CHAR_SEQUENCE_WORDS, 13).regionMatches(false, "defg"), is(false));
+    }
+
+    /**
+     * Asserts that {@link CharSequenceParserReader#reset(int)} restores a position returned by
+     * {@link CharSequenceParserReader#mark()}.
+     */
+    @Test
+    public void reset() {
+        final CharSequenceParserReader r = new CharSequenceParserReader(CHAR_SEQUENCE, 1);
+        final int mark = r.mark();
+        r.advance();
+        r.reset(mark);
+        assertThat(r.getPosition(), is(1));
+        assertThat(r.getCurrentCodePoint(), is(0x62));
+    }
+
+    /**
+     * Asserts that {@link CharSequenceParserReader#reset(int)} throws an {@link IllegalArgumentException} when the
+     * <code>mark</code> argument is greater than the {@link CharSequence}'s length.
+     */
+    @Test(expected = IllegalArgumentException.class)
+    public void resetTooHigh() {
+        new CharSequenceParserReader(CHAR_SEQUENCE).reset(4);
+    }
+
+    /**
+     * Asserts that {@link CharSequenceParserReader#skipWhile(Syntax, int)} advances the {@link CharSequenceParserReader} past the
+     * code points that belong to the specified classes.
+     */
+    @Test
+    public void skipWhile() {
+        final CharSequenceParserReader r = new CharSequenceParserReader(CHAR_SEQUENCE_WORDS);
+        assertThat(r.skipWhile(SYNTAX, Syntax.WHITESPACE), is(2));
+        assertThat(r.getPosition(), is(2));
+        assertThat(r.skipWhile(SYNTAX, Syntax.WHITESPACE), is(0));
+        assertThat(r.skipWhile(SYNTAX, Syntax.IDENTIFIER), is(5));
+        assertThat(r.getPosition(), is(7));
+        r.advance();
+        assertThat(r.skipWhile(SYNTAX, Syntax.IDENTIFIER), is(3));
+        assertThat(r.getPosition(), is(12));
+        assertThat(r.getCurrentCodePoint(), is((int) ','));
+    }
+
 }
@@ -0,0 +1,166 @@
+package org.reasm.commons.util;
+
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.not;
+import static org.hamcrest.Matchers.sameInstance;
+import static org.junit.Assert.assertThat;
+
+import javax.annotation.Nonnull;
+
+import org.junit.Test;
+import org.reasm.commons.source.Syntax;
+
+/**
+ * Test class for {@link StringParserReader}.
+ *
+ * @author Francis Gagné
+ */
+public class StringParserReaderTest {
+
+    @Nonnull
+    private static final String STRING = "abc";
+    @Nonnull
+    private static final String STRING_NON_BMP = "x\uD83C\uDF41y";
+    @Nonnull
+    private static final String STRING_WORDS = "  abc12 x\uD83C\uDF41y,def";
+    @Nonnull
+    private static final Syntax SYNTAX = new Syntax(new int[0], new int[0]);
+
+    /**
+     * Asserts that {@link StringParserReader#advance()} advances the {@link StringParserReader} by one code point.
+     */
+    @Test
+    public void advanceNonBmp() {
+        final StringParserReader r = new StringParserReader(STRING_NON_BMP);
+        assertThat(r.getPosition(), is(0));
+        assertThat(r.getCurrentCodePoint(), is(0x78));
+
+        r.advance();
+        assertThat(r.getPosition(), is(1));
+        assertThat(r.getCurrentCodePoint(), is(0x1F341));
+
+        r.advance();
+        assertThat(r.getPosition(), is(3));
+        assertThat(r.getCurrentCodePoint(), is(0x79));
+
+        r.advance();
+        assertThat(r.getPosition(), is(4));
+        assertThat(r.getCurrentCodePoint(), is(-1));
+
+        r.advance();
+        assertThat(r.getPosition(), is(4));
+        assertThat(r.getCurrentCodePoint(), is(-1));
+    }
+
+    /**
+     * Asserts that {@link StringParserReader#copyFrom(StringParserReader)} copies the position of a different compatible
+     * {@link StringParserReader}.
+     */
+    @Test
+    public void copyFrom() {
+        final StringParserReader r0 = new StringParserReader(STRING, 1);
+        final StringParserReader r1 = r0.duplicate();
+        assertThat(r1, is(not(sameInstance(r0))));
+        r1.advance();
+        r0.copyFrom(r1);
+        assertThat(r0.getString(), is(sameInstance(STRING)));
+        assertThat(r0.getPosition(), is(2));
+        assertThat(r0.getCurrentCodePoint(), is(0x63));
+    }
+
+    /**
+     * Asserts that {@link StringParserReader#copyFrom(StringParserReader)} throws an {@link IllegalArgumentException} when the
+     * other {@link StringParserReader}'s String is different from the receiver's String.
+     */
+    @Test(expected = IllegalArgumentException.class)
+    public void copyFromWrongString() {
+        new StringParserReader(STRING, 1).copyFrom(new StringParserReader(STRING_NON_BMP, 1));
+    }
+
+    /**
+     * Asserts that {@link StringParserReader#indexOf(int)} returns the position of the next occurrence of a code point without
+     * advancing the {@link StringParserReader}.
+     */
+    @Test
+    public void indexOf() {
+        final StringParserReader r = new StringParserReader(STRING_WORDS, 3);
+        assertThat(r.indexOf(','), is(12));
+        assertThat(r.indexOf(0x1F341), is(9));
+        assertThat(r.indexOf('a'), is(-1));
+        assertThat(r.indexOf(-1), is(-1));
+        assertThat(r.getPosition(), is(3));
+    }
+
+    /**
+     * Asserts that {@link StringParserReader#regionMatches(boolean, CharSequence)} compares the text at the reader's current
+     * position with another text.
+     */
+    @Test
+    public void regionMatches() {
+        final StringParserReader r = new StringParserReader(STRING_WORDS, 2);
+        assertThat(r.regionMatches(false, "abc"), is(true));
+        assertThat(r.regionMatches(false, "ABC"), is(false));
+        assertThat(r.regionMatches(true, "ABC"), is(true));
+        assertThat(r.regionMatches(true, new StringBuilder("ABC")), is(true));
+        assertThat(r.regionMatches(false, new StringBuilder("abd")), is(false));
+        assertThat(new StringParserReader(STRING_WORDS, 13).regionMatches(false, "defg"), is(false));
+    }
+
+    /**
+     * Asserts that {@link StringParserReader#reset(int)} restores a position returned by {@link StringParserReader#mark()}.
+     */
+    @Test
+    public void reset() {
+        final StringParserReader r = new StringParserReader(STRING, 1);
+        final int mark = r.mark();
+        r.advance();
+        r.reset(mark);
+        assertThat(r.getPosition(), is(1));
+        assertThat(r.getCurrentCodePoint(), is(0x62));
+    }
+
+    /**
+     * Asserts that {@link StringParserReader#reset(int)} throws an {@link IllegalArgumentException} when the <code>mark</code>
+     * argument is negative.
+     */
+    @Test(expected = IllegalArgumentException.class)
+    public void resetTooLow() {
+        new StringParserReader(STRING).reset(-1);
+    }
+
+    /**
+     * Asserts that {@link StringParserReader#skipWhile(Syntax, int)} advances the {@link StringParserReader} past the code points
+     * that belong to the specified classes.
+     */
+    @Test
+    public void skipWhile() {
+        final StringParserReader r = new StringParserReader(STRING_WORDS);
+        assertThat(r.skipWhile(SYNTAX, Syntax.WHITESPACE), is(2));
+        assertThat(r.getCurrentCodePoint(), is(0x61));
+        assertThat(r.skipWhile(SYNTAX, Syntax.IDENTIFIER), is(5));
+        assertThat(r.getPosition(), is(7));
+        r.advance();
+        assertThat(r.skipWhile(SYNTAX, Syntax.IDENTIFIER), is(3));
+        assertThat(r.getPosition(), is(12));
+        assertThat(r.getCurrentCodePoint(), is((int) ','));
+    }
+
+    /**
+     * Asserts that {@link StringParserReader#StringParserReader(String, int)} throws an {@link IllegalArgumentException} when the
+     * <code>position</code> argument is greater than the {@link String}'s length.
+     */
+    @Test(expected = IllegalArgumentException.class)
+    public void stringParserReaderStringIntPositionTooHigh() {
+        new StringParserReader(STRING, 4);
+    }
+
+    /**
+     * Asserts that {@link StringParserReader#StringParserReader(String)} throws a {@link NullPointerException} when the
+     * <code>string</code> argument is <code>null</code>.
+     */
+    @Test(expected = NullPointerException.class)
+    public void stringParserReaderStringNullString() {
+        new StringParserReader(null);
+    }
+
+}